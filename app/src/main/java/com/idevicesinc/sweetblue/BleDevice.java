@@ -7,6 +7,7 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.content.BroadcastReceiver;
+import android.util.SparseIntArray;
 
 import com.idevicesinc.sweetblue.BleDevice.BondListener.BondEvent;
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.ConnectionFailEvent;
@@ -54,6 +55,7 @@ import com.idevicesinc.sweetblue.utils.Uuids;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -193,6 +195,14 @@ public class BleDevice extends BleNode
 			return this;
 		}
 
+		/**
+		 * Set a {@link FutureData} instance whose data will be requested right before the write is actually sent off.
+		 */
+		public WriteBuilder setData(FutureData data) {
+			this.data = data;
+			return this;
+		}
+
 		/**
 		 * Set the boolean to write.
 		 */
@@ -681,6 +691,16 @@ public class BleDevice extends BleNode
 			public @Nullable(Nullable.Prevalence.NEVER)  byte[] data() {  return m_data;  }
 			private final byte[] m_data;
 
+			/**
+			 * For successful change-tracking results, i.e. from {@link BleDevice#startChangeTrackingPoll(UUID, Interval, ReadWriteListener)},
+			 * this is the value that {@link #data()} changed from, but only if {@link BleDeviceConfig#retainPreviousValueForChangeTracking}
+			 * is <code>true</code>. This will never be <code>null</code>. In all other cases, including the first value seen, it will be a
+			 * zero-length array.
+			 */
+			@com.idevicesinc.sweetblue.annotations.Advanced
+			public @Nullable(Nullable.Prevalence.NEVER)  byte[] previousData() {  return m_previousData;  }
+			private final byte[] m_previousData;
+
 			/**
 			 * This value gets updated as a result of a {@link BleDevice#readRssi(ReadWriteListener)} call. It will
 			 * always be equivalent to {@link BleDevice#getRssi()} but is included here for convenience.
@@ -766,6 +786,11 @@ public class BleDevice extends BleNode
 			private final BleConnectionPriority m_connectionPriority;
 
 			ReadWriteEvent(BleDevice device, UUID serviceUuid, UUID charUuid, UUID descUuid, Type type, Target target, byte[] data, Status status, int gattStatus, double totalTime, double transitTime, boolean solicited)
+			{
+				this(device, serviceUuid, charUuid, descUuid, type, target, data, status, gattStatus, totalTime, transitTime, solicited, /*previousData=*/null);
+			}
+
+			ReadWriteEvent(BleDevice device, UUID serviceUuid, UUID charUuid, UUID descUuid, Type type, Target target, byte[] data, Status status, int gattStatus, double totalTime, double transitTime, boolean solicited, byte[] previousData)
 			{
 				this.m_device = device;
 				this.m_serviceUuid = serviceUuid != null ? serviceUuid : NON_APPLICABLE_UUID;
@@ -778,6 +803,7 @@ public class BleDevice extends BleNode
 				this.m_totalTime = Interval.secs(totalTime);
 				this.m_transitTime = Interval.secs(transitTime);
 				this.m_data = data != null ? data : EMPTY_BYTE_ARRAY;
+				this.m_previousData = previousData != null ? previousData : EMPTY_BYTE_ARRAY;
 				this.m_rssi = device.getRssi();
 				this.m_mtu = device.getMtu();
 				this.m_solicited = solicited;
@@ -797,6 +823,7 @@ public class BleDevice extends BleNode
 				this.m_totalTime = Interval.secs(totalTime);
 				this.m_transitTime = Interval.secs(transitTime);
 				this.m_data = EMPTY_BYTE_ARRAY;
+				this.m_previousData = EMPTY_BYTE_ARRAY;
 				this.m_rssi = status == Status.SUCCESS ? rssi : device.getRssi();
 				this.m_mtu = device.getMtu();
 				this.m_solicited = solicited;
@@ -816,6 +843,7 @@ public class BleDevice extends BleNode
 				this.m_totalTime = Interval.secs(totalTime);
 				this.m_transitTime = Interval.secs(transitTime);
 				this.m_data = EMPTY_BYTE_ARRAY;
+				this.m_previousData = EMPTY_BYTE_ARRAY;
 				this.m_rssi = device.getRssi();
 				this.m_mtu = status == Status.SUCCESS ? mtu : device.getMtu();
 				this.m_solicited = solicited;
@@ -835,6 +863,7 @@ public class BleDevice extends BleNode
 				this.m_totalTime = Interval.secs(totalTime);
 				this.m_transitTime = Interval.secs(transitTime);
 				this.m_data = EMPTY_BYTE_ARRAY;
+				this.m_previousData = EMPTY_BYTE_ARRAY;
 				this.m_rssi = device.getRssi();
 				this.m_mtu = device.getMtu();
 				this.m_solicited = solicited;
@@ -1393,11 +1422,24 @@ public class BleDevice extends BleNode
 			 * including the current instance. Thus this list will always have at least a length of one (except if {@link #isNull()} is <code>true</code>).
 			 * The list length is "reset" back to one whenever a {@link BleDeviceState#CONNECTING_OVERALL} operation completes, either
 			 * through becoming {@link BleDeviceState#INITIALIZED}, or {@link BleDeviceState#DISCONNECTED} for good.
+			 * <br><br>
+			 * Only the most recent {@link BleDeviceConfig#maxConnectionFailHistorySize} events are retained - use
+			 * {@link BleDevice#getConnectionFailStats()} for aggregates over the whole retry cycle.
+			 * The history is copied when this event is created, so it never changes afterwards. All entries except the last one
+			 * (this instance) are copies of the earlier events whose own {@link #history()} only contains themselves.
 			 */
 			public ConnectionFailEvent[] history()  {  return m_history;  }
 			private final ConnectionFailEvent[] m_history;
 
-			ConnectionFailEvent(BleDevice device, Status reason, Timing timing, int failureCountSoFar, Interval latestAttemptTime, Interval totalAttemptTime, int gattStatus, BleDeviceState highestStateReached, BleDeviceState highestStateReached_total, AutoConnectUsage autoConnectUsage, int bondFailReason, ReadWriteListener.ReadWriteEvent txnFailReason, ArrayList<ConnectionFailEvent> history)
+			/**
+			 * Same as {@link #history()} but as a read-only {@link List}.
+			 */
+			public List<ConnectionFailEvent> historyView()
+			{
+				return Collections.unmodifiableList(Arrays.asList(m_history));
+			}
+
+			ConnectionFailEvent(BleDevice device, Status reason, Timing timing, int failureCountSoFar, Interval latestAttemptTime, Interval totalAttemptTime, int gattStatus, BleDeviceState highestStateReached, BleDeviceState highestStateReached_total, AutoConnectUsage autoConnectUsage, int bondFailReason, ReadWriteListener.ReadWriteEvent txnFailReason, P_ConnectionFailHistory history_nullable)
 			{
 				super(failureCountSoFar, latestAttemptTime, totalAttemptTime, gattStatus, autoConnectUsage);
 
@@ -1409,25 +1451,36 @@ public class BleDevice extends BleNode
 				this.m_bondFailReason = bondFailReason;
 				this.m_txnFailReason = txnFailReason;
 
-				if( history == null )
-				{
-					this.m_history = EMPTY_HISTORY();
-				}
-				else
-				{
-					this.m_history = new ConnectionFailEvent[history.size()+1];
-					for( int i = 0; i < history.size(); i++ )
-					{
-						this.m_history[i] = history.get(i);
-					}
-
-					this.m_history[this.m_history.length-1] = this;
-				}
+				this.m_history = history_nullable != null ? history_nullable.snapshot(this) : EMPTY_HISTORY();
 
 				m_device.getManager().ASSERT(highestStateReached != null, "highestState_latest shouldn't be null.");
 				m_device.getManager().ASSERT(highestStateReached_total != null, "highestState_total shouldn't be null.");
 			}
 
+			private ConnectionFailEvent(final ConnectionFailEvent original)
+			{
+				super(original.failureCountSoFar(), original.attemptTime_latest(), original.attemptTime_total(), original.gattStatus(), original.autoConnectUsage());
+
+				this.m_device = original.m_device;
+				this.m_status = original.m_status;
+				this.m_timing = original.m_timing;
+				this.m_highestStateReached_latest = original.m_highestStateReached_latest;
+				this.m_highestStateReached_total = original.m_highestStateReached_total;
+				this.m_bondFailReason = original.m_bondFailReason;
+				this.m_txnFailReason = original.m_txnFailReason;
+
+				this.m_history = new ConnectionFailEvent[]{this};
+			}
+
+			/**
+			 * Returns a copy whose {@link #history()} is just itself. The history ring keeps these instead of the events themselves,
+			 * otherwise every event would keep all earlier ones reachable through their own histories.
+			 */
+			ConnectionFailEvent detached()
+			{
+				return new ConnectionFailEvent(this);
+			}
+
 			private static ConnectionFailEvent[] s_emptyHistory = null;
 			static ConnectionFailEvent[] EMPTY_HISTORY()
 			{
@@ -1446,6 +1499,11 @@ public class BleDevice extends BleNode
 				return new ConnectionFailListener.ConnectionFailEvent(device, reason, Timing.TIMED_OUT, 0, Interval.ZERO, Interval.ZERO, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.NULL, BleDeviceState.NULL, AutoConnectUsage.NOT_APPLICABLE, BleStatuses.BOND_FAIL_REASON_NOT_APPLICABLE, device.NULL_READWRITE_EVENT(), null);
 			}
 
+			static ConnectionFailEvent CANCELLED(BleDevice device, Status reason)
+			{
+				return new ConnectionFailListener.ConnectionFailEvent(device, reason, Timing.NOT_APPLICABLE, 0, Interval.ZERO, Interval.ZERO, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.NULL, BleDeviceState.NULL, AutoConnectUsage.NOT_APPLICABLE, BleStatuses.BOND_FAIL_REASON_NOT_APPLICABLE, device.NULL_READWRITE_EVENT(), null);
+			}
+
 			/**
 			 * Returns whether this {@link ConnectionFailEvent} instance is a "dummy" value. For now used for
 			 * {@link BleNodeConfig.ReconnectFilter.ReconnectEvent#connectionFailEvent()} in certain situations.
@@ -1499,6 +1557,89 @@ public class BleDevice extends BleNode
 			}
 		}
 
+		/**
+		 * Running aggregates over every {@link ConnectionFailEvent} of the current connection attempt cycle, including those that have
+		 * already dropped out of {@link ConnectionFailEvent#history()}. Returned by {@link BleDevice#getConnectionFailStats()}.
+		 */
+		@Immutable
+		public static class ConnectionFailStats
+		{
+			/**
+			 * Total number of failures since the first call to {@link BleDevice#connect()} of the current cycle.
+			 */
+			public int totalCount() {  return m_totalCount;  }
+			private final int m_totalCount;
+
+			private final int[] m_statusCounts;
+			private final int[] m_timingCounts;
+			private final SparseIntArray m_gattStatusCounts;
+
+			/**
+			 * Shortest {@link ConnectionFailEvent#attemptTime_latest()} seen, or {@link Interval#ZERO} if {@link #totalCount()} is zero.
+			 */
+			public Interval attemptTime_min() {  return m_attemptTimeMin;  }
+			private final Interval m_attemptTimeMin;
+
+			/**
+			 * Longest {@link ConnectionFailEvent#attemptTime_latest()} seen, or {@link Interval#ZERO} if {@link #totalCount()} is zero.
+			 */
+			public Interval attemptTime_max() {  return m_attemptTimeMax;  }
+			private final Interval m_attemptTimeMax;
+
+			/**
+			 * Average {@link ConnectionFailEvent#attemptTime_latest()}, or {@link Interval#ZERO} if {@link #totalCount()} is zero.
+			 */
+			public Interval attemptTime_average() {  return m_attemptTimeAverage;  }
+			private final Interval m_attemptTimeAverage;
+
+			ConnectionFailStats(int totalCount, int[] statusCounts, int[] timingCounts, SparseIntArray gattStatusCounts, double attemptTimeMin, double attemptTimeMax, double attemptTimeAverage)
+			{
+				m_totalCount = totalCount;
+				m_statusCounts = statusCounts;
+				m_timingCounts = timingCounts;
+				m_gattStatusCounts = gattStatusCounts;
+				m_attemptTimeMin = Interval.secs(attemptTimeMin);
+				m_attemptTimeMax = Interval.secs(attemptTimeMax);
+				m_attemptTimeAverage = Interval.secs(attemptTimeAverage);
+			}
+
+			/**
+			 * Number of failures whose {@link ConnectionFailEvent#status()} was the given {@link Status}.
+			 */
+			public int count(final Status status)
+			{
+				return m_statusCounts[status.ordinal()];
+			}
+
+			/**
+			 * Number of failures whose {@link ConnectionFailEvent#timing()} was the given {@link Timing}.
+			 */
+			public int count(final Timing timing)
+			{
+				return m_timingCounts[timing.ordinal()];
+			}
+
+			/**
+			 * Number of failures whose {@link ConnectionFailEvent#gattStatus()} was the given value.
+			 */
+			public int countForGattStatus(final int gattStatus)
+			{
+				return m_gattStatusCounts.get(gattStatus);
+			}
+
+			@Override public String toString()
+			{
+				return Utils_String.toString
+				(
+					this.getClass(),
+					"totalCount",			totalCount(),
+					"attemptTime_min",		attemptTime_min(),
+					"attemptTime_max",		attemptTime_max(),
+					"attemptTime_average",	attemptTime_average()
+				);
+			}
+		}
+
 		/**
 		 * Return value is ignored if device is either {@link BleDeviceState#RECONNECTING_LONG_TERM} or reason
 		 * {@link Status#allowsRetry()} is <code>false</code>. If the device is {@link BleDeviceState#RECONNECTING_LONG_TERM}
@@ -1638,6 +1779,136 @@ public class BleDevice extends BleNode
 		}
 	}
 
+	/**
+	 * Provide an implementation to {@link BleDevice#read_batch(List, BatchReadListener)} to receive the results of several reads at once.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface BatchReadListener extends com.idevicesinc.sweetblue.utils.GenericListener_Void<BatchReadListener.BatchReadEvent>
+	{
+		/**
+		 * One characteristic to read as part of {@link BleDevice#read_batch(List, BatchReadListener)}.
+		 */
+		@Immutable
+		public static class ReadTarget
+		{
+			/**
+			 * The service uuid, or <code>null</code> to use the first service that has {@link #charUuid()}.
+			 */
+			public @Nullable(Prevalence.NORMAL) UUID serviceUuid(){  return m_serviceUuid;  }
+			private final UUID m_serviceUuid;
+
+			/**
+			 * The characteristic to read.
+			 */
+			public @Nullable(Prevalence.NEVER) UUID charUuid(){  return m_charUuid;  }
+			private final UUID m_charUuid;
+
+			public ReadTarget(final UUID serviceUuid_nullable, final UUID charUuid)
+			{
+				m_serviceUuid = serviceUuid_nullable;
+				m_charUuid = charUuid;
+			}
+
+			public ReadTarget(final UUID charUuid)
+			{
+				this(null, charUuid);
+			}
+
+			@Override public String toString()
+			{
+				return m_serviceUuid == null ? m_charUuid.toString() : m_serviceUuid + "/" + m_charUuid;
+			}
+		}
+
+		/**
+		 * Result of {@link BleDevice#read_batch(List, BatchReadListener)}, holding one {@link ReadWriteEvent} per {@link ReadTarget}.
+		 */
+		@Immutable
+		public static class BatchReadEvent extends com.idevicesinc.sweetblue.utils.Event
+		{
+			/**
+			 * The {@link BleDevice} the reads were for.
+			 */
+			public BleDevice device(){  return m_device;  }
+			private final BleDevice m_device;
+
+			/**
+			 * Convience to return the mac address of {@link #device()}.
+			 */
+			public String macAddress()  {  return m_device.getMacAddress();  }
+
+			/**
+			 * One event per {@link ReadTarget}, in the order they were passed in. Each has its own {@link ReadWriteEvent#status()},
+			 * {@link ReadWriteEvent#data()}, and {@link ReadWriteEvent#time_ota()}. A read that times out only fails its own target and the
+			 * batch moves on to the next one. If the batch ended early, for example because the device disconnected, the targets that
+			 * weren't read yet carry the status that ended it.
+			 */
+			public @Nullable(Prevalence.NEVER) List<ReadWriteEvent> results(){  return m_results;  }
+			private final List<ReadWriteEvent> m_results;
+
+			/**
+			 * Time from the call to {@link BleDevice#read_batch(List, BatchReadListener)} until the last read completed.
+			 */
+			public Interval time_total(){  return m_totalTime;  }
+			private final Interval m_totalTime;
+
+			BatchReadEvent(final BleDevice device, final List<ReadWriteEvent> results, final double totalTime)
+			{
+				m_device = device;
+				m_results = Collections.unmodifiableList(results);
+				m_totalTime = Interval.secs(totalTime);
+			}
+
+			/**
+			 * Returns the result for the given characteristic, or <code>null</code> if it wasn't part of the batch.
+			 */
+			public @Nullable(Prevalence.NORMAL) ReadWriteEvent result(final UUID charUuid)
+			{
+				for( int i = 0; i < m_results.size(); i++ )
+				{
+					if( m_results.get(i).charUuid().equals(charUuid) )  return m_results.get(i);
+				}
+
+				return null;
+			}
+
+			/**
+			 * Returns how many of {@link #results()} succeeded.
+			 */
+			public int successCount()
+			{
+				int count = 0;
+
+				for( int i = 0; i < m_results.size(); i++ )
+				{
+					if( m_results.get(i).wasSuccess() )  count++;
+				}
+
+				return count;
+			}
+
+			/**
+			 * Returns <code>true</code> if every read in the batch succeeded.
+			 */
+			public boolean wasSuccess()
+			{
+				return successCount() == m_results.size();
+			}
+
+			@Override public String toString()
+			{
+				return Utils_String.toString
+				(
+					this.getClass(),
+					"device",			device().getName_debug(),
+					"successCount",		successCount(),
+					"total",			m_results.size(),
+					"time_total",		time_total()
+				);
+			}
+		}
+	}
+
 	/**
 	 * Pass an instance of this listener to {@link BleDevice#setListener_Bond(BondListener)} or {@link BleDevice#bond(BondListener)}.
 	 */
@@ -1867,8 +2138,9 @@ public class BleDevice extends BleNode
 	private BleDeviceOrigin m_origin_latest;
 
 	private BleConnectionPriority m_connectionPriority = BleConnectionPriority.MEDIUM;
-	private int m_mtu = 0;
-	private int m_rssi = 0;
+	//--- Volatile so that read-only accessors can be called from any thread, see BleNodeConfig#allowReadsFromAllThreads.
+	private volatile int m_mtu = 0;
+	private volatile int m_rssi = 0;
 	private int m_advertisingFlags = 0x0;
 	private Integer m_knownTxPower = null;
 	private byte[] m_scanRecord = EMPTY_BYTE_ARRAY;
@@ -1880,8 +2152,12 @@ public class BleDevice extends BleNode
 	private Boolean m_lastConnectOrDisconnectWasUserExplicit = null;
 	private boolean m_lastDisconnectWasBecauseOfBleTurnOff = false;
 	private boolean m_underwentPossibleImplicitBondingAttempt = false;
+	private long m_timeOfConnectStart = 0L;
+	private boolean m_usedGattSchemaCache = false;
 
 	private BleDeviceConfig m_config = null;
+	private P_EffectiveDeviceConfig m_effectiveConfig = null;
+	private ArrayList<BleFuture<BleDevice>> m_connectFutures = null;
 
 	private BondListener.BondEvent m_nullBondEvent = null;
 	private ReadWriteListener.ReadWriteEvent m_nullReadWriteEvent = null;
@@ -2034,6 +2310,7 @@ public class BleDevice extends BleNode
 		m_connectionFailMngr.setListener(null);
 		stateTracker_main().setListener(null);
 		m_config = null;
+		m_effectiveConfig = null;
 	}
 
 	private void clear_undiscovery()
@@ -2059,13 +2336,16 @@ public class BleDevice extends BleNode
 		if (isNull())  return;
 
 		m_config = config_nullable == null ? null : config_nullable.clone();
+		refreshEffectiveConfig();
 
 		initEstimators();
 
+		getManager().m_deviceMngr.onConfigChanged(this);
+
 		//--- DRK > Not really sure how this config option should be
 		// interpreted, but here's a first stab for now.
 		//--- Fringe enough use case that I don't think it's really a big deal.
-		boolean alwaysUseAutoConnect = BleDeviceConfig.bool(conf_device().alwaysUseAutoConnect, conf_mngr().alwaysUseAutoConnect);
+		boolean alwaysUseAutoConnect = conf_effective().alwaysUseAutoConnect;
 		if (alwaysUseAutoConnect)
 		{
 			m_alwaysUseAutoConnect = m_useAutoConnect = true;
@@ -2101,6 +2381,40 @@ public class BleDevice extends BleNode
 		return m_config != null ? m_config : conf_mngr();
 	}
 
+	/**
+	 * Returns {@link #conf_device()} resolved against {@link #conf_mngr()} once, for config reads on hot paths.
+	 */
+	P_EffectiveDeviceConfig conf_effective()
+	{
+		if( m_effectiveConfig == null )
+		{
+			m_effectiveConfig = new P_EffectiveDeviceConfig(this);
+		}
+
+		return m_effectiveConfig;
+	}
+
+	void refreshEffectiveConfig()
+	{
+		m_effectiveConfig = new P_EffectiveDeviceConfig(this);
+	}
+
+	@Override void enforceMainThread()
+	{
+		if( false == conf_effective().allowCallsFromAllThreads )
+		{
+			Utils.enforceMainThread(BleNodeConfig.WRONG_THREAD_MESSAGE);
+		}
+	}
+
+	@Override void enforceMainThread_read()
+	{
+		if( false == conf_effective().allowReadsFromAllThreads )
+		{
+			Utils.enforceMainThread(BleNodeConfig.WRONG_THREAD_MESSAGE);
+		}
+	}
+
 	@Override BleNodeConfig conf_node()
 	{
 		return conf_device();
@@ -2157,7 +2471,7 @@ public class BleDevice extends BleNode
 
 		if( isNull() )  return State.ChangeIntent.NULL;
 
-		boolean hitDisk = BleDeviceConfig.bool(conf_device().manageLastDisconnectOnDisk, conf_mngr().manageLastDisconnectOnDisk);
+		boolean hitDisk = conf_effective().manageLastDisconnectOnDisk;
 		State.ChangeIntent lastDisconnect = getManager().m_diskOptionsMngr.loadLastDisconnect(getMacAddress(), hitDisk);
 
 		return lastDisconnect;
@@ -2244,6 +2558,18 @@ public class BleDevice extends BleNode
 		return m_connectionFailMngr.getRetryCount();
 	}
 
+	/**
+	 * Returns aggregates (counts by {@link ConnectionFailListener.Status}, {@link ConnectionFailListener.Timing} and gatt status, plus attempt time
+	 * statistics) over all connection failures of the current connection attempt cycle. Unlike {@link ConnectionFailListener.ConnectionFailEvent#history()}
+	 * these aggregates aren't bounded by {@link BleDeviceConfig#maxConnectionFailHistorySize}.
+	 */
+	public @Nullable(Prevalence.NEVER) ConnectionFailListener.ConnectionFailStats getConnectionFailStats()
+	{
+		enforceMainThread();
+
+		return m_connectionFailMngr.getStats();
+	}
+
 	/**
 	 * Returns the bitwise state mask representation of {@link BleDeviceState} for this device.
 	 *
@@ -2252,7 +2578,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public int getStateMask()
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return stateTracker_main().getState();
 	}
@@ -2265,7 +2591,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public int getNativeStateMask()
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return stateTracker().getState();
 	}
@@ -2284,6 +2610,33 @@ public class BleDevice extends BleNode
 		return m_readTimeEstimator != null ? Interval.secs(m_readTimeEstimator.getRunningAverage()) : Interval.ZERO;
 	}
 
+	/**
+	 * Returns how many results of polls started with {@link #startChangeTrackingPoll(UUID, Interval, ReadWriteListener)} (or forced reads
+	 * from {@link #enableNotify(UUID, Interval, ReadWriteListener)}) came back identical to the previous value, and so weren't passed
+	 * to the poll's listener, see {@link BleDeviceConfig#dropUnchangedChangeTrackingEvents}. Compare with {@link #getChangeTrackingMissCount()} to tune your poll rates - a high ratio of hits
+	 * to misses means you're probably polling faster than the value actually changes.
+	 */
+	@Advanced
+	public int getChangeTrackingHitCount()
+	{
+		enforceMainThread();
+
+		return m_pollMngr.getChangeTrackingHits();
+	}
+
+	/**
+	 * Returns how many results of change-tracking polls were different from the previous value and so were delivered.
+	 *
+	 * @see #getChangeTrackingHitCount()
+	 */
+	@Advanced
+	public int getChangeTrackingMissCount()
+	{
+		enforceMainThread();
+
+		return m_pollMngr.getChangeTrackingMisses();
+	}
+
 	/**
 	 * Returns the average round trip time in seconds for all write operations started with {@link #write(UUID, byte[])} or
 	 * {@link #write(UUID, byte[], ReadWriteListener)}. This is a running average with N being defined by
@@ -2306,7 +2659,7 @@ public class BleDevice extends BleNode
 	 */
 	public int getRssi()
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return m_rssi;
 	}
@@ -2316,7 +2669,7 @@ public class BleDevice extends BleNode
 	 */
 	public Percent getRssiPercent()
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if (isNull())
 		{
@@ -2324,9 +2677,8 @@ public class BleDevice extends BleNode
 		}
 		else
 		{
-			final int rssi_min = BleDeviceConfig.integer(conf_device().rssi_min, conf_mngr().rssi_min, BleDeviceConfig.DEFAULT_RSSI_MIN);
-			final int rssi_max = BleDeviceConfig.integer(conf_device().rssi_max, conf_mngr().rssi_max, BleDeviceConfig.DEFAULT_RSSI_MAX);
-			final double percent = Utils_Rssi.percent(getRssi(), rssi_min, rssi_max);
+			final P_EffectiveDeviceConfig config = conf_effective();
+			final double percent = Utils_Rssi.percent(getRssi(), config.rssi_min, config.rssi_max);
 
 			return Percent.fromDouble_clamped(percent);
 		}
@@ -2338,7 +2690,7 @@ public class BleDevice extends BleNode
 	 */
 	public Distance getDistance()
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if (isNull())
 		{
@@ -2360,7 +2712,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public int getTxPower()
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if (isNull())
 		{
@@ -2374,10 +2726,7 @@ public class BleDevice extends BleNode
 			}
 			else
 			{
-				final Integer defaultTxPower = BleDeviceConfig.integer(conf_device().defaultTxPower, conf_mngr().defaultTxPower);
-				final int toReturn = defaultTxPower == null || defaultTxPower == BleNodeConfig.INVALID_TX_POWER ? BleDeviceConfig.DEFAULT_TX_POWER : defaultTxPower;
-
-				return toReturn;
+				return conf_effective().defaultTxPower;
 			}
 		}
 	}
@@ -2471,7 +2820,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public @Nullable(Nullable.Prevalence.NEVER) HistoricalDataCursor getHistoricalData_cursor(final UUID uuid)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return getHistoricalData_cursor(uuid, EpochTimeRange.FROM_MIN_TO_MAX);
 	}
@@ -2484,7 +2833,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public @Nullable(Nullable.Prevalence.NEVER) HistoricalDataCursor getHistoricalData_cursor(final UUID uuid, final EpochTimeRange range)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return m_historicalDataMngr.getCursor(uuid, range);
 	}
@@ -2517,7 +2866,11 @@ public class BleDevice extends BleNode
 	}
 
 	/**
-	 * Loads all historical data to memory for this device for the given {@link UUID}.
+	 * Loads all historical data to memory for this device for the given {@link UUID}. Loads for all devices share a small pool of
+	 * background threads, so the listener usually hears {@link HistoricalDataLoadListener.Status#QUEUED} right away, then
+	 * {@link HistoricalDataLoadListener.Status#STARTED_LOADING} once a thread is free, then {@link HistoricalDataLoadListener.Status#LOADED}.
+	 * If the device is undiscovered while the load is still queued it hears {@link HistoricalDataLoadListener.Status#CANCELLED} instead
+	 * and nothing after that.
 	 */
 	@Advanced
 	public void loadHistoricalData(final UUID uuid, final HistoricalDataLoadListener listener)
@@ -2529,6 +2882,20 @@ public class BleDevice extends BleNode
 		m_historicalDataMngr.load(uuid, listener);
 	}
 
+	/**
+	 * Historical data loads, queries, and deletes for all devices share a small pool of background threads. By default connected
+	 * devices get threads first - pass <code>true</code> here to put this device ahead of those too, for example while it's on screen.
+	 */
+	@Advanced
+	public void setHistoricalDataPrioritized(final boolean prioritized)
+	{
+		enforceMainThread();
+
+		if( isNull() )  return;
+
+		m_historicalDataMngr.setPrioritized(prioritized);
+	}
+
 	/**
 	 * Returns whether the device is currently loading any historical data to memory, either through
 	 * {@link #loadHistoricalData()} (or overloads) or {@link #getHistoricalData_iterator(UUID)} (or overloads).
@@ -2548,7 +2915,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public boolean isHistoricalDataLoading(final UUID uuid)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return m_historicalDataMngr.isLoading(uuid);
 	}
@@ -2577,7 +2944,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public boolean isHistoricalDataLoaded(final UUID uuid)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return m_historicalDataMngr.isLoaded(uuid);
 	}
@@ -2620,7 +2987,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public @Nullable(Nullable.Prevalence.NEVER) Iterator<HistoricalData> getHistoricalData_iterator(final UUID uuid, final EpochTimeRange range)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return new EmptyIterator<HistoricalData>();
 
@@ -2652,7 +3019,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public boolean getHistoricalData_forEach(final UUID uuid, final EpochTimeRange range, final ForEach_Void<HistoricalData> forEach)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return false;
 
@@ -2684,7 +3051,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public boolean getHistoricalData_forEach(final UUID uuid, final EpochTimeRange range, final ForEach_Breakable<HistoricalData> forEach)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return false;
 
@@ -2714,7 +3081,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public @Nullable(Nullable.Prevalence.NEVER) HistoricalData getHistoricalData_atOffset(final UUID uuid, final EpochTimeRange range, final int offsetFromStart)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return HistoricalData.NULL;
 
@@ -2743,7 +3110,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public int getHistoricalDataCount(final UUID uuid, final EpochTimeRange range)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return 0;
 
@@ -2771,7 +3138,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public boolean hasHistoricalData(final EpochTimeRange range)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return false;
 
@@ -2807,7 +3174,7 @@ public class BleDevice extends BleNode
 			}
 		}
 
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return false;
 	}
@@ -2821,7 +3188,7 @@ public class BleDevice extends BleNode
 	@Advanced
 	public boolean hasHistoricalData(final UUID uuid, final EpochTimeRange range)
 	{
-		enforceMainThread();
+		enforceMainThread_read();
 
 		if( isNull() ) return false;
 
@@ -2944,7 +3311,7 @@ public class BleDevice extends BleNode
 			if (is(states[i]))  return true;
 		}
 
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return false;
 	}
@@ -2961,7 +3328,7 @@ public class BleDevice extends BleNode
 			if( !is(states[i]) )  return false;
 		}
 
-		enforceMainThread();
+		enforceMainThread_read();
 
 		return true;
 	}
@@ -3096,7 +3463,7 @@ public class BleDevice extends BleNode
 		{
 			m_nativeWrapper.setName_override(name);
 
-			final boolean saveToDisk = BleDeviceConfig.bool(conf_device().saveNameChangesToDisk, conf_mngr().saveNameChangesToDisk);
+			final boolean saveToDisk = conf_effective().saveNameChangesToDisk;
 
 			getManager().m_diskOptionsMngr.saveName(getMacAddress(), name, saveToDisk);
 		}
@@ -3520,6 +3887,69 @@ public class BleDevice extends BleNode
 		return NULL_CONNECTIONFAIL_INFO();
 	}
 
+	/**
+	 * Same as {@link #connect()} but returns a {@link BleFuture} that succeeds once the device is {@link BleDeviceState#INITIALIZED},
+	 * or fails with the {@link ConnectionFailEvent} once the connection attempt is given up on, i.e. after any retries requested
+	 * by your {@link ConnectionFailListener}. If the device is already {@link BleDeviceState#INITIALIZED} the future succeeds right away.
+	 * The future also fails if the attempt is cut short between retries, with {@link Status#EXPLICIT_DISCONNECT} for {@link #disconnect()}
+	 * or {@link #undiscover()}, and with {@link Status#BLE_TURNING_OFF} for {@link BleManager#reset()} or {@link BleManager#turnOff()}.
+	 */
+	public @Nullable(Prevalence.NEVER) BleFuture<BleDevice> connect_future()
+	{
+		final BleFuture<BleDevice> future = new BleFuture<BleDevice>();
+
+		if( is(INITIALIZED) )
+		{
+			future.succeed(this);
+
+			return future;
+		}
+
+		if( false == isNull() )
+		{
+			m_connectFutures = m_connectFutures != null ? m_connectFutures : new ArrayList<BleFuture<BleDevice>>();
+			m_connectFutures.add(future);
+		}
+
+		final ConnectionFailEvent earlyOut = connect();
+
+		//--- If we're already connecting the future is resolved by that attempt.
+		if( false == earlyOut.isNull() && earlyOut.status() != Status.ALREADY_CONNECTING_OR_CONNECTED )
+		{
+			if( m_connectFutures != null )
+			{
+				m_connectFutures.remove(future);
+			}
+
+			future.fail(earlyOut);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Resolves any pending {@link #connect_future()} handles, successfully if <code>failure_nullable</code> is <code>null</code>.
+	 */
+	void resolveConnectFutures(final ConnectionFailEvent failure_nullable)
+	{
+		if( m_connectFutures == null || m_connectFutures.isEmpty() )  return;
+
+		final ArrayList<BleFuture<BleDevice>> futures = m_connectFutures;
+		m_connectFutures = null;
+
+		for( int i = 0; i < futures.size(); i++ )
+		{
+			if( failure_nullable == null )
+			{
+				futures.get(i).succeed(this);
+			}
+			else
+			{
+				futures.get(i).fail(failure_nullable);
+			}
+		}
+	}
+
 	/**
 	 * Disconnects from a connected device or does nothing if already {@link BleDeviceState#DISCONNECTED}. You can call this at any point
 	 * during the connection process as a whole, during reads and writes, during transactions, whenever, and the device will cleanly cancel all ongoing
@@ -3818,6 +4248,77 @@ public class BleDevice extends BleNode
 		m_pollMngr.startPoll(serviceUuid, characteristicUuid, Interval.secs(interval), listener, /*trackChanges=*/true, /*usingNotify=*/false);
 	}
 
+	/**
+	 * Same as {@link #startPoll(UUID, Interval, ReadWriteListener)} but the poll interval adapts to how often the value actually changes.
+	 * It starts at <code>minInterval</code> and doubles after every read that returns the same data as the one before, up to
+	 * <code>maxInterval</code>, then snaps back to <code>minInterval</code> as soon as a change is seen. Reads that are nearly due
+	 * are also lined up with other adaptive polls and with {@link #startRssiPoll(Interval)} so the device is woken up once for all of them.
+	 * Use {@link #getEffectivePollInterval(UUID)} to see what interval a poll is currently running at.
+	 * <br><br>
+	 * TIP: You can call this method when the device is in any {@link BleDeviceState}, even {@link BleDeviceState#DISCONNECTED}.
+	 *
+	 * @see #startAdaptiveChangeTrackingPoll(UUID, Interval, Interval, ReadWriteListener)
+	 */
+	@Advanced
+	public void startAdaptivePoll(final UUID characteristicUuid, final Interval minInterval, final Interval maxInterval, final ReadWriteListener listener)
+	{
+		startAdaptivePoll(null, characteristicUuid, minInterval, maxInterval, listener);
+	}
+
+	/**
+	 * Overload of {@link #startAdaptivePoll(UUID, Interval, Interval, ReadWriteListener)} for when you have characteristics with identical uuids under different services.
+	 */
+	@Advanced
+	public void startAdaptivePoll(final UUID serviceUuid, final UUID characteristicUuid, final Interval minInterval, final Interval maxInterval, final ReadWriteListener listener)
+	{
+		enforceMainThread();
+
+		m_pollMngr.startPoll(serviceUuid, characteristicUuid, Interval.secs(minInterval), Interval.secs(maxInterval), listener, /*trackChanges=*/false, /*usingNotify=*/false);
+	}
+
+	/**
+	 * Combination of {@link #startChangeTrackingPoll(UUID, Interval, ReadWriteListener)} and {@link #startAdaptivePoll(UUID, Interval, Interval, ReadWriteListener)},
+	 * so the listener is only called when the value changes and the poll slows down while it doesn't.
+	 */
+	@Advanced
+	public void startAdaptiveChangeTrackingPoll(final UUID characteristicUuid, final Interval minInterval, final Interval maxInterval, final ReadWriteListener listener)
+	{
+		startAdaptiveChangeTrackingPoll(null, characteristicUuid, minInterval, maxInterval, listener);
+	}
+
+	/**
+	 * Overload of {@link #startAdaptiveChangeTrackingPoll(UUID, Interval, Interval, ReadWriteListener)} for when you have characteristics with identical uuids under different services.
+	 */
+	@Advanced
+	public void startAdaptiveChangeTrackingPoll(final UUID serviceUuid, final UUID characteristicUuid, final Interval minInterval, final Interval maxInterval, final ReadWriteListener listener)
+	{
+		enforceMainThread();
+
+		m_pollMngr.startPoll(serviceUuid, characteristicUuid, Interval.secs(minInterval), Interval.secs(maxInterval), listener, /*trackChanges=*/true, /*usingNotify=*/false);
+	}
+
+	/**
+	 * Returns the interval that the fastest poll of the given characteristic is currently running at. For polls started with
+	 * {@link #startAdaptivePoll(UUID, Interval, Interval, ReadWriteListener)} this is somewhere between the minimum and maximum, otherwise
+	 * it's just the interval the poll was started with. Returns {@link Interval#DISABLED} if the characteristic isn't being polled.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NEVER) Interval getEffectivePollInterval(final UUID characteristicUuid)
+	{
+		return getEffectivePollInterval(null, characteristicUuid);
+	}
+
+	/**
+	 * Overload of {@link #getEffectivePollInterval(UUID)} for when you have characteristics with identical uuids under different services.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NEVER) Interval getEffectivePollInterval(final UUID serviceUuid, final UUID characteristicUuid)
+	{
+		enforceMainThread();
+
+		return m_pollMngr.getEffectiveInterval(serviceUuid, characteristicUuid);
+	}
+
 	/**
 	 * Stops a poll(s) started by either {@link #startPoll(UUID, Interval, ReadWriteListener)} or
 	 * {@link #startChangeTrackingPoll(UUID, Interval, ReadWriteListener)}. This will stop all polls matching the provided parameters.
@@ -4330,6 +4831,8 @@ public class BleDevice extends BleNode
 	@Advanced
 	public int getMtu()
 	{
+		enforceMainThread_read();
+
 		return m_mtu == 0 ? BleDeviceConfig.DEFAULT_MTU_SIZE : m_mtu;
 	}
 
@@ -4506,6 +5009,11 @@ public class BleDevice extends BleNode
 
 	/**
 	 * Clears all {@link HistoricalData} tracked by this device.
+	 * <br><br>
+	 * NOTE: Data is gone from memory as soon as this returns, but it's deleted from the database on a background thread, after
+	 * any writes for this device that are already pending there. Until that happens, {@link #queryHistoricalData(String)} and
+	 * other direct database access may still see it. Use {@link #queryHistoricalData(String, HistoricalDataQueryListener)}, which
+	 * waits for earlier work like this, if that matters. This goes for all overloads that touch the database.
 	 *
 	 * @see BleNodeConfig.HistoricalDataLogFilter
 	 * @see BleNodeConfig.DefaultHistoricalDataLogFilter
@@ -4820,6 +5328,154 @@ public class BleDevice extends BleNode
 		return read_internal(serviceUuid, characteristicUuid, Uuids.INVALID, Type.READ, listener);
 	}
 
+	/**
+	 * Reads all the given characteristics back-to-back as a single task and delivers one {@link BatchReadListener.BatchReadEvent}
+	 * when they're all done, instead of one {@link ReadWriteEvent} each. The reads go out one after the other without other tasks
+	 * for this device in between, and without a trip through the task queue per read.
+	 * <br><br>
+	 * NOTE: Individual results are not passed to the {@link ReadWriteListener} instances given to
+	 * {@link #setListener_ReadWrite(ReadWriteListener)} or {@link BleManager#setListener_ReadWrite(ReadWriteListener)},
+	 * though they are still logged to historical data like any other read, as each one completes.
+	 */
+	public void read_batch(final List<BatchReadListener.ReadTarget> targets, final BatchReadListener listener)
+	{
+		enforceMainThread();
+
+		final long timeCreated = System.currentTimeMillis();
+		final ReadWriteEvent[] results = new ReadWriteEvent[targets.size()];
+		final ArrayList<BluetoothGattCharacteristic> characteristics = new ArrayList<BluetoothGattCharacteristic>(targets.size());
+		boolean requiresBonding = false;
+
+		for( int i = 0; i < targets.size(); i++ )
+		{
+			final BatchReadListener.ReadTarget target_ith = targets.get(i);
+			final ReadWriteEvent earlyOutResult = serviceMngr_device().getEarlyOutEvent(target_ith.serviceUuid(), target_ith.charUuid(), Uuids.INVALID, EMPTY_FUTURE_DATA, Type.READ, ReadWriteListener.Target.CHARACTERISTIC);
+
+			if( earlyOutResult != null )
+			{
+				results[i] = earlyOutResult;
+				characteristics.add(null);
+			}
+			else
+			{
+				final BluetoothGattCharacteristic characteristic = getServiceManager().getCharacteristic(target_ith.serviceUuid(), target_ith.charUuid());
+
+				requiresBonding |= m_bondMngr.bondIfNeeded(characteristic.getUuid(), BondFilter.CharacteristicEventType.READ);
+				characteristics.add(characteristic);
+			}
+		}
+
+		final P_Task_BatchRead task = new P_Task_BatchRead(this, characteristics, results, requiresBonding, listener, m_txnMngr.getCurrent(), getOverrideReadWritePriority());
+
+		if( task.isDone() )
+		{
+			invokeBatchReadCallback(listener, new BatchReadListener.BatchReadEvent(this, Arrays.asList(results), (System.currentTimeMillis() - timeCreated) / 1000.0));
+		}
+		else
+		{
+			queue().add(task);
+		}
+	}
+
+	/**
+	 * Overload of {@link #read_batch(List, BatchReadListener)} for when you only have characteristic uuids.
+	 */
+	public void read_batch(final Iterable<UUID> charUuids, final BatchReadListener listener)
+	{
+		final ArrayList<BatchReadListener.ReadTarget> targets = new ArrayList<BatchReadListener.ReadTarget>();
+		final Iterator<UUID> iterator = charUuids.iterator();
+
+		while( iterator.hasNext() )
+		{
+			targets.add(new BatchReadListener.ReadTarget(iterator.next()));
+		}
+
+		read_batch(targets, listener);
+	}
+
+	/**
+	 * Same as {@link #read(UUID, ReadWriteListener)} but returns a {@link BleFuture} that succeeds with the {@link ReadWriteEvent}
+	 * if {@link ReadWriteEvent#wasSuccess()}, and fails with it otherwise.
+	 * <br><br>
+	 * NOTE: The future is completed as an {@link InlineListener}, so unlike a listener passed to {@link #read(UUID, ReadWriteListener)},
+	 * it and its {@link BleFuture#then(BleFuture.Continuation)} continuations always run on the update thread and are never posted to the main thread.
+	 */
+	public @Nullable(Prevalence.NEVER) BleFuture<ReadWriteEvent> read_future(final UUID characteristicUuid)
+	{
+		final BleFuture<ReadWriteEvent> future = new BleFuture<ReadWriteEvent>();
+
+		read(characteristicUuid, newFutureListener(future));
+
+		return future;
+	}
+
+	/**
+	 * Same as {@link #write(UUID, byte[], ReadWriteListener)} but returns a {@link BleFuture}, see {@link #read_future(UUID)}.
+	 */
+	public @Nullable(Prevalence.NEVER) BleFuture<ReadWriteEvent> write_future(final UUID characteristicUuid, final byte[] data)
+	{
+		final BleFuture<ReadWriteEvent> future = new BleFuture<ReadWriteEvent>();
+
+		write(characteristicUuid, data, newFutureListener(future));
+
+		return future;
+	}
+
+	/**
+	 * Same as {@link #enableNotify(UUID, ReadWriteListener)} but returns a {@link BleFuture} that completes once notifications are
+	 * enabled or fail to be, see {@link #read_future(UUID)}. Subsequent notifications still go to {@link #setListener_ReadWrite(ReadWriteListener)}.
+	 */
+	public @Nullable(Prevalence.NEVER) BleFuture<ReadWriteEvent> enableNotify_future(final UUID characteristicUuid)
+	{
+		final BleFuture<ReadWriteEvent> future = new BleFuture<ReadWriteEvent>();
+
+		enableNotify(characteristicUuid, newFutureListener(future));
+
+		return future;
+	}
+
+	/**
+	 * Same as {@link #readRssi(ReadWriteListener)} but returns a {@link BleFuture}, see {@link #read_future(UUID)}.
+	 */
+	public @Nullable(Prevalence.NEVER) BleFuture<ReadWriteEvent> readRssi_future()
+	{
+		final BleFuture<ReadWriteEvent> future = new BleFuture<ReadWriteEvent>();
+
+		readRssi(newFutureListener(future));
+
+		return future;
+	}
+
+	private ReadWriteListener newFutureListener(final BleFuture<ReadWriteEvent> future)
+	{
+		return new FutureListener(future);
+	}
+
+	private static class FutureListener implements ReadWriteListener, InlineListener
+	{
+		private final BleFuture<ReadWriteEvent> m_future;
+
+		FutureListener(final BleFuture<ReadWriteEvent> future)
+		{
+			m_future = future;
+		}
+
+		@Override public void onEvent(final ReadWriteEvent e)
+		{
+			//--- Only the first event is the result, anything after that is a notification.
+			if( m_future.isDone() )  return;
+
+			if( e.wasSuccess() )
+			{
+				m_future.succeed(e);
+			}
+			else
+			{
+				m_future.fail(e);
+			}
+		}
+	}
+
 	/**
 	 * Returns <code>true</code> if notifications are enabled for the given uuid.
 	 * NOTE: {@link #isNotifyEnabling(UUID)} may return true here even if this returns false.
@@ -5007,6 +5663,25 @@ public class BleDevice extends BleNode
 	 * Overload of {@link #enableNotify(UUID, Interval, ReadWriteListener)} for when you have characteristics with identical uuids under different services.
 	 */
 	public ReadWriteListener.ReadWriteEvent enableNotify(final UUID serviceUuid, final UUID characteristicUuid, final Interval forceReadTimeout, final ReadWriteListener listener)
+	{
+		return this.enableNotify(serviceUuid, characteristicUuid, forceReadTimeout, null, listener);
+	}
+
+	/**
+	 * Same as {@link #enableNotify(UUID, ReadWriteListener)} but notifications are passed to listeners according to the given
+	 * {@link BleNotifyPolicy}, for example at most 10 times a second with {@link BleNotifyPolicy#latestAtMaxRate(Interval)}.
+	 * Every notification is still logged to historical data.
+	 */
+	public ReadWriteListener.ReadWriteEvent enableNotify(final UUID characteristicUuid, final BleNotifyPolicy policy, final ReadWriteListener listener)
+	{
+		return this.enableNotify(null, characteristicUuid, Interval.INFINITE, policy, listener);
+	}
+
+	/**
+	 * Overload of {@link #enableNotify(UUID, Interval, ReadWriteListener)} that also takes a {@link BleNotifyPolicy}, for when you have characteristics with
+	 * identical uuids under different services. Passing <code>null</code> for the policy is the same as {@link BleNotifyPolicy#DELIVER_ALL}.
+	 */
+	public ReadWriteListener.ReadWriteEvent enableNotify(final UUID serviceUuid, final UUID characteristicUuid, final Interval forceReadTimeout, final BleNotifyPolicy policy_nullable, final ReadWriteListener listener)
 	{
 		enforceMainThread();
 
@@ -5065,6 +5740,7 @@ public class BleDevice extends BleNode
 		}
 
 		m_pollMngr.startPoll(serviceUuid, characteristicUuid, forceReadTimeout.secs(), listener, /*trackChanges=*/true, /*usingNotify=*/true);
+		m_pollMngr.setNotifyPolicy(serviceUuid, characteristicUuid, listener, policy_nullable);
 
 		return result;
 	}
@@ -5316,7 +5992,7 @@ public class BleDevice extends BleNode
 
 	private boolean shouldAddOperationTime()
 	{
-		boolean includeFirmwareUpdateReadWriteTimesInAverage = BleDeviceConfig.bool(conf_device().includeOtaReadWriteTimesInAverage, conf_mngr().includeOtaReadWriteTimesInAverage);
+		boolean includeFirmwareUpdateReadWriteTimesInAverage = conf_effective().includeOtaReadWriteTimesInAverage;
 
 		return includeFirmwareUpdateReadWriteTimesInAverage || !is(PERFORMING_OTA);
 	}
@@ -5373,6 +6049,11 @@ public class BleDevice extends BleNode
 		return m_pollMngr;
 	}
 
+	P_HistoricalDataManager getHistoricalDataManager()
+	{
+		return m_historicalDataMngr;
+	}
+
 	void onNewlyDiscovered(final BluetoothDevice device_native, final BleManagerConfig.ScanFilter.ScanEvent scanEvent_nullable, int rssi, byte[] scanRecord_nullable, final BleDeviceOrigin origin)
 	{
 		m_origin_latest = origin;
@@ -5406,6 +6087,9 @@ public class BleDevice extends BleNode
 		if( m_rssiPollMngr != null )  m_rssiPollMngr.stop();
 		if( m_rssiPollMngr_auto != null )  m_rssiPollMngr_auto.stop();
 		if( m_pollMngr != null )  m_pollMngr.clear();
+		if( m_historicalDataMngr != null )  m_historicalDataMngr.cancelPendingWork();
+
+		getManager().m_historicalDataCompactor.forget(getMacAddress(), /*uuid=*/null);
 
 		stateTracker_main().set(intent, BleStatuses.GATT_STATUS_NOT_APPLICABLE, UNDISCOVERED, true, DISCOVERED, false, ADVERTISING, false, m_bondMngr.getNativeBondingStateOverrides(), DISCONNECTED, true);
 
@@ -5413,6 +6097,9 @@ public class BleDevice extends BleNode
 		{
 			m_txnMngr.cancelAllTransactions();
 		}
+
+		final Status status = getManager().is(BleManagerState.TURNING_OFF) ? Status.BLE_TURNING_OFF : Status.EXPLICIT_DISCONNECT;
+		resolveConnectFutures(ConnectionFailListener.ConnectionFailEvent.CANCELLED(this, status));
 	}
 
 	double getTimeSinceLastDiscovery()
@@ -5463,7 +6150,19 @@ public class BleDevice extends BleNode
 
 	void updateRssi(final int rssi)
 	{
+		if( m_rssi == rssi )  return;
+
 		m_rssi = rssi;
+
+		onSortKeyChanged();
+	}
+
+	void onSortKeyChanged()
+	{
+		//--- Also called while the native wrapper is still being constructed, before the device could be registered anywhere.
+		if( isNull() || m_nativeWrapper == null )  return;
+
+		getManager().onDeviceSortKeyChanged(this);
 	}
 
 	void updateMtu(final int mtu)
@@ -5485,11 +6184,21 @@ public class BleDevice extends BleNode
 	{
 		m_timeSinceLastDiscovery += timeStep;
 
-		m_pollMngr.update(timeStep);
+		final boolean polled = m_pollMngr.update(timeStep);
 		m_txnMngr.update(timeStep);
 		m_reconnectMngr_longTerm.update(timeStep);
 		m_reconnectMngr_shortTerm.update(timeStep);
-		m_rssiPollMngr.update(timeStep);
+		final boolean polledRssi = m_rssiPollMngr.update(timeStep);
+
+		//--- Batch adaptive characteristic polls and rssi polls that are nearly due into the same wake-up.
+		if( polled )
+		{
+			m_rssiPollMngr.alignWithWakeUp();
+		}
+		else if( polledRssi )
+		{
+			m_pollMngr.alignWithWakeUp();
+		}
 	}
 
 	void bond_justAddTheTask(E_TransactionLockBehavior lockBehavior)
@@ -5511,6 +6220,9 @@ public class BleDevice extends BleNode
 	{
 		unbond_justAddTheTask(priority_nullable);
 
+		//--- Unbonding also drops the stack's own gatt cache, so ours can't be trusted anymore either.
+		getManager().m_gattSchemaCache.clear(this);
+
 		final boolean wasBonding = is(BONDING);
 
 		stateTracker_updateBoth(E_Intent.INTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, P_BondManager.OVERRIDE_UNBONDED_STATES);
@@ -5569,12 +6281,15 @@ public class BleDevice extends BleNode
 
 		m_txnMngr.onConnect(authenticationTxn, initTxn);
 
+		m_timeOfConnectStart = System.currentTimeMillis();
+		m_usedGattSchemaCache = false;
+
 		final Object[] extraBondingStates;
 
 		if( is(UNBONDED) && Utils.isKitKat())
 		{
-			final boolean tryBondingWhileDisconnected = BleDeviceConfig.bool(conf_device().tryBondingWhileDisconnected, conf_mngr().tryBondingWhileDisconnected);
-			final boolean tryBondingWhileDisconnected_manageOnDisk = BleDeviceConfig.bool(conf_device().tryBondingWhileDisconnected_manageOnDisk, conf_mngr().tryBondingWhileDisconnected_manageOnDisk);
+			final boolean tryBondingWhileDisconnected = conf_effective().tryBondingWhileDisconnected;
+			final boolean tryBondingWhileDisconnected_manageOnDisk = conf_effective().tryBondingWhileDisconnected_manageOnDisk;
 			final boolean doPreBond = getManager().m_diskOptionsMngr.loadNeedsBonding(getMacAddress(), tryBondingWhileDisconnected_manageOnDisk);
 
 			if( doPreBond && tryBondingWhileDisconnected )
@@ -5694,7 +6409,14 @@ public class BleDevice extends BleNode
 
 		logger().d(logger().gattBondState(m_nativeWrapper.getNativeBondState()));
 
-		boolean autoGetServices = BleDeviceConfig.bool(conf_device().autoGetServices, conf_mngr().autoGetServices);
+		if( m_timeOfConnectStart == 0L )
+		{
+			//--- Implicit connections (e.g. autoConnect) only get timed from here.
+			m_timeOfConnectStart = System.currentTimeMillis();
+			m_usedGattSchemaCache = false;
+		}
+
+		boolean autoGetServices = conf_effective().autoGetServices;
 		if (autoGetServices)
 		{
 			getServices(DISCONNECTED, false, CONNECTING_OVERALL, true, CONNECTING, false, CONNECTED, true, ADVERTISING, false);
@@ -5778,8 +6500,10 @@ public class BleDevice extends BleNode
 		}
 	}
 
-	void onServicesDiscovered()
+	void onServicesDiscovered(final boolean usedGattSchemaCache)
 	{
+		m_usedGattSchemaCache = usedGattSchemaCache;
+
 		if( m_mtu > 0 )
 		{
 			if( isAny(RECONNECTING_SHORT_TERM, RECONNECTING_LONG_TERM) )
@@ -5805,14 +6529,23 @@ public class BleDevice extends BleNode
 		m_reconnectMngr_shortTerm.stop();
 		m_connectionFailMngr.onFullyInitialized();
 
+		if( m_timeOfConnectStart != 0L )
+		{
+			final double connectToReadyTime = (System.currentTimeMillis() - m_timeOfConnectStart) / 1000.0;
+			getManager().m_gattSchemaCache.onReady(m_usedGattSchemaCache, connectToReadyTime);
+			m_timeOfConnectStart = 0L;
+		}
+
 		//--- DRK > Saving last disconnect as unintentional here in case for some
 		//--- reason app is hard killed or something and we never get a disconnect callback.
-		final boolean hitDisk = BleDeviceConfig.bool(conf_device().manageLastDisconnectOnDisk, conf_mngr().manageLastDisconnectOnDisk);
+		final boolean hitDisk = conf_effective().manageLastDisconnectOnDisk;
 		getManager().m_diskOptionsMngr.saveLastDisconnect(getMacAddress(), State.ChangeIntent.UNINTENTIONAL, hitDisk);
 
 		stateTracker().update(lastConnectDisconnectIntent(), gattStatus, extraFlags, RECONNECTING_LONG_TERM, false, CONNECTING_OVERALL, false, AUTHENTICATING, false, AUTHENTICATED, true, INITIALIZING, false, INITIALIZED, true);
 
 		stateTracker_main().remove(BleDeviceState.RECONNECTING_SHORT_TERM, E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+
+		resolveConnectFutures(/*failure=*/null);
 	}
 
 	private void setStateToDisconnected(final boolean attemptingReconnect_longTerm, final E_Intent intent, final int gattStatus, final boolean forceMainStateTracker, final Object[] overrideBondingStates)
@@ -5821,6 +6554,11 @@ public class BleDevice extends BleNode
 		//--- it from being immediately undiscovered after disconnection.
 		m_timeSinceLastDiscovery = 0.0;
 
+		if( intent == E_Intent.INTENTIONAL )
+		{
+			m_timeOfConnectStart = 0L;
+		}
+
 		m_txnMngr.clearQueueLock();
 
 		final P_DeviceStateTracker tracker = forceMainStateTracker ? stateTracker_main() : stateTracker();
@@ -5885,8 +6623,8 @@ public class BleDevice extends BleNode
 		E_Intent intent = cancelled ? E_Intent.INTENTIONAL : E_Intent.UNINTENTIONAL;
 		m_lastConnectOrDisconnectWasUserExplicit = intent == E_Intent.INTENTIONAL;
 
-		final boolean cancellableFromConnect = BleDeviceConfig.bool(conf_device().disconnectIsCancellable, conf_mngr().disconnectIsCancellable);
-		final boolean tryBondingWhileDisconnected = connectionFailReasonIfConnecting == Status.BONDING_FAILED && BleDeviceConfig.bool(conf_device().tryBondingWhileDisconnected, conf_mngr().tryBondingWhileDisconnected);
+		final boolean cancellableFromConnect = conf_effective().disconnectIsCancellable;
+		final boolean tryBondingWhileDisconnected = connectionFailReasonIfConnecting == Status.BONDING_FAILED && conf_effective().tryBondingWhileDisconnected;
 		final boolean underwentPossibleImplicitBondingAttempt = m_nativeWrapper.isNativelyUnbonded() && m_underwentPossibleImplicitBondingAttempt == true;
 		final boolean taskIsCancellable = cancellableFromConnect == true && tryBondingWhileDisconnected == false && underwentPossibleImplicitBondingAttempt == false;
 
@@ -5959,6 +6697,12 @@ public class BleDevice extends BleNode
 				m_connectionFailMngr.onConnectionFailed(connectionFailReasonIfConnecting, timing, attemptingReconnect_longTerm, gattStatus, bondFailReason, highestState, ConnectionFailListener.AutoConnectUsage.NOT_APPLICABLE, txnFailReason);
 			}
 		}
+
+		//--- Covers being cancelled between retries, when there's no connection attempt in flight to fail.
+		if (cancelled)
+		{
+			resolveConnectFutures(ConnectionFailListener.ConnectionFailEvent.CANCELLED(this, connectionFailReasonIfConnecting));
+		}
 	}
 
 	boolean lastDisconnectWasBecauseOfBleTurnOff()
@@ -5970,7 +6714,7 @@ public class BleDevice extends BleNode
 	{
 		if( !is(INITIALIZED) )  return;
 
-		final boolean hitDisk = BleDeviceConfig.bool(conf_device().manageLastDisconnectOnDisk, conf_mngr().manageLastDisconnectOnDisk);
+		final boolean hitDisk = conf_effective().manageLastDisconnectOnDisk;
 
 		if (explicit)
 		{
@@ -5990,6 +6734,8 @@ public class BleDevice extends BleNode
 			logger().w("Disconnected Implicitly and attemptShortTermReconnect=" + attemptShortTermReconnect);
 		}
 
+		serviceMngr_device().clearIndex();
+
 		m_lastDisconnectWasBecauseOfBleTurnOff = getManager().isAny(BleManagerState.TURNING_OFF, BleManagerState.OFF);
 		m_lastConnectOrDisconnectWasUserExplicit = wasExplicit;
 
@@ -6298,6 +7044,13 @@ public class BleDevice extends BleNode
 	}
 
 	void invokeReadWriteCallback(final ReadWriteListener listener_nullable, final ReadWriteListener.ReadWriteEvent event)
+	{
+		addToHistoricalData(event);
+
+		deliverReadWriteCallback(listener_nullable, event);
+	}
+
+	void addToHistoricalData(final ReadWriteListener.ReadWriteEvent event)
 	{
 		if( event.wasSuccess() && event.isRead() && event.target() == ReadWriteListener.Target.CHARACTERISTIC )
 		{
@@ -6306,7 +7059,13 @@ public class BleDevice extends BleNode
 
 			m_historicalDataMngr.add_single(event.charUuid(), event.data(), timestamp, source);
 		}
+	}
 
+	/**
+	 * Same as {@link #invokeReadWriteCallback(ReadWriteListener, ReadWriteEvent)} but without logging to historical data.
+	 */
+	void deliverReadWriteCallback(final ReadWriteListener listener_nullable, final ReadWriteListener.ReadWriteEvent event)
+	{
 		m_txnMngr.onReadWriteResult(event);
 
 		if (listener_nullable != null)
@@ -6327,6 +7086,35 @@ public class BleDevice extends BleNode
 		m_txnMngr.onReadWriteResultCallbacksCalled();
 	}
 
+	void invokeBatchReadCallback(final BatchReadListener listener_nullable, final BatchReadListener.BatchReadEvent event)
+	{
+		final List<ReadWriteEvent> results = event.results();
+		ReadWriteEvent failure = null;
+
+		for( int i = 0; i < results.size(); i++ )
+		{
+			final ReadWriteEvent result_ith = results.get(i);
+
+			//--- Successful reads were already added to historical data by the task as they completed.
+			if( !result_ith.wasSuccess() && failure == null )
+			{
+				failure = result_ith;
+			}
+		}
+
+		if( failure != null )
+		{
+			m_txnMngr.onReadWriteResult(failure);
+		}
+
+		if( listener_nullable != null )
+		{
+			postEvent(listener_nullable, event);
+		}
+
+		m_txnMngr.onReadWriteResultCallbacksCalled();
+	}
+
 	ReadWriteListener.ReadWriteEvent NULL_READWRITE_EVENT()
 	{
 		if (m_nullReadWriteEvent != null)
@@ -6443,9 +7231,9 @@ public class BleDevice extends BleNode
 	}
 	// static String NULL_MAC = "DE:AD:BE:EF:BA:BE";
 
-	private void postEvent(final GenericListener_Void listener, final Event event)
+	private <T_Event extends Event> void postEvent(final GenericListener_Void<T_Event> listener, final T_Event event)
 	{
-		if (getManager().m_config.runOnMainThread && !Utils.isOnMainThread())
+		if (getManager().m_config.runOnMainThread && !Utils.isOnMainThread() && !(listener instanceof InlineListener))
 		{
 			postEventOnMain(listener, event);
 		}
@@ -6455,14 +7243,8 @@ public class BleDevice extends BleNode
 		}
 	}
 
-	private void postEventOnMain(final GenericListener_Void listener, final Event event)
+	private <T_Event extends Event> void postEventOnMain(final GenericListener_Void<T_Event> listener, final T_Event event)
 	{
-		getManager().m_mainThreadHandler.post(new Runnable()
-		{
-			@Override public void run()
-			{
-				listener.onEvent(event);
-			}
-		});
+		getManager().m_eventPoster.post(listener, event);
 	}
 }
@@ -67,6 +67,11 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	 * Default value for {@link #defaultTxPower}.
 	 */
 	public static final int DEFAULT_TX_POWER					= -50;
+
+	/**
+	 * Default value for {@link #maxConnectionFailHistorySize}.
+	 */
+	public static final int DEFAULT_MAX_CONNECTION_FAIL_HISTORY_SIZE	= 16;
 	
 	/**
 	 * Default is <code>true</code> - some devices can only reliably become {@link BleDeviceState#BONDED} while {@link BleDeviceState#DISCONNECTED},
@@ -108,7 +113,28 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	 */
 	@Nullable(Prevalence.NORMAL)
 	public Boolean allowDuplicatePollEntries					= false;
-	
+
+	/**
+	 * Default is <code>false</code> - change-tracking polls started through {@link BleDevice#startChangeTrackingPoll(UUID, Interval, BleDevice.ReadWriteListener)}
+	 * (and notifications from {@link BleDevice#enableNotify(UUID, Interval, BleDevice.ReadWriteListener)}) only remember a 64-bit hash and length
+	 * of the last value to decide whether a new one is different. Set this to <code>true</code> if you want to diff values yourself, in
+	 * which case a copy of the last value is also kept and given to you through {@link BleDevice.ReadWriteListener.ReadWriteEvent#previousData()}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Boolean retainPreviousValueForChangeTracking			= false;
+
+	/**
+	 * Default is <code>false</code> - results of change-tracking polls started through {@link BleDevice#startChangeTrackingPoll(UUID, Interval, BleDevice.ReadWriteListener)}
+	 * (and forced reads from {@link BleDevice#enableNotify(UUID, Interval, BleDevice.ReadWriteListener)}) that are identical to the last value
+	 * are never passed to the poll's own listener, but they are still passed to {@link BleDevice#setListener_ReadWrite(BleDevice.ReadWriteListener)},
+	 * {@link BleManager#setListener_ReadWrite(BleDevice.ReadWriteListener)}, and historical data like any other read. Set this to <code>true</code>
+	 * to drop them entirely instead, which saves building an event for every poll when values rarely change.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Boolean dropUnchangedChangeTrackingEvents			= false;
+
 	/**
 	 * Default is <code>false</code> - {@link BleDevice#getAverageReadTime()} and {@link BleDevice#getAverageWriteTime()} can be 
 	 * skewed if the peripheral you are connecting to adjusts its maximum throughput for OTA firmware updates and the like.
@@ -207,6 +233,35 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	@Nullable(Prevalence.NORMAL)
 	public Boolean useGattRefresh								= false;
 
+	/**
+	 * Default is <code>false</code> - whether to remember a fingerprint of each device's gatt database (services, characteristics,
+	 * descriptors, and their properties), both in memory and on disk across app sessions. On later connections, if the fingerprint
+	 * is still considered valid (see {@link #gattSchemaKeyProvider}), the library skips {@link #useGattRefresh} so the stack's own
+	 * cache can answer service discovery quickly, and if the native gatt object still holds services that match the fingerprint,
+	 * service discovery is skipped altogether. The fingerprint is cleared if discovery fails after trusting it, and when the device
+	 * is explicitly unbonded or undiscovered through {@link BleDevice#unbond()} or {@link BleManager#undiscover(BleDevice)}.
+	 * <br><br>
+	 * NOTE: This only makes discovery faster, it doesn't let {@link BleDeviceState#INITIALIZED} come any earlier than discovery. Reads,
+	 * writes, and notifications go through the {@link android.bluetooth.BluetoothGattCharacteristic} instances of the native gatt object,
+	 * which Android only fills in through service discovery, so nothing could actually be sent before that no matter what's cached.
+	 *
+	 * @see BleManager#getAverageConnectToReadyTime(boolean)
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Boolean cacheGattSchema								= false;
+
+	/**
+	 * Default is <code>null</code> - only applies if {@link #cacheGattSchema} is <code>true</code>. Provide an implementation
+	 * to key the cached gatt database for a device, for example by a firmware revision or database hash advertised in the scan
+	 * record or remembered from an earlier connection. If the key changes, the cached schema is treated as stale and service
+	 * discovery runs from scratch. If <code>null</code>, or if it returns <code>null</code>, nothing tells the library the database
+	 * is still the same, so the cached schema is never trusted and {@link #cacheGattSchema} has no effect.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public GattSchemaKeyProvider gattSchemaKeyProvider			= null;
+
 
 	/**
 	 * The below explanation is wrong, only in that the default is now <code>false</code>. This is for backwards
@@ -284,6 +339,15 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	@Nullable(Prevalence.NORMAL)
 	public Integer		nForAverageRunningReadTime				= DEFAULT_RUNNING_AVERAGE_N;
 	
+	/**
+	 * Default is {@link #DEFAULT_MAX_CONNECTION_FAIL_HISTORY_SIZE} - the number of most recent {@link BleDevice.ConnectionFailListener.ConnectionFailEvent}s
+	 * retained for {@link BleDevice.ConnectionFailListener.ConnectionFailEvent#history()}. Older failures are still counted by
+	 * {@link BleDevice#getConnectionFailStats()}, so memory stays constant no matter how long a device keeps retrying.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.NORMAL)
+	public Integer		maxConnectionFailHistorySize			= DEFAULT_MAX_CONNECTION_FAIL_HISTORY_SIZE;
+
 	/**
 	 * Default is {@link #DEFAULT_TX_POWER} - this value is used if we can't establish a device's calibrated transmission power from the device itself,
 	 * either through its scan record or by reading the standard characteristic. To get a good value for this on a per-remote-device basis
@@ -330,6 +394,22 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
 	@Nullable(Prevalence.NORMAL)
 	public BleTransaction.Init defaultInitTransaction			= null;
 
+	/**
+	 * Provide an implementation to {@link BleDeviceConfig#gattSchemaKeyProvider} to validate the gatt database cached
+	 * through {@link BleDeviceConfig#cacheGattSchema}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface GattSchemaKeyProvider
+	{
+		/**
+		 * Return a key, for example a firmware revision, that changes whenever the device's gatt database could have changed.
+		 * Called on SweetBlue's update thread (which is the main thread only if {@link BleManagerConfig#runOnMainThread} is <code>true</code>)
+		 * right before service discovery and again once it succeeds. Returning <code>null</code> means the cached schema isn't used for this connection.
+		 */
+		@Nullable(Prevalence.NORMAL) String getKey(BleDevice device);
+	}
+
 	/**
 	 * As of now there are two main default uses for this class...
 	 * <br><br>
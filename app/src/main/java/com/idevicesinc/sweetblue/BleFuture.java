@@ -0,0 +1,191 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
+import com.idevicesinc.sweetblue.utils.Event;
+
+import java.util.ArrayList;
+
+/**
+ * Handle to the eventual result of an asynchronous operation, returned by methods like {@link BleDevice#read_future(java.util.UUID)},
+ * {@link BleDevice#write_future(java.util.UUID, byte[])}, {@link BleDevice#readRssi_future()}, and {@link BleDevice#connect_future()}.
+ * Use {@link #then(Continuation)} to chain dependent operations without nesting listeners or writing a {@link BleTransaction}, e.g.
+ * <pre>
+ * device.read_future(uuidA).then(new BleFuture.Continuation&lt;ReadWriteEvent, ReadWriteEvent&gt;()
+ * {
+ *     &#64;Override public BleFuture&lt;ReadWriteEvent&gt; then(ReadWriteEvent e)
+ *     {
+ *         return device.write_future(uuidB, transform(e.data()));
+ *     }
+ * });
+ * </pre>
+ * A continuation runs on SweetBlue's update thread as soon as the operation before it completes. The operation it starts is queued,
+ * and if nothing else was waiting it's started as soon as the callback that completed the future returns instead of on the task queue's
+ * next update, so a chain of operations runs back-to-back. Futures are completed as an {@link InlineListener}, so even if {@link BleManagerConfig#runOnMainThread} is
+ * <code>false</code> continuations and {@link DoneListener}s are not posted to the main thread.
+ * <br><br>
+ * NOTE: Like the rest of SweetBlue this class is not thread-safe and is meant to be used from the update thread, which is the main thread by default.
+ */
+public final class BleFuture<T>
+{
+	/**
+	 * Provide an implementation to {@link BleFuture#then(Continuation)} to start a dependent operation once a previous one succeeds.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface Continuation<T, R>
+	{
+		/**
+		 * Called with the result of the previous operation. Return the future of the next operation, or <code>null</code> to end the chain successfully.
+		 */
+		@Nullable(Prevalence.NORMAL) BleFuture<R> then(T result);
+	}
+
+	/**
+	 * Provide an implementation to {@link BleFuture#onDone(DoneListener)} to be notified when a future completes, successfully or not.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface DoneListener<T>
+	{
+		void onDone(BleFuture<T> future);
+	}
+
+	private boolean m_isDone = false;
+	private T m_result = null;
+	private Event m_failure = null;
+
+	private ArrayList<DoneListener<T>> m_listeners = null;
+
+	BleFuture()
+	{
+	}
+
+	/**
+	 * Returns <code>true</code> once this future has either succeeded or failed.
+	 */
+	public boolean isDone()
+	{
+		return m_isDone;
+	}
+
+	/**
+	 * Returns <code>true</code> if this future is done and succeeded.
+	 */
+	public boolean isSuccess()
+	{
+		return m_isDone && m_failure == null;
+	}
+
+	/**
+	 * Returns the result if {@link #isSuccess()}, otherwise <code>null</code>. If a continuation ended the chain by returning <code>null</code>
+	 * the result of the resulting future is also <code>null</code>.
+	 */
+	public @Nullable(Prevalence.NORMAL) T result()
+	{
+		return m_result;
+	}
+
+	/**
+	 * Returns the event that explains why this future, or an earlier one in its chain, failed, for example a
+	 * {@link BleDevice.ReadWriteListener.ReadWriteEvent} or a {@link BleDevice.ConnectionFailListener.ConnectionFailEvent}.
+	 * Returns <code>null</code> if the future hasn't failed.
+	 */
+	public @Nullable(Prevalence.NORMAL) Event failure()
+	{
+		return m_failure;
+	}
+
+	/**
+	 * Calls the given listener once this future is done, or right away if it already is.
+	 */
+	public @Nullable(Prevalence.NEVER) BleFuture<T> onDone(final DoneListener<T> listener)
+	{
+		if( m_isDone )
+		{
+			listener.onDone(this);
+		}
+		else
+		{
+			m_listeners = m_listeners != null ? m_listeners : new ArrayList<DoneListener<T>>();
+			m_listeners.add(listener);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Starts a dependent operation with the result of this one once it succeeds. If this future fails, the continuation
+	 * is skipped and the returned future fails with the same {@link #failure()}.
+	 */
+	public @Nullable(Prevalence.NEVER) <R> BleFuture<R> then(final Continuation<? super T, R> continuation)
+	{
+		final BleFuture<R> next = new BleFuture<R>();
+
+		onDone(new DoneListener<T>()
+		{
+			@Override public void onDone(final BleFuture<T> future)
+			{
+				if( false == future.isSuccess() )
+				{
+					next.fail(future.failure());
+
+					return;
+				}
+
+				final BleFuture<R> dependent = continuation.then(future.result());
+
+				if( dependent == null )
+				{
+					next.succeed(null);
+				}
+				else
+				{
+					dependent.onDone(new DoneListener<R>()
+					{
+						@Override public void onDone(final BleFuture<R> dependent)
+						{
+							next.complete(dependent.result(), dependent.failure());
+						}
+					});
+				}
+			}
+		});
+
+		return next;
+	}
+
+	void succeed(final T result)
+	{
+		complete(result, null);
+	}
+
+	void fail(final Event failure)
+	{
+		complete(null, failure);
+	}
+
+	private void complete(final T result, final Event failure_nullable)
+	{
+		if( m_isDone )  return;
+
+		m_isDone = true;
+		m_result = result;
+		m_failure = failure_nullable;
+
+		if( m_listeners != null )
+		{
+			final ArrayList<DoneListener<T>> listeners = m_listeners;
+			m_listeners = null;
+
+			for( int i = 0; i < listeners.size(); i++ )
+			{
+				listeners.get(i).onDone(this);
+			}
+		}
+	}
+
+	@Override public String toString()
+	{
+		return m_isDone ? (m_failure == null ? "SUCCEEDED(" + m_result + ")" : "FAILED(" + m_failure + ")") : "PENDING";
+	}
+}
@@ -2,6 +2,11 @@ package com.idevicesinc.sweetblue;
 
 import static com.idevicesinc.sweetblue.BleManagerState.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -46,8 +51,10 @@ import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
 import com.idevicesinc.sweetblue.compat.L_Util;
 import com.idevicesinc.sweetblue.compat.M_Util;
 import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
+import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.Interval;
@@ -265,6 +272,95 @@ public class BleManager
 		void onEvent(final DiscoveryEvent e);
 	}
 
+	/**
+	 * Provide an implementation to {@link BleManager#setListener_BatchDiscovery(BleManager.BatchDiscoveryListener)} to receive
+	 * a single callback per batch of scan results, instead of one {@link DiscoveryListener.DiscoveryEvent} per result. Batches are
+	 * delivered by the OS on Lollipop and up when {@link BleManagerConfig#scanReportDelay} is set, which can be hundreds of results
+	 * at a time in crowded environments.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface BatchDiscoveryListener
+	{
+		/**
+		 * Struct passed to {@link BleManager.BatchDiscoveryListener#onEvent(BleManager.BatchDiscoveryListener.BatchDiscoveryEvent)}.
+		 * Each device appears at most once per event, updated with the latest result for it in the batch.
+		 */
+		@Immutable
+		public static class BatchDiscoveryEvent extends Event
+		{
+			/**
+			 * The {@link BleManager} which is currently {@link BleManagerState#SCANNING}.
+			 */
+			public BleManager manager(){  return m_manager;  }
+			private final BleManager m_manager;
+
+			/**
+			 * Devices that were seen for the first time, i.e. {@link DiscoveryListener.LifeCycle#DISCOVERED}.
+			 */
+			public List<BleDevice> discovered(){  return m_discovered_public;  }
+			private final ArrayList<BleDevice> m_discovered = new ArrayList<BleDevice>();
+			private final List<BleDevice> m_discovered_public = Collections.unmodifiableList(m_discovered);
+
+			/**
+			 * Devices that were {@link BleDeviceState#UNDISCOVERED} and were found again, so the same {@link BleDevice} instance is
+			 * {@link BleDeviceState#DISCOVERED} once more. Same as {@link #discovered()}, these get {@link DiscoveryListener.LifeCycle#DISCOVERED}
+			 * when no {@link BatchDiscoveryListener} is set.
+			 */
+			public List<BleDevice> rediscovered(){  return m_rediscovered_public;  }
+			private final ArrayList<BleDevice> m_rediscovered = new ArrayList<BleDevice>();
+			private final List<BleDevice> m_rediscovered_public = Collections.unmodifiableList(m_rediscovered);
+
+			/**
+			 * Devices that were already {@link BleDeviceState#DISCOVERED} and were seen again, with updated rssi and scan record,
+			 * i.e. {@link DiscoveryListener.LifeCycle#REDISCOVERED}.
+			 */
+			public List<BleDevice> updated(){  return m_updated_public;  }
+			private final ArrayList<BleDevice> m_updated = new ArrayList<BleDevice>();
+			private final List<BleDevice> m_updated_public = Collections.unmodifiableList(m_updated);
+
+			BatchDiscoveryEvent(final BleManager manager)
+			{
+				m_manager = manager;
+			}
+
+			void add(final BleDevice device, final boolean newlyDiscovered, final boolean fromUndiscovered)
+			{
+				if( newlyDiscovered )
+				{
+					(fromUndiscovered ? m_rediscovered : m_discovered).add(device);
+				}
+				else
+				{
+					m_updated.add(device);
+				}
+			}
+
+			/**
+			 * Total number of devices in this event.
+			 */
+			public int size()
+			{
+				return m_discovered.size() + m_rediscovered.size() + m_updated.size();
+			}
+
+			@Override public String toString()
+			{
+				return Utils_String.toString
+				(
+					this.getClass(),
+					"discovered", m_discovered.size(),
+					"rediscovered", m_rediscovered.size(),
+					"updated", m_updated.size()
+				);
+			}
+		}
+
+		/**
+		 * Called once for each batch of scan results that discovered, rediscovered, or updated at least one device.
+		 */
+		void onEvent(final BatchDiscoveryEvent e);
+	}
+
 	/**
 	 * Provide an implementation to {@link BleManager#setListener_State(BleManager.StateListener)} to receive callbacks
 	 * when the {@link BleManager} undergoes a {@link BleManagerState} change.
@@ -817,6 +913,7 @@ public class BleManager
 
 	private final Context m_context;
 	final Handler m_mainThreadHandler;
+	final P_EventPoster m_eventPoster;
 	private final BluetoothManager m_btMngr;
 	private final P_ScanFilterManager m_filterMngr;
 	private final P_BluetoothCrashResolver m_crashResolver;
@@ -834,6 +931,7 @@ public class BleManager
 
 			BleDevice.HistoricalDataLoadListener m_historicalDataLoadListener;
 			DiscoveryListener m_discoveryListener;
+			BatchDiscoveryListener m_batchDiscoveryListener;
 	private P_WrappingResetListener m_resetListeners;
 	private AssertListener m_assertionListener;
 			BleDevice.StateListener m_defaultDeviceStateListener;
@@ -842,6 +940,8 @@ public class BleManager
 			BleDevice.BondListener m_defaultBondListener;
 			BleDevice.ReadWriteListener m_defaultReadWriteListener;
 	final P_DiskOptionsManager m_diskOptionsMngr;
+	final P_GattSchemaCache m_gattSchemaCache;
+	final P_HistoricalDataCompactor m_historicalDataCompactor;
 
 	private double m_timeForegrounded = 0.0;
 	private double m_timeNotScanning = 0.0;
@@ -886,6 +986,8 @@ public class BleManager
 		initLogger();
 		m_historicalDatabase = PU_HistoricalData.newDatabase(context, this);
 		m_diskOptionsMngr = new P_DiskOptionsManager(m_context);
+		m_gattSchemaCache = new P_GattSchemaCache(this);
+		m_historicalDataCompactor = new P_HistoricalDataCompactor(this);
 		m_filterMngr = new P_ScanFilterManager(this, m_config.defaultScanFilter);
 		m_btMngr = (BluetoothManager) m_context.getApplicationContext().getSystemService(Context.BLUETOOTH_SERVICE);
         // Account for unit testing. When using robolectric, the bluetooth manager comes back null. However, it includes
@@ -909,6 +1011,7 @@ public class BleManager
 		m_nativeStateTracker = new P_NativeBleStateTracker(this);
 		m_nativeStateTracker.append(nativeState, E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
 		m_mainThreadHandler = new Handler(m_context.getMainLooper());
+		m_eventPoster = new P_EventPoster(m_mainThreadHandler);
 		m_taskQueue = new P_TaskQueue(this);
 		m_crashResolver = new P_BluetoothCrashResolver(m_context);
 		m_deviceMngr = new P_DeviceManager(this);
@@ -950,6 +1053,9 @@ public class BleManager
 		checkUnitTestConfigOptions();
 		this.initLogger();
 		this.initConfigDependentMembers();
+
+		m_deviceMngr.onConfigChanged(/*device=*/null);
+		m_deviceMngr_cache.onConfigChanged(/*device=*/null);
 	}
 
 	/*package*/boolean isBluetoothEnabled()
@@ -1110,6 +1216,18 @@ public class BleManager
 		return Interval.millis(m_nativeStateTracker.getTimeInState(state.ordinal()));
 	}
 
+	/**
+	 * Returns how many binder calls were made over the last full minute to query the native adapter's state. Useful for measuring
+	 * the effect of {@link BleManagerConfig#nativeStatePollRate}. Always zero before Android Marshmallow, where no polling is done.
+	 */
+	@Advanced
+	public int getNativeStateBinderCallsPerMinute()
+	{
+		enforceMainThread();
+
+		return m_listeners.getBinderCallsPerMinute();
+	}
+
 	/**
 	 * Checks the underlying stack to see if BLE is supported on the phone.
 	 */
@@ -1232,6 +1350,29 @@ public class BleManager
 		m_discoveryListener = listener_nullable;
 	}
 
+	/**
+	 * Set a listener here to be notified once per batch of scan results when {@link BleManagerConfig#scanReportDelay} is set.
+	 * While this is set, results that arrive in a batch are not also reported individually to {@link #setListener_Discovery(BleManager.DiscoveryListener)}.
+	 */
+	@Advanced
+	public void setListener_BatchDiscovery(@Nullable(Prevalence.NORMAL) BatchDiscoveryListener listener_nullable)
+	{
+		enforceMainThread();
+
+		m_batchDiscoveryListener = listener_nullable;
+	}
+
+	/**
+	 * Returns the listener set with {@link #setListener_BatchDiscovery(BleManager.BatchDiscoveryListener)}, or <code>null</code> if not set.
+	 */
+	@Advanced
+	public @Nullable(Prevalence.NORMAL) BatchDiscoveryListener getListener_BatchDiscovery()
+	{
+		enforceMainThread();
+
+		return m_batchDiscoveryListener;
+	}
+
 	/**
 	 * Returns the discovery listener set with {@link #setListener_Discovery(BleManager.DiscoveryListener)} or
 	 * {@link BleManagerConfig#defaultDiscoveryListener}, or <code>null</code> if not set.
@@ -1828,7 +1969,7 @@ public class BleManager
 			}
 			else
 			{
-				m_resetListeners = new P_WrappingResetListener(listener, m_mainThreadHandler, m_config.postCallbacksToMainThread);
+				m_resetListeners = new P_WrappingResetListener(listener, m_eventPoster, m_config.postCallbacksToMainThread);
 			}
 		}
 
@@ -2148,6 +2289,8 @@ public class BleManager
 		{
 			stopScan_private(E_Intent.UNINTENTIONAL);
 		}
+
+		m_diskOptionsMngr.flush(/*synchronous=*/false);
 	}
 
 	/**
@@ -2161,6 +2304,8 @@ public class BleManager
 
 		m_wakeLockMngr.clear();
 		m_listeners.onDestroy();
+
+		m_diskOptionsMngr.flush(/*synchronous=*/true);
 	}
 
 	/**
@@ -2230,11 +2375,11 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) BleDevice getDevice(final String macAddress)
 	{
-		enforceMainThread();
+		final boolean onUpdateThread = enforceMainThread_read();
 
 		final String macAddress_normalized = normalizeMacAddress(macAddress);
 
-		final BleDevice device = m_deviceMngr.get(macAddress_normalized);
+		final BleDevice device = onUpdateThread ? m_deviceMngr.get(macAddress_normalized) : m_deviceMngr.get_snapshot(macAddress_normalized);
 
 		if( device != null )  return device;
 
@@ -2275,17 +2420,7 @@ public class BleManager
 	{
 		enforceMainThread();
 
-		for( int i = 0; i < m_deviceMngr.getCount(); i++ )
-		{
-			BleDevice device = m_deviceMngr.get(i);
-
-			if( device.is(state) )
-			{
-				return device;
-			}
-		}
-
-		return BleDevice.NULL;
+		return m_deviceMngr.getDevice(state);
 	}
 
 	/**
@@ -2316,17 +2451,7 @@ public class BleManager
 	{
 		enforceMainThread();
 
-		for( int i = 0; i < m_deviceMngr.getCount(); i++ )
-		{
-			BleDevice device = m_deviceMngr.get(i);
-
-			if( device.is(query) )
-			{
-				return device;
-			}
-		}
-
-		return BleDevice.NULL;
+		return m_deviceMngr.getDevice(query);
 	}
 
 	/**
@@ -2411,6 +2536,19 @@ public class BleManager
 		return m_diskOptionsMngr.getPreviouslyConnectedDevices();
 	}
 
+	/**
+	 * Returns the running average time from the start of a connection attempt to {@link BleDeviceState#INITIALIZED}, across all devices,
+	 * for connections that either did or did not benefit from {@link BleDeviceConfig#cacheGattSchema}. Comparing the two shows how much
+	 * time the cache is saving.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public @Nullable(Prevalence.NEVER) Interval getAverageConnectToReadyTime(final boolean usedGattSchemaCache)
+	{
+		enforceMainThread();
+
+		return m_gattSchemaCache.getAverageConnectToReadyTime(usedGattSchemaCache);
+	}
+
 
 	/**
 	 * Convenience method to return a {@link Set} of currently bonded devices. This simply calls
@@ -2459,7 +2597,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List()
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(false, BleDeviceState.FULL_MASK, null);
 
 		return (List<BleDevice>) m_deviceMngr.getList().clone();
 	}
@@ -2469,7 +2607,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List_sorted()
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(true, BleDeviceState.FULL_MASK, null);
 
 		return (List<BleDevice>) m_deviceMngr.getList_sorted().clone();
 	}
@@ -2480,7 +2618,7 @@ public class BleManager
 	 */
 	public int getDeviceCount()
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getCount_snapshot(BleDeviceState.FULL_MASK, null);
 
 		return m_deviceMngr.getCount();
 	}
@@ -2490,7 +2628,7 @@ public class BleManager
 	 */
 	public int getDeviceCount(BleDeviceState state)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getCount_snapshot(state.bit(), null);
 
 		return m_deviceMngr.getCount(state);
 	}
@@ -2501,7 +2639,7 @@ public class BleManager
 	 */
 	public int getDeviceCount(Object ... query)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getCount_snapshot(BleDeviceState.FULL_MASK, query);
 
 		return m_deviceMngr.getCount(query);
 	}
@@ -2510,6 +2648,9 @@ public class BleManager
 	 * Accessor into the underlying array used to store {@link BleDevice} instances.
 	 * Combine with {@link #getDeviceCount()} to iterate, or you may want to use the
 	 * {@link java.util.Iterator} returned from {@link #getDevices()} and its various overloads instead.
+	 * <br><br>
+	 * NOTE: The internal list is in the order devices were added to this manager. Unlike in earlier versions, calling
+	 * {@link #getDevices_List_sorted()} (or overloads) no longer sorts it in place, so this order is stable.
 	 */
 	public @Nullable(Prevalence.NEVER) BleDevice getDeviceAt(final int index)
 	{
@@ -2523,17 +2664,9 @@ public class BleManager
 	 */
 	public int getDeviceIndex(final BleDevice device)
 	{
-		for( int i = 0; i < getDeviceCount(); i++ )
-		{
-			final BleDevice ith = getDeviceAt(i);
-
-			if( ith.equals(device) )
-			{
-				return i;
-			}
-		}
+		enforceMainThread();
 
-		return -1;
+		return m_deviceMngr.indexOf(device);
 	}
 
 	public @Nullable(Prevalence.NEVER) BleDevice getDevice_previous(final BleDevice device)
@@ -2558,6 +2691,7 @@ public class BleManager
 	 * Returns the first device previous to the provided one in the internal list that is in the given state. For various fringe cases like
 	 * this manager not having any devices, this method returns {@link BleDevice#NULL}. This method wraps
 	 * around so that if the provided device is at index 0, the returned device will be the last device this manager holds.
+	 * The internal list is not sorted by {@link BleManagerConfig#defaultListComparator}, see {@link #getDeviceAt(int)}.
 	 */
 	public @Nullable(Prevalence.NEVER) BleDevice getDevice_previous(final BleDevice device, final BleDeviceState state)
 	{
@@ -2623,7 +2757,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List(final BleDeviceState state)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(false, state.bit(), null);
 
 		return m_deviceMngr.getDevices_List(false, state);
 	}
@@ -2633,7 +2767,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List_sorted(final BleDeviceState state)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(true, state.bit(), null);
 
 		return m_deviceMngr.getDevices_List(true, state);
 	}
@@ -2652,7 +2786,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List(final Object ... query)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(false, BleDeviceState.FULL_MASK, query);
 
 		return m_deviceMngr.getDevices_List(false, query);
 	}
@@ -2662,7 +2796,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List_sorted(final Object ... query)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(true, BleDeviceState.FULL_MASK, query);
 
 		return m_deviceMngr.getDevices_List(true, query);
 	}
@@ -2680,7 +2814,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List(final int mask_BleDeviceState)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(false, mask_BleDeviceState, null);
 
 		return m_deviceMngr.getDevices_List(false, mask_BleDeviceState);
 	}
@@ -2690,7 +2824,7 @@ public class BleManager
 	 */
 	public @Nullable(Prevalence.NEVER) List<BleDevice> getDevices_List_sorted(final int mask_BleDeviceState)
 	{
-		enforceMainThread();
+		if( false == enforceMainThread_read() )  return m_deviceMngr.getDevices_List_snapshot(true, mask_BleDeviceState, null);
 
 		return m_deviceMngr.getDevices_List(true, mask_BleDeviceState);
 	}
@@ -2715,6 +2849,70 @@ public class BleManager
 		}
 	}
 
+	/**
+	 * Writes historical data for each mac address/{@link UUID} pair (<code>macAddresses[i]</code> with <code>uuids[i]</code>) within
+	 * the given range to a compact length-prefixed binary stream that can be read back with {@link #importHistoricalData(InputStream)},
+	 * for example to move data off the phone to your backend. Data is read straight from the database and written in chunks of a few
+	 * hundred rows, each flushed before the next is read, so memory use stays flat and a slow stream just slows down the export.
+	 * For devices that have data in memory, a snapshot of each pair is taken on the update thread first, so data added while
+	 * the export runs doesn't change what it sees. Returns the number of rows written.
+	 * <br><br>
+	 * Pass the last {@link BleNode.HistoricalDataExportListener.HistoricalDataExportEvent} you received as <code>resumeFrom_nullable</code>
+	 * to continue an export that was interrupted, using the same pairs and range - the new stream then only contains what's left.
+	 * Throws an {@link IllegalArgumentException} if its pair isn't one of the given ones.
+	 * <br><br>
+	 * NOTE: This blocks on the stream, so unlike most methods of this class you should call it from a background thread.
+	 */
+	@Advanced
+	public long exportHistoricalData(final OutputStream out, final String[] macAddresses, final UUID[] uuids, final EpochTimeRange range, @Nullable(Prevalence.NORMAL) final BleNode.HistoricalDataExportListener.HistoricalDataExportEvent resumeFrom_nullable, @Nullable(Prevalence.NORMAL) final BleNode.HistoricalDataExportListener listener_nullable) throws IOException
+	{
+		if( macAddresses.length != uuids.length )
+		{
+			throw new IllegalArgumentException("Expected the same number of mac addresses and uuids.");
+		}
+
+		return P_HistoricalDataStream.export(this, out, macAddresses, uuids, EpochTimeRange.denull(range), resumeFrom_nullable, listener_nullable);
+	}
+
+	/**
+	 * Same as {@link #exportHistoricalData(OutputStream, String[], UUID[], EpochTimeRange, BleNode.HistoricalDataExportListener.HistoricalDataExportEvent, BleNode.HistoricalDataExportListener)}
+	 * for all historical data of the given pairs, starting from scratch.
+	 */
+	@Advanced
+	public long exportHistoricalData(final OutputStream out, final String[] macAddresses, final UUID[] uuids) throws IOException
+	{
+		return exportHistoricalData(out, macAddresses, uuids, EpochTimeRange.FROM_MIN_TO_MAX, null, null);
+	}
+
+	/**
+	 * Reads a stream written by {@link #exportHistoricalData(OutputStream, String[], UUID[], EpochTimeRange, BleNode.HistoricalDataExportListener.HistoricalDataExportEvent, BleNode.HistoricalDataExportListener)}
+	 * and adds all of it, one chunk at a time, the same way {@link BleDevice#addHistoricalData(UUID, ForEach_Returning)} would.
+	 * The stream is read on the calling thread, but each chunk is handed to the update thread to be added and the next one isn't
+	 * read until that's done. Data for mac addresses that don't have a {@link BleDevice} goes straight to the database, on a background
+	 * thread. Returns the number of rows read.
+	 * <br><br>
+	 * NOTE: This blocks on the stream, so unlike most methods of this class you should call it from a background thread.
+	 */
+	@Advanced
+	public long importHistoricalData(final InputStream in) throws IOException
+	{
+		return P_HistoricalDataStream.import_(this, in);
+	}
+
+	/**
+	 * Enforces {@link BleNodeConfig#historicalDataRetentionFilter} for all devices, and for mac addresses that have historical data but no
+	 * device right now, instead of waiting for the next {@link BleManagerConfig#historicalDataCompactionRate}, for example before exporting.
+	 * The actual deletes still happen on a background thread. Logs that nothing was added to since they were last compacted with the same
+	 * limits are skipped, unless they have a maximum age.
+	 */
+	@Advanced
+	public void compactHistoricalData()
+	{
+		enforceMainThread();
+
+		m_historicalDataCompactor.compact();
+	}
+
 	/**
 	 * Same as {@link #newHistoricalData(byte[], EpochTime)} but tries to use
 	 * {@link BleDevice#newHistoricalData(byte[], EpochTime)} if we have a device
@@ -2831,7 +3029,7 @@ public class BleManager
 			newDevice.setName(name);
 		}
 
-		onDiscovered_wrapItUp(newDevice, device_native, /*newlyDiscovered=*/true, /*scanRecord=*/null, 0, BleDeviceOrigin.EXPLICIT, /*scanEvent=*/null);
+		onDiscovered_wrapItUp(newDevice, device_native, /*newlyDiscovered=*/true, /*fromUndiscovered=*/false, /*scanRecord=*/null, 0, BleDeviceOrigin.EXPLICIT, /*scanEvent=*/null, /*batch=*/null);
 
 		return newDevice;
 	}
@@ -2865,6 +3063,8 @@ public class BleManager
 
 		m_deviceMngr.undiscoverAndRemove(device, m_discoveryListener, m_deviceMngr_cache, E_Intent.INTENTIONAL);
 
+		m_gattSchemaCache.clear(device);
+
 		return true;
 	}
 
@@ -2893,6 +3093,7 @@ public class BleManager
 		final String macAddress_normalized = normalizeMacAddress(macAddress);
 
 		m_diskOptionsMngr.clear(macAddress_normalized);
+		m_historicalDataCompactor.forget(macAddress_normalized, /*uuid=*/null);
 	}
 
 	/**
@@ -2908,6 +3109,26 @@ public class BleManager
 		enforceMainThread();
 
 		m_diskOptionsMngr.clear();
+		m_historicalDataCompactor.forgetAll();
+	}
+
+	/**
+	 * Runs the given {@link Runnable} right away if called from SweetBlue's update thread, otherwise posts it there and returns
+	 * without waiting for it. Runnables posted from the same thread run in the order they were posted. This is how methods that
+	 * change anything should be called from worker threads when {@link BleNodeConfig#allowReadsFromAllThreads} is <code>true</code>
+	 * but {@link BleNodeConfig#allowCallsFromAllThreads} isn't - they're not enqueued automatically.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public void runOnUpdateThread(final Runnable runnable)
+	{
+		if( m_updateLoop.postNeeded() )
+		{
+			m_updateLoop.postIfNeeded(runnable);
+		}
+		else
+		{
+			runnable.run();
+		}
 	}
 
 	//--- DRK > Smooshing together a bunch of package-private accessors here.
@@ -2978,17 +3199,98 @@ public class BleManager
 	}
 
 	void onDiscoveredFromNativeStack(final BluetoothDevice device_native, final int rssi, final byte[] scanRecord_nullable)
+	{
+		if( false == canDiscover() )  return;
+
+		onDiscoveredFromNativeStack_private(device_native, rssi, scanRecord_nullable, m_filterMngr.makeEvent(), hitDiskForLastDisconnect(), /*batch=*/null);
+	}
+
+	/**
+	 * Processes a whole batch of scan results in one pass, keeping only the latest result for each mac address. If a
+	 * {@link BatchDiscoveryListener} is set the results are delivered as one {@link BatchDiscoveryListener.BatchDiscoveryEvent}.
+	 */
+	void onDiscoveredFromNativeStack_batch(final List<L_Util.ScanResult> results)
+	{
+		if( false == canDiscover() )  return;
+
+		final int size = results.size();
+		final HashSet<String> seen = new HashSet<String>(size * 2);
+		final ArrayList<L_Util.ScanResult> latest = new ArrayList<L_Util.ScanResult>(size);
+
+		//--- Walking backwards so the first result seen for a given mac address is the latest one.
+		for( int i = size - 1; i >= 0; i-- )
+		{
+			final L_Util.ScanResult result_ith = results.get(i);
+
+			if( result_ith == null || result_ith.getDevice() == null )  continue;
+
+			if( seen.add(result_ith.getDevice().getAddress()) )
+			{
+				latest.add(result_ith);
+			}
+		}
+
+		final BatchDiscoveryListener listener = m_batchDiscoveryListener;
+		final BatchDiscoveryListener.BatchDiscoveryEvent batch = listener != null ? new BatchDiscoveryListener.BatchDiscoveryEvent(this) : null;
+
+		//--- Same for every result in the batch, so only looked up once.
+		final boolean makeEvent = m_filterMngr.makeEvent();
+		final boolean hitDisk = hitDiskForLastDisconnect();
+
+		for( int i = latest.size() - 1; i >= 0; i-- )
+		{
+			final L_Util.ScanResult result_ith = latest.get(i);
+
+			onDiscoveredFromNativeStack_private(result_ith.getDevice(), result_ith.getRssi(), result_ith.getRecord(), makeEvent, hitDisk, batch);
+
+			//--- Discovery callbacks could have stopped the scan or turned off ble.
+			if( false == canDiscover() )  break;
+		}
+
+		if( batch != null && batch.size() > 0 )
+		{
+			listener.onEvent(batch);
+		}
+	}
+
+	private boolean canDiscover()
 	{
 		//--- DRK > Protects against fringe case where scan task is executing and app calls turnOff().
 		//---		Here the scan task will be interrupted but still potentially has enough time to
 		//---		discover another device or two. We're checking the enum state as opposed to the native
 		//---		integer state because in this case the "turn off ble" task hasn't started yet and thus
 		//---		hasn't called down into native code and thus the native state hasn't changed.
-		if( false == is(ON) )  return;
+		if( false == is(ON) )  return false;
 
 		//--- DRK > Not sure if queued up messages to library's thread can sneak in a device discovery event
 		//---		after user called stopScan(), so just a check to prevent unexpected callbacks to the user.
-		if( false == is(SCANNING) )  return;
+		if( false == is(SCANNING) )  return false;
+
+		return true;
+	}
+
+	private boolean hitDiskForLastDisconnect()
+	{
+		return BleDeviceConfig.boolOrDefault(m_config.manageLastDisconnectOnDisk);
+	}
+
+	private void onDiscoveredFromNativeStack_private(final BluetoothDevice device_native, final int rssi, final byte[] scanRecord_nullable, final boolean makeEvent, final boolean hitDisk, final BatchDiscoveryListener.BatchDiscoveryEvent batch_nullable)
+	{
+		final String macAddress = device_native.getAddress();
+		final BleDevice device_known = m_deviceMngr.get(macAddress);
+
+		//--- Known devices skip straight to wrapping up - their name, disk options and filter verdict were all settled when they were first discovered.
+		if( device_known != null )
+		{
+			if( !device_known.getNative().equals(device_native) )
+			{
+				ASSERT(false, "Discovered device " + macAddress + " already in list but with new native device instance.");
+			}
+
+			onDiscovered_wrapItUp(device_known, device_native, /*newlyDiscovered=*/false, /*fromUndiscovered=*/false, scanRecord_nullable, rssi, BleDeviceOrigin.FROM_DISCOVERY, /*scanEvent=*/null, batch_nullable);
+
+			return;
+		}
 
 		final String rawDeviceName;
 
@@ -3015,64 +3317,31 @@ public class BleManager
 			return;
 		}
 
-		final String loggedDeviceName = rawDeviceName;
-
-		final String macAddress = device_native.getAddress();
-		BleDevice device_sweetblue = m_deviceMngr.get(macAddress);
-
-		if ( device_sweetblue == null )
-    	{
-//    		m_logger.i("Discovered device " + loggedDeviceName + " " + macAddress + " not in list.");
-    	}
-    	else
-    	{
-    		if( device_sweetblue.getNative().equals(device_native) )
-    		{
-//    			m_logger.i("Discovered device " + loggedDeviceName + " " + macAddress + " already in list.");
-    		}
-    		else
-    		{
-    			ASSERT(false, "Discovered device " + loggedDeviceName + " " + macAddress + " already in list but with new native device instance.");
-    		}
-    	}
-
 		final String normalizedDeviceName = Utils_String.normalizeDeviceName(rawDeviceName);
 		final ScanFilter.ScanEvent scanEvent_nullable;
 
-		final Please please;
-
-		if( device_sweetblue == null )
+		if( makeEvent )
 		{
-			final boolean hitDisk = BleDeviceConfig.boolOrDefault(m_config.manageLastDisconnectOnDisk);
 			final State.ChangeIntent lastDisconnectIntent = m_diskOptionsMngr.loadLastDisconnect(macAddress, hitDisk);
-			scanEvent_nullable = m_filterMngr.makeEvent() ? ScanFilter.ScanEvent.fromScanRecord(device_native, rawDeviceName, normalizedDeviceName, rssi, lastDisconnectIntent, scanRecord_nullable) : null;
-	    	final String deviceName = rawDeviceName != null ? rawDeviceName : "";
-	    	please = m_filterMngr.allow(m_logger, scanEvent_nullable);
 
-	    	if( please != null && false == please.ack() )  return;
+			scanEvent_nullable = ScanFilter.ScanEvent.fromScanRecord(device_native, rawDeviceName, normalizedDeviceName, rssi, lastDisconnectIntent, scanRecord_nullable);
 		}
 		else
 		{
-			please = null;
 			scanEvent_nullable = null;
 		}
 
-    	final boolean newlyDiscovered;
+		final Please please = m_filterMngr.allow(m_logger, scanEvent_nullable);
 
-    	if ( device_sweetblue == null )
-    	{
-			final String name_native = rawDeviceName;//device_native.getName();
+		if( please != null && false == please.ack() )  return;
 
-    		final BleDeviceConfig config_nullable = please != null ? please.getConfig() : null;
-    		device_sweetblue = newDevice_private(device_native, normalizedDeviceName, name_native, BleDeviceOrigin.FROM_DISCOVERY, config_nullable);
-    		newlyDiscovered = true;
-    	}
-		else
-		{
-			newlyDiscovered = false;
-		}
+		final String name_native = rawDeviceName;
 
-    	onDiscovered_wrapItUp(device_sweetblue, device_native, newlyDiscovered, scanRecord_nullable, rssi, BleDeviceOrigin.FROM_DISCOVERY, scanEvent_nullable);
+		final BleDeviceConfig config_nullable = please != null ? please.getConfig() : null;
+		final boolean fromUndiscovered = m_deviceMngr_cache.get(macAddress) != null;
+		final BleDevice device_sweetblue = newDevice_private(device_native, normalizedDeviceName, name_native, BleDeviceOrigin.FROM_DISCOVERY, config_nullable);
+
+		onDiscovered_wrapItUp(device_sweetblue, device_native, /*newlyDiscovered=*/true, fromUndiscovered, scanRecord_nullable, rssi, BleDeviceOrigin.FROM_DISCOVERY, scanEvent_nullable, batch_nullable);
 	}
 
 	private BleDevice newDevice_private(final BluetoothDevice device_native, final String name_normalized, final String name_native, final BleDeviceOrigin origin, final BleDeviceConfig config_nullable)
@@ -3104,6 +3373,17 @@ public class BleManager
 		return device;
 	}
 
+	void onDeviceStateChange(final BleDevice device, final int oldStateBits, final int newStateBits)
+	{
+		m_deviceMngr.onDeviceStateChange(device, oldStateBits, newStateBits);
+		m_deviceMngr_cache.onDeviceStateChange(device, oldStateBits, newStateBits);
+	}
+
+	void onDeviceSortKeyChanged(final BleDevice device)
+	{
+		m_deviceMngr.onSortKeyChanged(device);
+	}
+
 	void onDiscovered_fromRogueAutoConnect(final BleDevice device, final boolean newlyDiscovered, final List<UUID> services_nullable, final byte[] scanRecord_nullable, final int rssi)
 	{
 		if( !m_deviceMngr.has(device) ) // DRK > as of now checked upstream also, so just being anal
@@ -3111,16 +3391,20 @@ public class BleManager
 			m_deviceMngr.add(device);
 		}
 
-		onDiscovered_wrapItUp(device, device.getNative(), newlyDiscovered, scanRecord_nullable, rssi, BleDeviceOrigin.FROM_DISCOVERY, /*scanEvent=*/null);
+		onDiscovered_wrapItUp(device, device.getNative(), newlyDiscovered, /*fromUndiscovered=*/false, scanRecord_nullable, rssi, BleDeviceOrigin.FROM_DISCOVERY, /*scanEvent=*/null, /*batch=*/null);
 	}
 
-    private void onDiscovered_wrapItUp(final BleDevice device, final BluetoothDevice device_native, final boolean newlyDiscovered, final byte[] scanRecord_nullable, final int rssi, final BleDeviceOrigin origin, ScanFilter.ScanEvent scanEvent_nullable)
+    private void onDiscovered_wrapItUp(final BleDevice device, final BluetoothDevice device_native, final boolean newlyDiscovered, final boolean fromUndiscovered, final byte[] scanRecord_nullable, final int rssi, final BleDeviceOrigin origin, ScanFilter.ScanEvent scanEvent_nullable, final BatchDiscoveryListener.BatchDiscoveryEvent batch_nullable)
     {
     	if( newlyDiscovered )
     	{
     		device.onNewlyDiscovered(device_native, scanEvent_nullable, rssi, scanRecord_nullable, origin);
 
-    		if( m_discoveryListener != null )
+    		if( batch_nullable != null )
+    		{
+    			batch_nullable.add(device, /*newlyDiscovered=*/true, fromUndiscovered);
+    		}
+    		else if( m_discoveryListener != null )
     		{
     			DiscoveryEvent event = new DiscoveryEvent(device, LifeCycle.DISCOVERED);
     			m_discoveryListener.onEvent(event);
@@ -3130,7 +3414,11 @@ public class BleManager
     	{
     		device.onRediscovered(device_native, scanEvent_nullable, rssi, scanRecord_nullable, BleDeviceOrigin.FROM_DISCOVERY);
 
-    		if( m_discoveryListener != null )
+    		if( batch_nullable != null )
+    		{
+    			batch_nullable.add(device, /*newlyDiscovered=*/false, /*fromUndiscovered=*/false);
+    		}
+    		else if( m_discoveryListener != null )
     		{
     			DiscoveryEvent event = new DiscoveryEvent(device, LifeCycle.REDISCOVERED);
     			m_discoveryListener.onEvent(event);
@@ -3228,7 +3516,7 @@ public class BleManager
 	{
 		enforceMainThread();
 
-		m_listeners.update();
+		m_listeners.update(timeStep_seconds);
 
 		m_uhOhThrottler.update(timeStep_seconds);
 		m_taskQueue.update(timeStep_seconds);
@@ -3244,6 +3532,10 @@ public class BleManager
 
 		m_deviceMngr.update(timeStep_seconds);
 
+		m_diskOptionsMngr.update(timeStep_seconds);
+
+		m_historicalDataCompactor.update(timeStep_seconds);
+
 		if( !is(SCANNING) )
 		{
 			m_timeNotScanning += timeStep_seconds;
@@ -3357,6 +3649,25 @@ public class BleManager
 		}
 	}
 
+	/**
+	 * Same as {@link #enforceMainThread()} but for read-only methods, so also allowed by {@link BleNodeConfig#allowReadsFromAllThreads}.
+	 * Returns <code>true</code> if the caller is on the update thread and so can read {@link P_DeviceManager} directly, or
+	 * <code>false</code> if it has to go through the thread-safe snapshot instead.
+	 */
+	private boolean enforceMainThread_read()
+	{
+		if( false == m_updateLoop.postNeeded() )  return true;
+
+		final boolean allowAllThreads = BleDeviceConfig.boolOrDefault(m_config.allowReadsFromAllThreads);
+
+		if( false == allowAllThreads )
+		{
+			enforceMainThread();
+		}
+
+		return false;
+	}
+
 	String normalizeMacAddress(final String macAddress)
 	{
 		final String macAddress_normalized = Utils_String.normalizeMacAddress(macAddress);
@@ -59,6 +59,16 @@ public class BleManagerConfig extends BleDeviceConfig
 	 * Default value for {@link #scanReportDelay}.
 	 */
 	public static final double DEFAULT_SCAN_REPORT_DELAY				= .5;
+
+	/**
+	 * Default value for {@link #nativeStatePollRate}.
+	 */
+	public static final double DEFAULT_NATIVE_STATE_POLL_RATE			= 2.0;
+
+	/**
+	 * Default value for {@link #historicalDataCompactionRate}.
+	 */
+	public static final double DEFAULT_HISTORICAL_DATA_COMPACTION_RATE	= 60.0;
 	
 	static final BleManagerConfig NULL = new BleManagerConfigNull();
 
@@ -272,6 +282,26 @@ public class BleManagerConfig extends BleDeviceConfig
 	@Nullable(Prevalence.RARE)
 	public Interval autoUpdateRate							= Interval.secs(DEFAULT_AUTO_UPDATE_RATE);
 
+	/**
+	 * Default is {@value #DEFAULT_NATIVE_STATE_POLL_RATE} seconds - Only applicable for Marshmallow and up, where {@link BluetoothAdapter#ACTION_STATE_CHANGED}
+	 * broadcasts don't report every intermediate state, so the library also queries the adapter directly. Each query is a binder call,
+	 * so it's only done on every update while the state is changing, right after a broadcast, or while a turn on/off is executing. Otherwise
+	 * the time between queries doubles each time the state is found unchanged, up to this maximum, as a fallback for broadcasts that never arrive.
+	 * Set to {@link Interval#DISABLED} to rely on broadcasts alone while the state is stable.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.RARE)
+	public Interval nativeStatePollRate						= Interval.secs(DEFAULT_NATIVE_STATE_POLL_RATE);
+
+	/**
+	 * Default is {@value #DEFAULT_HISTORICAL_DATA_COMPACTION_RATE} seconds - how often {@link BleNodeConfig#historicalDataRetentionFilter} is
+	 * enforced. If historical data is still busy loading or writing when the time comes, compaction waits until it's idle, but never
+	 * longer than three times this rate in total. Set to {@link Interval#DISABLED} to never enforce retention automatically.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Prevalence.RARE)
+	public Interval historicalDataCompactionRate			= Interval.secs(DEFAULT_HISTORICAL_DATA_COMPACTION_RATE);
+
 	/**
 	 * Default is {@value #DEFAULT_SCAN_REPORT_DELAY} seconds - Only applicable for Lollipop and up (i.e. > 5.0), this is the value given to
 	 * {@link android.bluetooth.le.ScanSettings.Builder#setReportDelay(long)} so that scan results are "batched" ¯\_(ツ)_/¯. It's not clear from source
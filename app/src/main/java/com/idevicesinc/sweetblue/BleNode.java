@@ -264,6 +264,7 @@ public abstract class BleNode implements UsesCustomNull
 			/**
 			 * {@link BleDevice#loadHistoricalData()} (or overloads) was called and the operation was successfully started -
 			 * expect another {@link HistoricalDataLoadEvent} with {@link HistoricalDataLoadEvent#status()} being {@link #LOADED} shortly.
+			 * Usually comes after {@link #QUEUED}, once a background thread picked the load up.
 			 */
 			STARTED_LOADING,
 
@@ -272,7 +273,22 @@ public abstract class BleNode implements UsesCustomNull
 			 * when {@link BleDevice#loadHistoricalData()} (or overloads) was called a second time. This doesn't
 			 * affect the actual loading process at all, and {@link #LOADED} will eventually be returned for both callbacks.
 			 */
-			ALREADY_LOADING;
+			ALREADY_LOADING,
+
+			/**
+			 * {@link BleDevice#loadHistoricalData()} (or overloads) was called and the load is waiting for a free background thread,
+			 * which other devices may be using - expect {@link #STARTED_LOADING} and then {@link #LOADED} later, or {@link #CANCELLED}.
+			 * Devices that are connected or passed to {@link BleDevice#setHistoricalDataPrioritized(boolean)} get threads first.
+			 * {@link BleDevice#isHistoricalDataLoading()} already returns <code>true</code> at this point.
+			 */
+			QUEUED,
+
+			/**
+			 * A load that was {@link #QUEUED} was dropped before it started because the device was undiscovered. Nothing was loaded
+			 * and no further events follow for this load - call {@link BleDevice#loadHistoricalData()} (or overloads) again if you
+			 * still need the data, for example once the device is rediscovered.
+			 */
+			CANCELLED;
 
 			/**
 			 * Returns true if <code>this==</code> {@link #NULL}.
@@ -353,6 +369,85 @@ public abstract class BleNode implements UsesCustomNull
 		void onEvent(final HistoricalDataLoadEvent e);
 	}
 
+	/**
+	 * Provide an implementation to {@link BleManager#exportHistoricalData(java.io.OutputStream, String[], UUID[], EpochTimeRange, HistoricalDataExportListener.HistoricalDataExportEvent, HistoricalDataExportListener)}
+	 * to be notified every time a chunk of historical data has been written out.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface HistoricalDataExportListener
+	{
+		/**
+		 * Event struct passed to {@link HistoricalDataExportListener#onEvent(HistoricalDataExportEvent)}. It also serves as a checkpoint -
+		 * if the export fails for whatever reason, pass the last one you got back to
+		 * {@link BleManager#exportHistoricalData(java.io.OutputStream, String[], UUID[], EpochTimeRange, HistoricalDataExportEvent, HistoricalDataExportListener)}
+		 * to pick up where it left off.
+		 */
+		@com.idevicesinc.sweetblue.annotations.Immutable
+		public static class HistoricalDataExportEvent extends Event
+		{
+			/**
+			 * The mac address that the chunk was written for.
+			 */
+			public String macAddress() {  return m_macAddress; }
+			private final String m_macAddress;
+
+			/**
+			 * The {@link UUID} that the chunk was written for.
+			 */
+			public UUID uuid() {  return m_uuid;  }
+			private final UUID m_uuid;
+
+			/**
+			 * The timestamp of the last row in the chunk. All data for {@link #macAddress()} and {@link #uuid()} up to and including this
+			 * time has been written.
+			 */
+			public EpochTime checkpoint() {  return m_checkpoint;  }
+			private final EpochTime m_checkpoint;
+
+			/**
+			 * The number of rows in the chunk.
+			 */
+			public int rowCount() {  return m_rowCount;  }
+			private final int m_rowCount;
+
+			/**
+			 * The number of rows written so far by this export, including this chunk.
+			 */
+			public long totalRowCount() {  return m_totalRowCount;  }
+			private final long m_totalRowCount;
+
+			private final BleManager m_manager;
+
+			HistoricalDataExportEvent(final BleManager manager, final String macAddress, final UUID uuid, final EpochTime checkpoint, final int rowCount, final long totalRowCount)
+			{
+				m_manager = manager;
+				m_macAddress = macAddress;
+				m_uuid = uuid;
+				m_checkpoint = checkpoint;
+				m_rowCount = rowCount;
+				m_totalRowCount = totalRowCount;
+			}
+
+			@Override public String toString()
+			{
+				return Utils_String.toString
+				(
+					this.getClass(),
+					"macAddress", macAddress(),
+					"uuid", m_manager.getLogger().uuidName(uuid()),
+					"checkpoint", checkpoint(),
+					"rowCount", rowCount(),
+					"totalRowCount", totalRowCount()
+				);
+			}
+		}
+
+		/**
+		 * Called on the exporting thread after each chunk has been written and flushed to the stream.
+		 */
+		void onEvent(final HistoricalDataExportEvent e);
+	}
+
 	/**
 	 * A callback that is used by {@link BleDevice#select()} to listen for when a database query is done processing.
 	 */
@@ -941,7 +1036,8 @@ public abstract class BleNode implements UsesCustomNull
 
 	/**
 	 * Same as {@link #queryHistoricalData(String)} but performs the query on a background thread and returns the result back on the main thread
-	 * through the provided {@link BleNode.HistoricalDataQueryListener}.
+	 * through the provided {@link BleNode.HistoricalDataQueryListener}. The query runs after all historical data writes and deletes
+	 * that were pending when this was called, for any device.
 	 */
 	public void queryHistoricalData(final String query, final HistoricalDataQueryListener listener)
 	{
@@ -1019,6 +1115,19 @@ public abstract class BleNode implements UsesCustomNull
 		}
 	}
 
+	/**
+	 * Same as {@link #enforceMainThread()} but for read-only methods, so also allowed by {@link BleNodeConfig#allowReadsFromAllThreads}.
+	 */
+	void enforceMainThread_read()
+	{
+		final boolean allowAllThreads = BleDeviceConfig.bool(conf_node().allowReadsFromAllThreads, conf_mngr().allowReadsFromAllThreads);
+
+		if( false == allowAllThreads )
+		{
+			enforceMainThread();
+		}
+	}
+
 	/**
 	 * Returns the MAC address of the remote {@link BleDevice} or local {@link BleServer}.
 	 */
@@ -16,6 +16,9 @@ import com.idevicesinc.sweetblue.utils.Utils_String;
 import com.idevicesinc.sweetblue.utils.Uuids;
 import com.idevicesinc.sweetblue.utils.WrongThreadError;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.UUID;
 
 /**
@@ -86,6 +89,21 @@ public class BleNodeConfig
 	@Nullable(Nullable.Prevalence.RARE)
 	public Boolean allowCallsFromAllThreads									= false;
 
+	/**
+	 * Default is <code>false</code> - if <code>true</code>, read-only methods like {@link BleDevice#is(BleDeviceState)}, {@link BleDevice#getStateMask()},
+	 * {@link BleDevice#getRssi()}, {@link BleDevice#getMtu()}, {@link BleManager#getDevices_List()}, and the historical data queries
+	 * of {@link BleDevice} can be called from any thread, even if {@link #allowCallsFromAllThreads} is <code>false</code>.
+	 * Off of SweetBlue's update thread these calls never post or block, and instead read from thread-safe snapshots that are
+	 * published whenever the underlying value changes, so a result may trail an update that's happening concurrently.
+	 * The exception is historical data, which is read straight from the {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList}
+	 * for each uuid and not a snapshot, so a custom backend must meet the thread-safety requirements spelled out there.
+	 * Methods that change anything are still governed by {@link #allowCallsFromAllThreads}, so from other threads hand them to
+	 * {@link BleManager#runOnUpdateThread(Runnable)}, which never blocks.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Nullable.Prevalence.NORMAL)
+	public Boolean allowReadsFromAllThreads									= false;
+
 	/**
 	 * Default is <code>true</code> - controls whether the library is allowed to optimize fast disconnect/reconnect cycles
 	 * by actually not disconnecting in the native stack at all. For example, if this option is <code>true</code> and your
@@ -98,7 +116,8 @@ public class BleNodeConfig
 	/**
 	 * Default is an instance of {@link DefaultTaskTimeoutRequestFilter} - set an implementation here to
 	 * have fine control over how long individual {@link BleTask} instances can take before they
-	 * are considered "timed out" and failed.
+	 * are considered "timed out" and failed. See {@link AdaptiveTaskTimeoutRequestFilter} for an implementation that
+	 * derives timeouts from how long tasks actually take on each device.
 	 * <br><br>
 	 * NOTE: Setting this to <code>null</code> will disable timeouts for all {@link BleTask} instances,
 	 * which would probably be very dangerous to do - a task could just sit there spinning forever.
@@ -129,6 +148,18 @@ public class BleNodeConfig
 		}
 	};
 
+	/**
+	 * Default is <code>null</code>, meaning historical data is only ever trimmed by {@link HistoricalDataLogFilter.Please#andLimitLogTo(long)}
+	 * or by your own calls to {@link BleDevice#clearHistoricalData()} (or overloads). Set an implementation here, for example a
+	 * {@link HistoricalDataRetentionPolicy}, to declare a maximum age, row count, and/or byte count for each characteristic's log instead.
+	 * These are enforced in large batches on a background thread every {@link BleManagerConfig#historicalDataCompactionRate}, preferably while
+	 * other historical data work is idle, so unlike {@link HistoricalDataLogFilter.Please#andLimitLogTo(long)} they add nothing to the cost of each write.
+	 * Mac addresses that have logged data but don't have a {@link BleDevice} right now are compacted too, using the {@link BleManagerConfig} value.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Nullable.Prevalence.NORMAL)
+	public HistoricalDataRetentionFilter historicalDataRetentionFilter		= null;
+
 	/**
 	 * Default is an instance of {@link DefaultReconnectFilter} using the timings that are <code>public static final</code> members thereof - set your own implementation here to
 	 * have fine-grain control over reconnect behavior while a device is {@link BleDeviceState#RECONNECTING_LONG_TERM} or {@link BleDeviceState#RECONNECTING_SHORT_TERM}.
@@ -480,6 +511,209 @@ public class BleNodeConfig
 		HistoricalData newHistoricalData(final byte[] data, final EpochTime epochTime);
 	}
 
+	/**
+	 * Provide an instance of this interface to {@link BleNodeConfig#historicalDataRetentionFilter} to control how much historical data
+	 * is kept for each characteristic. See {@link HistoricalDataRetentionPolicy} for a ready-made implementation.
+	 */
+	public static interface HistoricalDataRetentionFilter
+	{
+		/**
+		 * Event passed to {@link HistoricalDataRetentionFilter#onEvent(HistoricalDataRetentionEvent)} right before the historical data
+		 * of a characteristic is compacted.
+		 */
+		@Immutable
+		public static class HistoricalDataRetentionEvent extends Event
+		{
+			/**
+			 * The node whose historical data is about to be compacted, or {@link BleDevice#NULL} if {@link #macAddress()} doesn't have a
+			 * {@link BleDevice} right now, for example because it was undiscovered or its data was imported through {@link BleManager#importHistoricalData(java.io.InputStream)}.
+			 */
+			public BleNode node(){  return m_node;  }
+			private final BleNode m_node;
+
+			/**
+			 * Tries to cast {@link #node()} to a {@link BleDevice}, otherwise returns {@link BleDevice#NULL}.
+			 */
+			public BleDevice device(){  return node().cast(BleDevice.class);  }
+
+			/**
+			 * The device or server client in question.
+			 */
+			public String macAddress()  {  return m_macAddress;  }
+			private final String m_macAddress;
+
+			/**
+			 * The characteristic {@link java.util.UUID} whose log is about to be compacted.
+			 */
+			public UUID charUuid()  {  return m_charUuid;  }
+			private final UUID m_charUuid;
+
+			HistoricalDataRetentionEvent(final BleNode node, final String macAddress, final UUID charUuid)
+			{
+				m_node = node;
+				m_macAddress = macAddress;
+				m_charUuid = charUuid;
+			}
+
+			/**
+			 * Returns true if this event is associated with the given uuid.
+			 */
+			public boolean isFor(final UUID uuid)
+			{
+				return uuid.equals(charUuid());
+			}
+
+			@Override public String toString()
+			{
+				return Utils_String.toString
+				(
+					this.getClass(),
+					"macAddress", macAddress(),
+					"charUuid", m_node.isNull() ? charUuid() : m_node.getManager().getLogger().charName(charUuid())
+				);
+			}
+		}
+
+		/**
+		 * Special value returned from {@link HistoricalDataRetentionFilter#onEvent(HistoricalDataRetentionEvent)} that determines
+		 * how much of the log is kept. Whichever limit is the strictest wins, and the oldest data is always deleted first.
+		 */
+		public static class Please
+		{
+			private Interval m_maxAge = null;
+			private long m_maxRowCount = Long.MAX_VALUE;
+			private long m_maxByteCount = Long.MAX_VALUE;
+
+			private Please()
+			{
+			}
+
+			/**
+			 * Returns the age provided through {@link #andMaxAge(Interval)}, or {@link Interval#DISABLED} if not applicable.
+			 */
+			@Nullable(Nullable.Prevalence.NEVER) public Interval getMaxAge()
+			{
+				return m_maxAge != null ? m_maxAge : Interval.DISABLED;
+			}
+
+			/**
+			 * Returns the count provided through {@link #andMaxRowCount(long)}, or {@link Long#MAX_VALUE} if not applicable.
+			 */
+			public long getMaxRowCount()
+			{
+				return m_maxRowCount;
+			}
+
+			/**
+			 * Returns the count provided through {@link #andMaxByteCount(long)}, or {@link Long#MAX_VALUE} if not applicable.
+			 */
+			public long getMaxByteCount()
+			{
+				return m_maxByteCount;
+			}
+
+			/**
+			 * Returns <code>true</code> if none of the limits were set, so nothing will ever be deleted.
+			 */
+			public boolean keepsEverything()
+			{
+				return Interval.isDisabled(m_maxAge) && m_maxRowCount == Long.MAX_VALUE && m_maxByteCount == Long.MAX_VALUE;
+			}
+
+			/**
+			 * Deletes data whose {@link HistoricalData#getEpochTime()} is older than the given age.
+			 *
+			 * @return <code>this</code> so you can chain calls together.
+			 */
+			public Please andMaxAge(final Interval maxAge)
+			{
+				m_maxAge = maxAge;
+
+				return this;
+			}
+
+			/**
+			 * Keeps at most the given number of the most recent entries.
+			 *
+			 * @return <code>this</code> so you can chain calls together.
+			 */
+			public Please andMaxRowCount(final long maxRowCount)
+			{
+				m_maxRowCount = Math.max(0, maxRowCount);
+
+				return this;
+			}
+
+			/**
+			 * Keeps as many of the most recent entries as fit in the given number of bytes, counting only {@link HistoricalData#getBlob()}.
+			 *
+			 * @return <code>this</code> so you can chain calls together.
+			 */
+			public Please andMaxByteCount(final long maxByteCount)
+			{
+				m_maxByteCount = Math.max(0, maxByteCount);
+
+				return this;
+			}
+
+			/**
+			 * Starts out keeping everything, same as returning <code>null</code> from {@link HistoricalDataRetentionFilter#onEvent(HistoricalDataRetentionEvent)}
+			 * - chain calls like {@link #andMaxAge(Interval)} onto this to set limits.
+			 */
+			public static Please keep()
+			{
+				return new Please();
+			}
+		}
+
+		/**
+		 * Return how much of the log for {@link HistoricalDataRetentionEvent#charUuid()} should be kept. Called on SweetBlue's update thread.
+		 */
+		Please onEvent(final HistoricalDataRetentionEvent e);
+	}
+
+	/**
+	 * Declarative implementation of {@link HistoricalDataRetentionFilter} - one {@link HistoricalDataRetentionFilter.Please} for all
+	 * characteristics, optionally overridden per characteristic through {@link #put(UUID, HistoricalDataRetentionFilter.Please)}.
+	 */
+	public static class HistoricalDataRetentionPolicy implements HistoricalDataRetentionFilter
+	{
+		private final Please m_default;
+		private final HashMap<UUID, Please> m_perUuid = new HashMap<UUID, Please>();
+
+		/**
+		 * Keeps everything for characteristics that aren't passed to {@link #put(UUID, HistoricalDataRetentionFilter.Please)}.
+		 */
+		public HistoricalDataRetentionPolicy()
+		{
+			this(null);
+		}
+
+		public HistoricalDataRetentionPolicy(@Nullable(Nullable.Prevalence.NORMAL) final Please default_nullable)
+		{
+			m_default = default_nullable;
+		}
+
+		/**
+		 * Overrides the default given to the constructor for the given characteristic.
+		 *
+		 * @return <code>this</code> so you can chain calls together.
+		 */
+		public HistoricalDataRetentionPolicy put(final UUID charUuid, final Please please)
+		{
+			m_perUuid.put(charUuid, please);
+
+			return this;
+		}
+
+		@Override public Please onEvent(final HistoricalDataRetentionEvent e)
+		{
+			final Please please = m_perUuid.get(e.charUuid());
+
+			return please != null ? please : m_default;
+		}
+	}
+
 	/**
 	 * Provides a way to control timeout behavior for various {@link BleTask} instances. Assign an instance to {@link BleDeviceConfig#taskTimeoutRequestFilter}.
 	 */
@@ -647,6 +881,259 @@ public class BleNodeConfig
 		}
 	}
 
+	/**
+	 * Implementation of {@link TaskTimeoutRequestFilter} that learns how long each {@link BleTask} usually takes for each
+	 * {@link BleDevice} and sets timeouts relative to that, so that for example a hung write to a device that normally answers in
+	 * 30 milliseconds times out after about a second instead of after {@link DefaultTaskTimeoutRequestFilter#DEFAULT_TASK_TIMEOUT}
+	 * seconds. The timeout is a high percentile of recent execution times multiplied by a safety factor, clamped to a minimum and
+	 * maximum. Until enough samples have been seen for a device and task, the maximum is used, as is the case for tasks that aren't
+	 * associated with a device. {@link BleTask#CONNECT} and {@link BleTask#BOND} always get the maximum and are never sampled, since how
+	 * long they take depends on things like autoConnect and pairing dialogs rather than on how responsive the device is.
+	 * <br><br>
+	 * NOTE: Stats are kept per instance, so share one instance between {@link BleManagerConfig} and any {@link BleDeviceConfig}
+	 * instances if you want them to pool their knowledge.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	public static class AdaptiveTaskTimeoutRequestFilter implements TaskTimeoutRequestFilter
+	{
+		/**
+		 * Default percentile of recent execution times the timeout is based on.
+		 */
+		public static final double DEFAULT_PERCENTILE					= 0.95;
+
+		/**
+		 * Default multiplier applied to the percentile execution time.
+		 */
+		public static final double DEFAULT_SAFETY_FACTOR				= 4.0;
+
+		/**
+		 * Default lower bound for timeouts, in seconds.
+		 */
+		public static final double DEFAULT_MIN_TIMEOUT					= 1.0;
+
+		/**
+		 * Default number of recent execution times kept per device and task.
+		 */
+		public static final int DEFAULT_WINDOW_SIZE						= 64;
+
+		/**
+		 * Default number of execution times needed for a device and task before timeouts adapt.
+		 */
+		public static final int DEFAULT_MIN_SAMPLES						= 8;
+
+		/**
+		 * Latency statistics for one device and {@link BleTask}, returned from {@link AdaptiveTaskTimeoutRequestFilter#getStats(String, BleTask)}.
+		 */
+		@Immutable
+		public static class Stats
+		{
+			/**
+			 * The number of execution times currently in the window.
+			 */
+			public int sampleCount(){  return m_sampleCount;  }
+			private final int m_sampleCount;
+
+			/**
+			 * The execution time at the configured percentile, or {@link Interval#ZERO} if there are no samples yet.
+			 */
+			public Interval percentileTime(){  return m_percentileTime;  }
+			private final Interval m_percentileTime;
+
+			/**
+			 * The longest execution time in the window, or {@link Interval#ZERO} if there are no samples yet.
+			 */
+			public Interval maxTime(){  return m_maxTime;  }
+			private final Interval m_maxTime;
+
+			/**
+			 * The timeout the next task of this kind will be given.
+			 */
+			public Interval timeout(){  return m_timeout;  }
+			private final Interval m_timeout;
+
+			Stats(final int sampleCount, final double percentileTime, final double maxTime, final double timeout)
+			{
+				m_sampleCount = sampleCount;
+				m_percentileTime = Interval.secs(percentileTime);
+				m_maxTime = Interval.secs(maxTime);
+				m_timeout = Interval.secs(timeout);
+			}
+
+			@Override public String toString()
+			{
+				return Utils_String.toString
+				(
+					this.getClass(),
+					"sampleCount",		sampleCount(),
+					"percentileTime",	percentileTime(),
+					"maxTime",			maxTime(),
+					"timeout",			timeout()
+				);
+			}
+		}
+
+		private static class Window
+		{
+			private final double[] m_samples;
+			private int m_count = 0;
+			private int m_next = 0;
+
+			private double m_timeout;
+			private double m_percentileTime = 0.0;
+			private double m_maxTime = 0.0;
+
+			Window(final int size, final double timeout)
+			{
+				m_samples = new double[size];
+				m_timeout = timeout;
+			}
+		}
+
+		private final double m_percentile;
+		private final double m_safetyFactor;
+		private final double m_minTimeout;
+		private final double m_maxTimeout;
+		private final int m_windowSize;
+		private final int m_minSamples;
+
+		private final HashMap<String, EnumMap<BleTask, Window>> m_windows = new HashMap<String, EnumMap<BleTask, Window>>();
+
+		/**
+		 * Creates an instance with the default percentile, safety factor, and bounds, with the maximum being
+		 * {@link DefaultTaskTimeoutRequestFilter#DEFAULT_TASK_TIMEOUT}.
+		 */
+		public AdaptiveTaskTimeoutRequestFilter()
+		{
+			this(DEFAULT_PERCENTILE, DEFAULT_SAFETY_FACTOR, Interval.secs(DEFAULT_MIN_TIMEOUT), Interval.secs(DefaultTaskTimeoutRequestFilter.DEFAULT_TASK_TIMEOUT));
+		}
+
+		/**
+		 * Creates an instance with the given percentile (between 0 and 1), safety factor, and bounds.
+		 */
+		public AdaptiveTaskTimeoutRequestFilter(final double percentile, final double safetyFactor, final Interval minTimeout, final Interval maxTimeout)
+		{
+			this(percentile, safetyFactor, minTimeout, maxTimeout, DEFAULT_WINDOW_SIZE, DEFAULT_MIN_SAMPLES);
+		}
+
+		/**
+		 * Same as {@link #AdaptiveTaskTimeoutRequestFilter(double, double, Interval, Interval)} but also sets how many recent execution
+		 * times are kept, and how many are needed before timeouts adapt.
+		 */
+		public AdaptiveTaskTimeoutRequestFilter(final double percentile, final double safetyFactor, final Interval minTimeout, final Interval maxTimeout, final int windowSize, final int minSamples)
+		{
+			m_percentile = Math.max(0.0, Math.min(1.0, percentile));
+			m_safetyFactor = safetyFactor;
+			m_minTimeout = minTimeout.secs();
+			m_maxTimeout = Math.max(m_minTimeout, maxTimeout.secs());
+			m_windowSize = Math.max(1, windowSize);
+			m_minSamples = Math.max(1, Math.min(m_windowSize, minSamples));
+		}
+
+		@Override public Please onEvent(final TaskTimeoutRequestEvent e)
+		{
+			if( e.task() == BleTask.RESOLVE_CRASHES )
+			{
+				return Please.setTimeoutFor(Interval.secs(DefaultTaskTimeoutRequestFilter.DEFAULT_CRASH_RESOLVER_TIMEOUT));
+			}
+			else if( e.device().isNull() || false == isAdaptive(e.task()) )
+			{
+				return Please.setTimeoutFor(Interval.secs(m_maxTimeout));
+			}
+			else
+			{
+				return Please.setTimeoutFor(Interval.secs(getTimeout(e.macAddress(), e.task())));
+			}
+		}
+
+		/**
+		 * Returns latency statistics for the given device and task.
+		 */
+		public synchronized @Nullable(Nullable.Prevalence.NEVER) Stats getStats(final String macAddress, final BleTask task)
+		{
+			final Window window = getWindow(macAddress, task, /*create=*/false);
+
+			if( window == null )
+			{
+				return new Stats(0, 0.0, 0.0, m_maxTimeout);
+			}
+			else
+			{
+				return new Stats(window.m_count, window.m_percentileTime, window.m_maxTime, window.m_timeout);
+			}
+		}
+
+		/**
+		 * Forgets all execution times seen so far, so timeouts go back to the maximum.
+		 */
+		public synchronized void clear()
+		{
+			m_windows.clear();
+		}
+
+		private synchronized double getTimeout(final String macAddress, final BleTask task)
+		{
+			final Window window = getWindow(macAddress, task, /*create=*/false);
+
+			return window != null ? window.m_timeout : m_maxTimeout;
+		}
+
+		/**
+		 * Called when a task finished executing, including when it timed out, in which case <code>executionTime</code> is the
+		 * timeout itself so that the next one is at least as lenient.
+		 */
+		synchronized void onTaskExecuted(final String macAddress, final BleTask task, final double executionTime)
+		{
+			if( false == isAdaptive(task) )  return;
+
+			final Window window = getWindow(macAddress, task, /*create=*/true);
+
+			window.m_samples[window.m_next] = executionTime;
+			window.m_next = (window.m_next + 1) % window.m_samples.length;
+			window.m_count = Math.min(window.m_count + 1, window.m_samples.length);
+
+			final double[] sorted = Arrays.copyOf(window.m_samples, window.m_count);
+			Arrays.sort(sorted);
+
+			final int percentileIndex = (int) Math.ceil(m_percentile * sorted.length) - 1;
+
+			window.m_percentileTime = sorted[Math.max(0, percentileIndex)];
+			window.m_maxTime = sorted[sorted.length - 1];
+
+			if( window.m_count >= m_minSamples )
+			{
+				window.m_timeout = Math.max(m_minTimeout, Math.min(m_maxTimeout, window.m_percentileTime * m_safetyFactor));
+			}
+		}
+
+		private static boolean isAdaptive(final BleTask task)
+		{
+			return task != BleTask.CONNECT && task != BleTask.BOND;
+		}
+
+		private Window getWindow(final String macAddress, final BleTask task, final boolean create)
+		{
+			EnumMap<BleTask, Window> windows = m_windows.get(macAddress);
+
+			if( windows == null )
+			{
+				if( !create )  return null;
+
+				windows = new EnumMap<BleTask, Window>(BleTask.class);
+				m_windows.put(macAddress, windows);
+			}
+
+			Window window = windows.get(task);
+
+			if( window == null && create )
+			{
+				window = new Window(m_windowSize, m_maxTimeout);
+				windows.put(task, window);
+			}
+
+			return window;
+		}
+	}
+
 	/**
 	 * An optional interface you can implement on {@link BleNodeConfig#reconnectFilter} to control reconnection behavior.
 	 *
@@ -1140,10 +1627,34 @@ public class BleNodeConfig
 
 	static double getTimeout(final TaskTimeoutRequestFilter.TaskTimeoutRequestEvent event)
 	{
-		final BleManager manager = event.manager();
 		final BleDevice device_nullable = !event.device().isNull() ? event.device() : null;
 		final BleServer server_nullable = !event.server().isNull() ? event.server() : null;
 
+		final TaskTimeoutRequestFilter filter = getTimeoutFilter(event.manager(), device_nullable, server_nullable);
+		final TaskTimeoutRequestFilter.Please please = filter != null ? filter.onEvent(event) : null;
+		final Interval timeout = please != null ? please.m_interval : Interval.DISABLED;
+		final double toReturn = timeout != null ? timeout.secs() : Interval.DISABLED.secs();
+
+		event.device().getManager().getLogger().checkPlease(please, TaskTimeoutRequestFilter.Please.class);
+
+		return toReturn;
+	}
+
+	/**
+	 * Feeds the execution time of a finished device task to an {@link AdaptiveTaskTimeoutRequestFilter}, if that's what's in use.
+	 */
+	static void onTaskExecuted(final BleManager manager, final BleDevice device, final BleTask task, final double executionTime)
+	{
+		final TaskTimeoutRequestFilter filter = getTimeoutFilter(manager, device, /*server=*/null);
+
+		if( filter instanceof AdaptiveTaskTimeoutRequestFilter )
+		{
+			((AdaptiveTaskTimeoutRequestFilter) filter).onTaskExecuted(device.getMacAddress(), task, executionTime);
+		}
+	}
+
+	private static TaskTimeoutRequestFilter getTimeoutFilter(final BleManager manager, final BleDevice device_nullable, final BleServer server_nullable)
+	{
 		final TaskTimeoutRequestFilter filter_specific;
 
 		if( device_nullable != null )
@@ -1160,14 +1671,8 @@ public class BleNodeConfig
 		}
 
 		final TaskTimeoutRequestFilter filter_mngr = manager.m_config.taskTimeoutRequestFilter;
-		final TaskTimeoutRequestFilter filter = filter_specific != null ? filter_specific : filter_mngr;
-		final TaskTimeoutRequestFilter.Please please = filter != null ? filter.onEvent(event) : null;
-		final Interval timeout = please != null ? please.m_interval : Interval.DISABLED;
-		final double toReturn = timeout != null ? timeout.secs() : Interval.DISABLED.secs();
-
-		event.device().getManager().getLogger().checkPlease(please, TaskTimeoutRequestFilter.Please.class);
 
-		return toReturn;
+		return filter_specific != null ? filter_specific : filter_mngr;
 	}
 
 
@@ -0,0 +1,156 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+import java.util.List;
+
+/**
+ * Controls how often notifications for a characteristic are passed to your {@link BleDevice.ReadWriteListener}, independent
+ * of how often the device actually sends them. Pass an instance to {@link BleDevice#enableNotify(java.util.UUID, java.util.UUID, Interval, BleNotifyPolicy, BleDevice.ReadWriteListener)}.
+ * Every notification is still logged to historical data (subject to {@link BleNodeConfig#historicalDataLogFilter}), so you can for example
+ * display a 200Hz sensor at 10Hz without losing any samples.
+ * <br><br>
+ * Only successful notifications are affected - ones with {@link BleDevice.ReadWriteListener.Status#NULL_DATA} or
+ * {@link BleDevice.ReadWriteListener.Status#EMPTY_DATA} are always delivered right away.
+ */
+@Immutable
+public final class BleNotifyPolicy
+{
+	/**
+	 * Provide an implementation to {@link BleNotifyPolicy#aggregate(Interval, Aggregator)} to combine all notifications received
+	 * over a window into the data of a single {@link BleDevice.ReadWriteListener.ReadWriteEvent}.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface Aggregator
+	{
+		/**
+		 * Called with the data of every notification received in the window, oldest first. Never called with an empty list.
+		 */
+		byte[] aggregate(List<byte[]> samples);
+	}
+
+	/**
+	 * Default {@link Aggregator} used by {@link BleNotifyPolicy#aggregate(Interval)} that concatenates all samples, oldest first.
+	 */
+	public static final Aggregator CONCATENATE = new Aggregator()
+	{
+		@Override public byte[] aggregate(final List<byte[]> samples)
+		{
+			int length = 0;
+
+			for( int i = 0; i < samples.size(); i++ )
+			{
+				length += samples.get(i).length;
+			}
+
+			final byte[] data = new byte[length];
+			int offset = 0;
+
+			for( int i = 0; i < samples.size(); i++ )
+			{
+				final byte[] sample_ith = samples.get(i);
+
+				System.arraycopy(sample_ith, 0, data, offset, sample_ith.length);
+
+				offset += sample_ith.length;
+			}
+
+			return data;
+		}
+	};
+
+	static enum Mode
+	{
+		DELIVER_ALL,
+		LATEST,
+		DECIMATE,
+		AGGREGATE;
+	}
+
+	/**
+	 * Delivers every notification as it arrives, which is the default behavior.
+	 */
+	public static final BleNotifyPolicy DELIVER_ALL = new BleNotifyPolicy(Mode.DELIVER_ALL, 0.0, 1, null);
+
+	private final Mode m_mode;
+	private final double m_interval;
+	private final int m_n;
+	private final Aggregator m_aggregator;
+
+	private BleNotifyPolicy(final Mode mode, final double interval, final int n, final Aggregator aggregator)
+	{
+		m_mode = mode;
+		m_interval = interval;
+		m_n = n;
+		m_aggregator = aggregator;
+	}
+
+	/**
+	 * Delivers at most one notification per <code>minInterval</code>. If more arrive in the meantime only the most recent one is
+	 * delivered, once the interval is up.
+	 */
+	public static @Nullable(Prevalence.NEVER) BleNotifyPolicy latestAtMaxRate(final Interval minInterval)
+	{
+		return Interval.isDisabled(minInterval) ? DELIVER_ALL : new BleNotifyPolicy(Mode.LATEST, minInterval.secs(), 1, null);
+	}
+
+	/**
+	 * Delivers the first of every <code>n</code> notifications and drops the rest.
+	 */
+	public static @Nullable(Prevalence.NEVER) BleNotifyPolicy decimate(final int n)
+	{
+		return n <= 1 ? DELIVER_ALL : new BleNotifyPolicy(Mode.DECIMATE, 0.0, n, null);
+	}
+
+	/**
+	 * Collects notifications for <code>window</code> after the first one arrives, then delivers them as a single event whose
+	 * {@link BleDevice.ReadWriteListener.ReadWriteEvent#data()} is the result of the given {@link Aggregator}.
+	 */
+	public static @Nullable(Prevalence.NEVER) BleNotifyPolicy aggregate(final Interval window, final Aggregator aggregator)
+	{
+		return Interval.isDisabled(window) ? DELIVER_ALL : new BleNotifyPolicy(Mode.AGGREGATE, window.secs(), 1, aggregator != null ? aggregator : CONCATENATE);
+	}
+
+	/**
+	 * Same as {@link #aggregate(Interval, Aggregator)} using {@link #CONCATENATE}.
+	 */
+	public static @Nullable(Prevalence.NEVER) BleNotifyPolicy aggregate(final Interval window)
+	{
+		return aggregate(window, CONCATENATE);
+	}
+
+	Mode getMode()
+	{
+		return m_mode;
+	}
+
+	double getInterval()
+	{
+		return m_interval;
+	}
+
+	int getN()
+	{
+		return m_n;
+	}
+
+	Aggregator getAggregator()
+	{
+		return m_aggregator;
+	}
+
+	@Override public String toString()
+	{
+		return Utils_String.toString
+		(
+			this.getClass(),
+			"mode",			m_mode,
+			"interval",		m_interval,
+			"n",			m_n
+		);
+	}
+}
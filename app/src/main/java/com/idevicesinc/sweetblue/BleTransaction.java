@@ -34,8 +34,21 @@ public abstract class BleTransaction
 	
 	/**
 	 * Tagging subclass to force type-correctness for {@link BleDevice#performOta(BleTransaction.Ota)}.
+	 * <br><br>
+	 * TIP: Use a {@link com.idevicesinc.sweetblue.utils.FirmwareSource} together with {@link #getChunkSize()} to stream large
+	 * images instead of loading them into memory up front, or just use {@link BleWriteTransaction#add(java.util.UUID, java.util.UUID, com.idevicesinc.sweetblue.utils.FirmwareSource)}.
 	 */
-	public abstract static class Ota extends BleTransaction{}
+	public abstract static class Ota extends BleTransaction
+	{
+		/**
+		 * Returns the number of payload bytes that fit in a single write given the current {@link BleDevice#getMtu()},
+		 * i.e. the ideal size of each chunk pulled from a {@link com.idevicesinc.sweetblue.utils.FirmwareSource}.
+		 */
+		protected int getChunkSize()
+		{
+			return getDevice().getMtu() - BleNodeConfig.GATT_MTU_OVERHEAD;
+		}
+	}
 	
 	/**
 	 * Values are passed to {@link BleTransaction#onEnd(BleDevice, EndReason)}.
@@ -113,6 +126,11 @@ public abstract class BleTransaction
 	 */
 	protected void onEnd(BleDevice device, EndReason reason){}
 	
+	/**
+	 * Called right before {@link #onEnd(BleDevice, EndReason)} so library subclasses can release resources without relying on overrides calling super.
+	 */
+	void onEnd_internal(EndReason reason){}
+
 	/**
 	 * Optional convenience method to override if you want to do periodic updates or time-based calculations.
 	 */
@@ -148,14 +166,16 @@ public abstract class BleTransaction
 
 		m_isRunning = false;
 
+		onEnd_internal(reason);
+
 		if( m_listener != null )
 		{
 			m_listener.onTransactionEnd(this, reason, failReason);
 		}
 
-		if( m_device.getManager().m_config.postCallbacksToMainThread && !Utils.isOnMainThread() )
+		if( m_device.getManager().m_config.postCallbacksToMainThread && !Utils.isOnMainThread() && !(this instanceof InlineListener) )
 		{
-			m_device.getManager().m_mainThreadHandler.post(new Runnable()
+			m_device.getManager().m_eventPoster.post(new Runnable()
 			{
 				@Override public void run()
 				{
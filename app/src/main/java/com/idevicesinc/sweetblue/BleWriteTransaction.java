@@ -1,6 +1,11 @@
 package com.idevicesinc.sweetblue;
 
 
+import com.idevicesinc.sweetblue.utils.FirmwareSource;
+import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.Utils_Byte;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.UUID;
@@ -119,7 +124,10 @@ public class BleWriteTransaction extends BleTransaction.Ota
         {
             if (e.wasSuccess())
             {
-                writeQueue.remove(0);
+                if (!popHead())
+                {
+                    return;
+                }
                 if (hasMore())
                 {
                     if (mWriteListener != null)
@@ -151,7 +159,10 @@ public class BleWriteTransaction extends BleTransaction.Ota
                     switch (please.action)
                     {
                         case NEXT:
-                            writeQueue.remove(0);
+                            if (!popHead())
+                            {
+                                return;
+                            }
                             if (hasMore())
                             {
                                 performNextWrite();
@@ -165,6 +176,7 @@ public class BleWriteTransaction extends BleTransaction.Ota
                             performNextWrite();
                             break;
                         case STOP:
+                            closeStreams();
                             writeQueue.clear();
                             succeed();
                     }
@@ -220,6 +232,10 @@ public class BleWriteTransaction extends BleTransaction.Ota
      */
     @Override protected void start(BleDevice device)
     {
+        if (!primeHead())
+        {
+            return;
+        }
         if (hasMore())
         {
             performNextWrite();
@@ -270,7 +286,19 @@ public class BleWriteTransaction extends BleTransaction.Ota
     }
 
     /**
-     * Returns how many write operations are left in the queue.
+     * Add a {@link FirmwareSource} to the write queue. The source is read lazily, one chunk of {@link #getChunkSize()} bytes
+     * per write, into a reusable buffer, so arbitrarily large images can be sent without loading them into memory. The source is
+     * closed once it's exhausted or the transaction ends. You can chain this method, to make it easier to add multiple writes.
+     */
+    public BleWriteTransaction add(UUID serviceUuid, UUID charUuid, FirmwareSource source)
+    {
+        writeQueue.add(new StreamedWrite(serviceUuid, charUuid, source));
+        return this;
+    }
+
+    /**
+     * Returns how many write operations are left in the queue. A {@link FirmwareSource} added through
+     * {@link #add(UUID, UUID, FirmwareSource)} counts as a single entry until it's exhausted.
      */
     public int remaining()
     {
@@ -288,4 +316,151 @@ public class BleWriteTransaction extends BleTransaction.Ota
         getDevice().write(mCurWrite, mListener);
     }
 
+    /**
+     * Removes the current head of the queue, or moves a streamed head on to its next chunk. Returns <code>false</code>
+     * if the transaction was failed because a {@link FirmwareSource} couldn't be read.
+     */
+    private boolean popHead()
+    {
+        final BleDevice.WriteBuilder head = writeQueue.get(0);
+
+        try
+        {
+            if (head instanceof StreamedWrite && ((StreamedWrite) head).advance())
+            {
+                return true;
+            }
+        }
+        catch (IOException e)
+        {
+            getDevice().getManager().getLogger().e("Couldn't read from FirmwareSource: " + e.getMessage());
+            fail();
+            return false;
+        }
+
+        writeQueue.remove(0);
+        closeStream(head);
+
+        return primeHead();
+    }
+
+    /**
+     * Makes sure a streamed write at the head of the queue has its first chunk loaded, dropping any empty sources.
+     */
+    private boolean primeHead()
+    {
+        try
+        {
+            while (hasMore() && writeQueue.get(0) instanceof StreamedWrite)
+            {
+                final StreamedWrite head = (StreamedWrite) writeQueue.get(0);
+
+                if (head.hasChunk() || head.advance())
+                {
+                    break;
+                }
+
+                writeQueue.remove(0);
+                head.close();
+            }
+        }
+        catch (IOException e)
+        {
+            getDevice().getManager().getLogger().e("Couldn't read from FirmwareSource: " + e.getMessage());
+            fail();
+            return false;
+        }
+
+        return true;
+    }
+
+    private void closeStream(BleDevice.WriteBuilder write)
+    {
+        if (write instanceof StreamedWrite)
+        {
+            ((StreamedWrite) write).close();
+        }
+    }
+
+    private void closeStreams()
+    {
+        for (int i = 0; i < writeQueue.size(); i++)
+        {
+            closeStream(writeQueue.get(i));
+        }
+    }
+
+    @Override void onEnd_internal(EndReason reason)
+    {
+        closeStreams();
+    }
+
+    /**
+     * Queue entry that pulls its data out of a {@link FirmwareSource} one chunk at a time. Two buffers are alternated so that
+     * the data of the {@link BleDevice.ReadWriteListener.ReadWriteEvent} for the previous chunk stays valid while the next one is loaded.
+     */
+    private final class StreamedWrite extends BleDevice.WriteBuilder implements FutureData
+    {
+        private final FirmwareSource m_source;
+        private final byte[][] m_buffers = new byte[2][];
+        private int m_bufferIndex = 0;
+        private byte[] m_chunk = null;
+
+        private StreamedWrite(UUID serviceUuid, UUID charUuid, FirmwareSource source)
+        {
+            super(serviceUuid, charUuid);
+
+            m_source = source;
+            setData(this);
+        }
+
+        private boolean hasChunk()
+        {
+            return m_chunk != null;
+        }
+
+        private boolean advance() throws IOException
+        {
+            final int chunkSize = getChunkSize();
+
+            m_bufferIndex = (m_bufferIndex + 1) % m_buffers.length;
+
+            if (m_buffers[m_bufferIndex] == null || m_buffers[m_bufferIndex].length != chunkSize)
+            {
+                m_buffers[m_bufferIndex] = new byte[chunkSize];
+            }
+
+            final byte[] buffer = m_buffers[m_bufferIndex];
+            final int read = m_source.read(buffer, 0, buffer.length);
+
+            if (read <= 0)
+            {
+                m_chunk = null;
+
+                return false;
+            }
+
+            m_chunk = read == buffer.length ? buffer : Utils_Byte.subBytes(buffer, 0, read);
+
+            return true;
+        }
+
+        private void close()
+        {
+            try
+            {
+                m_source.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing left to do with the source at this point.
+            }
+        }
+
+        @Override public byte[] getData()
+        {
+            return m_chunk;
+        }
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.idevicesinc.sweetblue;
+
+/**
+ * Tagging interface - implement this on any listener, e.g. a {@link BleDevice.ReadWriteListener}, or on a {@link BleTransaction},
+ * to have its callbacks invoked directly on the thread that produced them, which is normally SweetBlue's update thread.
+ * Without it, a callback produced off of the main thread is posted to the main thread first. That's the case for every callback
+ * if {@link BleManagerConfig#runOnMainThread} is <code>false</code>, because the update thread then isn't the main thread, and
+ * also for early-out results of calls made from other threads with {@link BleNodeConfig#allowCallsFromAllThreads}.
+ * Skipping the post saves two thread hops per step of a multi-step sequence, since a read or write issued from inside such a
+ * callback is already on the update thread and doesn't have to be posted back to it. If nothing else is queued, that read or write
+ * also starts as soon as the callback returns instead of on the task queue's next update. {@link BleFuture} completions are always delivered this way.
+ * <br><br>
+ * NOTE: Callbacks delivered inline block SweetBlue's update thread, so they should be quick and must not touch the UI.
+ */
+public interface InlineListener
+{
+}
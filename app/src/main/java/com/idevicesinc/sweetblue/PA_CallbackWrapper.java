@@ -1,7 +1,5 @@
 package com.idevicesinc.sweetblue;
 
-import android.os.Handler;
-
 import com.idevicesinc.sweetblue.utils.Utils;
 
 /**
@@ -10,12 +8,12 @@ import com.idevicesinc.sweetblue.utils.Utils;
  */
 abstract class PA_CallbackWrapper
 {
-	protected final Handler m_handler;
+	protected final P_EventPoster m_poster;
 	protected final boolean m_forcePostToMain;
 	
-	PA_CallbackWrapper(Handler handler, boolean postToMain)
+	PA_CallbackWrapper(P_EventPoster poster, boolean postToMain)
 	{
-		m_handler = handler;
+		m_poster = poster;
 		m_forcePostToMain = postToMain;
 	}
 	
@@ -23,4 +21,9 @@ abstract class PA_CallbackWrapper
 	{
 		return m_forcePostToMain && !Utils.isOnMainThread();
 	}
+
+	protected boolean postToMain(final Object listener)
+	{
+		return !(listener instanceof InlineListener) && postToMain();
+	}
 }
@@ -6,6 +6,7 @@ import android.bluetooth.BluetoothGattService;
 
 import com.idevicesinc.sweetblue.utils.EmptyIterator;
 import com.idevicesinc.sweetblue.utils.Utils;
+import com.idevicesinc.sweetblue.utils.Uuids;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -30,10 +31,28 @@ abstract class PA_ServiceManager
 	private static final List<BluetoothGattDescriptor> EMPTY_DESCRIPTOR_LIST = new ArrayList<BluetoothGattDescriptor>();
 
 
+	private volatile P_GattIndex m_index = null;
+
+
 	PA_ServiceManager()
 	{
 	}
 
+	/**
+	 * Builds an immutable lookup index from the current native service list so that {@link #getCharacteristic(UUID, UUID)}
+	 * and {@link #getDescriptor(UUID, UUID, UUID)} become constant-time. Must be called again (or {@link #clearIndex()})
+	 * whenever the native services change, for example after service discovery, a gatt refresh, or a disconnect.
+	 */
+	void buildIndex()
+	{
+		m_index = new P_GattIndex(getNativeServiceList_original());
+	}
+
+	void clearIndex()
+	{
+		m_index = null;
+	}
+
 	public abstract BluetoothGattService getServiceDirectlyFromNativeNode(final UUID uuid);
 
 	protected abstract List<BluetoothGattService> getNativeServiceList_original();
@@ -41,6 +60,13 @@ abstract class PA_ServiceManager
 
 	public BluetoothGattCharacteristic getCharacteristic(final UUID serviceUuid_nullable, final UUID charUuid)
 	{
+		final P_GattIndex index = m_index;
+
+		if( index != null )
+		{
+			return index.getCharacteristic(serviceUuid_nullable, charUuid);
+		}
+
 		if( serviceUuid_nullable == null )
 		{
 			final List<BluetoothGattService> serviceList_native = getNativeServiceList_original();
@@ -81,7 +107,7 @@ abstract class PA_ServiceManager
 		{
 			final BluetoothGattCharacteristic char_jth = charList_native.get(j);
 
-			if( char_jth.getUuid().equals(charUuid) )
+			if( Uuids.areEqual(char_jth.getUuid(), charUuid) )
 			{
 				return char_jth;
 			}
@@ -134,7 +160,7 @@ abstract class PA_ServiceManager
 		{
 			final BluetoothGattService service_ith = serviceList_native.get(i);
 
-			if( serviceUuid_nullable == null || serviceUuid_nullable != null && serviceUuid_nullable.equals(service_ith.getUuid()) )
+			if( serviceUuid_nullable == null || Uuids.areEqual(serviceUuid_nullable, service_ith.getUuid()) )
 			{
 				final List<BluetoothGattCharacteristic> nativeChars = getNativeCharacteristicList_original(service_ith);
 
@@ -164,7 +190,7 @@ abstract class PA_ServiceManager
 		{
 			final BluetoothGattService service_ith = serviceList_native.get(i);
 
-			if( serviceUuid_nullable == null || serviceUuid_nullable != null && serviceUuid_nullable.equals(service_ith.getUuid()) )
+			if( serviceUuid_nullable == null || Uuids.areEqual(serviceUuid_nullable, service_ith.getUuid()) )
 			{
 				final List<BluetoothGattCharacteristic> charList_native = getNativeCharacteristicList_original(service_ith);
 
@@ -172,7 +198,7 @@ abstract class PA_ServiceManager
 				{
 					final BluetoothGattCharacteristic char_jth = charList_native.get(j);
 
-					if( charUuid_nullable == null || charUuid_nullable != null && charUuid_nullable.equals(char_jth.getUuid()) )
+					if( charUuid_nullable == null || Uuids.areEqual(charUuid_nullable, char_jth.getUuid()) )
 					{
 						final List<BluetoothGattDescriptor> descriptors = getNativeDescriptorList_original(char_jth);
 
@@ -223,7 +249,7 @@ abstract class PA_ServiceManager
 		{
 			final BluetoothGattDescriptor ith = list_native.get(i);
 
-			if( ith.getUuid().equals(descUuid) )
+			if( Uuids.areEqual(ith.getUuid(), descUuid) )
 			{
 				return ith;
 			}
@@ -240,7 +266,7 @@ abstract class PA_ServiceManager
 		{
 			final BluetoothGattCharacteristic char_jth = charList.get(j);
 
-			if( charUuid_nullable == null || charUuid_nullable != null && charUuid_nullable.equals(char_jth.getUuid()) )
+			if( charUuid_nullable == null || Uuids.areEqual(charUuid_nullable, char_jth.getUuid()) )
 			{
 				final BluetoothGattDescriptor descriptor = getDescriptor(char_jth, descUuid);
 
@@ -266,6 +292,13 @@ abstract class PA_ServiceManager
 
 	public BluetoothGattDescriptor getDescriptor(final UUID serviceUuid_nullable, final UUID charUuid_nullable, final UUID descUuid)
 	{
+		final P_GattIndex index = m_index;
+
+		if( index != null )
+		{
+			return index.getDescriptor(serviceUuid_nullable, charUuid_nullable, descUuid);
+		}
+
 		if( serviceUuid_nullable == null )
 		{
 			final List<BluetoothGattService> serviceList = getNativeServiceList_original();
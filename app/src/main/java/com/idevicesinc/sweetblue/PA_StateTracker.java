@@ -27,7 +27,8 @@ abstract class PA_StateTracker
 		}
 	}
 	
-	private int m_stateMask = 0x0;
+	//--- Volatile so the mask can be read from any thread, see BleNodeConfig#allowReadsFromAllThreads.
+	private volatile int m_stateMask = 0x0;
 
 	private final long[] m_timesInState;
 	private final int m_stateCount;
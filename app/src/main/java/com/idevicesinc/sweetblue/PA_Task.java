@@ -285,7 +285,15 @@ abstract class PA_Task
 				
 		if( !m_manager.ASSERT(!m_state.isEndingState()) )  return;
 
+		final boolean wasExecuting = m_state == PE_TaskState.EXECUTING;
+
 		setState(endingState);
+
+		if( wasExecuting && (endingState == PE_TaskState.SUCCEEDED || endingState == PE_TaskState.TIMED_OUT) && getDevice() != null && getTaskType() != null )
+		{
+			//--- Not getTotalTimeExecuting(), so that tasks which reset their timeout per operation report per-operation times.
+			BleNodeConfig.onTaskExecuted(getManager(), getDevice(), getTaskType(), getTimeExecutingSinceTimeoutReset());
+		}
 	}
 
 	public void tryExecuting()
@@ -347,7 +355,7 @@ abstract class PA_Task
 			{
 				if( !Interval.isDisabled(m_timeout) && m_timeout != Interval.INFINITE.secs() )
 				{
-					double timeExecuting = (System.currentTimeMillis() - m_resetableExecuteStartTime)/1000.0;
+					double timeExecuting = getTimeExecutingSinceTimeoutReset();
 
 					if( timeExecuting >= m_timeout )
 					{
@@ -374,6 +382,14 @@ abstract class PA_Task
 		return (System.currentTimeMillis() - m_timeExecuted)/1000.0;
 	}
 	
+	/**
+	 * Time since execution started or since the last {@link #resetTimeout(double)}, whichever is later. This is what's compared against the timeout.
+	 */
+	double getTimeExecutingSinceTimeoutReset()
+	{
+		return (System.currentTimeMillis() - m_resetableExecuteStartTime)/1000.0;
+	}
+
 	public double getTotalTime()
 	{
 		return (System.currentTimeMillis() - m_timeCreated)/1000.0;
@@ -222,16 +222,33 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 		}
 	}
 
-	private ReadWriteEvent newSuccessReadWriteEvent(byte[] data, Target target, ReadWriteListener.Type type, UUID charUuid, UUID descUuid)
+	private ReadWriteEvent newSuccessReadWriteEvent(byte[] data, Target target, ReadWriteListener.Type type, UUID charUuid, UUID descUuid, byte[] previousData)
 	{
-		return new ReadWriteEvent(getDevice(), getServiceUuid(), charUuid, descUuid, type, target, data, Status.SUCCESS, BluetoothGatt.GATT_SUCCESS, getTotalTime(), getTotalTimeExecuting(), /*solicited=*/true);
+		return new ReadWriteEvent(getDevice(), getServiceUuid(), charUuid, descUuid, type, target, data, Status.SUCCESS, BluetoothGatt.GATT_SUCCESS, getTotalTime(), getTotalTimeExecuting(), /*solicited=*/true, previousData);
 	}
 
 	private void succeedRead(byte[] value, Target target, ReadWriteListener.Type type)
 	{
 		super.succeed();
 
-		final ReadWriteEvent event = newSuccessReadWriteEvent(value, target, type, getCharUuid(), getDescUuid());
+		byte[] previousData = null;
+
+		if( m_readWriteListener instanceof P_PollManager.PollingReadListener )
+		{
+			final P_PollManager.PollingReadListener pollListener = (P_PollManager.PollingReadListener) m_readWriteListener;
+
+			//--- For change-tracking polls that drop unchanged values this means nothing changed since the last poll, so nobody would see an event anyway.
+			if( !pollListener.onPolledValue(value) )
+			{
+				getDevice().addReadTime(getTotalTime());
+
+				return;
+			}
+
+			previousData = pollListener.getPreviousValue();
+		}
+
+		final ReadWriteEvent event = newSuccessReadWriteEvent(value, target, type, getCharUuid(), getDescUuid(), previousData);
 		getDevice().addReadTime(event.time_total().secs());
 
 		getDevice().invokeReadWriteCallback(m_readWriteListener, event);
@@ -86,6 +86,14 @@ class PU_HistoricalData
 		return filter_config_device != null ? filter_config_device : filter_config_mngr;
 	}
 
+	static BleNodeConfig.HistoricalDataRetentionFilter getRetentionFilter(final BleNode endpoint)
+	{
+		final BleNodeConfig.HistoricalDataRetentionFilter filter_config_device = endpoint.conf_node().historicalDataRetentionFilter;
+		final BleNodeConfig.HistoricalDataRetentionFilter filter_config_mngr = endpoint.conf_mngr().historicalDataRetentionFilter;
+
+		return filter_config_device != null ? filter_config_device : filter_config_mngr;
+	}
+
 	static BleDeviceConfig.HistoricalDataLogFilter.HistoricalDataLogEvent newEvent(final BleNode node, final String macAddress, final UUID uuid, final byte[] data, final EpochTime epochTime, final BleDeviceConfig.HistoricalDataLogFilter.Source source)
 	{
 		final BleDeviceConfig.HistoricalDataLogFilter.HistoricalDataLogEvent event = new BleDeviceConfig.HistoricalDataLogFilter.HistoricalDataLogEvent(node, macAddress, uuid, data, epochTime, source);
@@ -79,11 +79,16 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 					}
 					else
 					{
-						m_device.onServicesDiscovered();
+						m_device.onServicesDiscovered(discoverTask.usedGattSchemaCache());
 					}
 				}
 				else if (state.isEndingState() )
 				{
+					if( state != PE_TaskState.SOFTLY_CANCELLED )
+					{
+						m_device.getManager().m_gattSchemaCache.onDiscoveryFailed(m_device, discoverTask.usedGattSchemaCache());
+					}
+
 					if( state == PE_TaskState.SOFTLY_CANCELLED )
 					{
 						// pretty sure doing nothing is correct.
@@ -120,7 +125,16 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 	{
 		final PI_UpdateLoop updateLoop = m_device.getManager().getUpdateLoop();
 
-		updateLoop.postIfNeeded(runnable);
+		updateLoop.postIfNeeded(new Runnable()
+		{
+			@Override public void run()
+			{
+				runnable.run();
+
+				//--- Everything the callback set off has returned by now, so a follow-up it queued can start without waiting for the next update.
+				m_queue.dequeueIfTaskEnded();
+			}
+		});
 	}
 
 	private boolean postNeeded()
@@ -287,6 +301,15 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 
 		if( Utils.isSuccess(gattStatus) )
 		{
+			m_device.serviceMngr_device().buildIndex();
+
+			final P_Task_DiscoverServices task = m_queue.getCurrent(P_Task_DiscoverServices.class, m_device);
+
+			if( task != null )
+			{
+				m_device.getManager().m_gattSchemaCache.onServicesDiscovered(m_device, m_device.getNativeGatt().getServices(), task.usedGattSchemaCache());
+			}
+
 			m_queue.succeed(P_Task_DiscoverServices.class, m_device);
 		}
 		else
@@ -328,11 +351,16 @@ class P_BleDevice_Listeners extends BluetoothGattCallback
 		m_logger.log_status(gattStatus);
 
 		final P_Task_Read readTask = m_queue.getCurrent(P_Task_Read.class, m_device);
+		final P_Task_BatchRead batchReadTask = readTask == null ? m_queue.getCurrent(P_Task_BatchRead.class, m_device) : null;
 
 		if( readTask != null && readTask.isFor(characteristic) )
 		{
 			readTask.onCharacteristicRead(gatt, characteristic.getUuid(), value, gattStatus);
 		}
+		else if( batchReadTask != null && batchReadTask.isFor(characteristic) )
+		{
+			batchReadTask.onCharacteristicRead(gatt, characteristic.getUuid(), value, gattStatus);
+		}
 		else
 		{
 			fireUnsolicitedEvent(characteristic, null, BleDevice.ReadWriteListener.Type.READ, BleDevice.ReadWriteListener.Target.CHARACTERISTIC, value, gattStatus);
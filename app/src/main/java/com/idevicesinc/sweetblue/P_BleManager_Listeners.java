@@ -16,6 +16,7 @@ import android.content.IntentFilter;
 import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.Utils;
 
@@ -26,10 +27,22 @@ class P_BleManager_Listeners
 {
 	private static final String BluetoothDevice_EXTRA_REASON = "android.bluetooth.device.extra.REASON";
 	private static final String BluetoothDevice_ACTION_DISAPPEARED = "android.bluetooth.device.action.DISAPPEARED";
+	private static final double BINDER_CALL_WINDOW = 60.0;
+
 	private static Method m_getLeState_marshmallow;
+	private static boolean m_getLeState_resolved = false;
 	private Integer m_refState;
 	private Integer m_state;
 
+	//--- Set from the broadcast receiver, which may be on a different thread than the update loop.
+	private volatile boolean m_pollRequested = true;
+	private double m_timeSinceLastPoll = 0.0;
+	private double m_pollInterval = 0.0;
+
+	private int m_binderCalls = 0;
+	private int m_binderCallsPerMinute = 0;
+	private double m_binderCallWindowTime = 0.0;
+
 	
 	final BluetoothAdapter.LeScanCallback m_scanCallback_preLollipop = new BluetoothAdapter.LeScanCallback()
 	{
@@ -232,6 +245,9 @@ class P_BleManager_Listeners
 		int logLevel = newNativeState == BluetoothAdapter.ERROR || previousNativeState == BluetoothAdapter.ERROR ? Log.WARN : Log.INFO;
 		m_mngr.getLogger().log(logLevel, "previous=" + m_mngr.getLogger().gattBleState(previousNativeState) + " new=" + m_mngr.getLogger().gattBleState(newNativeState));
 
+		//--- On M the broadcast doesn't tell us about the BLE_ states, so it's treated as a cue to query the adapter on the next update.
+		m_pollRequested = true;
+
 		if( Utils.isMarshmallow() )
 		{
 			if( previousNativeState == BleStatuses.STATE_ON && newNativeState == BleStatuses.STATE_TURNING_OFF )
@@ -484,19 +500,113 @@ class P_BleManager_Listeners
 		}
 	}
 
+	//--- STATE_BLE_ON isn't in here because it's where the adapter stays in BLE-only mode.
+	private static boolean isTransitionalState(final int state)
+	{
+		return
+				state == BleStatuses.STATE_TURNING_ON		||
+				state == BleStatuses.STATE_TURNING_OFF		||
+				state == BleStatuses.STATE_BLE_TURNING_ON	||
+				state == BleStatuses.STATE_BLE_TURNING_OFF	;
+	}
+
+	//--- Only looks at the current task, which is constant-time. A queued turn on/off doesn't change anything until it executes,
+	//--- and then it shows up here and in broadcasts.
+	private boolean isTurningOnOrOff()
+	{
+		final P_TaskQueue queue = m_mngr.getTaskQueue();
+
+		return queue.isCurrent(P_Task_TurnBleOn.class, m_mngr) || queue.isCurrent(P_Task_TurnBleOff.class, m_mngr);
+	}
+
+	/**
+	 * Polling the native state is only really needed while it's changing, so outside of that the interval between polls starts
+	 * at one update and doubles every time the state is found unchanged, up to {@link BleManagerConfig#nativeStatePollRate}.
+	 * That way a missed broadcast right after a change is still caught quickly, while a stable state costs almost nothing.
+	 */
+	private boolean shouldPoll(final double timeStep)
+	{
+		m_timeSinceLastPoll += timeStep;
+
+		if( m_pollRequested || isTransitionalState(m_nativeState) || isTurningOnOrOff() )
+		{
+			m_pollInterval = 0.0;
+
+			return true;
+		}
+
+		final Interval pollRate = m_mngr.m_config.nativeStatePollRate;
+
+		if( Interval.isDisabled(pollRate) )  return false;
+
+		return m_timeSinceLastPoll >= Math.min(m_pollInterval, pollRate.secs());
+	}
+
+	private void onPolled(final boolean changed, final double timeStep)
+	{
+		if( changed )
+		{
+			m_pollInterval = 0.0;
+		}
+		else
+		{
+			final Interval pollRate = m_mngr.m_config.nativeStatePollRate;
+			final double maxInterval = Interval.isDisabled(pollRate) ? Double.POSITIVE_INFINITY : pollRate.secs();
+
+			m_pollInterval = Math.min(Math.max(m_pollInterval, timeStep) * P_PollManager.ADAPTIVE_BACKOFF_FACTOR, maxInterval);
+		}
+	}
+
+	/**
+	 * Current interval between native state polls while the state is stable, see {@link #shouldPoll(double)}.
+	 */
+	double getNativeStatePollInterval()
+	{
+		return m_pollInterval;
+	}
+
+	private void updateBinderCallRate(final double timeStep)
+	{
+		m_binderCallWindowTime += timeStep;
+
+		if( m_binderCallWindowTime >= BINDER_CALL_WINDOW )
+		{
+			m_binderCallsPerMinute = (int) Math.round(m_binderCalls * (BINDER_CALL_WINDOW / m_binderCallWindowTime));
+			m_binderCalls = 0;
+			m_binderCallWindowTime = 0.0;
+		}
+	}
+
+	/**
+	 * Number of binder calls made to query the native adapter state over the last full minute.
+	 */
+	int getBinderCallsPerMinute()
+	{
+		return m_binderCallsPerMinute;
+	}
+
 	/**
 	 * See the copy/pasted log statements in {@link BleStatuses} for an example of how the state changes
 	 * occur over the course of a few seconds in Android M.
 	 */
-	public void update()
+	public void update(final double timeStep)
 	{
 //		m_mngr.getLogger().e("*********************" + m_mngr.getLogger().gattBleState(getBleState()));
 
+		updateBinderCallRate(timeStep);
+
 		if( Utils.isMarshmallow() )
 		{
+			if( !shouldPoll(timeStep) )  return;
+
+			m_pollRequested = false;
+			m_timeSinceLastPoll = 0.0;
+
 			final int oldState = m_nativeState;
 			final int newState = getBleState();
 
+			onPolled(oldState != newState, timeStep);
+
 			if( oldState != newState )
 			{
 				m_nativeState = newState;
@@ -644,17 +754,37 @@ class P_BleManager_Listeners
 		}
 	}
 
+	private static Method getLeStateMethod()
+	{
+		if( !m_getLeState_resolved )
+		{
+			m_getLeState_resolved = true;
+
+			try
+			{
+				m_getLeState_marshmallow = BluetoothAdapter.class.getDeclaredMethod("getLeState");
+			}
+			catch (NoSuchMethodException e)
+			{
+				m_getLeState_marshmallow = null;
+			}
+		}
+
+		return m_getLeState_marshmallow;
+	}
+
 	private int getBleState()
 	{
-		if( Utils.isMarshmallow() )
+		final Method getLeState = Utils.isMarshmallow() ? getLeStateMethod() : null;
+
+		if( getLeState != null )
 		{
 			try
 			{
-				if (m_getLeState_marshmallow == null)
-				{
-					m_getLeState_marshmallow = BluetoothAdapter.class.getDeclaredMethod("getLeState");
-				}
-				m_refState = (Integer) m_getLeState_marshmallow.invoke(m_mngr.getNativeAdapter());
+				m_binderCalls++;
+				m_refState = (Integer) getLeState.invoke(m_mngr.getNativeAdapter());
+
+				m_binderCalls++;
 				m_state = m_mngr.getNativeAdapter().getState();
 				// This is to fix an issue on the S7 (and perhaps other phones as well), where the OFF
 				// state is never returned from the getLeState method. This is because the BLE_ states represent if LE only mode is on/off. This does NOT
@@ -668,12 +798,15 @@ class P_BleManager_Listeners
 			}
 			catch (Exception e)
 			{
+				m_binderCalls++;
 
 				return m_mngr.getNativeAdapter().getState();
 			}
 		}
 		else
 		{
+			m_binderCalls++;
+
 			return m_mngr.getNativeAdapter().getState();
 		}
 	}
@@ -117,7 +117,7 @@ class P_BondManager
 		{
 			if( m_device.is_internal(BleDeviceState.CONNECTING_OVERALL) )
 			{
-				final boolean bondingFailFailsConnection = BleDeviceConfig.bool(m_device.conf_device().bondingFailFailsConnection, m_device.conf_mngr().bondingFailFailsConnection);
+				final boolean bondingFailFailsConnection = m_device.conf_effective().bondingFailFailsConnection;
 				
 				if( bondingFailFailsConnection )
 				{
@@ -180,11 +180,11 @@ class P_BondManager
 	
 	void saveNeedsBondingIfDesired()
 	{
-		final boolean tryBondingWhileDisconnected = BleDeviceConfig.bool(m_device.conf_device().tryBondingWhileDisconnected, m_device.conf_mngr().tryBondingWhileDisconnected);
+		final boolean tryBondingWhileDisconnected = m_device.conf_effective().tryBondingWhileDisconnected;
 		
 		if( tryBondingWhileDisconnected )
 		{
-			final boolean tryBondingWhileDisconnected_manageOnDisk = BleDeviceConfig.bool(m_device.conf_device().tryBondingWhileDisconnected_manageOnDisk, m_device.conf_mngr().tryBondingWhileDisconnected_manageOnDisk);
+			final boolean tryBondingWhileDisconnected_manageOnDisk = m_device.conf_effective().tryBondingWhileDisconnected_manageOnDisk;
 			
 			m_device.getManager().m_diskOptionsMngr.saveNeedsBonding(m_device.getMacAddress(), tryBondingWhileDisconnected_manageOnDisk);
 		}
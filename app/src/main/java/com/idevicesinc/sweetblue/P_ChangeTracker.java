@@ -0,0 +1,82 @@
+package com.idevicesinc.sweetblue;
+
+/**
+ * Remembers just enough about the last value of a characteristic to tell whether a new one is different - a 64-bit FNV-1a hash
+ * and the length - plus optionally a full copy for {@link BleDevice.ReadWriteListener.ReadWriteEvent#previousData()}.
+ * Two different values with the same length and hash would be reported as unchanged, which for 64 bits is a risk we can live with.
+ */
+final class P_ChangeTracker
+{
+	private static final long FNV_OFFSET_BASIS	= 0xcbf29ce484222325L;
+	private static final long FNV_PRIME			= 0x100000001b3L;
+
+	private final boolean m_retainValue;
+
+	private boolean m_hasValue = false;
+	private long m_hash;
+	private int m_length;
+	private byte[] m_value = null;
+	private byte[] m_previousValue = null;
+
+	P_ChangeTracker(final boolean retainValue)
+	{
+		m_retainValue = retainValue;
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>value</code> is different from the last one seen, or if it's the first one. Either way
+	 * it becomes the new last value.
+	 */
+	boolean onValue(final byte[] value)
+	{
+		final long hash = hash(value);
+
+		if( m_hasValue && m_length == value.length && m_hash == hash )
+		{
+			return false;
+		}
+
+		m_hasValue = true;
+		m_hash = hash;
+		m_length = value.length;
+
+		if( m_retainValue )
+		{
+			m_previousValue = m_value;
+			m_value = value.clone();
+		}
+
+		return true;
+	}
+
+	/**
+	 * The value before the last change, or <code>null</code> if values aren't being retained or there wasn't one.
+	 */
+	byte[] getPreviousValue()
+	{
+		return m_previousValue;
+	}
+
+	/**
+	 * Forgets the last value, so the next one is always reported as a change, for example after a failed read.
+	 */
+	void reset()
+	{
+		m_hasValue = false;
+		m_value = null;
+		m_previousValue = null;
+	}
+
+	static long hash(final byte[] value)
+	{
+		long hash = FNV_OFFSET_BASIS;
+
+		for( int i = 0; i < value.length; i++ )
+		{
+			hash ^= value[i] & 0xff;
+			hash *= FNV_PRIME;
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,103 @@
+package com.idevicesinc.sweetblue;
+
+import android.util.SparseIntArray;
+
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.ConnectionFailEvent;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.ConnectionFailStats;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Timing;
+
+/**
+ * Fixed-capacity ring of the most recent {@link ConnectionFailEvent}s plus running aggregates over all of them, so that a device
+ * stuck in a retry loop for hours doesn't keep growing its history. Each event copies what's in the ring through {@link #snapshot(ConnectionFailEvent)}
+ * when it's built, so its history never changes afterwards. The ring holds {@link ConnectionFailEvent#detached()} copies
+ * so that memory stays bounded even if the app holds on to events. Synchronized because apps can read stats from any thread.
+ */
+final class P_ConnectionFailHistory
+{
+	private ConnectionFailEvent[] m_ring;
+	private long m_totalCount = 0;
+
+	private final int[] m_statusCounts = new int[Status.values().length];
+	private final int[] m_timingCounts = new int[Timing.values().length];
+	private final SparseIntArray m_gattStatusCounts = new SparseIntArray();
+	private double m_attemptTimeSum = 0.0;
+	private double m_attemptTimeMin = 0.0;
+	private double m_attemptTimeMax = 0.0;
+
+	P_ConnectionFailHistory(final int capacity)
+	{
+		m_ring = new ConnectionFailEvent[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Forgets all events and aggregates. A new capacity can be passed in to pick up config changes.
+	 */
+	synchronized void clear(final int capacity)
+	{
+		final int capacity_clamped = Math.max(capacity, 1);
+
+		if( capacity_clamped != m_ring.length )
+		{
+			m_ring = new ConnectionFailEvent[capacity_clamped];
+		}
+		else
+		{
+			for( int i = 0; i < m_ring.length; i++ )
+			{
+				m_ring[i] = null;
+			}
+		}
+
+		m_totalCount = 0;
+
+		for( int i = 0; i < m_statusCounts.length; i++ )  m_statusCounts[i] = 0;
+		for( int i = 0; i < m_timingCounts.length; i++ )  m_timingCounts[i] = 0;
+		m_gattStatusCounts.clear();
+		m_attemptTimeSum = m_attemptTimeMin = m_attemptTimeMax = 0.0;
+	}
+
+	/**
+	 * Returns a new array, oldest first, of all events still retained followed by <code>owner</code>, which hasn't been added yet.
+	 */
+	synchronized ConnectionFailEvent[] snapshot(final ConnectionFailEvent owner)
+	{
+		//--- One less than capacity so that, with the owner, the snapshot is never longer than the configured size.
+		final long start = Math.max(0, m_totalCount - (m_ring.length - 1));
+		final ConnectionFailEvent[] snapshot = new ConnectionFailEvent[(int) (m_totalCount - start) + 1];
+
+		for( int i = 0; i < snapshot.length - 1; i++ )
+		{
+			snapshot[i] = m_ring[(int) ((start + i) % m_ring.length)];
+		}
+
+		snapshot[snapshot.length - 1] = owner;
+
+		return snapshot;
+	}
+
+	synchronized void add(final ConnectionFailEvent e)
+	{
+		m_ring[(int) (m_totalCount % m_ring.length)] = e.detached();
+
+		final double attemptTime = e.attemptTime_latest().secs();
+
+		m_attemptTimeMin = m_totalCount == 0 ? attemptTime : Math.min(m_attemptTimeMin, attemptTime);
+		m_attemptTimeMax = m_totalCount == 0 ? attemptTime : Math.max(m_attemptTimeMax, attemptTime);
+		m_attemptTimeSum += attemptTime;
+
+		m_statusCounts[e.status().ordinal()]++;
+		m_timingCounts[e.timing().ordinal()]++;
+		m_gattStatusCounts.put(e.gattStatus(), m_gattStatusCounts.get(e.gattStatus()) + 1);
+
+		m_totalCount++;
+	}
+
+	synchronized ConnectionFailStats getStats()
+	{
+		final int count = (int) Math.min(m_totalCount, Integer.MAX_VALUE);
+		final double average = m_totalCount == 0 ? 0.0 : m_attemptTimeSum / m_totalCount;
+
+		return new ConnectionFailStats(count, m_statusCounts.clone(), m_timingCounts.clone(), m_gattStatusCounts.clone(), m_attemptTimeMin, m_attemptTimeMax, average);
+	}
+}
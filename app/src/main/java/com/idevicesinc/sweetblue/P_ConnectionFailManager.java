@@ -2,8 +2,6 @@ package com.idevicesinc.sweetblue;
 
 import static com.idevicesinc.sweetblue.BleDeviceState.RECONNECTING_LONG_TERM;
 
-import java.util.ArrayList;
-
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener;
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.ConnectionFailEvent;
 import com.idevicesinc.sweetblue.BleNode.ConnectionFailListener.Please;
@@ -23,7 +21,7 @@ class P_ConnectionFailManager
 	private Long m_timeOfFirstConnect = null;
 	private Long m_timeOfLastConnectFail = null;
 	
-	private final ArrayList<ConnectionFailEvent> m_history = new ArrayList<ConnectionFailEvent>();
+	private final P_ConnectionFailHistory m_history = new P_ConnectionFailHistory(BleDeviceConfig.DEFAULT_MAX_CONNECTION_FAIL_HISTORY_SIZE);
 	
 	P_ConnectionFailManager(BleDevice device)
 	{
@@ -54,7 +52,17 @@ class P_ConnectionFailManager
 		m_failCount = 0;
 		m_highestStateReached_total = null;
 		m_timeOfFirstConnect = m_timeOfLastConnectFail = null;
-		m_history.clear();
+		m_history.clear(getHistorySize());
+	}
+
+	private int getHistorySize()
+	{
+		return BleDeviceConfig.integer(m_device.conf_device().maxConnectionFailHistorySize, m_device.conf_mngr().maxConnectionFailHistorySize, BleDeviceConfig.DEFAULT_MAX_CONNECTION_FAIL_HISTORY_SIZE);
+	}
+
+	ConnectionFailListener.ConnectionFailStats getStats()
+	{
+		return m_history.getStats();
 	}
 	
 	int getRetryCount()
@@ -151,6 +159,12 @@ class P_ConnectionFailManager
 		else
 		{
 			m_failCount = 0;
+
+			//--- If app-land called connect() from the callback, that attempt resolves the futures instead.
+			if( false == m_device.is_internal(BleDeviceState.CONNECTING_OVERALL) )
+			{
+				m_device.resolveConnectFutures(moreInfo);
+			}
 		}
 		
 		return retryChoice__PE_Please;
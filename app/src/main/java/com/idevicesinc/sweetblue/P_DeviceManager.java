@@ -1,9 +1,14 @@
 package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import com.idevicesinc.sweetblue.BleDevice.BondListener;
 import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener;
@@ -15,12 +20,39 @@ import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.State;
+import com.idevicesinc.sweetblue.utils.Utils_State;
 
 class P_DeviceManager
 {
     private final HashMap<String, BleDevice> m_map = new HashMap<String, BleDevice>();
     private final ArrayList<BleDevice> m_list = new ArrayList<BleDevice>();
 
+    //--- Devices in the same order as m_list, but removal leaves a hole instead of shifting everything after it down, so that
+    //--- slots stay stable. For each BleDeviceState there's a set of the slots of devices currently in that state, so that
+    //--- filtered queries cost O(matches) instead of calling BleDevice#is() on every device. Holes are compacted away once they
+    //--- make up half of m_slots.
+    private final ArrayList<BleDevice> m_slots = new ArrayList<BleDevice>();
+    private final BitSet m_occupied = new BitSet();
+    private int m_holeCount = 0;
+    private final HashMap<String, Integer> m_indices = new HashMap<String, Integer>();
+    private final BitSet[] m_stateIndex = new BitSet[BleDeviceState.VALUES().length];
+    private final int[] m_stateCounts = new int[BleDeviceState.VALUES().length];
+
+    //--- Sorted secondary view of m_list, along with devices that were added or whose sort key may have changed since it was
+    //--- last sorted. Everything in the view that isn't in m_unsorted is in order relative to everything else.
+    private final ArrayList<BleDevice> m_list_sorted = new ArrayList<BleDevice>();
+    private final Set<BleDevice> m_unsorted = Collections.newSetFromMap(new IdentityHashMap<BleDevice, Boolean>());
+    private Comparator<BleDevice> m_sortedComparator = null;
+
+    //--- Undiscovery deadlines, so purging only has to look at devices whose keep-alive may have run out. Each device has at
+    //--- most one entry, re-armed lazily when it turns out the device was rediscovered in the mean time.
+    private final PriorityQueue<Expiry> m_expiries = new PriorityQueue<Expiry>();
+    private final IdentityHashMap<BleDevice, Expiry> m_expiryByDevice = new IdentityHashMap<BleDevice, Expiry>();
+    private double m_clock = 0.0;
+
+    //--- Copy of m_list and m_map republished on every add or remove, for read-only queries made off of the update thread.
+    private volatile Snapshot m_snapshot = Snapshot.EMPTY;
+
     private final P_Logger m_logger;
     private final BleManager m_mngr;
 
@@ -31,47 +63,308 @@ class P_DeviceManager
     {
         m_mngr = mngr;
         m_logger = m_mngr.getLogger();
+
+        for (int i = 0; i < m_stateIndex.length; i++)
+        {
+            m_stateIndex[i] = new BitSet();
+        }
     }
 
     public ArrayList<BleDevice> getList()
     {
-        return getList_private(false);
+        return m_list;
     }
 
+    /**
+     * Returns a view of {@link #getList()} sorted by {@link BleManagerConfig#defaultListComparator}. The view is kept sorted
+     * incrementally: only devices added or whose sort key may have changed since the last call are (re)inserted, so
+     * {@link #getList()} itself is never reordered.
+     */
     public ArrayList<BleDevice> getList_sorted()
     {
-        return getList_private(true);
+        final Comparator<BleDevice> comparator = m_mngr.m_config.defaultListComparator;
+
+        if (comparator == null) return m_list;
+
+        //--- Past a point it's cheaper to let the (adaptive) sort handle a mostly-sorted list in one pass.
+        if (comparator != m_sortedComparator || m_unsorted.size() > m_list.size() / 8)
+        {
+            m_sortedComparator = comparator;
+            m_list_sorted.clear();
+            m_list_sorted.addAll(m_list);
+            m_unsorted.clear();
+
+            Collections.sort(m_list_sorted, comparator);
+        }
+        else if (!m_unsorted.isEmpty())
+        {
+            //--- All of them have to come out before any go back in, otherwise a binary search could land on one that's out of place.
+            for (int i = m_list_sorted.size() - 1; i >= 0; i--)
+            {
+                if (m_unsorted.contains(m_list_sorted.get(i)))
+                {
+                    m_list_sorted.remove(i);
+                }
+            }
+
+            for (final BleDevice device : m_unsorted)
+            {
+                insertSorted(device);
+            }
+
+            m_unsorted.clear();
+        }
+
+        return m_list_sorted;
+    }
+
+    private void insertSorted(final BleDevice device)
+    {
+        int position = Collections.binarySearch(m_list_sorted, device, m_sortedComparator);
+
+        if (position < 0)
+        {
+            position = -position - 1;
+        }
+        else
+        {
+            while (position < m_list_sorted.size() && m_sortedComparator.compare(m_list_sorted.get(position), device) == 0)
+            {
+                position++;
+            }
+        }
+
+        m_list_sorted.add(position, device);
     }
 
-    private ArrayList<BleDevice> getList_private(boolean sort)
+    private void removeSorted(final BleDevice device)
     {
-        if (sort && m_mngr.m_config.defaultListComparator != null)
+        for (int i = 0; i < m_list_sorted.size(); i++)
         {
-            Collections.sort(m_list, m_mngr.m_config.defaultListComparator);
+            if (m_list_sorted.get(i) == device)
+            {
+                m_list_sorted.remove(i);
+
+                return;
+            }
         }
-        return m_list;
+    }
+
+    /**
+     * Called when something {@link BleManagerConfig#defaultListComparator} might sort on, like name or rssi, changes for a device.
+     */
+    void onSortKeyChanged(final BleDevice device)
+    {
+        if (m_sortedComparator == null) return;
+
+        if (slotOf(device) < 0) return;
+
+        m_unsorted.add(device);
+    }
+
+    private void index(final int slot, final int oldStateBits, final int newStateBits)
+    {
+        final int changed = oldStateBits ^ newStateBits;
+
+        for (int i = 0, bit = 0x1; i < m_stateIndex.length; i++, bit <<= 1)
+        {
+            if ((changed & bit) == 0x0) continue;
+
+            if ((newStateBits & bit) != 0x0)
+            {
+                m_stateIndex[i].set(slot);
+                m_stateCounts[i]++;
+            }
+            else
+            {
+                m_stateIndex[i].clear(slot);
+                m_stateCounts[i]--;
+            }
+        }
+    }
+
+    /**
+     * Called for every transition of a device's main state tracker, whether or not the device belongs to this manager.
+     */
+    void onDeviceStateChange(final BleDevice device, final int oldStateBits, final int newStateBits)
+    {
+        final int slot = slotOf(device);
+
+        if (slot < 0) return;
+
+        index(slot, oldStateBits, newStateBits);
+
+        if (m_sortedComparator != null)
+        {
+            m_unsorted.add(device);
+        }
+
+        //--- A device parked because it wasn't purgeable (e.g. connected) might be now.
+        final Expiry expiry = m_expiryByDevice.get(device);
+
+        if (expiry != null && !expiry.m_armed)
+        {
+            arm(expiry, m_clock);
+        }
+    }
+
+    /**
+     * Returns the position in {@link #getList()} of the device with the same mac address, or -1 if there isn't one.
+     */
+    int indexOf(final BleDevice device)
+    {
+        final Integer slot = m_indices.get(device.getMacAddress());
+
+        return slot != null ? positionOf(slot) : -1;
+    }
+
+    private int positionOf(final int slot)
+    {
+        return m_occupied.get(0, slot).cardinality();
+    }
+
+    /**
+     * Returns the slot of this exact instance, or -1 if it's not the instance registered for its mac address.
+     */
+    private int slotOf(final BleDevice device)
+    {
+        final Integer slot = m_indices.get(device.getMacAddress());
+
+        return slot != null && m_slots.get(slot) == device ? slot : -1;
+    }
+
+    /**
+     * Returns the slots of all devices matching the given query, with the same semantics as {@link Utils_State#query(int, Object...)},
+     * or <code>null</code> if the query can't be answered from the index.
+     */
+    private BitSet match(final Object... query)
+    {
+        final BitSet result = new BitSet();
+
+        if (query == null || query.length == 0) return result;
+
+        result.or(m_occupied);
+
+        for (int i = 0; i < query.length; i += 2)
+        {
+            final Object first = query[i];
+            final Object second = i + 1 < query.length ? query[i + 1] : null;
+
+            if (first instanceof BleDeviceState && second instanceof Boolean)
+            {
+                if ((Boolean) second)
+                {
+                    result.and(m_stateIndex[((BleDeviceState) first).ordinal()]);
+                }
+                else
+                {
+                    result.andNot(m_stateIndex[((BleDeviceState) first).ordinal()]);
+                }
+            }
+            else if (first instanceof BleDeviceState && second instanceof BleDeviceState)
+            {
+                final BitSet either = (BitSet) m_stateIndex[((BleDeviceState) first).ordinal()].clone();
+                either.or(m_stateIndex[((BleDeviceState) second).ordinal()]);
+
+                result.and(either);
+            }
+            else if (first instanceof BleDeviceState && second == null)
+            {
+                result.and(m_stateIndex[((BleDeviceState) first).ordinal()]);
+            }
+            else if (isForeignState(first) || isForeignState(second))
+            {
+                return null;
+            }
+            else
+            {
+                //--- Malformed query, which Utils_State#query() never matches.
+                result.clear();
+
+                return result;
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isForeignState(final Object queryElement)
+    {
+        return queryElement instanceof State && !(queryElement instanceof BleDeviceState);
+    }
+
+    private BitSet match(final int mask_BleDeviceState)
+    {
+        final BitSet result = new BitSet();
+
+        for (int i = 0, bit = 0x1; i < m_stateIndex.length; i++, bit <<= 1)
+        {
+            if ((mask_BleDeviceState & bit) != 0x0)
+            {
+                result.or(m_stateIndex[i]);
+            }
+        }
+
+        return result;
+    }
+
+    private ArrayList<BleDevice> toList(final BitSet slots, final Object... query)
+    {
+        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
+
+        if (slots == null)
+        {
+            for (int i = 0; i < m_list.size(); i++)
+            {
+                final BleDevice device_ith = m_list.get(i);
+
+                if (device_ith.is(query))
+                {
+                    toReturn.add(device_ith);
+                }
+            }
+        }
+        else
+        {
+            for (int i = slots.nextSetBit(0); i >= 0; i = slots.nextSetBit(i + 1))
+            {
+                toReturn.add(m_slots.get(i));
+            }
+        }
+
+        return toReturn;
+    }
+
+    private BleDevice first(final BitSet slots)
+    {
+        final int slot = slots.nextSetBit(0);
+
+        return slot >= 0 ? m_slots.get(slot) : BleDevice.NULL;
     }
 
     void forEach(final Object forEach, final Object... query)
     {
         final boolean isQueryValid = query != null && query.length > 0;
 
-        for (int i = 0; i < m_mngr.getDeviceCount(); i++)
+        if (isQueryValid)
         {
-            final BleDevice ith = m_mngr.getDeviceAt(i);
+            //--- Matches are gathered up front so that callbacks can safely add or remove devices.
+            final ArrayList<BleDevice> matches = toList(match(query), query);
 
-            if (isQueryValid)
+            for (int i = 0; i < matches.size(); i++)
             {
-                if (ith.is(query))
+                if (!forEach_invoke(forEach, matches.get(i)))
                 {
-                    if (!forEach_invoke(forEach, ith))
-                    {
-                        break;
-                    }
+                    break;
                 }
             }
-            else
+        }
+        else
+        {
+            for (int i = 0; i < m_mngr.getDeviceCount(); i++)
             {
+                final BleDevice ith = m_mngr.getDeviceAt(i);
+
                 if (!forEach_invoke(forEach, ith))
                 {
                     break;
@@ -176,13 +469,27 @@ class P_DeviceManager
 
     public BleDevice getDevice(final int mask_BleDeviceState)
     {
-        for (int i = 0; i < getCount(); i++)
+        return first(match(mask_BleDeviceState));
+    }
+
+    public BleDevice getDevice(final BleDeviceState state)
+    {
+        return first(m_stateIndex[state.ordinal()]);
+    }
+
+    public BleDevice getDevice(final Object... query)
+    {
+        final BitSet slots = match(query);
+
+        if (slots != null) return first(slots);
+
+        for (int i = 0; i < m_list.size(); i++)
         {
-            BleDevice device = get(i);
+            final BleDevice device_ith = m_list.get(i);
 
-            if (device.isAny(mask_BleDeviceState))
+            if (device_ith.is(query))
             {
-                return device;
+                return device_ith;
             }
         }
 
@@ -191,74 +498,103 @@ class P_DeviceManager
 
     public List<BleDevice> getDevices_List(boolean sort, Object... query)
     {
+        return sort ? toList_sorted(match(query), query) : toList(match(query), query);
+    }
+
+    public List<BleDevice> getDevices_List(boolean sort, final BleDeviceState state)
+    {
+        return sort ? toList_sorted(m_stateIndex[state.ordinal()]) : toList(m_stateIndex[state.ordinal()]);
+    }
+
+    public List<BleDevice> getDevices_List(boolean sort, final int mask_BleDeviceState)
+    {
+        return sort ? toList_sorted(match(mask_BleDeviceState)) : toList(match(mask_BleDeviceState));
+    }
+
+    /**
+     * Same as {@link #toList(BitSet, Object...)} but in the order of {@link #getList_sorted()}, which is only brought up to date
+     * instead of sorting the matches from scratch every time.
+     */
+    private ArrayList<BleDevice> toList_sorted(final BitSet slots, final Object... query)
+    {
+        if (m_mngr.m_config.defaultListComparator == null) return toList(slots, query);
+
+        final ArrayList<BleDevice> sorted = getList_sorted();
         final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
 
-        for (int i = 0; i < this.getCount(); i++)
+        for (int i = 0; i < sorted.size(); i++)
         {
-            final BleDevice device_ith = this.get(i);
+            final BleDevice device_ith = sorted.get(i);
 
-            if (device_ith.is(query))
+            if (slots == null ? device_ith.is(query) : slots.get(m_indices.get(device_ith.getMacAddress())))
             {
                 toReturn.add(device_ith);
             }
         }
-        if (sort && m_mngr.m_config.defaultListComparator != null)
-        {
-            Collections.sort(toReturn, m_mngr.m_config.defaultListComparator);
-        }
+
         return toReturn;
     }
 
-    public List<BleDevice> getDevices_List(boolean sort, final BleDeviceState state)
+    /**
+     * Thread-safe counterpart of {@link #getDevices_List(boolean, Object...)} and its overloads that filters the last published
+     * snapshot instead of the state index. Pass {@link BleDeviceState#FULL_MASK} and a <code>null</code> query for all devices.
+     */
+    List<BleDevice> getDevices_List_snapshot(final boolean sort, final int mask_BleDeviceState, final Object[] query_nullable)
     {
-        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
+        final BleDevice[] snapshot = m_snapshot.m_list;
+        final ArrayList<BleDevice> list = new ArrayList<BleDevice>(snapshot.length);
 
-        for (int i = 0; i < this.getCount(); i++)
+        for (int i = 0; i < snapshot.length; i++)
         {
-            final BleDevice device_ith = this.get(i);
-
-            if (device_ith.is(state))
+            if (matches_snapshot(snapshot[i], mask_BleDeviceState, query_nullable))
             {
-                toReturn.add(device_ith);
+                list.add(snapshot[i]);
             }
         }
-        if (sort && m_mngr.m_config.defaultListComparator != null)
+
+        final Comparator<BleDevice> comparator = m_mngr.m_config.defaultListComparator;
+
+        if (sort && comparator != null)
         {
-            Collections.sort(toReturn, m_mngr.m_config.defaultListComparator);
+            Collections.sort(list, comparator);
         }
-        return toReturn;
+
+        return list;
     }
 
-    public List<BleDevice> getDevices_List(boolean sort, final int mask_BleDeviceState)
+    int getCount_snapshot(final int mask_BleDeviceState, final Object[] query_nullable)
     {
-        final ArrayList<BleDevice> toReturn = new ArrayList<BleDevice>();
+        final BleDevice[] snapshot = m_snapshot.m_list;
+        int count = 0;
 
-        for (int i = 0; i < this.getCount(); i++)
+        for (int i = 0; i < snapshot.length; i++)
         {
-            final BleDevice device_ith = this.get(i);
-
-            if (device_ith.isAny(mask_BleDeviceState))
+            if (matches_snapshot(snapshot[i], mask_BleDeviceState, query_nullable))
             {
-                toReturn.add(device_ith);
+                count++;
             }
         }
-        if (sort && m_mngr.m_config.defaultListComparator != null)
-        {
-            Collections.sort(toReturn, m_mngr.m_config.defaultListComparator);
-        }
-        return toReturn;
+
+        return count;
     }
 
-    public boolean has(BleDevice device)
+    BleDevice get_snapshot(final String macAddress)
     {
-        for (int i = 0; i < m_list.size(); i++)
-        {
-            BleDevice device_ith = m_list.get(i);
+        return m_snapshot.m_map.get(macAddress);
+    }
 
-            if (device_ith == device) return true;
-        }
+    private static boolean matches_snapshot(final BleDevice device, final int mask_BleDeviceState, final Object[] query_nullable)
+    {
+        final int state = device.stateTracker_main().getState();
 
-        return false;
+        if ((state & mask_BleDeviceState) == 0x0) return false;
+
+        return query_nullable == null || Utils_State.query(state, query_nullable);
+    }
+
+    public boolean has(BleDevice device)
+    {
+        return slotOf(device) >= 0;
     }
 
     public BleDevice get(int i)
@@ -268,6 +604,10 @@ class P_DeviceManager
 
     int getCount(Object[] query)
     {
+        final BitSet slots = match(query);
+
+        if (slots != null) return slots.cardinality();
+
         int count = 0;
 
         for (int i = 0; i < m_list.size(); i++)
@@ -285,19 +625,7 @@ class P_DeviceManager
 
     int getCount(BleDeviceState state)
     {
-        int count = 0;
-
-        for (int i = 0; i < m_list.size(); i++)
-        {
-            BleDevice device_ith = m_list.get(i);
-
-            if (device_ith.is(state))
-            {
-                count++;
-            }
-        }
-
-        return count;
+        return m_stateCounts[state.ordinal()];
     }
 
     int getCount()
@@ -319,8 +647,24 @@ class P_DeviceManager
             return;
         }
 
+        final int slot = m_slots.size();
+
         m_list.add(device);
         m_map.put(device.getMacAddress(), device);
+        m_snapshot = new Snapshot(m_list, m_map);
+        m_slots.add(device);
+        m_occupied.set(slot);
+        m_indices.put(device.getMacAddress(), slot);
+        index(slot, 0x0, device.stateTracker_main().getState());
+
+        if (m_sortedComparator != null)
+        {
+            m_unsorted.add(device);
+        }
+
+        final Expiry expiry = new Expiry(device);
+        m_expiryByDevice.put(device, expiry);
+        arm(expiry, m_clock + expiry.m_keepAlive);
     }
 
     void remove(BleDevice device, P_DeviceManager cache)
@@ -328,10 +672,38 @@ class P_DeviceManager
         m_mngr.ASSERT(!m_updating, "Removing device while updating!");
         m_mngr.ASSERT(m_map.containsKey(device.getMacAddress()));
 
-        m_list.remove(device);
+        final Integer slot = m_indices.get(device.getMacAddress());
+
+        if (slot != null)
+        {
+            final BleDevice device_registered = m_slots.get(slot);
+
+            index(slot, device_registered.stateTracker_main().getState(), 0x0);
+            m_list.remove(positionOf(slot));
+            m_slots.set(slot, null);
+            m_occupied.clear(slot);
+            m_holeCount++;
+
+            removeSorted(device_registered);
+            m_unsorted.remove(device_registered);
+
+            final Expiry expiry = m_expiryByDevice.remove(device_registered);
+
+            if (expiry != null && expiry.m_armed)
+            {
+                m_expiries.remove(expiry);
+            }
+        }
         m_map.remove(device.getMacAddress());
+        m_indices.remove(device.getMacAddress());
+        m_snapshot = new Snapshot(m_list, m_map);
 
-        final boolean cacheDevice = BleDeviceConfig.bool(device.conf_device().cacheDeviceOnUndiscovery, device.conf_mngr().cacheDeviceOnUndiscovery);
+        if (m_holeCount > m_list.size())
+        {
+            compact();
+        }
+
+        final boolean cacheDevice = device.conf_effective().cacheDeviceOnUndiscovery;
 
         if (cacheDevice && cache != null)
         {
@@ -339,6 +711,44 @@ class P_DeviceManager
         }
     }
 
+    /**
+     * Squeezes the holes left by {@link #remove(BleDevice, P_DeviceManager)} out of {@link #m_slots} and the state index.
+     */
+    private void compact()
+    {
+        final int[] newSlots = new int[m_slots.size()];
+
+        m_slots.clear();
+        m_occupied.clear();
+
+        for (int i = 0; i < m_list.size(); i++)
+        {
+            final BleDevice device_ith = m_list.get(i);
+            final String macAddress = device_ith.getMacAddress();
+
+            newSlots[m_indices.get(macAddress)] = i;
+            m_indices.put(macAddress, i);
+            m_slots.add(device_ith);
+        }
+
+        m_occupied.set(0, m_list.size());
+
+        for (int i = 0; i < m_stateIndex.length; i++)
+        {
+            final BitSet oldBits = m_stateIndex[i];
+            final BitSet newBits = new BitSet();
+
+            for (int j = oldBits.nextSetBit(0); j >= 0; j = oldBits.nextSetBit(j + 1))
+            {
+                newBits.set(newSlots[j]);
+            }
+
+            m_stateIndex[i] = newBits;
+        }
+
+        m_holeCount = 0;
+    }
+
     void update(double timeStep)
     {
         //--- DRK > The asserts here and keeping track of "is updating" is because
@@ -360,6 +770,8 @@ class P_DeviceManager
 
         m_updating = true;
 
+        m_clock += timeStep;
+
         for (int i = m_list.size() - 1; i >= 0; i--)
         {
             BleDevice ithDevice = m_list.get(i);
@@ -451,7 +863,7 @@ class P_DeviceManager
         {
             final BleDevice device = (BleDevice) m_list.get(i);
 
-            final boolean autoReconnectDeviceWhenBleTurnsBackOn = BleDeviceConfig.bool(device.conf_device().autoReconnectDeviceWhenBleTurnsBackOn, device.conf_mngr().autoReconnectDeviceWhenBleTurnsBackOn);
+            final boolean autoReconnectDeviceWhenBleTurnsBackOn = device.conf_effective().autoReconnectDeviceWhenBleTurnsBackOn;
 
             if (autoReconnectDeviceWhenBleTurnsBackOn && device.lastDisconnectWasBecauseOfBleTurnOff())
             {
@@ -468,7 +880,7 @@ class P_DeviceManager
         {
             final BleDevice device_ith = m_list.get(i);
 
-            final boolean retainDeviceWhenBleTurnsOff = BleDeviceConfig.bool(device_ith.conf_device().retainDeviceWhenBleTurnsOff, device_ith.conf_mngr().retainDeviceWhenBleTurnsOff);
+            final boolean retainDeviceWhenBleTurnsOff = device_ith.conf_effective().retainDeviceWhenBleTurnsOff;
 
             if (false == retainDeviceWhenBleTurnsOff)
             {
@@ -476,7 +888,7 @@ class P_DeviceManager
             }
             else
             {
-                final boolean undiscoverDeviceWhenBleTurnsOff = BleDeviceConfig.bool(device_ith.conf_device().undiscoverDeviceWhenBleTurnsOff, device_ith.conf_mngr().undiscoverDeviceWhenBleTurnsOff);
+                final boolean undiscoverDeviceWhenBleTurnsOff = device_ith.conf_effective().undiscoverDeviceWhenBleTurnsOff;
 
                 if (true == undiscoverDeviceWhenBleTurnsOff)
                 {
@@ -515,30 +927,145 @@ class P_DeviceManager
             return;
         }
 
-        for (int i = m_list.size() - 1; i >= 0; i--)
+        while (!m_expiries.isEmpty() && m_expiries.peek().m_deadline <= m_clock)
         {
-            BleDevice device = get(i);
+            final Expiry expiry = m_expiries.poll();
+            final BleDevice device = expiry.m_device;
+
+            expiry.m_armed = false;
 
-            Interval minScanTimeToInvokeUndiscovery = BleDeviceConfig.interval(device.conf_device().minScanTimeNeededForUndiscovery, device.conf_mngr().minScanTimeNeededForUndiscovery);
-            if (Interval.isDisabled(minScanTimeToInvokeUndiscovery)) continue;
+            //--- Device was rediscovered since this entry was armed, so just push its deadline back.
+            final double remaining = expiry.m_keepAlive - device.getTimeSinceLastDiscovery();
 
-            Interval scanKeepAlive_interval = BleDeviceConfig.interval(device.conf_device().undiscoveryKeepAlive, device.conf_mngr().undiscoveryKeepAlive);
-            if (Interval.isDisabled(scanKeepAlive_interval)) continue;
+            if (remaining >= 0.0)
+            {
+                arm(expiry, m_clock + remaining);
 
-            if (scanTime < Interval.secs(minScanTimeToInvokeUndiscovery)) continue;
+                continue;
+            }
 
-            final boolean purgeable = device.getOrigin() != BleDeviceOrigin.EXPLICIT && ((device.getStateMask() & ~BleDeviceState.PURGEABLE_MASK) == 0x0);
+            if (scanTime < expiry.m_minScanTime)
+            {
+                arm(expiry, m_clock + (expiry.m_minScanTime - scanTime));
+
+                continue;
+            }
+
+            final boolean purgeable = (device.getStateMask() & ~BleDeviceState.PURGEABLE_MASK) == 0x0;
 
             if (purgeable)
             {
-                if (device.getTimeSinceLastDiscovery() > scanKeepAlive_interval.secs())
-                {
-                    undiscoverAndRemove(device, listener, cache, E_Intent.UNINTENTIONAL);
-                }
+                m_expiryByDevice.remove(device);
+
+                undiscoverAndRemove(device, listener, cache, E_Intent.UNINTENTIONAL);
+            }
+
+            //--- Otherwise stays parked until onDeviceStateChange() re-arms it.
+        }
+    }
+
+    /**
+     * Re-resolves the cached undiscovery config for the given device, or all devices if <code>null</code>, in which
+     * case each device's {@link BleDevice#conf_effective()} snapshot is also rebuilt against the new manager config.
+     */
+    void onConfigChanged(final BleDevice device_nullable)
+    {
+        if (device_nullable != null)
+        {
+            final Expiry expiry = m_expiryByDevice.get(device_nullable);
+
+            if (expiry != null)
+            {
+                rearm(expiry);
+            }
+        }
+        else
+        {
+            for (int i = 0; i < m_list.size(); i++)
+            {
+                m_list.get(i).refreshEffectiveConfig();
+            }
+
+            for (final Expiry expiry : m_expiryByDevice.values())
+            {
+                rearm(expiry);
             }
         }
     }
 
+    private void rearm(final Expiry expiry)
+    {
+        if (expiry.m_armed)
+        {
+            m_expiries.remove(expiry);
+            expiry.m_armed = false;
+        }
+
+        expiry.resolveConfig();
+        arm(expiry, m_clock);
+    }
+
+    private void arm(final Expiry expiry, final double deadline)
+    {
+        if (expiry.m_armed || !expiry.isPurgeable()) return;
+
+        //--- Strictly in the future so a re-armed entry can't be polled again in the same pass.
+        expiry.m_deadline = Math.max(deadline, Math.nextUp(m_clock));
+        expiry.m_armed = true;
+
+        m_expiries.add(expiry);
+    }
+
+    private static final class Snapshot
+    {
+        static final Snapshot EMPTY = new Snapshot(new ArrayList<BleDevice>(), new HashMap<String, BleDevice>());
+
+        final BleDevice[] m_list;
+        final HashMap<String, BleDevice> m_map;
+
+        Snapshot(final List<BleDevice> list, final HashMap<String, BleDevice> map)
+        {
+            m_list = list.toArray(new BleDevice[list.size()]);
+            m_map = new HashMap<String, BleDevice>(map);
+        }
+    }
+
+    private static final class Expiry implements Comparable<Expiry>
+    {
+        private final BleDevice m_device;
+
+        private double m_keepAlive;
+        private double m_minScanTime;
+
+        private double m_deadline;
+        private boolean m_armed = false;
+
+        Expiry(final BleDevice device)
+        {
+            m_device = device;
+
+            resolveConfig();
+        }
+
+        void resolveConfig()
+        {
+            final P_EffectiveDeviceConfig config = m_device.conf_effective();
+
+            m_minScanTime = Interval.isDisabled(config.minScanTimeNeededForUndiscovery) ? Double.NaN : config.minScanTimeNeededForUndiscovery;
+            m_keepAlive = Interval.isDisabled(config.undiscoveryKeepAlive) ? Double.NaN : config.undiscoveryKeepAlive;
+        }
+
+        boolean isPurgeable()
+        {
+            return m_device.getOrigin() != BleDeviceOrigin.EXPLICIT && !Double.isNaN(m_minScanTime) && !Double.isNaN(m_keepAlive);
+        }
+
+        @Override public int compareTo(final Expiry other)
+        {
+            return Double.compare(m_deadline, other.m_deadline);
+        }
+    }
+
     boolean hasDevice(BleDeviceState... filter)
     {
         if (filter == null || filter.length == 0)
@@ -546,11 +1073,9 @@ class P_DeviceManager
             return m_list.size() > 0;
         }
 
-        for (int i = m_list.size() - 1; i >= 0; i--)
+        for (int i = 0; i < filter.length; i++)
         {
-            BleDevice device = get(i);
-
-            if (device.isAny(filter))
+            if (m_stateCounts[filter[i].ordinal()] > 0)
             {
                 return true;
             }
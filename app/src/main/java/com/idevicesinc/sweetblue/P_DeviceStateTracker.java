@@ -38,6 +38,12 @@ class P_DeviceStateTracker extends PA_StateTracker
 	@Override protected void onStateChange(int oldStateBits, int newStateBits, int intentMask, int gattStatus)
 	{
 		if( m_device.isNull() )		return;
+
+		if( !m_forShortTermReconnect )
+		{
+			m_device.getManager().onDeviceStateChange(m_device, oldStateBits, newStateBits);
+		}
+
 		if( m_syncing )				return;
 		
 		StateEvent event = null;
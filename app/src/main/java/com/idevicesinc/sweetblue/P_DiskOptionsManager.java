@@ -1,11 +1,10 @@
 package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import android.content.Context;
 import android.content.SharedPreferences;
@@ -13,16 +12,25 @@ import android.content.SharedPreferences;
 import com.idevicesinc.sweetblue.utils.EmptyIterator;
 import com.idevicesinc.sweetblue.utils.State;
 
+/**
+ * Keeps per-device options in memory and persists them write-behind: the in-memory maps are always authoritative, and
+ * disk writes are coalesced into one {@link SharedPreferences.Editor#apply()} per namespace on the next {@link #update(double)},
+ * so that something like a disconnect storm doesn't block on a commit for every device.
+ */
 class P_DiskOptionsManager
 {
 	private static final int ACCESS_MODE = Context.MODE_PRIVATE;
 
+	//--- Marks a pending removal in a namespace's dirty map.
+	private static final Object REMOVED = new Object();
+
 	//--- DRK > Just adding some salt to these to mitigate any possible conflict.
 	private static enum E_Namespace
 	{
 		LAST_DISCONNECT("sweetblue_16l@{&a}"),
 		NEEDS_BONDING("sweetblue_p59=F%k"),
-		DEVICE_NAME("sweetblue_qurhzpoc");
+		DEVICE_NAME("sweetblue_qurhzpoc"),
+		GATT_SCHEMA("sweetblue_g4tt$ch3m@");
 
 
 		private final String m_key;
@@ -43,8 +51,16 @@ class P_DiskOptionsManager
 	private final HashMap<String, Integer> m_inMemoryDb_lastDisconnect = new HashMap<String, Integer>();
 	private final HashMap<String, Boolean> m_inMemoryDb_needsBonding = new HashMap<String, Boolean>();
 	private final HashMap<String, String> m_inMemoryDb_name = new HashMap<String, String>();
+	private final HashMap<String, String> m_inMemoryDb_gattSchema = new HashMap<String, String>();
 
 	private final HashMap[] m_inMemoryDbs = new HashMap[E_Namespace.values().length];
+
+	//--- Values waiting to be written to disk, per namespace. Newer writes for the same key simply overwrite older ones.
+	private final ArrayList<HashMap<String, Object>> m_pending = new ArrayList<HashMap<String, Object>>(E_Namespace.values().length);
+	private boolean m_hasPending = false;
+
+	//--- Lazily loaded from disk once, then maintained alongside writes.
+	private TreeSet<String> m_previouslyConnected = null;
 	
 	public P_DiskOptionsManager(Context context)
 	{
@@ -53,6 +69,7 @@ class P_DiskOptionsManager
 		m_inMemoryDbs[E_Namespace.LAST_DISCONNECT.ordinal()] = m_inMemoryDb_lastDisconnect;
 		m_inMemoryDbs[E_Namespace.NEEDS_BONDING.ordinal()] = m_inMemoryDb_needsBonding;
 		m_inMemoryDbs[E_Namespace.DEVICE_NAME.ordinal()] = m_inMemoryDb_name;
+		m_inMemoryDbs[E_Namespace.GATT_SCHEMA.ordinal()] = m_inMemoryDb_gattSchema;
 
 		final E_Namespace[] values = E_Namespace.values();
 
@@ -64,8 +81,84 @@ class P_DiskOptionsManager
 			{
 				throw new Error("Expected in-memory DB to be not null");
 			}
+
+			m_pending.add(new HashMap<String, Object>());
 		}
 	}
+
+	void update(final double timeStep)
+	{
+		if( m_hasPending )
+		{
+			flush(/*synchronous=*/false);
+		}
+	}
+
+	/**
+	 * Writes all pending values to disk in one batch per namespace. Asynchronous flushes use {@link SharedPreferences.Editor#apply()},
+	 * which updates the preferences in memory immediately and leaves the actual disk write to the OS.
+	 */
+	void flush(final boolean synchronous)
+	{
+		if( !m_hasPending )  return;
+
+		final E_Namespace[] values = E_Namespace.values();
+
+		for( int i = 0; i < values.length; i++ )
+		{
+			final HashMap<String, Object> pending = m_pending.get(i);
+
+			if( pending.isEmpty() )  continue;
+
+			final SharedPreferences.Editor editor = prefs(values[i]).edit();
+
+			for( Map.Entry<String, Object> entry : pending.entrySet() )
+			{
+				final Object value = entry.getValue();
+
+				if( value == REMOVED )					editor.remove(entry.getKey());
+				else if( value instanceof Integer )		editor.putInt(entry.getKey(), (Integer) value);
+				else if( value instanceof Boolean )		editor.putBoolean(entry.getKey(), (Boolean) value);
+				else if( value instanceof String )		editor.putString(entry.getKey(), (String) value);
+			}
+
+			if( synchronous )
+			{
+				editor.commit();
+			}
+			else
+			{
+				editor.apply();
+			}
+
+			pending.clear();
+		}
+
+		m_hasPending = false;
+	}
+
+	private void write(final E_Namespace namespace, final String mac, final Object value)
+	{
+		m_pending.get(namespace.ordinal()).put(mac, value);
+		m_hasPending = true;
+
+		if( namespace == E_Namespace.LAST_DISCONNECT && m_previouslyConnected != null )
+		{
+			if( value == REMOVED )
+			{
+				m_previouslyConnected.remove(mac);
+			}
+			else
+			{
+				m_previouslyConnected.add(mac);
+			}
+		}
+	}
+
+	private boolean isPendingRemoval(final E_Namespace namespace, final String mac)
+	{
+		return m_pending.get(namespace.ordinal()).get(mac) == REMOVED;
+	}
 	
 	private SharedPreferences prefs(E_Namespace namespace)
 	{
@@ -81,7 +174,7 @@ class P_DiskOptionsManager
 		
 		if( !hitDisk )  return;
 
-		prefs(E_Namespace.LAST_DISCONNECT).edit().putInt(mac, diskValue).commit();
+		write(E_Namespace.LAST_DISCONNECT, mac, diskValue);
 	}
 	
 	public State.ChangeIntent loadLastDisconnect(final String mac, final boolean hitDisk)
@@ -95,7 +188,7 @@ class P_DiskOptionsManager
 			return lastDisconnect_memory;
 		}
 		
-		if( !hitDisk )  return State.ChangeIntent.NULL;
+		if( !hitDisk || isPendingRemoval(E_Namespace.LAST_DISCONNECT, mac) )  return State.ChangeIntent.NULL;
 		
 		final SharedPreferences prefs = prefs(E_Namespace.LAST_DISCONNECT);
 		
@@ -112,7 +205,7 @@ class P_DiskOptionsManager
 		
 		if( !hitDisk )  return;
 		
-		prefs(E_Namespace.NEEDS_BONDING).edit().putBoolean(mac, true).commit();
+		write(E_Namespace.NEEDS_BONDING, mac, true);
 	}
 	
 	public boolean loadNeedsBonding(final String mac, final boolean hitDisk)
@@ -124,7 +217,7 @@ class P_DiskOptionsManager
 			return value_memory;
 		}
 		
-		if( !hitDisk )  return false;
+		if( !hitDisk || isPendingRemoval(E_Namespace.NEEDS_BONDING, mac) )  return false;
 		
 		final SharedPreferences prefs = prefs(E_Namespace.NEEDS_BONDING);
 		
@@ -141,7 +234,7 @@ class P_DiskOptionsManager
 
 		if( !hitDisk )  return;
 
-		prefs(E_Namespace.DEVICE_NAME).edit().putString(mac, name_override).commit();
+		write(E_Namespace.DEVICE_NAME, mac, name_override);
 	}
 
 	public String loadName(final String mac, final boolean hitDisk)
@@ -153,7 +246,7 @@ class P_DiskOptionsManager
 			return value_memory;
 		}
 
-		if( !hitDisk )  return null;
+		if( !hitDisk || isPendingRemoval(E_Namespace.DEVICE_NAME, mac) )  return null;
 
 		final SharedPreferences prefs = prefs(E_Namespace.DEVICE_NAME);
 
@@ -162,14 +255,53 @@ class P_DiskOptionsManager
 		return value_disk;
 	}
 
+	public void saveGattSchema(final String mac, final String schema, final boolean hitDisk)
+	{
+		m_inMemoryDb_gattSchema.put(mac, schema);
+
+		if( !hitDisk )  return;
+
+		write(E_Namespace.GATT_SCHEMA, mac, schema);
+	}
+
+	public String loadGattSchema(final String mac, final boolean hitDisk)
+	{
+		final String value_memory = m_inMemoryDb_gattSchema.get(mac);
+
+		if( value_memory != null )
+		{
+			return value_memory;
+		}
+
+		if( !hitDisk || isPendingRemoval(E_Namespace.GATT_SCHEMA, mac) )  return null;
+
+		final SharedPreferences prefs = prefs(E_Namespace.GATT_SCHEMA);
+
+		final String value_disk = prefs.getString(mac, null);
+
+		if( value_disk != null )
+		{
+			m_inMemoryDb_gattSchema.put(mac, value_disk);
+		}
+
+		return value_disk;
+	}
+
+	void clearGattSchema(final String macAddress)
+	{
+		clearNamespace(macAddress, E_Namespace.GATT_SCHEMA);
+	}
+
 	void clear()
 	{
 		final E_Namespace[] values = E_Namespace.values();
 
 		for( int i = 0; i < values.length; i++ )
 		{
+			m_pending.get(i).clear();
+
 			final SharedPreferences prefs = prefs(values[i]);
-			prefs.edit().clear().commit();
+			prefs.edit().clear().apply();
 
 			final HashMap ith = m_inMemoryDbs[i];
 
@@ -178,6 +310,13 @@ class P_DiskOptionsManager
 				ith.clear();
 			}
 		}
+
+		m_hasPending = false;
+
+		if( m_previouslyConnected != null )
+		{
+			m_previouslyConnected.clear();
+		}
 	}
 
 	void clearName(final String macAddress)
@@ -190,8 +329,7 @@ class P_DiskOptionsManager
 	private void clearNamespace(final String macAddress, final E_Namespace namespace)
 	{
 		final int ordinal = namespace.ordinal();
-		final SharedPreferences prefs = prefs(namespace);
-		prefs.edit().remove(macAddress).commit();
+		write(namespace, macAddress, REMOVED);
 
 		final HashMap ith = m_inMemoryDbs[ordinal];
 
@@ -213,19 +351,36 @@ class P_DiskOptionsManager
 
 	Iterator<String> getPreviouslyConnectedDevices()
 	{
-		final SharedPreferences prefs = prefs(E_Namespace.LAST_DISCONNECT);
+		if( m_previouslyConnected == null )
+		{
+			m_previouslyConnected = new TreeSet<String>();
 
-		Map<String, ?> map = prefs.getAll();
+			final Map<String, ?> map = prefs(E_Namespace.LAST_DISCONNECT).getAll();
 
-		if( map != null )
-		{
-			List<String> keys = new ArrayList<String>(map.keySet());
-			Collections.sort(keys);
-			return keys.iterator();
+			if( map != null )
+			{
+				m_previouslyConnected.addAll(map.keySet());
+			}
+
+			//--- Apply writes that haven't been flushed yet.
+			for( Map.Entry<String, Object> entry : m_pending.get(E_Namespace.LAST_DISCONNECT.ordinal()).entrySet() )
+			{
+				if( entry.getValue() == REMOVED )
+				{
+					m_previouslyConnected.remove(entry.getKey());
+				}
+				else
+				{
+					m_previouslyConnected.add(entry.getKey());
+				}
+			}
 		}
-		else
+
+		if( m_previouslyConnected.isEmpty() )
 		{
 			return new EmptyIterator<String>();
 		}
+
+		return new ArrayList<String>(m_previouslyConnected).iterator();
 	}
 }
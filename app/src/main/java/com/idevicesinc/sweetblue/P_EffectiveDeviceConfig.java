@@ -0,0 +1,90 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+
+/**
+ * Immutable snapshot of the config options a {@link BleDevice} reads on hot paths, with the device-level {@link BleDeviceConfig}
+ * and the manager-level {@link BleManagerConfig} already resolved against each other and unboxed. A new instance is created
+ * whenever {@link BleDevice#setConfig(BleDeviceConfig)} or {@link BleManager#setConfig(BleManagerConfig)} is called.
+ */
+final class P_EffectiveDeviceConfig
+{
+	final boolean allowCallsFromAllThreads;
+	final boolean allowReadsFromAllThreads;
+	final boolean postCallbacksToMainThread;
+
+	final boolean manageLastDisconnectOnDisk;
+	final boolean saveNameChangesToDisk;
+	final boolean tryBondingWhileDisconnected;
+	final boolean tryBondingWhileDisconnected_manageOnDisk;
+	final boolean bondingFailFailsConnection;
+	final boolean useLeTransportForBonding;
+
+	final boolean autoGetServices;
+	final boolean useGattRefresh;
+	final boolean cacheGattSchema;
+	final boolean alwaysUseAutoConnect;
+	final boolean disconnectIsCancellable;
+
+	final boolean cacheDeviceOnUndiscovery;
+	final boolean retainDeviceWhenBleTurnsOff;
+	final boolean undiscoverDeviceWhenBleTurnsOff;
+	final boolean autoReconnectDeviceWhenBleTurnsBackOn;
+
+	final boolean includeOtaReadWriteTimesInAverage;
+	final boolean allowDuplicatePollEntries;
+	final boolean retainPreviousValueForChangeTracking;
+	final boolean dropUnchangedChangeTrackingEvents;
+
+	final int rssi_min;
+	final int rssi_max;
+	final int defaultTxPower;
+
+	/**
+	 * In seconds, with disabled intervals as non-positive values like {@link Interval#DISABLED}.
+	 */
+	final double minScanTimeNeededForUndiscovery;
+	final double undiscoveryKeepAlive;
+
+	P_EffectiveDeviceConfig(final BleDevice device)
+	{
+		final BleDeviceConfig conf_device = device.conf_device();
+		final BleManagerConfig conf_mngr = device.conf_mngr();
+
+		allowCallsFromAllThreads = BleDeviceConfig.bool(conf_device.allowCallsFromAllThreads, conf_mngr.allowCallsFromAllThreads);
+		allowReadsFromAllThreads = allowCallsFromAllThreads || BleDeviceConfig.bool(conf_device.allowReadsFromAllThreads, conf_mngr.allowReadsFromAllThreads);
+		postCallbacksToMainThread = conf_mngr.postCallbacksToMainThread;
+
+		manageLastDisconnectOnDisk = BleDeviceConfig.bool(conf_device.manageLastDisconnectOnDisk, conf_mngr.manageLastDisconnectOnDisk);
+		saveNameChangesToDisk = BleDeviceConfig.bool(conf_device.saveNameChangesToDisk, conf_mngr.saveNameChangesToDisk);
+		tryBondingWhileDisconnected = BleDeviceConfig.bool(conf_device.tryBondingWhileDisconnected, conf_mngr.tryBondingWhileDisconnected);
+		tryBondingWhileDisconnected_manageOnDisk = BleDeviceConfig.bool(conf_device.tryBondingWhileDisconnected_manageOnDisk, conf_mngr.tryBondingWhileDisconnected_manageOnDisk);
+		bondingFailFailsConnection = BleDeviceConfig.bool(conf_device.bondingFailFailsConnection, conf_mngr.bondingFailFailsConnection);
+		useLeTransportForBonding = BleDeviceConfig.bool(conf_device.useLeTransportForBonding, conf_mngr.useLeTransportForBonding);
+
+		autoGetServices = BleDeviceConfig.bool(conf_device.autoGetServices, conf_mngr.autoGetServices);
+		useGattRefresh = BleDeviceConfig.bool(conf_device.useGattRefresh, conf_mngr.useGattRefresh);
+		cacheGattSchema = BleDeviceConfig.bool(conf_device.cacheGattSchema, conf_mngr.cacheGattSchema);
+		alwaysUseAutoConnect = BleDeviceConfig.bool(conf_device.alwaysUseAutoConnect, conf_mngr.alwaysUseAutoConnect);
+		disconnectIsCancellable = BleDeviceConfig.bool(conf_device.disconnectIsCancellable, conf_mngr.disconnectIsCancellable);
+
+		cacheDeviceOnUndiscovery = BleDeviceConfig.bool(conf_device.cacheDeviceOnUndiscovery, conf_mngr.cacheDeviceOnUndiscovery);
+		retainDeviceWhenBleTurnsOff = BleDeviceConfig.bool(conf_device.retainDeviceWhenBleTurnsOff, conf_mngr.retainDeviceWhenBleTurnsOff);
+		undiscoverDeviceWhenBleTurnsOff = BleDeviceConfig.bool(conf_device.undiscoverDeviceWhenBleTurnsOff, conf_mngr.undiscoverDeviceWhenBleTurnsOff);
+		autoReconnectDeviceWhenBleTurnsBackOn = BleDeviceConfig.bool(conf_device.autoReconnectDeviceWhenBleTurnsBackOn, conf_mngr.autoReconnectDeviceWhenBleTurnsBackOn);
+
+		includeOtaReadWriteTimesInAverage = BleDeviceConfig.bool(conf_device.includeOtaReadWriteTimesInAverage, conf_mngr.includeOtaReadWriteTimesInAverage);
+		allowDuplicatePollEntries = BleDeviceConfig.bool(conf_device.allowDuplicatePollEntries, conf_mngr.allowDuplicatePollEntries);
+		retainPreviousValueForChangeTracking = BleDeviceConfig.bool(conf_device.retainPreviousValueForChangeTracking, conf_mngr.retainPreviousValueForChangeTracking);
+		dropUnchangedChangeTrackingEvents = BleDeviceConfig.bool(conf_device.dropUnchangedChangeTrackingEvents, conf_mngr.dropUnchangedChangeTrackingEvents);
+
+		rssi_min = BleDeviceConfig.integer(conf_device.rssi_min, conf_mngr.rssi_min, BleDeviceConfig.DEFAULT_RSSI_MIN);
+		rssi_max = BleDeviceConfig.integer(conf_device.rssi_max, conf_mngr.rssi_max, BleDeviceConfig.DEFAULT_RSSI_MAX);
+
+		final Integer defaultTxPower_nullable = BleDeviceConfig.integer(conf_device.defaultTxPower, conf_mngr.defaultTxPower);
+		defaultTxPower = defaultTxPower_nullable == null || defaultTxPower_nullable == BleNodeConfig.INVALID_TX_POWER ? BleDeviceConfig.DEFAULT_TX_POWER : defaultTxPower_nullable;
+
+		minScanTimeNeededForUndiscovery = Interval.secs(BleDeviceConfig.interval(conf_device.minScanTimeNeededForUndiscovery, conf_mngr.minScanTimeNeededForUndiscovery));
+		undiscoveryKeepAlive = Interval.secs(BleDeviceConfig.interval(conf_device.undiscoveryKeepAlive, conf_mngr.undiscoveryKeepAlive));
+	}
+}
@@ -0,0 +1,66 @@
+package com.idevicesinc.sweetblue;
+
+import android.os.Handler;
+
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.EventQueue;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers listener events and other callbacks from SweetBlue's internal threads to the main thread through one {@link EventQueue},
+ * so that everything arrives in the order it was posted and a burst costs one {@link Handler#post(Runnable)} instead of one each.
+ */
+final class P_EventPoster implements Runnable
+{
+	private static final class RunnableEvent extends Event
+	{
+		private final Runnable m_runnable;
+
+		RunnableEvent(final Runnable runnable)
+		{
+			m_runnable = runnable;
+		}
+	}
+
+	private static final GenericListener_Void<RunnableEvent> RUNNABLE_LISTENER = new GenericListener_Void<RunnableEvent>()
+	{
+		@Override public void onEvent(final RunnableEvent e)
+		{
+			e.m_runnable.run();
+		}
+	};
+
+	private final Handler m_handler;
+	private final EventQueue m_queue = new EventQueue();
+	private final AtomicBoolean m_drainPosted = new AtomicBoolean(false);
+
+	P_EventPoster(final Handler handler)
+	{
+		m_handler = handler;
+	}
+
+	<T_Event extends Event> void post(final GenericListener_Void<T_Event> listener, final T_Event event)
+	{
+		m_queue.add(listener, event);
+
+		if( m_drainPosted.compareAndSet(false, true) )
+		{
+			m_handler.post(this);
+		}
+	}
+
+	void post(final Runnable runnable)
+	{
+		post(RUNNABLE_LISTENER, new RunnableEvent(runnable));
+	}
+
+	@Override public void run()
+	{
+		//--- Cleared before draining so that events added while dispatching get a fresh post instead of being stranded.
+		m_drainPosted.set(false);
+
+		m_queue.dispatch();
+	}
+}
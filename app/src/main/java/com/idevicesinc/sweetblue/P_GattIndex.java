@@ -0,0 +1,152 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of a gatt database keyed by {@link UUID} for constant-time lookups. Results match the linear searches in
+ * {@link PA_ServiceManager} exactly: a given service {@link UUID} only refers to the first service with that {@link UUID}, and
+ * a <code>null</code> service or characteristic {@link UUID} means the first match in service/characteristic/descriptor order.
+ * <br><br>
+ * Lookups with a <code>null</code> service or characteristic {@link UUID} go through their own maps instead of a placeholder key,
+ * so no real attribute {@link UUID} can collide with them.
+ * <br><br>
+ * Keys don't include {@link BluetoothGattCharacteristic#getInstanceId()}, since nothing looks characteristics up by instance. If a service
+ * has several characteristics with the same {@link UUID}, only the first one can be found, same as with the linear searches.
+ */
+final class P_GattIndex
+{
+	private final HashMap<UUID, HashMap<UUID, BluetoothGattCharacteristic>> m_characteristics = new HashMap<UUID, HashMap<UUID, BluetoothGattCharacteristic>>();
+	private final HashMap<UUID, BluetoothGattCharacteristic> m_characteristics_anyService = new HashMap<UUID, BluetoothGattCharacteristic>();
+
+	private final HashMap<UUID, HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>>> m_descriptors = new HashMap<UUID, HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>>>();
+	private final HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>> m_descriptors_anyChar = new HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>>();
+	private final HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>> m_descriptors_anyService = new HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>>();
+	private final HashMap<UUID, BluetoothGattDescriptor> m_descriptors_anyServiceAnyChar = new HashMap<UUID, BluetoothGattDescriptor>();
+
+	P_GattIndex(final List<BluetoothGattService> services)
+	{
+		final HashSet<UUID> indexedServices = new HashSet<UUID>();
+
+		for( int i = 0; i < services.size(); i++ )
+		{
+			final BluetoothGattService service_ith = services.get(i);
+			final UUID serviceUuid = service_ith.getUuid();
+			final boolean firstOfUuid = indexedServices.add(serviceUuid);
+			final List<BluetoothGattCharacteristic> characteristics = service_ith.getCharacteristics();
+
+			if( characteristics == null )  continue;
+
+			for( int j = 0; j < characteristics.size(); j++ )
+			{
+				final BluetoothGattCharacteristic char_jth = characteristics.get(j);
+				final UUID charUuid = char_jth.getUuid();
+
+				putIfAbsent(m_characteristics_anyService, charUuid, char_jth);
+
+				if( firstOfUuid )
+				{
+					putIfAbsent(m_characteristics, serviceUuid, charUuid, char_jth);
+				}
+
+				final List<BluetoothGattDescriptor> descriptors = char_jth.getDescriptors();
+
+				if( descriptors == null )  continue;
+
+				for( int k = 0; k < descriptors.size(); k++ )
+				{
+					final BluetoothGattDescriptor desc_kth = descriptors.get(k);
+					final UUID descUuid = desc_kth.getUuid();
+
+					putIfAbsent(m_descriptors_anyServiceAnyChar, descUuid, desc_kth);
+					putIfAbsent(m_descriptors_anyService, charUuid, descUuid, desc_kth);
+
+					if( firstOfUuid )
+					{
+						putIfAbsent(m_descriptors_anyChar, serviceUuid, descUuid, desc_kth);
+						putIfAbsent(descriptorsFor(serviceUuid), charUuid, descUuid, desc_kth);
+					}
+				}
+			}
+		}
+	}
+
+	BluetoothGattCharacteristic getCharacteristic(final UUID serviceUuid_nullable, final UUID charUuid)
+	{
+		if( serviceUuid_nullable == null )
+		{
+			return m_characteristics_anyService.get(charUuid);
+		}
+
+		return get(m_characteristics, serviceUuid_nullable, charUuid);
+	}
+
+	BluetoothGattDescriptor getDescriptor(final UUID serviceUuid_nullable, final UUID charUuid_nullable, final UUID descUuid)
+	{
+		if( serviceUuid_nullable == null )
+		{
+			if( charUuid_nullable == null )
+			{
+				return m_descriptors_anyServiceAnyChar.get(descUuid);
+			}
+
+			return get(m_descriptors_anyService, charUuid_nullable, descUuid);
+		}
+
+		if( charUuid_nullable == null )
+		{
+			return get(m_descriptors_anyChar, serviceUuid_nullable, descUuid);
+		}
+
+		final HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>> byChar = m_descriptors.get(serviceUuid_nullable);
+
+		return byChar != null ? get(byChar, charUuid_nullable, descUuid) : null;
+	}
+
+	private HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>> descriptorsFor(final UUID serviceUuid)
+	{
+		HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>> byChar = m_descriptors.get(serviceUuid);
+
+		if( byChar == null )
+		{
+			byChar = new HashMap<UUID, HashMap<UUID, BluetoothGattDescriptor>>();
+			m_descriptors.put(serviceUuid, byChar);
+		}
+
+		return byChar;
+	}
+
+	private static <T> T get(final HashMap<UUID, HashMap<UUID, T>> map, final UUID outerKey, final UUID innerKey)
+	{
+		final HashMap<UUID, T> inner = map.get(outerKey);
+
+		return inner != null ? inner.get(innerKey) : null;
+	}
+
+	private static <T> void putIfAbsent(final HashMap<UUID, HashMap<UUID, T>> map, final UUID outerKey, final UUID innerKey, final T value)
+	{
+		HashMap<UUID, T> inner = map.get(outerKey);
+
+		if( inner == null )
+		{
+			inner = new HashMap<UUID, T>();
+			map.put(outerKey, inner);
+		}
+
+		putIfAbsent(inner, innerKey, value);
+	}
+
+	private static <T> void putIfAbsent(final HashMap<UUID, T> map, final UUID key, final T value)
+	{
+		if( !map.containsKey(key) )
+		{
+			map.put(key, value);
+		}
+	}
+}
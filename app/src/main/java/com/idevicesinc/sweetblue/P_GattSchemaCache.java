@@ -0,0 +1,218 @@
+package com.idevicesinc.sweetblue;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.TimeEstimator;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Remembers a fingerprint of each device's gatt database, keyed by {@link BleDeviceConfig#gattSchemaKeyProvider}, so that
+ * reconnects can validate the services the stack hands back instead of forcing a refresh and full rediscovery. A fingerprint
+ * can't stand in for the services themselves though, see {@link BleDeviceConfig#cacheGattSchema} for why initialization still waits for them.
+ */
+final class P_GattSchemaCache
+{
+	private static final char SEPARATOR = '|';
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final BleManager m_mngr;
+
+	private final TimeEstimator m_connectToReady_hit;
+	private final TimeEstimator m_connectToReady_miss;
+
+	P_GattSchemaCache(final BleManager mngr)
+	{
+		m_mngr = mngr;
+
+		m_connectToReady_hit = new TimeEstimator(BleDeviceConfig.DEFAULT_RUNNING_AVERAGE_N);
+		m_connectToReady_miss = new TimeEstimator(BleDeviceConfig.DEFAULT_RUNNING_AVERAGE_N);
+	}
+
+	static boolean isEnabled(final BleDevice device)
+	{
+		return device.conf_effective().cacheGattSchema;
+	}
+
+	/**
+	 * Returns <code>true</code> if a fingerprint was previously saved for the device under its current key. Without a
+	 * {@link BleDeviceConfig#gattSchemaKeyProvider} (or if it returns <code>null</code>) there's nothing to tell us the
+	 * database didn't change since, so this always returns <code>false</code>.
+	 */
+	boolean isValid(final BleDevice device)
+	{
+		if( !isEnabled(device) )  return false;
+
+		final String key = key(device);
+
+		if( key == null )  return false;
+
+		final String entry = load(device);
+
+		return entry != null && key.equals(keyOf(entry));
+	}
+
+	/**
+	 * Returns <code>true</code> if the services currently held by the native gatt object match the cached fingerprint,
+	 * meaning service discovery itself can be skipped.
+	 */
+	boolean matchesNative(final BleDevice device, final List<BluetoothGattService> services)
+	{
+		if( services == null || services.isEmpty() )  return false;
+
+		final String entry = load(device);
+
+		return entry != null && fingerprintOf(entry) == fingerprint(services);
+	}
+
+	/**
+	 * Saves the fingerprint of freshly discovered services if it differs from the cached one, which also replaces a cached
+	 * fingerprint that turned out not to match what the device actually has.
+	 */
+	void onServicesDiscovered(final BleDevice device, final List<BluetoothGattService> services, final boolean wasValid)
+	{
+		if( !isEnabled(device) )  return;
+
+		final String key = key(device);
+
+		//--- Nothing could ever validate the entry, so don't bother saving it.
+		if( key == null )  return;
+
+		if( services == null || services.isEmpty() )  return;
+
+		final long fingerprint = fingerprint(services);
+		final String entry = load(device);
+
+		if( entry != null && fingerprintOf(entry) == fingerprint && key.equals(keyOf(entry)) )  return;
+
+		if( wasValid )
+		{
+			m_mngr.getLogger().w("Gatt database of " + device.getMacAddress() + " changed without its schema key changing.");
+		}
+
+		m_mngr.m_diskOptionsMngr.saveGattSchema(device.getMacAddress(), Long.toString(fingerprint) + SEPARATOR + key, /*hitDisk=*/true);
+	}
+
+	/**
+	 * Drops the cached fingerprint if discovery failed after trusting it, so the next attempt refreshes and rediscovers from scratch.
+	 */
+	void onDiscoveryFailed(final BleDevice device, final boolean wasValid)
+	{
+		if( !wasValid )  return;
+
+		m_mngr.getLogger().w("Service discovery of " + device.getMacAddress() + " failed after using the cached gatt schema, clearing it.");
+
+		clear(device);
+	}
+
+	void clear(final BleDevice device)
+	{
+		m_mngr.m_diskOptionsMngr.clearGattSchema(device.getMacAddress());
+	}
+
+	void onReady(final boolean usedCache, final double connectToReadyTime)
+	{
+		(usedCache ? m_connectToReady_hit : m_connectToReady_miss).addTime(connectToReadyTime);
+	}
+
+	Interval getAverageConnectToReadyTime(final boolean usedCache)
+	{
+		return Interval.secs((usedCache ? m_connectToReady_hit : m_connectToReady_miss).getRunningAverage());
+	}
+
+	private String load(final BleDevice device)
+	{
+		return m_mngr.m_diskOptionsMngr.loadGattSchema(device.getMacAddress(), /*hitDisk=*/true);
+	}
+
+	private static String key(final BleDevice device)
+	{
+		final BleDeviceConfig.GattSchemaKeyProvider provider = BleDeviceConfig.filter(device.conf_device().gattSchemaKeyProvider, device.conf_mngr().gattSchemaKeyProvider);
+
+		return provider != null ? provider.getKey(device) : null;
+	}
+
+	private static String keyOf(final String entry)
+	{
+		final int index = entry.indexOf(SEPARATOR);
+
+		return index >= 0 ? entry.substring(index + 1) : "";
+	}
+
+	private static long fingerprintOf(final String entry)
+	{
+		final int index = entry.indexOf(SEPARATOR);
+
+		try
+		{
+			return Long.parseLong(index >= 0 ? entry.substring(0, index) : entry);
+		}
+		catch( NumberFormatException e )
+		{
+			return 0L;
+		}
+	}
+
+	/**
+	 * FNV-1a over the uuids and properties of every service, characteristic, and descriptor, in discovery order.
+	 */
+	static long fingerprint(final List<BluetoothGattService> services)
+	{
+		long hash = FNV_OFFSET;
+
+		for( int i = 0; i < services.size(); i++ )
+		{
+			final BluetoothGattService service_ith = services.get(i);
+
+			hash = mix(hash, service_ith.getUuid());
+			hash = mix(hash, service_ith.getType());
+
+			final List<BluetoothGattCharacteristic> characteristics = service_ith.getCharacteristics();
+
+			if( characteristics == null )  continue;
+
+			for( int j = 0; j < characteristics.size(); j++ )
+			{
+				final BluetoothGattCharacteristic char_jth = characteristics.get(j);
+
+				hash = mix(hash, char_jth.getUuid());
+				hash = mix(hash, char_jth.getProperties());
+
+				final List<BluetoothGattDescriptor> descriptors = char_jth.getDescriptors();
+
+				if( descriptors == null )  continue;
+
+				for( int k = 0; k < descriptors.size(); k++ )
+				{
+					hash = mix(hash, descriptors.get(k).getUuid());
+				}
+			}
+		}
+
+		return hash;
+	}
+
+	private static long mix(long hash, final UUID uuid)
+	{
+		hash = mix(hash, uuid.getMostSignificantBits());
+
+		return mix(hash, uuid.getLeastSignificantBits());
+	}
+
+	private static long mix(long hash, final long value)
+	{
+		for( int shift = 0; shift < 64; shift += 8 )
+		{
+			hash ^= (value >>> shift) & 0xff;
+			hash *= FNV_PRIME;
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,223 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * Enforces {@link BleNodeConfig#historicalDataRetentionFilter} every {@link BleManagerConfig#historicalDataCompactionRate}, for all
+ * devices and also for mac addresses that have historical data but no {@link BleDevice} right now. Waits for {@link P_HistoricalDataManager}
+ * to have no other work going so compaction doesn't compete with loads or writes, but only up to {@link #MAX_WAIT_MULTIPLIER} times the
+ * rate, so a steady stream of writes can't put it off forever.
+ * <br><br>
+ * Also remembers, per mac address/uuid pair, whether anything was logged since the last compaction and roughly how many bytes the log
+ * holds, so that unchanged logs are skipped and logs known to be under their byte limit aren't read through every time. That's dropped
+ * again when the log is deleted, its device is undiscovered, or shared preferences are cleared, see {@link #forget(String, UUID)}.
+ */
+final class P_HistoricalDataCompactor
+{
+	static final double MAX_WAIT_MULTIPLIER = 3.0;
+
+	private final BleManager m_mngr;
+
+	private final HashMap<String, HashMap<UUID, LogState>> m_logStates = new HashMap<String, HashMap<UUID, LogState>>();
+
+	private double m_timeSinceLastCompaction = 0.0;
+
+	P_HistoricalDataCompactor(final BleManager mngr)
+	{
+		m_mngr = mngr;
+	}
+
+	void update(final double timeStep)
+	{
+		m_timeSinceLastCompaction += timeStep;
+
+		final Interval rate = m_mngr.m_config.historicalDataCompactionRate;
+
+		if( Interval.isDisabled(rate) || m_timeSinceLastCompaction < rate.secs() )  return;
+
+		if( !P_HistoricalDataManager.isWorkerPoolIdle() && m_timeSinceLastCompaction < rate.secs() * MAX_WAIT_MULTIPLIER )  return;
+
+		compact();
+	}
+
+	void compact()
+	{
+		m_timeSinceLastCompaction = 0.0;
+
+		final ArrayList<BleDevice> devices = new ArrayList<BleDevice>(m_mngr.m_deviceMngr.getList());
+		final HashSet<String> visited = new HashSet<String>();
+
+		for( int i = 0; i < devices.size(); i++ )
+		{
+			final BleDevice device_ith = devices.get(i);
+
+			if( device_ith.isNull() )  continue;
+
+			visited.add(device_ith.getMacAddress());
+
+			device_ith.getHistoricalDataManager().compact();
+		}
+
+		final Iterator<String> macAddresses = P_HistoricalDataManager_PreviousUuids.getMacAddresses(m_mngr.getApplicationContext()).iterator();
+
+		while( macAddresses.hasNext() )
+		{
+			final String macAddress_ith = macAddresses.next();
+
+			if( visited.contains(macAddress_ith) )  continue;
+
+			P_HistoricalDataManager.compact(m_mngr, macAddress_ith);
+		}
+	}
+
+	/**
+	 * Called from any thread whenever something is logged. Pass <code>-1</code> if the size of what was logged isn't known.
+	 */
+	synchronized void onAdded(final String macAddress, final UUID uuid, final long byteCount)
+	{
+		getLogState(macAddress, uuid).onAdded(byteCount);
+	}
+
+	/**
+	 * Returns <code>false</code> if nothing could have changed since the log was last compacted with the same limits.
+	 */
+	synchronized boolean needsCompaction(final String macAddress, final UUID uuid, final BleNodeConfig.HistoricalDataRetentionFilter.Please please)
+	{
+		return getLogState(macAddress, uuid).needsCompaction(please);
+	}
+
+	/**
+	 * Call right before queueing a compaction, returns whether it has to count bytes to enforce {@link BleNodeConfig.HistoricalDataRetentionFilter.Please#getMaxByteCount()}.
+	 */
+	synchronized boolean onCompactionQueued(final String macAddress, final UUID uuid, final BleNodeConfig.HistoricalDataRetentionFilter.Please please)
+	{
+		return getLogState(macAddress, uuid).onCompactionQueued(please);
+	}
+
+	/**
+	 * Called once a compaction that counted bytes is done, with how many it kept.
+	 */
+	synchronized void onBytesCounted(final String macAddress, final UUID uuid, final long byteCount)
+	{
+		getLogState(macAddress, uuid).m_byteCount = byteCount;
+	}
+
+	/**
+	 * Drops what's remembered about the given log, or all logs of the mac address if <code>uuid_nullable</code> is <code>null</code>,
+	 * for example because it was deleted or the device went away. The next compaction then looks at it from scratch.
+	 */
+	synchronized void forget(final String macAddress, final UUID uuid_nullable)
+	{
+		if( uuid_nullable == null )
+		{
+			m_logStates.remove(macAddress);
+
+			return;
+		}
+
+		final HashMap<UUID, LogState> states = m_logStates.get(macAddress);
+
+		if( states == null )  return;
+
+		states.remove(uuid_nullable);
+
+		if( states.isEmpty() )
+		{
+			m_logStates.remove(macAddress);
+		}
+	}
+
+	/**
+	 * Same as {@link #forget(String, UUID)} for every log.
+	 */
+	synchronized void forgetAll()
+	{
+		m_logStates.clear();
+	}
+
+	private LogState getLogState(final String macAddress, final UUID uuid)
+	{
+		HashMap<UUID, LogState> states = m_logStates.get(macAddress);
+
+		if( states == null )
+		{
+			states = new HashMap<UUID, LogState>();
+			m_logStates.put(macAddress, states);
+		}
+
+		LogState state = states.get(uuid);
+
+		if( state == null )
+		{
+			state = new LogState();
+			states.put(uuid, state);
+		}
+
+		return state;
+	}
+
+	private static final class LogState
+	{
+		private boolean m_changed = true;
+
+		//--- Bytes kept by the last compaction that counted them, or -1 if not known.
+		private long m_byteCount = -1;
+
+		//--- Bytes logged since the last compaction was queued, or -1 if some of it wasn't counted.
+		private long m_bytesAdded = 0;
+
+		private BleNodeConfig.HistoricalDataRetentionFilter.Please m_please = null;
+
+		void onAdded(final long byteCount)
+		{
+			m_changed = true;
+			m_bytesAdded = m_bytesAdded < 0 || byteCount < 0 ? -1 : m_bytesAdded + byteCount;
+		}
+
+		boolean needsCompaction(final BleNodeConfig.HistoricalDataRetentionFilter.Please please)
+		{
+			//--- Data gets older without anything being added, so a max age always has to be checked.
+			return m_changed || please != m_please || Interval.isEnabled(please.getMaxAge());
+		}
+
+		boolean onCompactionQueued(final BleNodeConfig.HistoricalDataRetentionFilter.Please please)
+		{
+			final boolean countBytes;
+
+			if( please.getMaxByteCount() == Long.MAX_VALUE )
+			{
+				countBytes = false;
+			}
+			else if( please != m_please || m_byteCount < 0 || m_bytesAdded < 0 )
+			{
+				countBytes = true;
+			}
+			else
+			{
+				countBytes = m_byteCount + m_bytesAdded > please.getMaxByteCount();
+			}
+
+			//--- An estimate that's too high only costs an extra count later, so deletes that aren't counted are fine to ignore.
+			if( countBytes || m_byteCount < 0 || m_bytesAdded < 0 )
+			{
+				m_byteCount = -1;
+			}
+			else
+			{
+				m_byteCount += m_bytesAdded;
+			}
+
+			m_changed = false;
+			m_bytesAdded = 0;
+			m_please = please;
+
+			return countBytes;
+		}
+	}
+}
@@ -10,10 +10,13 @@ import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.UpdateLoop;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 class P_HistoricalDataManager
@@ -26,7 +29,17 @@ class P_HistoricalDataManager
 	private final HashMap<UUID, Backend_HistoricalDataList> m_lists = new HashMap<UUID, Backend_HistoricalDataList>();
 	private final BleNode m_endPoint;
 	private final String m_macAddress;
-	private static final UpdateLoop s_updateLoop = UpdateLoop.newAnonThreadLoop();
+	private static final P_HistoricalDataWorkerPool s_workerPool = new P_HistoricalDataWorkerPool(P_HistoricalDataWorkerPool.DEFAULT_THREAD_COUNT);
+
+	static final int WORK_PRIORITY__DEFAULT			= 0;
+	static final int WORK_PRIORITY__CONNECTED		= 1;
+	static final int WORK_PRIORITY__PRIORITIZED		= 2;
+
+	//--- Handed to lists so that their own background work also goes through the pool, tagged as ours.
+	private final UpdateLoop m_workerLoop;
+
+	private final HashMap<UUID, LoadTask> m_pendingLoads = new HashMap<UUID, LoadTask>();
+	private volatile boolean m_prioritized = false;
 
 	private BleDevice.HistoricalDataLoadListener m_defaultListener = null;
 
@@ -38,6 +51,188 @@ class P_HistoricalDataManager
 		m_macAddress = macAddress;
 
 		m_previousUuidsWithDataAdded = new P_HistoricalDataManager_PreviousUuids(m_endPoint.getManager().getApplicationContext(), macAddress);
+
+		m_workerLoop = UpdateLoop.newExecutorLoop(s_workerPool.newExecutor(this));
+	}
+
+	void setPrioritized(final boolean prioritized)
+	{
+		m_prioritized = prioritized;
+	}
+
+	/**
+	 * Called by {@link P_HistoricalDataWorkerPool} from any thread, so only looks at state that's safe to read from anywhere.
+	 */
+	int getWorkPriority()
+	{
+		if( m_prioritized )  return WORK_PRIORITY__PRIORITIZED;
+
+		if( m_endPoint instanceof BleDevice && BleDeviceState.CONNECTED.overlaps(((BleDevice) m_endPoint).stateTracker_main().getState()) )
+		{
+			return WORK_PRIORITY__CONNECTED;
+		}
+
+		return WORK_PRIORITY__DEFAULT;
+	}
+
+	/**
+	 * Drops loads that haven't started yet, for example because the device was undiscovered. Their listeners get
+	 * {@link BleDevice.HistoricalDataLoadListener.Status#CANCELLED}.
+	 */
+	void cancelPendingWork()
+	{
+		s_workerPool.cancel(this);
+	}
+
+	static boolean isWorkerPoolIdle()
+	{
+		return s_workerPool.isIdle();
+	}
+
+	/**
+	 * Asks {@link BleNodeConfig#historicalDataRetentionFilter} about every characteristic we've logged for and queues a
+	 * {@link CompactTask} for each one that has limits and could have changed. Called on the update thread by {@link P_HistoricalDataCompactor}.
+	 */
+	void compact()
+	{
+		final BleNodeConfig.HistoricalDataRetentionFilter filter = PU_HistoricalData.getRetentionFilter(m_endPoint);
+
+		compact(m_endPoint.getManager(), filter, m_endPoint, m_macAddress, m_previousUuidsWithDataAdded.getUuids(), this);
+	}
+
+	/**
+	 * Same as {@link #compact()} but for a mac address that doesn't have a {@link BleDevice} right now, so only
+	 * {@link BleManagerConfig#historicalDataRetentionFilter} applies, and the database is all there is to compact.
+	 */
+	static void compact(final BleManager manager, final String macAddress)
+	{
+		final P_HistoricalDataManager_PreviousUuids previousUuids = new P_HistoricalDataManager_PreviousUuids(manager.getApplicationContext(), macAddress);
+
+		compact(manager, manager.m_config.historicalDataRetentionFilter, BleDevice.NULL, macAddress, previousUuids.getUuids(), /*owner=*/null);
+	}
+
+	private static void compact(final BleManager manager, final BleNodeConfig.HistoricalDataRetentionFilter filter, final BleNode endpoint, final String macAddress, final Iterator<UUID> knownUuids, final P_HistoricalDataManager owner_nullable)
+	{
+		if( filter == null )  return;
+
+		final P_HistoricalDataCompactor compactor = manager.m_historicalDataCompactor;
+
+		while( knownUuids.hasNext() )
+		{
+			final UUID uuid_ith = knownUuids.next();
+			final BleNodeConfig.HistoricalDataRetentionFilter.HistoricalDataRetentionEvent event = new BleNodeConfig.HistoricalDataRetentionFilter.HistoricalDataRetentionEvent(endpoint, macAddress, uuid_ith);
+			final BleNodeConfig.HistoricalDataRetentionFilter.Please please = filter.onEvent(event);
+
+			if( please == null || please.keepsEverything() )  continue;
+
+			if( !compactor.needsCompaction(macAddress, uuid_ith, please) )  continue;
+
+			final boolean countBytes = compactor.onCompactionQueued(macAddress, uuid_ith, please);
+
+			s_workerPool.post(owner_nullable, new CompactTask(manager, macAddress, uuid_ith, please, countBytes, owner_nullable));
+		}
+	}
+
+	/**
+	 * Works out how many of the oldest rows break the retention limits in one pass over the database, then deletes them with a
+	 * single call. Runs in the pool behind any writes the owner already has pending, so it sees everything logged so far, then
+	 * trims whatever the owner has loaded to memory, which also covers data that was only ever logged to memory.
+	 */
+	private static final class CompactTask implements Runnable
+	{
+		private final BleManager m_manager;
+		private final String m_macAddress;
+		private final UUID m_uuid;
+		private final BleNodeConfig.HistoricalDataRetentionFilter.Please m_please;
+		private final boolean m_countBytes;
+		private final P_HistoricalDataManager m_owner;
+
+		CompactTask(final BleManager manager, final String macAddress, final UUID uuid, final BleNodeConfig.HistoricalDataRetentionFilter.Please please, final boolean countBytes, final P_HistoricalDataManager owner_nullable)
+		{
+			m_manager = manager;
+			m_macAddress = macAddress;
+			m_uuid = uuid;
+			m_please = please;
+			m_countBytes = countBytes;
+			m_owner = owner_nullable;
+		}
+
+		@Override public void run()
+		{
+			final Backend_HistoricalDatabase database = m_manager.m_historicalDatabase;
+			final HistoricalDataCursor cursor = database.getCursor(m_macAddress, m_uuid, EpochTimeRange.FROM_MIN_TO_MAX);
+			final P_HistoricalDataRetention retention = new P_HistoricalDataRetention(m_please, m_countBytes);
+
+			try
+			{
+				retention.apply(P_HistoricalDataRetention.Rows.of(cursor));
+			}
+			finally
+			{
+				cursor.close();
+			}
+
+			final long deleteCount = retention.getDeleteCount();
+			final EpochTimeRange range = deleteCount > 0 ? EpochTimeRange.fromMin_toGiven(new EpochTime(retention.getLastDeletedEpochTime())) : null;
+
+			if( range != null )
+			{
+				database.delete_singleUuid_inRange(m_macAddress, m_uuid, range, deleteCount);
+			}
+
+			if( m_owner == null )
+			{
+				if( m_countBytes )
+				{
+					m_manager.m_historicalDataCompactor.onBytesCounted(m_macAddress, m_uuid, retention.getKeptByteCount());
+				}
+
+				return;
+			}
+
+			m_manager.getUpdateLoop().postIfNeeded(new Runnable()
+			{
+				@Override public void run()
+				{
+					m_owner.compact_memory(m_uuid, m_please, m_countBytes, range, deleteCount, retention.getKeptByteCount());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Second half of {@link CompactTask}, on the main thread. First deletes what was just deleted from disk so memory stays consistent
+	 * with it, then applies the limits to the list itself, since it can hold rows that were never written to disk.
+	 */
+	private void compact_memory(final UUID uuid, final BleNodeConfig.HistoricalDataRetentionFilter.Please please, final boolean countBytes, final EpochTimeRange deletedRange_nullable, final long deletedCount, final long keptByteCount_database)
+	{
+		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
+
+		long keptByteCount = keptByteCount_database;
+
+		if( list != null )
+		{
+			if( deletedRange_nullable != null )
+			{
+				list.delete_fromMemoryOnly(deletedRange_nullable, deletedCount);
+			}
+
+			final P_HistoricalDataRetention retention = new P_HistoricalDataRetention(please, countBytes);
+
+			retention.apply(P_HistoricalDataRetention.Rows.of(list));
+
+			if( retention.getDeleteCount() > 0 )
+			{
+				list.delete_fromMemoryOnly(EpochTimeRange.fromMin_toGiven(new EpochTime(retention.getLastDeletedEpochTime())), retention.getDeleteCount());
+			}
+
+			keptByteCount = Math.max(keptByteCount, retention.getKeptByteCount());
+		}
+
+		if( countBytes )
+		{
+			m_endPoint.getManager().m_historicalDataCompactor.onBytesCounted(m_macAddress, uuid, keptByteCount);
+		}
 	}
 
 	void setListener(final BleDevice.HistoricalDataLoadListener listener)
@@ -75,7 +270,7 @@ class P_HistoricalDataManager
 				if( tableExists )
 				{
 					final String uuidName = m_endPoint.getManager().getLogger().charName(uuid);
-					final Backend_HistoricalDataList newList = PU_HistoricalData.newList(getDatabase(), s_updateLoop, m_macAddress, uuid, uuidName, tableExists);
+					final Backend_HistoricalDataList newList = PU_HistoricalData.newList(getDatabase(), m_workerLoop, m_macAddress, uuid, uuidName, tableExists);
 					m_lists.put(uuid, newList);
 
 					return newList;
@@ -98,7 +293,7 @@ class P_HistoricalDataManager
 				final boolean tableExists = getDatabase().doesDataExist(m_macAddress, uuid);
 				final String uuidName = m_endPoint.getManager().getLogger().charName(uuid);
 
-				final Backend_HistoricalDataList newList = PU_HistoricalData.newList(getDatabase(), s_updateLoop, m_macAddress, uuid, uuidName, tableExists);
+				final Backend_HistoricalDataList newList = PU_HistoricalData.newList(getDatabase(), m_workerLoop, m_macAddress, uuid, uuidName, tableExists);
 				m_lists.put(uuid, newList);
 
 				return newList;
@@ -121,7 +316,7 @@ class P_HistoricalDataManager
 
 		final HistoricalData historicalData = m_endPoint.newHistoricalData(PU_HistoricalData.getAmendedData(data, please), PU_HistoricalData.getAmendedTimestamp(epochTime, please));
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onAdded(uuid, historicalData.getBlob().length);
 
 		list.add_single(historicalData, please.m_persistenceLevel, please.getLimit());
 	}
@@ -146,7 +341,7 @@ class P_HistoricalDataManager
 
 		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onAdded(uuid, historicalData_override.getBlob().length);
 
 		list.add_single(historicalData_override, please.m_persistenceLevel, please.getLimit());
 	}
@@ -160,7 +355,7 @@ class P_HistoricalDataManager
 
 		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onAdded(uuid, /*byteCount=*/-1);
 
 		list.add_multiple(historicalData, please.m_persistenceLevel, please.getLimit());
 	}
@@ -174,11 +369,18 @@ class P_HistoricalDataManager
 
 		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+		onAdded(uuid, /*byteCount=*/-1);
 
 		list.add_multiple(historicalData, please.m_persistenceLevel, please.getLimit());
 	}
 
+	private void onAdded(final UUID uuid, final long byteCount)
+	{
+		m_previousUuidsWithDataAdded.addUuid(uuid);
+
+		m_endPoint.getManager().m_historicalDataCompactor.onAdded(m_macAddress, uuid, byteCount);
+	}
+
 	//GOOD
 	public HistoricalData getWithOffset(final UUID uuid, final EpochTimeRange range, final int offset)
 	{
@@ -199,6 +401,8 @@ class P_HistoricalDataManager
 	{
 		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
 
+		m_endPoint.getManager().m_historicalDataCompactor.forget(m_macAddress, uuid);
+
 		if( memoryOnly )
 		{
 			if( list != null )
@@ -214,7 +418,14 @@ class P_HistoricalDataManager
 			}
 			else
 			{
-				getDatabase().delete_singleUuid_inRange(m_macAddress, uuid, range, limit);
+				//--- Goes through the pool so it stays in order with writes our lists already have pending.
+				m_workerLoop.forcePost(new Runnable()
+				{
+					@Override public void run()
+					{
+						getDatabase().delete_singleUuid_inRange(m_macAddress, uuid, range, limit);
+					}
+				});
 			}
 		}
 	}
@@ -232,6 +443,8 @@ class P_HistoricalDataManager
 	{
 		final Iterator<UUID> knownUuids = m_previousUuidsWithDataAdded.getUuids();
 
+		m_endPoint.getManager().m_historicalDataCompactor.forget(m_macAddress, /*uuid=*/null);
+
 		final UUID[] uuids = !memoryOnly ? new UUID[m_previousUuidsWithDataAdded.getCount()] : null;
 		final String[] macs = uuids != null ? new String[uuids.length] : null;
 
@@ -265,7 +478,13 @@ class P_HistoricalDataManager
 
 		if( !memoryOnly )
 		{
-			getDatabase().delete_multipleUuids(macs, uuids, range, Long.MAX_VALUE);
+			m_workerLoop.forcePost(new Runnable()
+			{
+				@Override public void run()
+				{
+					getDatabase().delete_multipleUuids(macs, uuids, range, Long.MAX_VALUE);
+				}
+			});
 		}
 	}
 
@@ -322,6 +541,27 @@ class P_HistoricalDataManager
 		}
 	}
 
+	/**
+	 * Returns a copy of what's in memory for the given uuid and range, or <code>null</code> if nothing has been loaded or added for it
+	 * since the device was created, in which case the database is all there is. Call on the update thread.
+	 */
+	List<HistoricalData> snapshot(final UUID uuid, final EpochTimeRange range)
+	{
+		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
+
+		if( list == null )  return null;
+
+		final ArrayList<HistoricalData> snapshot = new ArrayList<HistoricalData>(list.getCount(range));
+		final Iterator<HistoricalData> iterator = list.getIterator(range);
+
+		while( iterator.hasNext() )
+		{
+			snapshot.add(iterator.next());
+		}
+
+		return snapshot;
+	}
+
 	//GOOD
 	public boolean hasHistoricalData(final UUID uuid, final EpochTimeRange range)
 	{
@@ -397,41 +637,43 @@ class P_HistoricalDataManager
 				{
 					final Backend_HistoricalDataList list = getList_createIfNotExists(uuid_nullable);
 
-					if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADING )
+					final boolean alreadyQueued;
+
+					synchronized(m_pendingLoads)
 					{
-						invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.ALREADY_LOADING, listener_nullable);
+						final LoadTask pending = m_pendingLoads.get(uuid_nullable);
+
+						alreadyQueued = pending != null;
+
+						if( alreadyQueued )
+						{
+							pending.m_listeners.add(listener_nullable);
+						}
 					}
-					else
+
+					if( alreadyQueued )
 					{
-						invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.STARTED_LOADING, listener_nullable);
+						invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.ALREADY_LOADING, listener_nullable);
 					}
+					else if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADING )
+					{
+						invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.ALREADY_LOADING, listener_nullable);
 
-					list.load(new Backend_HistoricalDataList.AsyncLoadCallback()
+						list.load(newLoadCallback(uuid_nullable, list, listener_nullable));
+					}
+					else
 					{
-						@Override public void onDone()
-						{
-							m_endPoint.getManager().getUpdateLoop().postIfNeeded(new Runnable()
-							{
-								@Override public void run()
-								{
-									if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADED )
-									{
-										invokeListeners(uuid_nullable, list.getRange(), BleDevice.HistoricalDataLoadListener.Status.LOADED, listener_nullable);
-									}
-									else if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__NOT_LOADED )
-									{
-										//--- DRK > Should be fringe but technically possible if user is doing things on multiple threads (they shouldn't but if they do...).
-										invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.NOTHING_TO_LOAD, listener_nullable);
-									}
-									else
-									{
-										m_endPoint.getManager().ASSERT(false, "Didn't expect to still be loading historical data.");
-									}
-								}
-							});
+						final LoadTask task = new LoadTask(uuid_nullable, list, listener_nullable);
 
+						synchronized(m_pendingLoads)
+						{
+							m_pendingLoads.put(uuid_nullable, task);
 						}
-					});
+
+						invokeListeners(uuid_nullable, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.QUEUED, listener_nullable);
+
+						s_workerPool.post(this, task);
+					}
 				}
 				else
 				{
@@ -445,6 +687,99 @@ class P_HistoricalDataManager
 		}
 	}
 
+	/**
+	 * Waits in {@link P_HistoricalDataWorkerPool} until it's this device's turn, then kicks off the actual load of the list.
+	 */
+	private final class LoadTask implements P_HistoricalDataWorkerPool.Cancellable
+	{
+		private final UUID m_uuid;
+		private final Backend_HistoricalDataList m_list;
+
+		//--- Guarded by m_pendingLoads, can contain null for calls without a listener.
+		private final ArrayList<BleDevice.HistoricalDataLoadListener> m_listeners = new ArrayList<BleDevice.HistoricalDataLoadListener>();
+
+		LoadTask(final UUID uuid, final Backend_HistoricalDataList list, final BleDevice.HistoricalDataLoadListener listener_nullable)
+		{
+			m_uuid = uuid;
+			m_list = list;
+			m_listeners.add(listener_nullable);
+		}
+
+		private ArrayList<BleDevice.HistoricalDataLoadListener> dequeue()
+		{
+			synchronized(m_pendingLoads)
+			{
+				m_pendingLoads.remove(m_uuid);
+
+				return new ArrayList<BleDevice.HistoricalDataLoadListener>(m_listeners);
+			}
+		}
+
+		@Override public void run()
+		{
+			final ArrayList<BleDevice.HistoricalDataLoadListener> listeners = dequeue();
+
+			for( int i = 0; i < listeners.size(); i++ )
+			{
+				final BleDevice.HistoricalDataLoadListener listener_ith = listeners.get(i);
+
+				postListeners(m_uuid, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.STARTED_LOADING, listener_ith);
+
+				m_list.load(newLoadCallback(m_uuid, m_list, listener_ith));
+			}
+		}
+
+		@Override public void onCancelled()
+		{
+			final ArrayList<BleDevice.HistoricalDataLoadListener> listeners = dequeue();
+
+			for( int i = 0; i < listeners.size(); i++ )
+			{
+				postListeners(m_uuid, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.CANCELLED, listeners.get(i));
+			}
+		}
+	}
+
+	private Backend_HistoricalDataList.AsyncLoadCallback newLoadCallback(final UUID uuid, final Backend_HistoricalDataList list, final BleDevice.HistoricalDataLoadListener listener_nullable)
+	{
+		return new Backend_HistoricalDataList.AsyncLoadCallback()
+		{
+			@Override public void onDone()
+			{
+				m_endPoint.getManager().getUpdateLoop().postIfNeeded(new Runnable()
+				{
+					@Override public void run()
+					{
+						if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADED )
+						{
+							invokeListeners(uuid, list.getRange(), BleDevice.HistoricalDataLoadListener.Status.LOADED, listener_nullable);
+						}
+						else if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__NOT_LOADED )
+						{
+							//--- DRK > Should be fringe but technically possible if user is doing things on multiple threads (they shouldn't but if they do...).
+							invokeListeners(uuid, EpochTimeRange.NULL, BleDevice.HistoricalDataLoadListener.Status.NOTHING_TO_LOAD, listener_nullable);
+						}
+						else
+						{
+							m_endPoint.getManager().ASSERT(false, "Didn't expect to still be loading historical data.");
+						}
+					}
+				});
+			}
+		};
+	}
+
+	private void postListeners(final UUID uuid, final EpochTimeRange range, final BleDevice.HistoricalDataLoadListener.Status status, final BleDevice.HistoricalDataLoadListener listener_nullable)
+	{
+		m_endPoint.getManager().getUpdateLoop().postIfNeeded(new Runnable()
+		{
+			@Override public void run()
+			{
+				invokeListeners(uuid, range, status, listener_nullable);
+			}
+		});
+	}
+
 	//GOOD
 	public boolean isLoaded(final UUID uuid_nullable)
 	{
@@ -488,6 +823,11 @@ class P_HistoricalDataManager
 		{
 			final Backend_HistoricalDataList list = getList_doNotCreate(uuid_nullable);
 
+			synchronized(m_pendingLoads)
+			{
+				if( m_pendingLoads.containsKey(uuid_nullable) )  return true;
+			}
+
 			if( list != null )
 			{
 				return list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADING;
@@ -499,6 +839,11 @@ class P_HistoricalDataManager
 		}
 		else
 		{
+			synchronized(m_pendingLoads)
+			{
+				if( !m_pendingLoads.isEmpty() )  return true;
+			}
+
 			final Iterator<UUID> previousUuids = m_previousUuidsWithDataAdded.getUuids();
 
 			while( previousUuids.hasNext() )
@@ -550,6 +895,6 @@ class P_HistoricalDataManager
 
 	public static void post(final Runnable runnable)
 	{
-		s_updateLoop.forcePost(runnable);
+		s_workerPool.post(/*owner=*/null, runnable);
 	}
 }
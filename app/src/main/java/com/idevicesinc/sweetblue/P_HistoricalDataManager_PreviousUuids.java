@@ -5,6 +5,7 @@ import android.content.SharedPreferences;
 
 import com.idevicesinc.sweetblue.utils.Uuids;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -59,7 +60,7 @@ class P_HistoricalDataManager_PreviousUuids
 		synchronized(this)
 		{
 			m_uuids.clear();
-			prefs().edit().clear().commit();
+			prefs().edit().remove(m_macAddress).commit();
 		}
 	}
 
@@ -79,10 +80,21 @@ class P_HistoricalDataManager_PreviousUuids
 		{
 			load();
 
-			return m_uuids.iterator();
+			//--- A copy, since this can be iterated off the update thread while uuids are added, see BleNodeConfig#allowReadsFromAllThreads.
+			return new ArrayList<UUID>(m_uuids).iterator();
 		}
 	}
 
+	/**
+	 * Returns every mac address that has had data added, whether or not there's a {@link BleDevice} for it right now.
+	 */
+	public static Set<String> getMacAddresses(final Context context)
+	{
+		final SharedPreferences prefs = context.getSharedPreferences(NAMESPACE, ACCESS_MODE);
+
+		return new HashSet<String>(prefs.getAll().keySet());
+	}
+
 	private SharedPreferences prefs()
 	{
 		final SharedPreferences prefs = m_context.getSharedPreferences(NAMESPACE, ACCESS_MODE);
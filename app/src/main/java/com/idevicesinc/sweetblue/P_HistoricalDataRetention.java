@@ -0,0 +1,156 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+/**
+ * Works out how many of the oldest rows of a log break the limits of a {@link BleNodeConfig.HistoricalDataRetentionFilter.Please}.
+ * The same pass is used for the database and for lists loaded to memory, through {@link Rows}.
+ */
+final class P_HistoricalDataRetention
+{
+	/**
+	 * Rows of one log sorted oldest first.
+	 */
+	static abstract class Rows
+	{
+		abstract int getCount();
+
+		abstract long getEpochTime(final int position);
+
+		abstract int getByteCount(final int position);
+
+		static Rows of(final HistoricalDataCursor cursor)
+		{
+			return new Rows()
+			{
+				@Override int getCount()
+				{
+					return cursor.getCount();
+				}
+
+				@Override long getEpochTime(final int position)
+				{
+					cursor.moveToPosition(position);
+
+					return cursor.getEpochTime();
+				}
+
+				@Override int getByteCount(final int position)
+				{
+					cursor.moveToPosition(position);
+
+					return cursor.getBlob().length;
+				}
+			};
+		}
+
+		static Rows of(final Backend_HistoricalDataList list)
+		{
+			return new Rows()
+			{
+				@Override int getCount()
+				{
+					return list.getCount(EpochTimeRange.FROM_MIN_TO_MAX);
+				}
+
+				@Override long getEpochTime(final int position)
+				{
+					return list.get(EpochTimeRange.FROM_MIN_TO_MAX, position).getEpochTime_millis();
+				}
+
+				@Override int getByteCount(final int position)
+				{
+					final HistoricalData data = list.get(EpochTimeRange.FROM_MIN_TO_MAX, position);
+
+					return data.getBlob().length;
+				}
+			};
+		}
+	}
+
+	private final BleNodeConfig.HistoricalDataRetentionFilter.Please m_please;
+	private final boolean m_countBytes;
+
+	private long m_deleteCount = 0;
+	private long m_lastDeletedEpochTime = 0;
+	private long m_keptByteCount = -1;
+
+	/**
+	 * @param countBytes    Whether to enforce {@link BleNodeConfig.HistoricalDataRetentionFilter.Please#getMaxByteCount()}, which
+	 *                      means reading every row that's kept, so callers pass <code>false</code> when they know the log is under it.
+	 */
+	P_HistoricalDataRetention(final BleNodeConfig.HistoricalDataRetentionFilter.Please please, final boolean countBytes)
+	{
+		m_please = please;
+		m_countBytes = countBytes && please.getMaxByteCount() != Long.MAX_VALUE;
+	}
+
+	//--- Every limit deletes from the oldest end, so the answer is just the longest of the three prefixes.
+	void apply(final Rows rows)
+	{
+		final int count = rows.getCount();
+
+		long deleteCount = Math.max(0, count - m_please.getMaxRowCount());
+
+		final Interval maxAge = m_please.getMaxAge();
+
+		if( Interval.isEnabled(maxAge) )
+		{
+			final long cutoff = System.currentTimeMillis() - maxAge.millis();
+
+			while( deleteCount < count && rows.getEpochTime((int) deleteCount) < cutoff )
+			{
+				deleteCount++;
+			}
+		}
+
+		if( m_countBytes )
+		{
+			long byteCount = 0;
+
+			for( int i = count - 1; i >= deleteCount; i-- )
+			{
+				final int byteCount_ith = rows.getByteCount(i);
+
+				if( byteCount + byteCount_ith > m_please.getMaxByteCount() )
+				{
+					deleteCount = i + 1;
+
+					break;
+				}
+
+				byteCount += byteCount_ith;
+			}
+
+			m_keptByteCount = byteCount;
+		}
+
+		m_deleteCount = deleteCount;
+		m_lastDeletedEpochTime = deleteCount > 0 ? rows.getEpochTime((int) deleteCount - 1) : 0;
+	}
+
+	long getDeleteCount()
+	{
+		return m_deleteCount;
+	}
+
+	/**
+	 * Only valid if {@link #getDeleteCount()} is greater than zero.
+	 */
+	long getLastDeletedEpochTime()
+	{
+		return m_lastDeletedEpochTime;
+	}
+
+	/**
+	 * The total blob size of the rows that are left after deleting, or <code>-1</code> if bytes weren't counted.
+	 */
+	long getKeptByteCount()
+	{
+		return m_keptByteCount;
+	}
+}
@@ -0,0 +1,542 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.BleNode.HistoricalDataExportListener;
+import com.idevicesinc.sweetblue.BleNode.HistoricalDataExportListener.HistoricalDataExportEvent;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.ForEach_Returning;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Reads and writes historical data in a compact length-prefixed binary format:
+ * <pre>
+ * header:	int magic ("SBHD"), byte version
+ * chunk:	int payloadLength, then the payload:
+ * 			short macLength, mac bytes (UTF-8), long uuidMsb, long uuidLsb, int rowCount,
+ * 			rowCount times: long epochMillis, int blobLength, blob bytes
+ * end:		int 0
+ * </pre>
+ * Each chunk is written and flushed on its own, so at most one chunk is held in memory and a slow stream simply blocks the export.
+ * The exception is data a device has loaded to memory, which is snapshotted one mac address/uuid pair at a time on the update thread -
+ * that only copies references though, since {@link HistoricalData} is immutable.
+ * A chunk never ends between two rows with the same timestamp, so the timestamp of its last row can be used to resume an export.
+ * <br><br>
+ * Importing reads each chunk into one reusable buffer, but still allocates a {@link HistoricalData}, its blob and its {@link EpochTime}
+ * for every row. Rows for a loaded device are kept in memory, and {@link Backend_HistoricalDatabase#add_multiple_next(String, UUID, HistoricalData)}
+ * as well as {@link BleDeviceConfig#historicalDataFactory} take whole, immutable rows, so there's nothing a row buffer could be handed to.
+ */
+final class P_HistoricalDataStream
+{
+	static final int MAGIC					= 0x53424844;
+	static final byte VERSION				= 1;
+
+	/**
+	 * Target number of rows per chunk, see class comment for why it can be slightly more.
+	 */
+	static final int CHUNK_ROW_COUNT		= 256;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final BleManager m_manager;
+	private final DataOutputStream m_out;
+	private final ByteArrayOutputStream m_chunkBytes = new ByteArrayOutputStream();
+	private final DataOutputStream m_chunk = new DataOutputStream(m_chunkBytes);
+
+	private final HistoricalDataExportListener m_listener;
+	private long m_totalRowCount = 0;
+
+	private String m_macAddress;
+	private UUID m_uuid;
+	private int m_rowCount;
+	private long m_lastEpochTime;
+
+	private P_HistoricalDataStream(final BleManager manager, final OutputStream out, final HistoricalDataExportListener listener_nullable)
+	{
+		m_manager = manager;
+		m_out = new DataOutputStream(out);
+		m_listener = listener_nullable;
+	}
+
+	static long export(final BleManager manager, final OutputStream out, final String[] macAddresses, final UUID[] uuids, final EpochTimeRange range, final HistoricalDataExportEvent resumeFrom_nullable, final HistoricalDataExportListener listener_nullable) throws IOException
+	{
+		final int resumeIndex = resumeFrom_nullable != null ? indexOf(manager, macAddresses, uuids, resumeFrom_nullable) : 0;
+
+		if( resumeIndex < 0 )
+		{
+			throw new IllegalArgumentException("Can't resume from " + resumeFrom_nullable.macAddress() + "/" + resumeFrom_nullable.uuid() + " because it isn't one of the given pairs.");
+		}
+
+		final P_HistoricalDataStream stream = new P_HistoricalDataStream(manager, out, listener_nullable);
+
+		stream.m_out.writeInt(MAGIC);
+		stream.m_out.writeByte(VERSION);
+
+		for( int i = resumeIndex; i < macAddresses.length; i++ )
+		{
+			final String mac_ith = manager.normalizeMacAddress(macAddresses[i]);
+			final UUID uuid_ith = uuids[i];
+			EpochTimeRange range_ith = range;
+
+			if( resumeFrom_nullable != null && i == resumeIndex )
+			{
+				final long from = Math.max(range.from().toMilliseconds(), resumeFrom_nullable.checkpoint().toMilliseconds() + 1);
+
+				if( from > range.to().toMilliseconds() )  continue;
+
+				range_ith = new EpochTimeRange(from, range.to().toMilliseconds());
+			}
+
+			final List<HistoricalData> snapshot = snapshot(manager, mac_ith, uuid_ith, range_ith);
+
+			if( snapshot != null )
+			{
+				stream.write(mac_ith, uuid_ith, snapshot);
+			}
+			else
+			{
+				stream.write(mac_ith, uuid_ith, manager.m_historicalDatabase.getCursor(mac_ith, uuid_ith, range_ith));
+			}
+		}
+
+		stream.m_out.writeInt(0);
+		stream.m_out.flush();
+
+		return stream.m_totalRowCount;
+	}
+
+	/**
+	 * Pairs before the one in the checkpoint were already exported completely, so that's where to start again.
+	 */
+	private static int indexOf(final BleManager manager, final String[] macAddresses, final UUID[] uuids, final HistoricalDataExportEvent resumeFrom)
+	{
+		for( int i = 0; i < macAddresses.length; i++ )
+		{
+			if( manager.normalizeMacAddress(macAddresses[i]).equals(resumeFrom.macAddress()) && uuids[i].equals(resumeFrom.uuid()) )
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Copies what a loaded device has in memory on the update thread, so the export sees a consistent view of a list that's still
+	 * being added to. Returns <code>null</code> if the device has nothing in memory, in which case the database is read directly.
+	 */
+	private static List<HistoricalData> snapshot(final BleManager manager, final String macAddress, final UUID uuid, final EpochTimeRange range) throws IOException
+	{
+		final BleDevice device = manager.m_deviceMngr.get_snapshot(macAddress);
+
+		if( device == null || device.isNull() )  return null;
+
+		final ArrayList<List<HistoricalData>> result = new ArrayList<List<HistoricalData>>(1);
+
+		final Waiter waiter = new Waiter(new Runnable()
+		{
+			@Override public void run()
+			{
+				result.add(device.getHistoricalDataManager().snapshot(uuid, range));
+			}
+		});
+
+		manager.runOnUpdateThread(waiter);
+		waiter.await();
+
+		return result.get(0);
+	}
+
+	/**
+	 * Writes everything from the cursor as one or more chunks and closes it.
+	 */
+	private void write(final String macAddress, final UUID uuid, final HistoricalDataCursor cursor) throws IOException
+	{
+		try
+		{
+			startPair(macAddress, uuid);
+
+			for( boolean more = cursor.moveToFirst(); more; more = cursor.moveToNext() )
+			{
+				writeRow(cursor.getEpochTime(), cursor.getBlob());
+			}
+
+			endPair();
+		}
+		finally
+		{
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Writes everything from the snapshot as one or more chunks.
+	 */
+	private void write(final String macAddress, final UUID uuid, final List<HistoricalData> rows) throws IOException
+	{
+		startPair(macAddress, uuid);
+
+		for( int i = 0; i < rows.size(); i++ )
+		{
+			final HistoricalData row_ith = rows.get(i);
+
+			writeRow(row_ith.getEpochTime_millis(), row_ith.getBlob());
+		}
+
+		endPair();
+	}
+
+	private void startPair(final String macAddress, final UUID uuid)
+	{
+		m_macAddress = macAddress;
+		m_uuid = uuid;
+		m_rowCount = 0;
+		m_lastEpochTime = 0;
+	}
+
+	private void writeRow(final long epochTime, final byte[] blob) throws IOException
+	{
+		if( m_rowCount >= CHUNK_ROW_COUNT && epochTime != m_lastEpochTime )
+		{
+			flushChunk();
+		}
+
+		if( m_rowCount == 0 )
+		{
+			startChunk();
+		}
+
+		m_chunk.writeLong(epochTime);
+		m_chunk.writeInt(blob.length);
+		m_chunk.write(blob);
+
+		m_rowCount++;
+		m_lastEpochTime = epochTime;
+	}
+
+	private void endPair() throws IOException
+	{
+		if( m_rowCount > 0 )
+		{
+			flushChunk();
+		}
+	}
+
+	private void startChunk() throws IOException
+	{
+		final byte[] mac = m_macAddress.getBytes(UTF_8);
+
+		m_chunkBytes.reset();
+		m_chunk.writeShort(mac.length);
+		m_chunk.write(mac);
+		m_chunk.writeLong(m_uuid.getMostSignificantBits());
+		m_chunk.writeLong(m_uuid.getLeastSignificantBits());
+
+		//--- Placeholder for the row count, patched in flushChunk() once we know it.
+		m_chunk.writeInt(0);
+	}
+
+	private void flushChunk() throws IOException
+	{
+		m_chunk.flush();
+
+		final byte[] payload = m_chunkBytes.toByteArray();
+		final int rowCountOffset = 2 + (payload[0] & 0xff) * 256 + (payload[1] & 0xff) + 16;
+		final int rowCount = m_rowCount;
+
+		payload[rowCountOffset]		= (byte) (rowCount >>> 24);
+		payload[rowCountOffset + 1]	= (byte) (rowCount >>> 16);
+		payload[rowCountOffset + 2]	= (byte) (rowCount >>> 8);
+		payload[rowCountOffset + 3]	= (byte) rowCount;
+
+		m_out.writeInt(payload.length);
+		m_out.write(payload);
+		m_out.flush();
+
+		m_rowCount = 0;
+		m_totalRowCount += rowCount;
+
+		if( m_listener != null )
+		{
+			m_listener.onEvent(new HistoricalDataExportEvent(m_manager, m_macAddress, m_uuid, new EpochTime(m_lastEpochTime), rowCount, m_totalRowCount));
+		}
+	}
+
+	/**
+	 * Reads everything written by {@link #export(BleManager, OutputStream, String[], UUID[], EpochTimeRange, HistoricalDataExportEvent, HistoricalDataExportListener)}
+	 * and adds it chunk by chunk, returning the number of rows read. Reading happens on the calling thread, but each chunk is merged
+	 * on the update thread for devices we know about, or in the historical data worker pool otherwise, and the next chunk isn't
+	 * read until that's done.
+	 */
+	static long import_(final BleManager manager, final InputStream in) throws IOException
+	{
+		final DataInputStream in_data = new DataInputStream(in);
+
+		if( in_data.readInt() != MAGIC )  throw new IOException("Not a historical data stream.");
+
+		final byte version = in_data.readByte();
+
+		if( version != VERSION )  throw new IOException("Unsupported historical data stream version " + version + ".");
+
+		final ChunkReader reader = new ChunkReader();
+		long total = 0;
+
+		while( true )
+		{
+			final int payloadLength = in_data.readInt();
+
+			if( payloadLength == 0 )  break;
+			if( payloadLength < 0 )  throw new IOException("Corrupt historical data stream.");
+
+			reader.read(in_data, payloadLength);
+
+			final String mac = reader.readString();
+			final UUID uuid = new UUID(reader.readLong(), reader.readLong());
+			final int rowCount = reader.readInt();
+
+			if( rowCount < 0 )  throw new IOException("Corrupt historical data stream.");
+
+			final BleDevice device = manager.m_deviceMngr.get_snapshot(mac);
+			final boolean hasDevice = device != null && !device.isNull();
+
+			reader.startRows(manager, hasDevice ? device : null, rowCount);
+
+			if( hasDevice )
+			{
+				final Waiter waiter = new Waiter(new Runnable()
+				{
+					@Override public void run()
+					{
+						device.getHistoricalDataManager().add_multiple(uuid, reader);
+					}
+				});
+
+				manager.runOnUpdateThread(waiter);
+				waiter.await();
+			}
+			else
+			{
+				final Waiter waiter = new Waiter(new Runnable()
+				{
+					@Override public void run()
+					{
+						final Backend_HistoricalDatabase database = manager.m_historicalDatabase;
+
+						database.add_multiple_start();
+
+						try
+						{
+							for( int i = 0; i < rowCount; i++ )
+							{
+								final HistoricalData row_ith = reader.next(i);
+
+								if( row_ith == null )  break;
+
+								database.add_multiple_next(mac, uuid, row_ith);
+							}
+						}
+						finally
+						{
+							database.add_multiple_end();
+						}
+
+						//--- So this pair is still found later, for example by P_HistoricalDataCompactor.
+						new P_HistoricalDataManager_PreviousUuids(manager.getApplicationContext(), mac).addUuid(uuid);
+						manager.m_historicalDataCompactor.onAdded(mac, uuid, /*byteCount=*/-1);
+					}
+				});
+
+				P_HistoricalDataManager.post(waiter);
+				waiter.await();
+			}
+
+			if( reader.isCorrupt() )  throw new IOException("Corrupt historical data stream.");
+
+			total += rowCount;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Runs on another thread while the calling thread waits for it, passing along anything it throws.
+	 */
+	private static final class Waiter implements Runnable
+	{
+		private final Runnable m_runnable;
+		private final CountDownLatch m_done = new CountDownLatch(1);
+		private volatile RuntimeException m_exception = null;
+
+		Waiter(final Runnable runnable)
+		{
+			m_runnable = runnable;
+		}
+
+		@Override public void run()
+		{
+			try
+			{
+				m_runnable.run();
+			}
+			catch( RuntimeException e )
+			{
+				m_exception = e;
+			}
+			finally
+			{
+				m_done.countDown();
+			}
+		}
+
+		void await() throws IOException
+		{
+			try
+			{
+				m_done.await();
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+
+				throw new InterruptedIOException("Interrupted while waiting for historical data.");
+			}
+
+			if( m_exception != null )  throw m_exception;
+		}
+	}
+
+	/**
+	 * Parses a chunk straight out of one reusable buffer, handing rows to {@link P_HistoricalDataManager#add_multiple(UUID, ForEach_Returning)}
+	 * as they're asked for instead of building a list of them first. Each row is still its own {@link HistoricalData}, see class comment.
+	 */
+	private static final class ChunkReader implements ForEach_Returning<HistoricalData>
+	{
+		private byte[] m_buffer = new byte[1024];
+		private int m_length;
+		private int m_position;
+
+		private BleManager m_manager;
+		private BleDevice m_device_nullable;
+		private int m_rowCount;
+		private int m_rowsRead;
+		private boolean m_corrupt;
+
+		void read(final DataInputStream in, final int length) throws IOException
+		{
+			if( m_buffer.length < length )
+			{
+				m_buffer = new byte[Math.max(length, m_buffer.length * 2)];
+			}
+
+			in.readFully(m_buffer, 0, length);
+
+			m_length = length;
+			m_position = 0;
+		}
+
+		void startRows(final BleManager manager, final BleDevice device_nullable, final int rowCount)
+		{
+			m_manager = manager;
+			m_device_nullable = device_nullable;
+			m_rowCount = rowCount;
+			m_rowsRead = 0;
+			m_corrupt = false;
+		}
+
+		/**
+		 * Rows that weren't asked for, for example because {@link BleNodeConfig#historicalDataLogFilter} said no, don't count.
+		 */
+		boolean isCorrupt()
+		{
+			return m_corrupt || m_rowsRead == m_rowCount && m_position != m_length;
+		}
+
+		@Override public HistoricalData next(final int index)
+		{
+			if( m_rowsRead >= m_rowCount )  return null;
+
+			try
+			{
+				final long epochTime = readLong();
+				final int blobLength = readInt();
+				final byte[] blob = readBytes(blobLength);
+
+				m_rowsRead++;
+
+				return newHistoricalData(blob, new EpochTime(epochTime));
+			}
+			catch( EOFException e )
+			{
+				//--- Stops add_multiple() early, import_() then throws.
+				m_corrupt = true;
+
+				return null;
+			}
+		}
+
+		//--- Not using BleManager#newHistoricalData() because rows for unknown devices are built in the worker pool.
+		private HistoricalData newHistoricalData(final byte[] blob, final EpochTime epochTime)
+		{
+			if( m_device_nullable != null )
+			{
+				return m_device_nullable.newHistoricalData(blob, epochTime);
+			}
+
+			final BleDeviceConfig.HistoricalDataFactory factory = m_manager.m_config.historicalDataFactory;
+
+			return factory != null ? factory.newHistoricalData(blob, epochTime) : new HistoricalData(blob, epochTime);
+		}
+
+		String readString() throws EOFException
+		{
+			final int length = ((readByte() & 0xff) << 8) | (readByte() & 0xff);
+
+			return new String(readBytes(length), UTF_8);
+		}
+
+		long readLong() throws EOFException
+		{
+			return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+		}
+
+		int readInt() throws EOFException
+		{
+			return ((readByte() & 0xff) << 24) | ((readByte() & 0xff) << 16) | ((readByte() & 0xff) << 8) | (readByte() & 0xff);
+		}
+
+		private byte readByte() throws EOFException
+		{
+			if( m_position >= m_length )  throw new EOFException();
+
+			return m_buffer[m_position++];
+		}
+
+		private byte[] readBytes(final int length) throws EOFException
+		{
+			if( length < 0 || m_position + length > m_length )  throw new EOFException();
+
+			final byte[] bytes = new byte[length];
+
+			System.arraycopy(m_buffer, m_position, bytes, 0, length);
+
+			m_position += length;
+
+			return bytes;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Small bounded pool of threads shared by all {@link P_HistoricalDataManager} instances for loads, queries, and deletes.
+ * Work for different devices runs in parallel, but work for any one device still runs one at a time in the order it was
+ * posted, same as when everything went through a single thread, so for example a delete can't overtake an earlier write.
+ * When a thread frees up it takes the oldest work of whichever device has the highest {@link P_HistoricalDataManager#getWorkPriority()}
+ * at that moment.
+ * <br><br>
+ * Work without an owner, like raw queries or imports for mac addresses without a device, could touch any device's data, so it's a barrier:
+ * it waits for everything posted before it to finish, nothing posted after it starts until it's done, and it goes ahead of everything
+ * else as soon as it can, same as it would have on a single thread. Work posted before it still runs in parallel as usual.
+ */
+final class P_HistoricalDataWorkerPool
+{
+	/**
+	 * Implemented by work that should be told when it's dropped by {@link #cancel(P_HistoricalDataManager)}.
+	 */
+	interface Cancellable extends Runnable
+	{
+		void onCancelled();
+	}
+
+	static final int DEFAULT_THREAD_COUNT = 3;
+
+	private static final class Task
+	{
+		private final P_HistoricalDataManager m_owner;
+		private final Runnable m_runnable;
+		private final long m_sequence;
+
+		Task(final P_HistoricalDataManager owner_nullable, final Runnable runnable, final long sequence)
+		{
+			m_owner = owner_nullable;
+			m_runnable = runnable;
+			m_sequence = sequence;
+		}
+	}
+
+	private final Object m_lock = new Object();
+	private final ArrayList<Task> m_pending = new ArrayList<Task>();
+	private final ArrayList<Task> m_running = new ArrayList<Task>();
+	private final ArrayList<P_HistoricalDataManager> m_busyOwners = new ArrayList<P_HistoricalDataManager>();
+	private final ArrayList<P_HistoricalDataManager> m_seenOwners = new ArrayList<P_HistoricalDataManager>();
+	private final int m_maxThreadCount;
+
+	private int m_threadCount = 0;
+	private int m_idleCount = 0;
+	private int m_threadsStarted = 0;
+	private long m_nextSequence = 0;
+
+	P_HistoricalDataWorkerPool(final int maxThreadCount)
+	{
+		m_maxThreadCount = Math.max(1, maxThreadCount);
+	}
+
+	/**
+	 * Returns an {@link Executor} that posts everything with the given owner, for {@link com.idevicesinc.sweetblue.utils.UpdateLoop#newExecutorLoop(Executor)}.
+	 */
+	Executor newExecutor(final P_HistoricalDataManager owner)
+	{
+		return new Executor()
+		{
+			@Override public void execute(final Runnable runnable)
+			{
+				post(owner, runnable);
+			}
+		};
+	}
+
+	/**
+	 * Work without an owner runs once everything posted before it is done and holds back everything posted after it, see class comment.
+	 */
+	void post(final P_HistoricalDataManager owner_nullable, final Runnable runnable)
+	{
+		synchronized(m_lock)
+		{
+			m_pending.add(new Task(owner_nullable, runnable, m_nextSequence++));
+
+			if( m_idleCount > 0 )
+			{
+				m_lock.notifyAll();
+			}
+			else if( m_threadCount < m_maxThreadCount )
+			{
+				startThread();
+			}
+		}
+	}
+
+	/**
+	 * Drops all {@link Cancellable} work of the given owner that hasn't started yet and tells it so, on the calling thread.
+	 * Anything else is left alone, for example writes posted by the owner's lists.
+	 */
+	void cancel(final P_HistoricalDataManager owner)
+	{
+		final List<Cancellable> cancelled = new ArrayList<Cancellable>();
+
+		synchronized(m_lock)
+		{
+			for( int i = m_pending.size() - 1; i >= 0; i-- )
+			{
+				final Task task_ith = m_pending.get(i);
+
+				if( task_ith.m_owner == owner && task_ith.m_runnable instanceof Cancellable )
+				{
+					m_pending.remove(i);
+					cancelled.add(0, (Cancellable) task_ith.m_runnable);
+				}
+			}
+		}
+
+		for( int i = 0; i < cancelled.size(); i++ )
+		{
+			cancelled.get(i).onCancelled();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if nothing is queued and no thread is running anything.
+	 */
+	boolean isIdle()
+	{
+		synchronized(m_lock)
+		{
+			return m_pending.isEmpty() && m_idleCount == m_threadCount;
+		}
+	}
+
+	private void startThread()
+	{
+		m_threadCount++;
+		m_threadsStarted++;
+
+		final Thread thread = new Thread(new Runnable()
+		{
+			@Override public void run()
+			{
+				loop();
+			}
+		}, "SweetBlue historical data " + m_threadsStarted);
+
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void loop()
+	{
+		while( true )
+		{
+			final Task task = take();
+			boolean finished = false;
+
+			try
+			{
+				task.m_runnable.run();
+
+				finished = true;
+			}
+			finally
+			{
+				synchronized(m_lock)
+				{
+					m_running.remove(task);
+
+					if( task.m_owner != null )
+					{
+						m_busyOwners.remove(task.m_owner);
+					}
+
+					if( !finished )
+					{
+						//--- This thread is about to die from whatever the task threw, so another one takes its place.
+						m_threadCount--;
+
+						if( !m_pending.isEmpty() && m_idleCount == 0 )
+						{
+							startThread();
+						}
+					}
+
+					//--- The owner's next task, or work without an owner waiting on this one, may have been skipped while this one was running.
+					if( m_idleCount > 0 )
+					{
+						m_lock.notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+	private Task take()
+	{
+		synchronized(m_lock)
+		{
+			while( true )
+			{
+				final int index = nextIndex();
+
+				if( index >= 0 )
+				{
+					final Task task = m_pending.remove(index);
+
+					m_running.add(task);
+
+					if( task.m_owner != null )
+					{
+						m_busyOwners.add(task.m_owner);
+					}
+
+					return task;
+				}
+
+				m_idleCount++;
+
+				try
+				{
+					m_lock.wait();
+				}
+				catch( InterruptedException e )
+				{
+				}
+				finally
+				{
+					m_idleCount--;
+				}
+			}
+		}
+	}
+
+	private int nextIndex()
+	{
+		int bestIndex = -1;
+		int bestPriority = Integer.MIN_VALUE;
+		long bestSequence = Long.MAX_VALUE;
+
+		//--- Work without an owner only starts once nothing before it is pending, so everything still pending was posted after it.
+		if( isRunningOwnerless() )  return -1;
+
+		m_seenOwners.clear();
+
+		for( int i = 0; i < m_pending.size(); i++ )
+		{
+			final Task task_ith = m_pending.get(i);
+
+			if( task_ith.m_owner == null )
+			{
+				//--- Everything posted before it has to be done, and once it is there's no reason to make it wait any longer.
+				if( i == 0 && !isRunningAnythingBefore(task_ith.m_sequence) )  return i;
+
+				//--- Nothing posted after it may start first, but earlier work is still fair game.
+				break;
+			}
+
+			if( m_busyOwners.contains(task_ith.m_owner) )  continue;
+
+			//--- Only an owner's oldest task is a candidate, so its order holds even if its priority changes mid-scan.
+			if( m_seenOwners.contains(task_ith.m_owner) )  continue;
+
+			m_seenOwners.add(task_ith.m_owner);
+
+			final int priority = task_ith.m_owner.getWorkPriority();
+
+			if( priority > bestPriority || priority == bestPriority && task_ith.m_sequence < bestSequence )
+			{
+				bestIndex = i;
+				bestPriority = priority;
+				bestSequence = task_ith.m_sequence;
+			}
+		}
+
+		return bestIndex;
+	}
+
+	private boolean isRunningOwnerless()
+	{
+		for( int i = 0; i < m_running.size(); i++ )
+		{
+			if( m_running.get(i).m_owner == null )  return true;
+		}
+
+		return false;
+	}
+
+	private boolean isRunningAnythingBefore(final long sequence)
+	{
+		for( int i = 0; i < m_running.size(); i++ )
+		{
+			if( m_running.get(i).m_sequence < sequence )  return true;
+		}
+
+		return false;
+	}
+}
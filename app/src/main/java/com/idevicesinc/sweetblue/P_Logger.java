@@ -17,7 +17,7 @@ import com.idevicesinc.sweetblue.utils.ReflectionUuidNameMap;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.utils.Utils_Reflection;
 import com.idevicesinc.sweetblue.utils.UuidNameMap;
-import com.idevicesinc.sweetblue.utils.UuidNameMap_ListWrapper;
+import com.idevicesinc.sweetblue.utils.UuidNameMap_Index;
 
 class P_Logger
 {
@@ -31,7 +31,7 @@ class P_Logger
 	private HashMap<Integer, String> m_gattBondStates = null;
 	private HashMap<Integer, String> m_unbondReasonCodes = null;
 	private boolean m_enabled;
-	private final UuidNameMap_ListWrapper m_nameMap;
+	private final UuidNameMap_Index m_nameMap;
 	private SweetLogger m_logger = null;
 
 	
@@ -39,7 +39,7 @@ class P_Logger
 	{
 		m_logger = logger;
 		m_debugThreadNamePool = debugThreadNamePool;
-		m_nameMap = new UuidNameMap_ListWrapper(debugUuidNameDicts);
+		m_nameMap = new UuidNameMap_Index(debugUuidNameDicts);
 		m_enabled = enabled;
 		
 		//--- DRK > Most of the time this will give the first alphabetical thread name to the main thread.
@@ -418,22 +418,29 @@ class P_Logger
 	
 	public String descriptorName(UUID uuid)
 	{
-		return uuidName(uuidToString(uuid), "descriptor");
+		return uuidName(uuid, "descriptor");
 	}
 	
 	public String charName(UUID uuid)
 	{
-		return uuidName(uuidToString(uuid), "char");
+		return uuidName(uuid, "char");
 	}
 	
 	public String serviceName(UUID uuid)
 	{
-		return uuidName(uuidToString(uuid), "service");
+		return uuidName(uuid, "service");
 	}
 	
 	public String uuidName(UUID uuid)
 	{
-		return uuidName(uuidToString(uuid));
+		return uuidName(uuid, null);
+	}
+
+	private String uuidName(UUID uuid_nullable, String type)
+	{
+		String debugName = uuid_nullable == null ? uuidToString(null) : m_nameMap.getUuidName(uuid_nullable);
+
+		return (type == null ? debugName : type+"="+debugName);
 	}
 	
 	public String uuidName(String uuid)
@@ -43,7 +43,7 @@ class P_NativeDeviceWrapper
 		else
 		{
 			setName_override(m_name_native);
-			final boolean saveToDisk = BleDeviceConfig.bool(m_device.conf_device().saveNameChangesToDisk, m_device.conf_mngr().saveNameChangesToDisk);
+			final boolean saveToDisk = m_device.conf_effective().saveNameChangesToDisk;
 			getManager().m_diskOptionsMngr.saveName(m_address, m_name_native, saveToDisk);
 		}
 	}
@@ -70,6 +70,8 @@ class P_NativeDeviceWrapper
 	void setName_override(final String name)
 	{
 		m_name_override = name != null ? name : "";
+
+		m_device.onSortKeyChanged();
 	}
 
 	void updateNativeName(final String name_native)
@@ -108,6 +110,8 @@ class P_NativeDeviceWrapper
 		String lastFourOfMac = address_split[address_split.length - 2] + address_split[address_split.length - 1];
 		String debugName = m_name_normalized.length() == 0 ? "<no_name>" : m_name_normalized;
 		m_name_debug = m_device_native != null ? debugName + "_" + lastFourOfMac : debugName;
+
+		m_device.onSortKeyChanged();
 	}
 	
 	public String getAddress()
@@ -343,6 +347,7 @@ class P_NativeDeviceWrapper
 
 		m_nativeConnectionState = BluetoothGatt.STATE_DISCONNECTED;
 		m_gatt = null;
+		m_device.serviceMngr_device().clearIndex();
 	}
 	
 	private void setGatt(BluetoothGatt gatt)
@@ -374,5 +379,7 @@ class P_NativeDeviceWrapper
 		{
 			m_gatt = gatt;
 		}
+
+		m_device.serviceMngr_device().clearIndex();
 	}
 }
@@ -0,0 +1,138 @@
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+
+import java.util.ArrayList;
+
+/**
+ * Per-characteristic state for applying a {@link BleNotifyPolicy} to successful notifications. Both methods return the event
+ * that should be delivered to listeners right now, or <code>null</code> if nothing should be.
+ */
+final class P_NotifyThrottle
+{
+	private final BleNotifyPolicy m_policy;
+
+	private double m_timeSinceDelivery;
+	private ReadWriteEvent m_pending = null;
+	private int m_count = 0;
+
+	private final ArrayList<byte[]> m_window;
+	private double m_windowTime = 0.0;
+
+	P_NotifyThrottle(final BleNotifyPolicy policy)
+	{
+		m_policy = policy;
+
+		//--- So the first notification goes through right away.
+		m_timeSinceDelivery = policy.getInterval();
+
+		m_window = policy.getMode() == BleNotifyPolicy.Mode.AGGREGATE ? new ArrayList<byte[]>() : null;
+	}
+
+	BleNotifyPolicy getPolicy()
+	{
+		return m_policy;
+	}
+
+	ReadWriteEvent onNotification(final ReadWriteEvent event)
+	{
+		switch( m_policy.getMode() )
+		{
+			case LATEST:
+			{
+				if( m_timeSinceDelivery >= m_policy.getInterval() )
+				{
+					m_timeSinceDelivery = 0.0;
+					m_pending = null;
+
+					return event;
+				}
+				else
+				{
+					m_pending = event;
+
+					return null;
+				}
+			}
+
+			case DECIMATE:
+			{
+				final boolean deliver = m_count == 0;
+
+				m_count = (m_count + 1) % m_policy.getN();
+
+				return deliver ? event : null;
+			}
+
+			case AGGREGATE:
+			{
+				if( m_window.isEmpty() )
+				{
+					m_windowTime = 0.0;
+				}
+
+				m_window.add(event.data());
+				m_pending = event;
+
+				return null;
+			}
+
+			default:
+			{
+				return event;
+			}
+		}
+	}
+
+	ReadWriteEvent update(final double timeStep)
+	{
+		if( m_policy.getMode() == BleNotifyPolicy.Mode.LATEST )
+		{
+			m_timeSinceDelivery += timeStep;
+
+			if( m_pending != null && m_timeSinceDelivery >= m_policy.getInterval() )
+			{
+				final ReadWriteEvent pending = m_pending;
+
+				m_pending = null;
+				m_timeSinceDelivery = 0.0;
+
+				return pending;
+			}
+		}
+		else if( m_policy.getMode() == BleNotifyPolicy.Mode.AGGREGATE && !m_window.isEmpty() )
+		{
+			m_windowTime += timeStep;
+
+			if( m_windowTime >= m_policy.getInterval() )
+			{
+				final ReadWriteEvent last = m_pending;
+				final byte[] data = m_policy.getAggregator().aggregate(m_window);
+
+				m_window.clear();
+				m_pending = null;
+
+				return new ReadWriteEvent(last.device(), last.serviceUuid(), last.charUuid(), null, last.type(), Target.CHARACTERISTIC, data, Status.SUCCESS, last.gattStatus(), m_windowTime, 0.0, /*solicited=*/true);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Drops anything that's waiting to be delivered, for example on disconnect.
+	 */
+	void reset()
+	{
+		m_pending = null;
+		m_count = 0;
+		m_timeSinceDelivery = m_policy.getInterval();
+
+		if( m_window != null )
+		{
+			m_window.clear();
+		}
+	}
+}
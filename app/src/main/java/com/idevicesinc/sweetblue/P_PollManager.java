@@ -1,12 +1,11 @@
 package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
-import android.os.Handler;
 
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
@@ -23,14 +22,25 @@ class P_PollManager
 	static final int E_NotifyState__ENABLING 		= 1;
 	static final int E_NotifyState__ENABLED			= 2;
 	
-	private static class PollingReadListener extends P_WrappingReadWriteListener
+	/**
+	 * Adaptive polls double their interval after every read that returns the same value as the last one, up to their maximum.
+	 */
+	static final double ADAPTIVE_BACKOFF_FACTOR		= 2.0;
+
+	/**
+	 * When a device wakes up for one poll, any other poll at least this far (as a fraction of its interval) towards its next read
+	 * is pulled in to go out with it.
+	 */
+	static final double WAKE_UP_ALIGNMENT			= 0.75;
+
+	static class PollingReadListener extends P_WrappingReadWriteListener
 	{
 		protected CallbackEntry m_entry;
 		private ReadWriteListener m_overrideListener;
 		
-		PollingReadListener(ReadWriteListener readWriteListener, Handler handler, boolean postToMain)
+		PollingReadListener(ReadWriteListener readWriteListener, P_EventPoster poster, boolean postToMain)
 		{
-			super(null, handler, postToMain);
+			super(null, poster, postToMain);
 			
 			addListener(readWriteListener);
 		}
@@ -49,6 +59,22 @@ class P_PollManager
 		{
 			m_entry = entry;
 		}
+
+		/**
+		 * Called by the read task before it builds a {@link ReadWriteEvent}. Returns <code>false</code> if no event should be built
+		 * at all, in which case this poll is considered done.
+		 */
+		boolean onPolledValue(byte[] value)
+		{
+			m_entry.onPolledValue(value);
+
+			return true;
+		}
+
+		byte[] getPreviousValue()
+		{
+			return null;
+		}
 		
 		@Override public void onEvent(ReadWriteEvent result)
 		{
@@ -58,44 +84,78 @@ class P_PollManager
 		}
 	}
 	
-	private static class TrackingWrappingReadListener extends PollingReadListener
+	static class TrackingWrappingReadListener extends PollingReadListener
 	{
-		private byte[] m_lastValue = null;
-		
-		TrackingWrappingReadListener(ReadWriteListener readWriteListener, Handler handler, boolean postToMain)
+		private boolean m_unchanged = false;
+
+		TrackingWrappingReadListener(ReadWriteListener readWriteListener, P_EventPoster poster, boolean postToMain)
 		{
-			super(readWriteListener, handler, postToMain);
+			super(readWriteListener, poster, postToMain);
 		}
-		
-		@Override public void onEvent(ReadWriteEvent event)
+
+		@Override boolean onPolledValue(byte[] value)
 		{
-			if( event.status() == Status.SUCCESS )
+			if( m_entry.onPolledValue(value) )
+			{
+				m_entry.m_pollMngr.m_changeTrackingMisses.incrementAndGet();
+
+				return true;
+			}
+			else
 			{
-				if( event.type().isNativeNotification() || m_lastValue == null || !Arrays.equals(m_lastValue, event.data()) )
+				m_entry.m_pollMngr.m_changeTrackingHits.incrementAndGet();
+
+				if( m_entry.m_device.conf_effective().dropUnchangedChangeTrackingEvents )
 				{
-					super.onEvent(event);
+					m_entry.onSuccessOrFailure();
+
+					return false;
 				}
 				else
 				{
-					m_entry.onSuccessOrFailure();
+					//--- The event still gets built and goes to default listeners and historical data as always, just not to this poll's listener.
+					m_unchanged = true;
+
+					return true;
 				}
-				
-				m_lastValue = event.data();
 			}
-			else
+		}
+
+		@Override byte[] getPreviousValue()
+		{
+			return m_entry.m_tracker.getPreviousValue();
+		}
+		
+		@Override public void onEvent(ReadWriteEvent event)
+		{
+			final boolean unchanged = m_unchanged;
+
+			m_unchanged = false;
+
+			if( event.status() != Status.SUCCESS )
 			{
-				m_lastValue = null;
-				
-				super.onEvent(event);
+				m_entry.m_tracker.reset();
+			}
+			else if( unchanged && !event.type().isNativeNotification() )
+			{
+				m_entry.onSuccessOrFailure();
+
+				return;
 			}
+
+			super.onEvent(event);
 		}
 	}
 	
 	private static class CallbackEntry
 	{
 		private final BleDevice m_device;
+		private final P_PollManager m_pollMngr;
 		private final PollingReadListener m_pollingReadListener;
+		private final P_ChangeTracker m_tracker;
 		private double m_interval;
+		private double m_maxInterval;
+		private double m_currentInterval;
 		private final UUID m_charUuid;
 		private final UUID m_serviceUuid;
 		private final boolean m_usingNotify;
@@ -103,30 +163,82 @@ class P_PollManager
 		
 		private double m_timeTracker;
 		private boolean m_waitingForResponse;
+
+		private P_NotifyThrottle m_throttle = null;
 		
-		public CallbackEntry(BleDevice device, final UUID serviceUuid, UUID charUuid, double interval, ReadWriteListener readWriteListener, boolean trackChanges, boolean usingNotify)
+		public CallbackEntry(P_PollManager pollMngr, BleDevice device, final UUID serviceUuid, UUID charUuid, double interval, double maxInterval, ReadWriteListener readWriteListener, boolean trackChanges, boolean usingNotify)
 		{
 			m_serviceUuid = serviceUuid;
 			m_charUuid = charUuid;
-			m_interval = interval;
 			m_device = device;
+			m_pollMngr = pollMngr;
 			m_usingNotify = usingNotify;
 			m_notifyState = E_NotifyState__NOT_ENABLED;
 
+			setIntervals(interval, maxInterval);
+
 			m_timeTracker = interval; // to get it to do a first read pretty much instantly.
 			
 			if( trackChanges || m_usingNotify)
 			{
-				m_pollingReadListener = new TrackingWrappingReadListener(readWriteListener, m_device.getManager().m_mainThreadHandler, m_device.getManager().m_config.postCallbacksToMainThread);
+				m_tracker = new P_ChangeTracker(m_device.conf_effective().retainPreviousValueForChangeTracking);
+				m_pollingReadListener = new TrackingWrappingReadListener(readWriteListener, m_device.getManager().m_eventPoster, m_device.getManager().m_config.postCallbacksToMainThread);
 			}
 			else
 			{
-				m_pollingReadListener = new PollingReadListener(readWriteListener, m_device.getManager().m_mainThreadHandler, m_device.getManager().m_config.postCallbacksToMainThread);
+				//--- Plain adaptive polls still need to know when the value changes, but never need to keep it around.
+				m_tracker = new P_ChangeTracker(/*retainValue=*/false);
+				m_pollingReadListener = new PollingReadListener(readWriteListener, m_device.getManager().m_eventPoster, m_device.getManager().m_config.postCallbacksToMainThread);
 			}
 			
 			m_pollingReadListener.init(this);
 		}
+
+		void setIntervals(final double interval, final double maxInterval)
+		{
+			m_interval = interval;
+			m_maxInterval = Math.max(interval, maxInterval);
+			m_currentInterval = interval;
+		}
+
+		boolean isAdaptive()
+		{
+			return m_maxInterval > m_interval && m_interval > 0.0;
+		}
+
+		/**
+		 * Returns whether the value is different from the last one, adjusting the interval of adaptive polls accordingly.
+		 */
+		boolean onPolledValue(final byte[] value)
+		{
+			//--- Plain polls that aren't adaptive don't care, so don't spend time hashing.
+			final boolean changed = !trackingChanges() && !isAdaptive() || m_tracker.onValue(value);
+
+			if( isAdaptive() )
+			{
+				m_currentInterval = changed ? m_interval : Math.min(m_currentInterval * ADAPTIVE_BACKOFF_FACTOR, m_maxInterval);
+			}
+
+			return changed;
+		}
+
+		double getEffectiveInterval()
+		{
+			return m_currentInterval;
+		}
 		
+		void setPolicy(final BleNotifyPolicy policy_nullable)
+		{
+			if( policy_nullable == null || policy_nullable.getMode() == BleNotifyPolicy.Mode.DELIVER_ALL )
+			{
+				m_throttle = null;
+			}
+			else if( m_throttle == null || m_throttle.getPolicy() != policy_nullable )
+			{
+				m_throttle = new P_NotifyThrottle(policy_nullable);
+			}
+		}
+
 		boolean trackingChanges()
 		{
 			return m_pollingReadListener instanceof TrackingWrappingReadListener;
@@ -141,8 +253,8 @@ class P_PollManager
 		{
 			return
 				usingNotify == m_usingNotify																			&&
-				(m_serviceUuid == null || serviceUuid == null || m_serviceUuid.equals(serviceUuid))						&&
-				charUuid.equals(m_charUuid)																				&&
+				(m_serviceUuid == null || serviceUuid == null || Uuids.areEqual(m_serviceUuid, serviceUuid))						&&
+				Uuids.areEqual(charUuid, m_charUuid)																	&&
 				(Interval.isDisabled(interval_nullable) || interval_nullable == m_interval)								&&
 				(readWriteListener_nullable == null || m_pollingReadListener.hasListener(readWriteListener_nullable))	 ;
 		}
@@ -151,11 +263,11 @@ class P_PollManager
 		{
 			if( serviceUuid == null || m_serviceUuid == null )
 			{
-				return charUuid.equals(m_charUuid);
+				return Uuids.areEqual(charUuid, m_charUuid);
 			}
 			else
 			{
-				return charUuid.equals(m_charUuid) && m_serviceUuid != null && m_serviceUuid.equals(serviceUuid);
+				return Uuids.areEqual(charUuid, m_charUuid) && Uuids.areEqual(m_serviceUuid, serviceUuid);
 			}
 		}
 		
@@ -189,8 +301,30 @@ class P_PollManager
 				}
 				else
 				{
+					//--- Notifications always go through, but later pseudo-notification reads are compared against them.
+					if( trackingChanges() )
+					{
+						m_tracker.onValue(value);
+					}
+
 					ReadWriteEvent result = new ReadWriteEvent(m_device, m_serviceUuid, m_charUuid, null, type, Target.CHARACTERISTIC, value, Status.SUCCESS, gattStatus, 0.0, 0.0, /*solicited=*/true);
-					m_device.invokeReadWriteCallback(m_pollingReadListener, result);
+
+					if( m_throttle == null )
+					{
+						m_device.invokeReadWriteCallback(m_pollingReadListener, result);
+					}
+					else
+					{
+						//--- Every sample is logged, only delivery to listeners is subject to the policy.
+						m_device.addToHistoricalData(result);
+
+						final ReadWriteEvent toDeliver = m_throttle.onNotification(result);
+
+						if( toDeliver != null )
+						{
+							m_device.deliverReadWriteCallback(m_pollingReadListener, toDeliver);
+						}
+					}
 				}
 			}
 			
@@ -203,32 +337,89 @@ class P_PollManager
 			m_timeTracker = 0.0;
 		}
 		
-		void update(double timeStep)
+		/**
+		 * Returns <code>true</code> if an adaptive poll read was sent out.
+		 */
+		boolean update(double timeStep)
 		{
-			if( m_interval <= 0.0 )  return;
-			if( m_interval == Interval.INFINITE.secs() )  return;
+			if( m_throttle != null )
+			{
+				if( m_device.is(BleDeviceState.DISCONNECTED) )
+				{
+					m_throttle.reset();
+				}
+				else
+				{
+					final ReadWriteEvent toDeliver = m_throttle.update(timeStep);
+
+					if( toDeliver != null )
+					{
+						m_device.deliverReadWriteCallback(m_pollingReadListener, toDeliver);
+					}
+				}
+			}
+
+			if( m_interval <= 0.0 )  return false;
+			if( m_interval == Interval.INFINITE.secs() )  return false;
+
+			if( m_device.is(BleDeviceState.DISCONNECTED) )
+			{
+				m_currentInterval = m_interval;
+			}
 			
 			m_timeTracker += timeStep;
 			
-			if( m_timeTracker >= m_interval )
+			if( m_timeTracker >= m_currentInterval )
 			{
 				m_timeTracker = 0.0;
-				
-				if( m_device.is(BleDeviceState.INITIALIZED) && !m_device.is(BleDeviceState.RECONNECTING_SHORT_TERM) )
-				{					
-					if( !m_waitingForResponse )
-					{
-						m_waitingForResponse = true;
-						Type type = trackingChanges() ? Type.PSUEDO_NOTIFICATION : Type.POLL;
-						m_device.read_internal(m_serviceUuid, m_charUuid, Uuids.INVALID, type, m_pollingReadListener);
-					}
+
+				return read();
+			}
+
+			return false;
+		}
+
+		/**
+		 * Called when the device is waking up for another poll anyway, returns <code>true</code> if this entry went along with it.
+		 */
+		boolean alignWithWakeUp()
+		{
+			if( !isAdaptive() )  return false;
+			if( m_waitingForResponse )  return false;
+
+			if( m_timeTracker >= m_currentInterval * WAKE_UP_ALIGNMENT )
+			{
+				m_timeTracker = 0.0;
+
+				return read();
+			}
+
+			return false;
+		}
+
+		private boolean read()
+		{
+			if( m_device.is(BleDeviceState.INITIALIZED) && !m_device.is(BleDeviceState.RECONNECTING_SHORT_TERM) )
+			{
+				if( !m_waitingForResponse )
+				{
+					m_waitingForResponse = true;
+					Type type = trackingChanges() ? Type.PSUEDO_NOTIFICATION : Type.POLL;
+					m_device.read_internal(m_serviceUuid, m_charUuid, Uuids.INVALID, type, m_pollingReadListener);
+
+					return isAdaptive();
 				}
 			}
+
+			return false;
 		}
 	}
 	
 	private final BleDevice m_device;
 	private final ArrayList<CallbackEntry> m_entries = new ArrayList<CallbackEntry>();
+
+	private final AtomicInteger m_changeTrackingHits = new AtomicInteger(0);
+	private final AtomicInteger m_changeTrackingMisses = new AtomicInteger(0);
 	
 
 	P_PollManager(BleDevice device)
@@ -242,10 +433,18 @@ class P_PollManager
 	}
 	
 	void startPoll(final UUID serviceUuid, final UUID charUuid, double interval, ReadWriteListener listener, boolean trackChanges, boolean usingNotify)
+	{
+		startPoll(serviceUuid, charUuid, interval, /*maxInterval=*/interval, listener, trackChanges, usingNotify);
+	}
+
+	/**
+	 * If <code>maxInterval</code> is greater than <code>interval</code> the poll is adaptive, see {@link CallbackEntry#onPolledValue(byte[])}.
+	 */
+	void startPoll(final UUID serviceUuid, final UUID charUuid, double interval, double maxInterval, ReadWriteListener listener, boolean trackChanges, boolean usingNotify)
 	{
 		if( m_device.isNull() )  return;
 		
-		boolean allowDuplicatePollEntries = BleDeviceConfig.bool(m_device.conf_device().allowDuplicatePollEntries, m_device.conf_mngr().allowDuplicatePollEntries);
+		boolean allowDuplicatePollEntries = m_device.conf_effective().allowDuplicatePollEntries;
 		
 		if( !allowDuplicatePollEntries )
 		{
@@ -253,9 +452,9 @@ class P_PollManager
 			{
 				CallbackEntry ithEntry = m_entries.get(i);
 
-				if( ithEntry.m_charUuid.equals(charUuid) )
+				if( Uuids.areEqual(ithEntry.m_charUuid, charUuid) )
 				{
-					ithEntry.m_interval = interval;
+					ithEntry.setIntervals(interval, maxInterval);
 				}
 				
 				if( ithEntry.isFor(serviceUuid, charUuid, interval, /*listener=*/null, usingNotify) )
@@ -270,7 +469,7 @@ class P_PollManager
 			}
 		}
 		
-		CallbackEntry newEntry = new CallbackEntry(m_device, serviceUuid, charUuid, interval, listener, trackChanges, usingNotify);
+		CallbackEntry newEntry = new CallbackEntry(this, m_device, serviceUuid, charUuid, interval, maxInterval, listener, trackChanges, usingNotify);
 		
 		if( usingNotify )
 		{
@@ -296,14 +495,94 @@ class P_PollManager
 		}
 	}
 	
-	void update(double timeStep)
+	void setNotifyPolicy(final UUID serviceUuid, final UUID charUuid, final ReadWriteListener listener_nullable, final BleNotifyPolicy policy_nullable)
+	{
+		for( int i = 0; i < m_entries.size(); i++ )
+		{
+			CallbackEntry ithEntry = m_entries.get(i);
+
+			if( ithEntry.isFor(serviceUuid, charUuid, /*interval=*/null, listener_nullable, /*usingNotify=*/true) )
+			{
+				ithEntry.setPolicy(policy_nullable);
+			}
+		}
+	}
+
+	/**
+	 * Number of change-tracking poll results that were the same as the last value and so weren't passed to the poll's listener.
+	 */
+	int getChangeTrackingHits()
+	{
+		return m_changeTrackingHits.get();
+	}
+
+	/**
+	 * Number of change-tracking poll results that were different from the last value and so were delivered.
+	 */
+	int getChangeTrackingMisses()
+	{
+		return m_changeTrackingMisses.get();
+	}
+
+	/**
+	 * Returns <code>true</code> if any adaptive poll sent out a read, so that {@link P_RssiPollManager} can go along with it.
+	 */
+	boolean update(double timeStep)
+	{
+		boolean woke = false;
+
+		for( int i = 0; i < m_entries.size(); i++ )
+		{
+			CallbackEntry ithEntry = m_entries.get(i);
+
+			woke |= ithEntry.update(timeStep);
+		}
+
+		//--- Adaptive polls that are nearly due anyway go out with the first one, so the radio wakes up once for all of them.
+		if( woke )
+		{
+			alignWithWakeUp();
+		}
+
+		return woke;
+	}
+
+	/**
+	 * Called when the device is waking up for a read anyway, for example an rssi poll, so adaptive polls that are nearly due can go along.
+	 */
+	boolean alignWithWakeUp()
+	{
+		boolean aligned = false;
+
+		for( int i = 0; i < m_entries.size(); i++ )
+		{
+			CallbackEntry ithEntry = m_entries.get(i);
+
+			aligned |= ithEntry.alignWithWakeUp();
+		}
+
+		return aligned;
+	}
+
+	/**
+	 * Returns the interval the fastest poll for the given characteristic is currently running at, which for adaptive polls will be
+	 * somewhere between their minimum and maximum, or {@link Interval#DISABLED} if there's no poll.
+	 */
+	Interval getEffectiveInterval(final UUID serviceUuid, final UUID charUuid)
 	{
+		double interval = Double.POSITIVE_INFINITY;
+
 		for( int i = 0; i < m_entries.size(); i++ )
 		{
 			CallbackEntry ithEntry = m_entries.get(i);
 
-			ithEntry.update(timeStep);
+			if( !ithEntry.usingNotify() && ithEntry.isFor(serviceUuid, charUuid) && ithEntry.m_interval > 0.0 )
+			{
+				interval = Math.min(interval, ithEntry.getEffectiveInterval());
+			}
 		}
+
+		return interval == Double.POSITIVE_INFINITY ? Interval.DISABLED : Interval.secs(interval);
 	}
 	
 	void onCharacteristicChangedFromNativeNotify(final UUID serviceUuid, final UUID charUuid, byte[] value)
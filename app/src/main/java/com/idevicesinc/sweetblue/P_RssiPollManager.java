@@ -1,7 +1,5 @@
 package com.idevicesinc.sweetblue;
 
-import android.os.Handler;
-
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
 
@@ -11,9 +9,9 @@ class P_RssiPollManager
 	{
 		private final P_RssiPollManager m_pollMngr;
 		
-		CustomListener(P_RssiPollManager thisMngr, ReadWriteListener listener, Handler handler, boolean postToMain)
+		CustomListener(P_RssiPollManager thisMngr, ReadWriteListener listener, P_EventPoster poster, boolean postToMain)
 		{
-			super(listener, handler, postToMain);
+			super(listener, poster, postToMain);
 			
 			m_pollMngr = thisMngr;
 		}
@@ -54,7 +52,7 @@ class P_RssiPollManager
 		{
 			m_timeTracker = ENABLE_TIMER;
 			m_interval = interval;
-			m_listener = new CustomListener(this, listener_nullable, m_device.getManager().m_mainThreadHandler, m_device.conf_mngr().postCallbacksToMainThread);
+			m_listener = new CustomListener(this, listener_nullable, m_device.getManager().m_eventPoster, m_device.conf_effective().postCallbacksToMainThread);
 		}
 	}
 	
@@ -71,20 +69,47 @@ class P_RssiPollManager
 		m_waitingOnResponse = false;
 	}
 	
-	void update(double timestep)
+	/**
+	 * Returns <code>true</code> if an rssi read was sent out.
+	 */
+	boolean update(double timestep)
 	{
 		if( m_timeTracker != DISABLE_TIMER )
 		{
 			m_timeTracker += timestep;
 
-			if( m_timeTracker >= m_interval && !m_waitingOnResponse )
+			if( m_timeTracker >= m_interval )
 			{
-				if( m_device.is(BleDeviceState.INITIALIZED) )
-				{
-					m_waitingOnResponse = true;
-					m_device.readRssi_internal(Type.POLL, m_listener);
-				}
+				return read();
 			}
 		}
+
+		return false;
+	}
+
+	/**
+	 * Called when the device is waking up for an adaptive characteristic poll anyway, so an rssi read that's nearly due can go along with it.
+	 */
+	boolean alignWithWakeUp()
+	{
+		if( m_timeTracker != DISABLE_TIMER && m_timeTracker >= m_interval * P_PollManager.WAKE_UP_ALIGNMENT )
+		{
+			return read();
+		}
+
+		return false;
+	}
+
+	private boolean read()
+	{
+		if( !m_waitingOnResponse && m_device.is(BleDeviceState.INITIALIZED) )
+		{
+			m_waitingOnResponse = true;
+			m_device.readRssi_internal(Type.POLL, m_listener);
+
+			return true;
+		}
+
+		return false;
 	}
 }
@@ -18,6 +18,10 @@ class P_TaskQueue
 	private Handler m_executeHandler = null;
 	
 	private int m_currentOrdinal;
+
+	//--- Set when a task ends with nothing queued behind it, so that whatever its callbacks queue up can be started
+	//--- by dequeueIfTaskEnded() once they've returned instead of on the next update.
+	private boolean m_taskEndedWithEmptyQueue = false;
 	
 	P_TaskQueue(BleManager mngr)
 	{
@@ -235,12 +239,36 @@ class P_TaskQueue
 		{			
 			getCurrent().update_internal(timeStep);
 		}
+
+		dequeueIfTaskEnded();
 		
 		m_updateCount++;
 	}
 	
+	/**
+	 * Starts the next task right away if the last one succeeded or timed out with an empty queue, and something has been
+	 * queued since, for example by a {@link BleFuture} continuation or an {@link InlineListener}. Only called once the callbacks
+	 * that could have queued something have returned, at the end of {@link #update(double)} and of native callbacks posted to the
+	 * update thread, so the new task is never started from inside them, see the note in {@link #add_mainThread(PA_Task)}.
+	 */
+	void dequeueIfTaskEnded()
+	{
+		if( !m_taskEndedWithEmptyQueue )  return;
+
+		m_taskEndedWithEmptyQueue = false;
+
+		if( m_executeHandler == null )  return;
+
+		if( getCurrent() == null && m_queue.size() > 0 )
+		{
+			dequeue();
+		}
+	}
+	
 	private boolean dequeue()
 	{
+		m_taskEndedWithEmptyQueue = false;
+
 		if( !m_mngr.ASSERT(m_current == null) )  return false;
 		if( m_queue.size() == 0 )  return false;
 		
@@ -308,6 +336,10 @@ class P_TaskQueue
 				});
 			}
 		}
+		else if( endingState.canGoToNextTaskImmediately() )
+		{
+			m_taskEndedWithEmptyQueue = true;
+		}
 		
 		print();
 		
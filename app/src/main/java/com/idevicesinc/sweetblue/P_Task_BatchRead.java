@@ -0,0 +1,276 @@
+package com.idevicesinc.sweetblue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import com.idevicesinc.sweetblue.BleDevice.BatchReadListener;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
+import com.idevicesinc.sweetblue.utils.Utils;
+
+/**
+ * Reads several characteristics one after the other while staying the current task, so the device's lane isn't given up
+ * between reads. Each read gets its own timeout from {@link BleNodeConfig#taskTimeoutRequestFilter} as if it were a {@link P_Task_Read},
+ * see {@link #timeout()} for what happens when one runs out.
+ */
+class P_Task_BatchRead extends PA_Task_Transactionable implements PA_Task.I_StateListener
+{
+	private final BatchReadListener m_listener;
+
+	private final UUID[] m_serviceUuids;
+	private final UUID[] m_charUuids;
+	private final ReadWriteEvent[] m_results;
+
+	private int m_index = -1;
+	private long m_readStartTime = 0;
+
+	//--- Read that timed out but whose native callback hasn't come back yet, or -1.
+	private int m_timedOutIndex = -1;
+	private boolean m_delivered = false;
+
+	/**
+	 * Entries of <code>results</code> that are already filled in, with a <code>null</code> in <code>characteristics</code> at the
+	 * same index, are skipped.
+	 */
+	P_Task_BatchRead(BleDevice device, List<BluetoothGattCharacteristic> characteristics, ReadWriteEvent[] results, boolean requiresBonding, BatchReadListener listener, BleTransaction txn, PE_TaskPriority priority)
+	{
+		super(device, txn, requiresBonding, priority);
+
+		m_listener = listener;
+		m_results = results;
+		m_serviceUuids = new UUID[results.length];
+		m_charUuids = new UUID[results.length];
+
+		for( int i = 0; i < characteristics.size(); i++ )
+		{
+			final BluetoothGattCharacteristic char_ith = characteristics.get(i);
+
+			if( char_ith != null )
+			{
+				m_serviceUuids[i] = char_ith.getService().getUuid();
+				m_charUuids[i] = char_ith.getUuid();
+			}
+		}
+
+		m_index = nextIndex(-1);
+	}
+
+	boolean isDone()
+	{
+		return m_index >= m_results.length;
+	}
+
+	private int nextIndex(int index)
+	{
+		index++;
+
+		while( index < m_results.length && m_results[index] != null )
+		{
+			index++;
+		}
+
+		return index;
+	}
+
+	@Override protected UUID getCharUuid()
+	{
+		return m_index >= 0 && m_index < m_charUuids.length ? m_charUuids[m_index] : super.getCharUuid();
+	}
+
+	public boolean isFor(final BluetoothGattCharacteristic characteristic)
+	{
+		final int index = m_timedOutIndex >= 0 ? m_timedOutIndex : m_index;
+
+		return
+				index >= 0 && index < m_charUuids.length &&
+				characteristic.getUuid().equals(m_charUuids[index]) &&
+				characteristic.getService().getUuid().equals(m_serviceUuids[index]);
+	}
+
+	@Override public void execute()
+	{
+		readCurrent();
+	}
+
+	private void readCurrent()
+	{
+		while( !isDone() )
+		{
+			final BluetoothGattCharacteristic char_native = getDevice().getNativeCharacteristic(m_serviceUuids[m_index], m_charUuids[m_index]);
+
+			if( char_native == null )
+			{
+				setResult(Status.NO_MATCHING_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, null);
+			}
+			else
+			{
+				m_readStartTime = System.currentTimeMillis();
+
+				if( getDevice().getNativeGatt().readCharacteristic(char_native) )
+				{
+					//--- Each read gets a fresh timeout, the first one was already set up when we started executing.
+					resetTimeout(getInitialTimeout());
+
+					return;
+				}
+				else
+				{
+					setResult(Status.FAILED_TO_SEND_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, null);
+				}
+			}
+		}
+
+		succeed();
+	}
+
+	private void setResult(final Status status, final int gattStatus, final byte[] data)
+	{
+		final double transitTime = m_readStartTime != 0 ? (System.currentTimeMillis() - m_readStartTime) / 1000.0 : 0.0;
+
+		m_results[m_index] = new ReadWriteEvent(getDevice(), m_serviceUuids[m_index], m_charUuids[m_index], ReadWriteEvent.NON_APPLICABLE_UUID, Type.READ, Target.CHARACTERISTIC, data, status, gattStatus, getTotalTime(), transitTime, /*solicited=*/true);
+
+		m_readStartTime = 0;
+		m_index = nextIndex(m_index);
+	}
+
+	public void onCharacteristicRead(BluetoothGatt gatt, UUID uuid, byte[] value, int gattStatus)
+	{
+		getManager().ASSERT(gatt == getDevice().getNativeGatt());
+
+		if( m_timedOutIndex >= 0 )
+		{
+			//--- The read that timed out finally came back, so the stack is free for the next one. Its result stays TIMED_OUT.
+			m_timedOutIndex = -1;
+
+			readCurrent();
+
+			return;
+		}
+
+		if( Utils.isSuccess(gattStatus) )
+		{
+			if( value == null )
+			{
+				setResult(Status.NULL_DATA, gattStatus, null);
+
+				getManager().uhOh(UhOh.READ_RETURNED_NULL);
+			}
+			else if( value.length == 0 )
+			{
+				setResult(Status.EMPTY_DATA, gattStatus, null);
+			}
+			else
+			{
+				final double transitTime = (System.currentTimeMillis() - m_readStartTime) / 1000.0;
+
+				getDevice().addReadTime(transitTime);
+
+				//--- The last read is picked up by the base class when the task as a whole succeeds.
+				if( nextIndex(m_index) < m_results.length )
+				{
+					BleNodeConfig.onTaskExecuted(getManager(), getDevice(), getTaskType(), transitTime);
+				}
+
+				final int index = m_index;
+
+				setResult(Status.SUCCESS, gattStatus, value);
+
+				//--- Logged as each read completes so it's timestamped like a single read would be, and kept however the rest of the batch goes.
+				getDevice().addToHistoricalData(m_results[index]);
+			}
+		}
+		else
+		{
+			setResult(Status.REMOTE_GATT_FAILURE, gattStatus, null);
+		}
+
+		readCurrent();
+	}
+
+	/**
+	 * A read that times out only fails that target. The native stack only does one read at a time and is still busy with it though, so
+	 * the batch waits up to another timeout for its callback before moving on to the next one. The batch times out as a whole if the
+	 * callback doesn't come, or if it was the last read.
+	 */
+	@Override protected void timeout()
+	{
+		if( isDone() || m_timedOutIndex >= 0 || nextIndex(m_index) >= m_results.length )
+		{
+			super.timeout();
+
+			return;
+		}
+
+		getLogger().w(getLogger().charName(getCharUuid()) + " batched read timed out!");
+
+		//--- Same sample the base class reports for a timed out task.
+		BleNodeConfig.onTaskExecuted(getManager(), getDevice(), getTaskType(), getTimeExecutingSinceTimeoutReset());
+
+		m_timedOutIndex = m_index;
+
+		setResult(Status.TIMED_OUT, BleStatuses.GATT_STATUS_NOT_APPLICABLE, null);
+
+		getManager().uhOh(UhOh.READ_TIMED_OUT);
+
+		//--- Anything sent before the callback would just fail to send out.
+		resetTimeout(getInitialTimeout());
+	}
+
+	@Override public void onStateChange(PA_Task task, PE_TaskState state)
+	{
+		if( state == PE_TaskState.SUCCEEDED )
+		{
+			finish(Status.SUCCESS);
+		}
+		else if( state == PE_TaskState.TIMED_OUT )
+		{
+			getLogger().w(getLogger().charName(getCharUuid()) + " batched read timed out!");
+
+			finish(Status.TIMED_OUT);
+
+			getManager().uhOh(UhOh.READ_TIMED_OUT);
+		}
+		else if( state == PE_TaskState.SOFTLY_CANCELLED || state == PE_TaskState.CANCELLED || state == PE_TaskState.CLEARED_FROM_QUEUE )
+		{
+			finish(getCancelType());
+		}
+		else if( state.isEndingState() )
+		{
+			finish(Status.NOT_CONNECTED);
+		}
+	}
+
+	/**
+	 * Fills in whatever wasn't read with the given status and delivers the batch, unless that already happened.
+	 */
+	private void finish(final Status status_remaining)
+	{
+		if( m_delivered )  return;
+
+		m_delivered = true;
+
+		while( !isDone() )
+		{
+			setResult(status_remaining, BleStatuses.GATT_STATUS_NOT_APPLICABLE, null);
+		}
+
+		getDevice().invokeBatchReadCallback(m_listener, new BatchReadListener.BatchReadEvent(getDevice(), Arrays.asList(m_results), getTotalTime()));
+	}
+
+	@Override protected String getToStringAddition()
+	{
+		return getLogger().uuidName(getCharUuid()) + " " + Math.min(m_index, m_results.length) + "/" + m_results.length;
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.READ;
+	}
+}
@@ -84,7 +84,7 @@ class P_Task_Bond extends PA_Task_RequiresBleOn
 
     private boolean createBond()
     {
-        final boolean useLeTransportForBonding = BleDeviceConfig.bool(getDevice().conf_device().useLeTransportForBonding, getDevice().conf_mngr().useLeTransportForBonding);
+        final boolean useLeTransportForBonding = getDevice().conf_effective().useLeTransportForBonding;
 
         if (useLeTransportForBonding)
         {
@@ -7,6 +7,7 @@ import com.idevicesinc.sweetblue.BleManager.UhOhListener.UhOh;
 class P_Task_DiscoverServices extends PA_Task_RequiresConnection
 {
 	private int m_gattStatus = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
+	private boolean m_usedGattSchemaCache = false;
 	
 	public P_Task_DiscoverServices(BleDevice bleDevice, I_StateListener listener)
 	{
@@ -15,14 +16,29 @@ class P_Task_DiscoverServices extends PA_Task_RequiresConnection
 
 	@Override public void execute()
 	{
-//		if( !getDevice().getNativeGatt().getServices().isEmpty() )
+		getDevice().serviceMngr_device().clearIndex();
+
+		final P_GattSchemaCache schemaCache = getManager().m_gattSchemaCache;
+
+		m_usedGattSchemaCache = schemaCache.isValid(getDevice());
+
+		//--- If the gatt object held on to its services (e.g. reconnecting through the same gatt instance) and they match
+		//--- what we cached last time, there's nothing for discovery to tell us.
+		if( m_usedGattSchemaCache && schemaCache.matchesNative(getDevice(), getDevice().getNativeGatt().getServices()) )
 		{
-			final boolean useRefresh = BleDeviceConfig.bool(getDevice().conf_device().useGattRefresh, getDevice().conf_mngr().useGattRefresh);
-			
-			if( useRefresh )
-			{
-				refresh();
-			}
+			getDevice().serviceMngr_device().buildIndex();
+
+			succeed();
+
+			return;
+		}
+
+		final boolean useRefresh = getDevice().conf_effective().useGattRefresh;
+
+		//--- A valid cached schema means the stack's own cache can be trusted, so skip the costly from-scratch rediscovery.
+		if( useRefresh && !m_usedGattSchemaCache )
+		{
+			refresh();
 		}
 		
 		if( !getDevice().getNativeGatt().discoverServices() )
@@ -67,6 +83,11 @@ class P_Task_DiscoverServices extends PA_Task_RequiresConnection
 	{
 		return m_gattStatus;
 	}
+
+	public boolean usedGattSchemaCache()
+	{
+		return m_usedGattSchemaCache;
+	}
 	
 	@Override protected BleTask getTaskType()
 	{
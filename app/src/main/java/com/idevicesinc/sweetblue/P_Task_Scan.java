@@ -78,17 +78,12 @@ class P_Task_Scan extends PA_Task_RequiresBleOn
 
 		private void onBatchScanResults_mainThread(final List<L_Util.ScanResult> results)
 		{
-			if( results != null )
+			if( results != null && !results.isEmpty() )
 			{
-				for( int i = 0; i < results.size(); i++ )
-				{
-					final L_Util.ScanResult result_ith = results.get(i);
+				getManager().m_stateTracker.remove(BleManagerState.STARTING_SCAN, E_Intent.INTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE);
+				getManager().m_stateTracker.append(BleManagerState.SCANNING, getIntent(), BleStatuses.GATT_STATUS_NOT_APPLICABLE);
 
-					if( result_ith != null )
-					{
-						onScanResult_mainThread(CallbackType_UNKNOWN, result_ith);
-					}
-				}
+				getManager().onDiscoveredFromNativeStack_batch(results);
 			}
 		}
 
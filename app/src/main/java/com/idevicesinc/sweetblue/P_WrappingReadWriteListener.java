@@ -1,7 +1,5 @@
 package com.idevicesinc.sweetblue;
 
-import android.os.Handler;
-
 import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
 
 /**
@@ -12,9 +10,9 @@ class P_WrappingReadWriteListener extends PA_CallbackWrapper implements ReadWrit
 {
 	private final ReadWriteListener m_listener;
 	
-	P_WrappingReadWriteListener(ReadWriteListener listener, Handler handler, boolean postToMain)
+	P_WrappingReadWriteListener(ReadWriteListener listener, P_EventPoster poster, boolean postToMain)
 	{
-		super(handler, postToMain);
+		super(poster, postToMain);
 		
 		m_listener = listener;
 	}
@@ -23,15 +21,9 @@ class P_WrappingReadWriteListener extends PA_CallbackWrapper implements ReadWrit
 	{
 		if( listener == null )  return;
 		
-		if( postToMain() )
+		if( postToMain(listener) )
 		{
-			m_handler.post(new Runnable()
-			{
-				@Override public void run()
-				{
-					listener.onEvent(result);
-				}
-			});
+			m_poster.post(listener, result);
 		}
 		else
 		{
@@ -2,7 +2,6 @@ package com.idevicesinc.sweetblue;
 
 import java.util.ArrayList;
 
-import android.os.Handler;
 
 /**
  * 
@@ -13,9 +12,9 @@ class P_WrappingResetListener extends PA_CallbackWrapper implements BleManager.R
 {
 	private final ArrayList<BleManager.ResetListener> m_listeners = new ArrayList<BleManager.ResetListener>();
 	
-	P_WrappingResetListener(BleManager.ResetListener listener, Handler handler, boolean postToMain)
+	P_WrappingResetListener(BleManager.ResetListener listener, P_EventPoster poster, boolean postToMain)
 	{
-		super(handler, postToMain);
+		super(poster, postToMain);
 
 		m_listeners.add(listener);
 	}
@@ -40,7 +39,7 @@ class P_WrappingResetListener extends PA_CallbackWrapper implements BleManager.R
 		
 		if( postToMain() )
 		{
-			m_handler.post(runnable);
+			m_poster.post(runnable);
 		}
 		else
 		{
@@ -16,6 +16,12 @@ import java.util.UUID;
 /**
  * Defines a specification for an interface over an in-memory list of historical data that optionally syncs to/from
  * disk using an implementation of {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase}.
+ * <br><br>
+ * Methods that add, delete, or load are only called from SweetBlue's update thread. When {@link com.idevicesinc.sweetblue.BleNodeConfig#allowReadsFromAllThreads}
+ * is <code>true</code> though, {@link #getCount(EpochTimeRange)}, {@link #get(EpochTimeRange, int)}, {@link #getIterator(EpochTimeRange)},
+ * {@link #doForEach(EpochTimeRange, Object)}, {@link #getCursor(EpochTimeRange)}, {@link #getLoadState()}, and {@link #getRange()} can be called from
+ * any thread while those writes are happening, with no snapshot in between, so implementations must be safe for that. They must never return
+ * <code>null</code> or throw because of a concurrent write, and should at worst return a result from just before or just after it.
  */
 public interface Backend_HistoricalDataList
 {
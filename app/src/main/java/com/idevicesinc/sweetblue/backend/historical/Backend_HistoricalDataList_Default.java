@@ -17,12 +17,17 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.UUID;
 
+/**
+ * Default implementation of {@link Backend_HistoricalDataList} that keeps only the latest piece of data in memory.
+ * Reads can come from any thread, see {@link Backend_HistoricalDataList}, so every method reads the current data once
+ * into a local and works off of that.
+ */
 public class Backend_HistoricalDataList_Default implements Backend_HistoricalDataList
 {
 	private static final Iterator<HistoricalData> EMPTY_ITERATOR = new EmptyIterator<HistoricalData>();
 	private static final HistoricalDataCursor EMPTY_CURSOR = new P_HistoricalDataCursor_Empty();
 
-	private HistoricalData m_data = null;
+	private volatile HistoricalData m_data = null;
 
 	private String m_macAddress;
 	private Backend_HistoricalDatabase m_database;
@@ -40,9 +45,9 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 		m_macAddress = macAddress;
 	}
 
-	private boolean isDataInRange(final EpochTimeRange range)
+	private static boolean isDataInRange(final HistoricalData data, final EpochTimeRange range)
 	{
-		return m_data != null && m_data.getEpochTime().isBetween_inclusive(range);
+		return data != null && data.getEpochTime().isBetween_inclusive(range);
 	}
 
 	private void printWarning_read()
@@ -77,12 +82,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 	{
 		if( persistenceLevel == BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_NONE )  return;
 
-		if( limit <= 0 )
-		{
-			m_data = null;
-		}
-
-		final boolean alreadyHadData = m_data != null;
+		final boolean alreadyHadData = limit > 0 && m_data != null;
 
 		m_data = historicalData;
 
@@ -118,7 +118,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public int getCount(EpochTimeRange range)
 	{
-		if( isDataInRange(range) )
+		if( isDataInRange(m_data, range) )
 		{
 			return 1;
 		}
@@ -130,7 +130,9 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public HistoricalData get(EpochTimeRange range, int offset)
 	{
-		if( isDataInRange(range) )
+		final HistoricalData data = m_data;
+
+		if( isDataInRange(data, range) )
 		{
 			if( offset > 0 )
 			{
@@ -140,7 +142,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 			}
 			else
 			{
-				return m_data;
+				return data;
 			}
 		}
 		else
@@ -151,13 +153,19 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public Iterator<HistoricalData> getIterator(EpochTimeRange range)
 	{
-		if( isDataInRange(range) )
+		final HistoricalData data = m_data;
+
+		if( isDataInRange(data, range) )
 		{
-			return new SingleElementIterator<HistoricalData>(m_data)
+			return new SingleElementIterator<HistoricalData>(data)
 			{
 				@Override protected void onRemove()
 				{
-					m_data = null;
+					//--- Leave it alone if something newer was added since the iterator was made.
+					if( m_data == data )
+					{
+						m_data = null;
+					}
 				}
 			};
 		}
@@ -169,17 +177,19 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public boolean doForEach(EpochTimeRange range, Object forEach)
 	{
-		if( isDataInRange(range) )
+		final HistoricalData data = m_data;
+
+		if( isDataInRange(data, range) )
 		{
 			if( forEach instanceof ForEach_Void )
 			{
-				((ForEach_Void)forEach).next(m_data);
+				((ForEach_Void)forEach).next(data);
 
 				return true;
 			}
 			else if( forEach instanceof ForEach_Breakable )
 			{
-				((ForEach_Breakable)forEach).next(m_data);
+				((ForEach_Breakable)forEach).next(data);
 
 				return true;
 			}
@@ -196,7 +206,7 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public void delete_fromMemoryOnly(EpochTimeRange range, long count)
 	{
-		if( count > 0 && isDataInRange(range) )
+		if( count > 0 && isDataInRange(m_data, range) )
 		{
 			m_data = null;
 		}
@@ -238,12 +248,14 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public HistoricalDataCursor getCursor(EpochTimeRange range)
 	{
-		if( m_data != null )
+		final HistoricalData data = m_data;
+
+		if( data != null )
 		{
 			final ArrayList<HistoricalData> list = new ArrayList<HistoricalData>();
-			list.add(m_data);
+			list.add(data);
 
-			P_HistoricalDataIndexCache indexCache = new P_HistoricalDataIndexCache(m_data.getEpochTime(), m_data.getEpochTime(), 0, 0);
+			P_HistoricalDataIndexCache indexCache = new P_HistoricalDataIndexCache(data.getEpochTime(), data.getEpochTime(), 0, 0);
 
 			return new P_HistoricalDataCursor_List(list, indexCache);
 		}
@@ -255,9 +267,11 @@ public class Backend_HistoricalDataList_Default implements Backend_HistoricalDat
 
 	@Override public EpochTimeRange getRange()
 	{
-		if( m_data != null )
+		final HistoricalData data = m_data;
+
+		if( data != null )
 		{
-			return EpochTimeRange.instant(m_data.getEpochTime());
+			return EpochTimeRange.instant(data.getEpochTime());
 		}
 		else
 		{
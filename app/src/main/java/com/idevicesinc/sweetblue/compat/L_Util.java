@@ -9,7 +9,7 @@ import com.idevicesinc.sweetblue.BleDevice;
 import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.utils.Interval;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 
@@ -29,9 +29,15 @@ public class L_Util
 
     public static class ScanResult
     {
-        private BluetoothDevice device;
-        private int rssi;
-        private byte[] record;
+        private final BluetoothDevice device;
+        private final int rssi;
+        private final byte[] record;
+
+        public ScanResult(BluetoothDevice device, int rssi, byte[] record) {
+            this.device = device;
+            this.rssi = rssi;
+            this.record = record;
+        }
 
         public BluetoothDevice getDevice() {
             return device;
@@ -49,20 +55,21 @@ public class L_Util
     private static ScanCallback m_UserCallback;
 
     private static ScanResult toLScanResult(android.bluetooth.le.ScanResult result) {
-        ScanResult res = new ScanResult();
-        res.device = result.getDevice();
-        res.rssi = result.getRssi();
-        res.record = result.getScanRecord().getBytes();
-        return res;
+        return new ScanResult(result.getDevice(), result.getRssi(), result.getScanRecord().getBytes());
     }
 
-    private static List<ScanResult> toLScanResults(List<android.bluetooth.le.ScanResult> results) {
-        int size = results.size();
-        List<ScanResult> res = new ArrayList<ScanResult>(size);
-        for (int i = 0; i < size; i++) {
-            res.add(toLScanResult(results.get(i)));
-        }
-        return res;
+    // Wraps rather than copies, so each result is only converted when (and if) it's actually read.
+    private static List<ScanResult> toLScanResults(final List<android.bluetooth.le.ScanResult> results) {
+        return new AbstractList<ScanResult>() {
+            @Override public ScanResult get(int location) {
+                final android.bluetooth.le.ScanResult result = results.get(location);
+                return result != null ? toLScanResult(result) : null;
+            }
+
+            @Override public int size() {
+                return results.size();
+            }
+        };
     }
 
     private static android.bluetooth.le.ScanCallback m_callback = new android.bluetooth.le.ScanCallback()
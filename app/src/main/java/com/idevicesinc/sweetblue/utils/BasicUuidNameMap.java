@@ -2,6 +2,7 @@ package com.idevicesinc.sweetblue.utils;
 
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.idevicesinc.sweetblue.BleManagerConfig;
 
@@ -16,6 +17,7 @@ import com.idevicesinc.sweetblue.BleManagerConfig;
 public class BasicUuidNameMap implements UuidNameMap
 {
 	private final HashMap<String, String> m_dict = new HashMap<String, String>();
+	private final AtomicInteger m_version = new AtomicInteger(0);
 	
 	/**
 	 * Add a {@link UUID}-to-debug name entry.
@@ -23,10 +25,24 @@ public class BasicUuidNameMap implements UuidNameMap
 	public void add(String uuid, String name)
 	{
 		m_dict.put(uuid, name);
+		m_version.incrementAndGet();
 	}
 	
 	@Override public String getUuidName(String uuid)
 	{
 		return m_dict.get(uuid);
 	}
+
+	/**
+	 * Changes every time {@link #add(String, String)} is called, so {@link UuidNameMap_Index} knows to rebuild.
+	 */
+	int getVersion()
+	{
+		return m_version.get();
+	}
+
+	HashMap<String, String> getDict()
+	{
+		return m_dict;
+	}
 }
@@ -1,9 +1,24 @@
 package com.idevicesinc.sweetblue.utils;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * Queue of listener/event pairs that any number of threads can {@link #add(GenericListener_Void, Event)} to
+ * and one thread drains with {@link #dispatch()}, in the order they were added. Slots are preallocated in a ring buffer
+ * so adding an event doesn't allocate, and neither adding nor dispatching takes a lock while the ring has room.
+ * If the ring fills up, {@link #add(GenericListener_Void, Event)} spills to a locked overflow list until the next
+ * {@link #dispatch()} catches up, so events are never dropped or reordered. Use {@link #offer(GenericListener_Void, Event)}
+ * to be told the ring is full instead.
+ */
 public class EventQueue
 {
+	/**
+	 * Default capacity used by {@link #EventQueue()}.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
 	private static class DispatchEntry
 	{
 		private final GenericListener_Void listener;
@@ -16,39 +31,183 @@ public class EventQueue
 		}
 	}
 
-	private final ArrayList<DispatchEntry> m_queue = new ArrayList<DispatchEntry>();
+	private final int m_mask;
+	private final GenericListener_Void[] m_listeners;
+	private final Event[] m_events;
+
+	//--- Each slot's sequence is its position when free for a producer to claim, and position + 1 once the
+	//--- event in it is published, which is what the consumer waits for before reading the slot.
+	private final AtomicLongArray m_sequences;
+	private final AtomicLong m_tail = new AtomicLong(0);
+	private volatile long m_head = 0;
+
+	//--- Set while anything is in the overflow list so that later adds line up behind it instead of jumping ahead into the ring.
+	private volatile boolean m_overflowing = false;
+	private ArrayList<DispatchEntry> m_overflow = new ArrayList<DispatchEntry>();
+	private final Object m_overflowLock = new Object();
 
 	public EventQueue()
 	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a queue whose ring buffer holds at least the given number of undispatched events, rounded up to a power of two.
+	 */
+	public EventQueue(final int capacity)
+	{
+		int size = 1;
+
+		while( size < capacity )
+		{
+			size <<= 1;
+		}
+
+		m_mask = size - 1;
+		m_listeners = new GenericListener_Void[size];
+		m_events = new Event[size];
+		m_sequences = new AtomicLongArray(size);
+
+		for( int i = 0; i < size; i++ )
+		{
+			m_sequences.set(i, i);
+		}
 	}
 
+	/**
+	 * Adds an event to be delivered to the given listener on the next {@link #dispatch()}. Safe to call from any thread.
+	 * Does nothing if either argument is <code>null</code>.
+	 */
 	public <T_Event extends Event> void add(final GenericListener_Void<T_Event> listener_nullable, final T_Event event_nullable)
 	{
-		if( listener_nullable != null && event_nullable != null )
+		if( listener_nullable == null || event_nullable == null )  return;
+
+		if( !m_overflowing && claim(listener_nullable, event_nullable) )  return;
+
+		synchronized (m_overflowLock)
 		{
-			final DispatchEntry entry = new DispatchEntry(listener_nullable, event_nullable);
+			m_overflowing = true;
 
-			m_queue.add(entry);
+			m_overflow.add(new DispatchEntry(listener_nullable, event_nullable));
 		}
 	}
 
+	/**
+	 * Same as {@link #add(GenericListener_Void, Event)} but returns <code>false</code> instead of adding the event if the ring buffer
+	 * is full or holding events back behind ones that overflowed it, or if either argument is <code>null</code>.
+	 */
+	public <T_Event extends Event> boolean offer(final GenericListener_Void<T_Event> listener_nullable, final T_Event event_nullable)
+	{
+		if( listener_nullable == null || event_nullable == null )  return false;
+
+		return !m_overflowing && claim(listener_nullable, event_nullable);
+	}
+
+	private boolean claim(final GenericListener_Void listener, final Event event)
+	{
+		long position;
+
+		while( true )
+		{
+			position = m_tail.get();
+
+			final long sequence = m_sequences.get((int) position & m_mask);
+
+			if( sequence == position )
+			{
+				if( m_tail.compareAndSet(position, position + 1) )  break;
+			}
+			else if( sequence < position )
+			{
+				return false;
+			}
+		}
+
+		final int index = (int) position & m_mask;
+
+		m_listeners[index] = listener;
+		m_events[index] = event;
+		m_sequences.set(index, position + 1);
+
+		return true;
+	}
+
+	/**
+	 * Delivers every event added before this call, in order. Must only be called from one thread at a time.
+	 */
+	@SuppressWarnings("unchecked")
 	public void dispatch()
 	{
+		//--- Taken before reading the tail, so whatever a producer put in the ring before it overflowed is sure to be drained first.
+		final ArrayList<DispatchEntry> overflow = m_overflowing ? takeOverflow() : null;
+
 		//--- DRK > For now purposely not dispatching recursive additions in order to force async behavior.
-		final int size = m_queue.size();
+		final long end = m_tail.get();
 
-		for( int i = 0; i < size; i++ )
+		while( m_head < end )
+		{
+			final long head = m_head;
+			final int index = (int) head & m_mask;
+
+			//--- A producer claimed this slot but hasn't published yet. It'll be picked up next time.
+			if( m_sequences.get(index) != head + 1 )  break;
+
+			final GenericListener_Void listener = m_listeners[index];
+			final Event event = m_events[index];
+
+			m_listeners[index] = null;
+			m_events[index] = null;
+			m_sequences.set(index, head + m_listeners.length);
+
+			m_head = head + 1;
+
+			listener.onEvent(event);
+		}
+
+		if( overflow == null )  return;
+
+		//--- Everything in the overflow list was added after the ring filled up, so it has to wait for the ring to be drained up to where it overflowed.
+		if( m_head < end )
 		{
-			final DispatchEntry entry = m_queue.get(i);
+			synchronized (m_overflowLock)
+			{
+				overflow.addAll(m_overflow);
+				m_overflow = overflow;
+			}
+
+			return;
+		}
+
+		for( int i = 0; i < overflow.size(); i++ )
+		{
+			final DispatchEntry entry = overflow.get(i);
 
 			entry.listener.onEvent(entry.event);
+		}
 
-			m_queue.set(i, null);
+		synchronized (m_overflowLock)
+		{
+			m_overflowing = !m_overflow.isEmpty();
 		}
+	}
 
-		while( m_queue.size() > 0 && m_queue.get(0) == null )
+	private ArrayList<DispatchEntry> takeOverflow()
+	{
+		synchronized (m_overflowLock)
 		{
-			m_queue.remove(0);
+			final ArrayList<DispatchEntry> overflow = m_overflow;
+
+			m_overflow = new ArrayList<DispatchEntry>();
+
+			return overflow;
 		}
 	}
+
+	/**
+	 * Returns <code>true</code> if there are no events waiting to be dispatched. Only accurate when called from the dispatching thread.
+	 */
+	public boolean isEmpty()
+	{
+		return m_tail.get() == m_head && !m_overflowing;
+	}
 }
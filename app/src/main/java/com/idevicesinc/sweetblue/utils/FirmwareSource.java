@@ -0,0 +1,35 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Provide an implementation of this interface to {@link com.idevicesinc.sweetblue.BleWriteTransaction#add(java.util.UUID, java.util.UUID, FirmwareSource)}
+ * (or read from it yourself in a {@link com.idevicesinc.sweetblue.BleTransaction.Ota} subclass) to stream a firmware image
+ * to a peripheral without ever holding the whole image in memory. Data is pulled on demand, one chunk per write, into a buffer
+ * that is owned and reused by the caller.
+ *
+ * @see FirmwareSource_IntelHex
+ * @see FirmwareSource_Binary
+ * @see FirmwareSource_MappedFile
+ */
+public interface FirmwareSource extends Closeable
+{
+	/**
+	 * Special value returned by {@link #size()} if the total size of the image isn't known ahead of time.
+	 */
+	public static final long SIZE_UNKNOWN = -1;
+
+	/**
+	 * Copies up to <code>length</code> bytes of the image into <code>buffer</code> starting at <code>offset</code>, blocking until
+	 * either <code>length</code> bytes are available or the end of the image is reached.
+	 *
+	 * @return The number of bytes copied, or <code>-1</code> if the end of the image was already reached.
+	 */
+	int read(byte[] buffer, int offset, int length) throws IOException;
+
+	/**
+	 * Returns the total number of image bytes this source will produce, or {@link #SIZE_UNKNOWN}.
+	 */
+	long size();
+}
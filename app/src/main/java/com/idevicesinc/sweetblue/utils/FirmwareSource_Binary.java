@@ -0,0 +1,82 @@
+package com.idevicesinc.sweetblue.utils;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Implementation of {@link FirmwareSource} for a raw binary image read from any {@link InputStream}, for example an asset.
+ */
+public class FirmwareSource_Binary implements FirmwareSource
+{
+	private final InputStream m_stream;
+	private final long m_size;
+
+	/**
+	 * Wraps the given stream. Pass {@link FirmwareSource#SIZE_UNKNOWN} for <code>size</code> if you don't know it.
+	 */
+	public FirmwareSource_Binary(final InputStream stream, final long size)
+	{
+		m_stream = stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream);
+		m_size = size;
+	}
+
+	/**
+	 * Convenience factory method to stream a raw binary image out of your app's assets. {@link #size()} returns
+	 * {@link FirmwareSource#SIZE_UNKNOWN} if the asset is compressed in the APK, since only uncompressed assets have a known length.
+	 */
+	public static FirmwareSource_Binary fromAsset(final Context context, final String file) throws IOException
+	{
+		final AssetManager assets = context.getAssets();
+		long size = SIZE_UNKNOWN;
+
+		//--- InputStream.available() is only what can be read without blocking, not the size of the asset.
+		try
+		{
+			final AssetFileDescriptor descriptor = assets.openFd(file);
+
+			size = descriptor.getLength();
+
+			descriptor.close();
+		}
+		catch( IOException e )
+		{
+			//--- Compressed assets can't be opened as a file descriptor, so the size just isn't known.
+		}
+
+		return new FirmwareSource_Binary(assets.open(file), size);
+	}
+
+	@Override public int read(final byte[] buffer, final int offset, final int length) throws IOException
+	{
+		int total = 0;
+
+		while( total < length )
+		{
+			final int read = m_stream.read(buffer, offset + total, length - total);
+
+			if( read == -1 )
+			{
+				break;
+			}
+
+			total += read;
+		}
+
+		return total == 0 && length > 0 ? -1 : total;
+	}
+
+	@Override public long size()
+	{
+		return m_size;
+	}
+
+	@Override public void close() throws IOException
+	{
+		m_stream.close();
+	}
+}
@@ -0,0 +1,192 @@
+package com.idevicesinc.sweetblue.utils;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Implementation of {@link FirmwareSource} that decodes an Intel-HEX text image on the fly. Only the payload of data records
+ * is produced, back-to-back in file order - gaps in the address space are not padded. Records are parsed straight from the
+ * underlying stream into a single reusable record buffer, so no per-line {@link String} or <code>byte[]</code> is allocated.
+ * <br><br>
+ * Extended segment and extended linear address records are honored when comparing against the offset passed to the constructor.
+ * <br><br>
+ * NOTE: This is not what {@link Utils_Byte#fileToBinaryDataList(Context, String, int)} produces. That returns every record,
+ * header and address included, so the list-based OTA flow sends one whole record per write, which is what bootloaders that parse
+ * Intel-HEX records themselves expect. Only use this source for peripherals that take the raw image, and keep using the record list otherwise.
+ */
+public class FirmwareSource_IntelHex implements FirmwareSource
+{
+	private static final int MAX_RECORD_LENGTH = 255 + 5;
+
+	private static final int TYPE_DATA					= 0x00;
+	private static final int TYPE_EOF					= 0x01;
+	private static final int TYPE_EXTENDED_SEGMENT		= 0x02;
+	private static final int TYPE_EXTENDED_LINEAR		= 0x04;
+
+	private final InputStream m_stream;
+	private final long m_offset;
+	private final byte[] m_record = new byte[MAX_RECORD_LENGTH];
+
+	private long m_baseAddress = 0;
+	private int m_recordPosition = 0;
+	private int m_recordEnd = 0;
+	private boolean m_reachedEnd = false;
+
+	/**
+	 * Overload of {@link #FirmwareSource_IntelHex(InputStream, long)} with no offset.
+	 */
+	public FirmwareSource_IntelHex(final InputStream stream)
+	{
+		this(stream, 0);
+	}
+
+	/**
+	 * Data records whose address is below <code>offset</code> are skipped, same as {@link Utils_Byte#fileToBinaryDataList(Context, String, int)}.
+	 */
+	public FirmwareSource_IntelHex(final InputStream stream, final long offset)
+	{
+		m_stream = stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream);
+		m_offset = offset;
+	}
+
+	/**
+	 * Convenience factory method to stream an Intel-HEX image out of your app's assets.
+	 */
+	public static FirmwareSource_IntelHex fromAsset(final Context context, final String file, final long offset) throws IOException
+	{
+		return new FirmwareSource_IntelHex(context.getAssets().open(file), offset);
+	}
+
+	@Override public int read(final byte[] buffer, final int offset, final int length) throws IOException
+	{
+		int total = 0;
+
+		while( total < length )
+		{
+			if( m_recordPosition == m_recordEnd )
+			{
+				if( !nextDataRecord() )
+				{
+					break;
+				}
+			}
+
+			final int count = Math.min(length - total, m_recordEnd - m_recordPosition);
+
+			System.arraycopy(m_record, m_recordPosition, buffer, offset + total, count);
+
+			m_recordPosition += count;
+			total += count;
+		}
+
+		return total == 0 && length > 0 ? -1 : total;
+	}
+
+	/**
+	 * Always returns {@link FirmwareSource#SIZE_UNKNOWN} because the decoded size can't be known without parsing the whole file.
+	 */
+	@Override public long size()
+	{
+		return SIZE_UNKNOWN;
+	}
+
+	@Override public void close() throws IOException
+	{
+		m_stream.close();
+	}
+
+	private boolean nextDataRecord() throws IOException
+	{
+		while( !m_reachedEnd )
+		{
+			if( !readRecord() )
+			{
+				m_reachedEnd = true;
+
+				break;
+			}
+
+			final int dataLength = m_record[0] & 0xff;
+			final int type = m_record[3] & 0xff;
+
+			if( type == TYPE_DATA )
+			{
+				final long address = m_baseAddress + (((m_record[1] & 0xff) << 8) | (m_record[2] & 0xff));
+
+				if( address < m_offset || dataLength == 0 )
+				{
+					continue;
+				}
+
+				m_recordPosition = 4;
+				m_recordEnd = 4 + dataLength;
+
+				return true;
+			}
+			else if( type == TYPE_EOF )
+			{
+				m_reachedEnd = true;
+			}
+			else if( type == TYPE_EXTENDED_SEGMENT )
+			{
+				m_baseAddress = (long) (((m_record[4] & 0xff) << 8) | (m_record[5] & 0xff)) << 4;
+			}
+			else if( type == TYPE_EXTENDED_LINEAR )
+			{
+				m_baseAddress = (long) (((m_record[4] & 0xff) << 8) | (m_record[5] & 0xff)) << 16;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean readRecord() throws IOException
+	{
+		int c;
+
+		do
+		{
+			c = m_stream.read();
+		}
+		while( c != -1 && c != ':' );
+
+		if( c == -1 )
+		{
+			return false;
+		}
+
+		m_record[0] = readHexByte();
+
+		final int recordLength = (m_record[0] & 0xff) + 5;
+		int checksum = m_record[0];
+
+		for( int i = 1; i < recordLength; i++ )
+		{
+			m_record[i] = readHexByte();
+			checksum += m_record[i];
+		}
+
+		if( (checksum & 0xff) != 0 )
+		{
+			throw new IOException("Intel-HEX record checksum mismatch.");
+		}
+
+		return true;
+	}
+
+	private byte readHexByte() throws IOException
+	{
+		final int high = Character.digit(m_stream.read(), 16);
+		final int low = Character.digit(m_stream.read(), 16);
+
+		if( high == -1 || low == -1 )
+		{
+			throw new IOException("Malformed Intel-HEX record.");
+		}
+
+		return (byte) ((high << 4) | low);
+	}
+}
@@ -0,0 +1,61 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Implementation of {@link FirmwareSource} for a raw binary image on the file system. The file is memory-mapped so that
+ * reads are serviced straight out of the page cache and nothing but the caller's chunk buffer lives on the Java heap.
+ */
+public class FirmwareSource_MappedFile implements FirmwareSource
+{
+	private final RandomAccessFile m_file;
+	private final MappedByteBuffer m_buffer;
+
+	public FirmwareSource_MappedFile(final File file) throws IOException
+	{
+		m_file = new RandomAccessFile(file, "r");
+
+		try
+		{
+			final FileChannel channel = m_file.getChannel();
+
+			m_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch(IOException e)
+		{
+			m_file.close();
+
+			throw e;
+		}
+	}
+
+	@Override public int read(final byte[] buffer, final int offset, final int length)
+	{
+		final int remaining = m_buffer.remaining();
+
+		if( remaining == 0 && length > 0 )
+		{
+			return -1;
+		}
+
+		final int count = Math.min(length, remaining);
+
+		m_buffer.get(buffer, offset, count);
+
+		return count;
+	}
+
+	@Override public long size()
+	{
+		return m_buffer.capacity();
+	}
+
+	@Override public void close() throws IOException
+	{
+		m_file.close();
+	}
+}
@@ -36,4 +36,9 @@ public class ReflectionUuidNameMap implements UuidNameMap
 		uuid = uuid.toLowerCase();
 		return m_dict.get(uuid);
 	}
+
+	HashMap<String, String> getDict()
+	{
+		return m_dict;
+	}
 }
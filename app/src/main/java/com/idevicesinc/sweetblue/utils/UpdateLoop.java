@@ -5,6 +5,8 @@ import android.os.Looper;
 
 import com.idevicesinc.sweetblue.PI_UpdateLoop;
 
+import java.util.concurrent.Executor;
+
 /**
  * Zero-dependency (besides Android) utility class for creating an update loop.
  */
@@ -34,6 +36,7 @@ public class UpdateLoop implements PI_UpdateLoop
 	private long m_autoUpdateRate = 0;
 	private Handler m_handler;
 	private final Callback m_callback;
+	private final Executor m_executor;
 
 	
 	public static UpdateLoop newMainThreadLoop(Callback callback)
@@ -46,6 +49,16 @@ public class UpdateLoop implements PI_UpdateLoop
 		return new UpdateLoop(callback, false);
 	}
 
+	/**
+	 * Returns a loop that hands everything posted to it to the given {@link Executor} instead of running it on a dedicated thread,
+	 * for example so that many loops can share a bounded pool of threads. Such a loop can't be {@link #start(double)}ed,
+	 * {@link #getHandler()} returns <code>null</code>, and {@link #postIfNeeded(Runnable)} always posts.
+	 */
+	public static UpdateLoop newExecutorLoop(final Executor executor)
+	{
+		return new UpdateLoop(executor);
+	}
+
 	public static UpdateLoop newAnonThreadLoop()
 	{
 		return new UpdateLoop(new Callback()
@@ -60,10 +73,17 @@ public class UpdateLoop implements PI_UpdateLoop
 	private UpdateLoop(Callback callback, boolean runOnMainThread)
 	{
 		m_callback = callback;
+		m_executor = null;
 		
 		initHandler(runOnMainThread);
 	}
 
+	private UpdateLoop(final Executor executor)
+	{
+		m_callback = null;
+		m_executor = executor;
+	}
+
 	@Override
 	public boolean isRunning()
 	{
@@ -110,6 +130,7 @@ public class UpdateLoop implements PI_UpdateLoop
 	public void start(double updateRate)
 	{
 		if( updateRate == 0.0 )  return;
+		if( m_executor != null )  return;
 		
 		if( /*already*/m_isRunning )
 		{
@@ -148,6 +169,13 @@ public class UpdateLoop implements PI_UpdateLoop
 	@Override
 	public void forcePost(Runnable runnable)
 	{
+		if( m_executor != null )
+		{
+			m_executor.execute(runnable);
+
+			return;
+		}
+
 		waitForHandler();
 
 		m_handler.postDelayed(runnable, 1);
@@ -157,6 +185,8 @@ public class UpdateLoop implements PI_UpdateLoop
 	@Override
 	public Handler getHandler()
 	{
+		if( m_executor != null )  return null;
+
 		waitForHandler();
 
 		return m_handler;
@@ -165,12 +195,21 @@ public class UpdateLoop implements PI_UpdateLoop
 	@Override
 	public boolean postNeeded()
 	{
+		if( m_executor != null )  return true;
+
 		return m_handler.getLooper().getThread() != Thread.currentThread();
 	}
 
 	@Override
 	public void postIfNeeded(Runnable runnable)
 	{
+		if( m_executor != null )
+		{
+			m_executor.execute(runnable);
+
+			return;
+		}
+
 		waitForHandler();
 
 		m_handler.post(runnable);
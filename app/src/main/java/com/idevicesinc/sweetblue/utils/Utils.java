@@ -3,6 +3,7 @@ package com.idevicesinc.sweetblue.utils;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.UUID;
 
 import android.Manifest;
@@ -228,7 +229,7 @@ public class Utils
 
 			for(int i = 0; i < advertisedIds.size(); i++)
 			{
-				if(lookedForIds.contains(advertisedIds.get(i)))
+				if(containsUuid(lookedForIds, advertisedIds.get(i)))
 				{
 					match = true;
 					break;
@@ -242,6 +243,28 @@ public class Utils
 		return true;
 	}
 
+	private static boolean containsUuid(final Collection<UUID> uuids, final UUID uuid)
+	{
+		if( uuids instanceof List && uuids instanceof RandomAccess )
+		{
+			final List<UUID> list = (List<UUID>) uuids;
+
+			for( int i = 0; i < list.size(); i++ )
+			{
+				if( Uuids.areEqual(list.get(i), uuid) )
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+		else
+		{
+			return uuids.contains(uuid);
+		}
+	}
+
 	public static boolean hasPermission(Context context, String permission)
 	{
 		int res = context.checkCallingOrSelfPermission(permission);
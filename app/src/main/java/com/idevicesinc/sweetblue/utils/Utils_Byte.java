@@ -45,15 +45,37 @@ public class Utils_Byte extends Utils
 		return baos.toByteArray();
 	}
 
+	/**
+	 * Reads an entire Intel-HEX asset into memory, one <code>byte[]</code> per record (minus the checksum), in reverse order.
+	 * For large images going to a peripheral that takes the raw image rather than records, prefer {@link FirmwareSource_IntelHex},
+	 * which streams just the payload of data records on demand instead.
+	 */
 	public static List<byte[]> fileToBinaryDataList(Context context, String file, int offset)
+	{
+		final InputStream stream;
+
+		try
+		{
+			stream = context.getAssets().open(file);
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+
+		return streamToBinaryDataList(stream, offset);
+	}
+
+	/**
+	 * Same as {@link #fileToBinaryDataList(Context, String, int)} but reads from any {@link InputStream}, which is closed when done.
+	 */
+	public static List<byte[]> streamToBinaryDataList(InputStream stream, int offset)
 	{
 		List<byte[]> binaryData = new ArrayList<byte[]>();
 		BufferedReader reader = null;
 
 		try
 		{
-			InputStream stream = context.getAssets().open(file);
-
 			String currentLine;
 			reader = new BufferedReader(new InputStreamReader(stream));
 
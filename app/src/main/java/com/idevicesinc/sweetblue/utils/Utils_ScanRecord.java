@@ -72,7 +72,6 @@ public class Utils_ScanRecord extends Utils
 	/** Length of bytes for 128 bit UUID */
 	private static final int UUID_BYTES_128_BIT = 16;
 
-	private static final ParcelUuid BASE_UUID = ParcelUuid.fromString("00000000-0000-1000-8000-00805F9B34FB");
 
 	/**
 	 *
@@ -156,8 +155,7 @@ public class Utils_ScanRecord extends Utils
 					try
 					{
 						int serviceUuidLength = UUID_BYTES_16_BIT;
-						byte[] serviceDataUuidBytes = extractBytes(scanRecord, currentPos, serviceUuidLength);
-						UUID serviceDataUuid = parseUuidFrom(serviceDataUuidBytes);
+						UUID serviceDataUuid = parseUuidFrom(scanRecord, currentPos, serviceUuidLength);
 						byte[] serviceDataArray = extractBytes(scanRecord, currentPos + serviceUuidLength, dataLength - serviceUuidLength);
 						serviceData.put(serviceDataUuid, serviceDataArray);
 					}
@@ -273,8 +271,7 @@ public class Utils_ScanRecord extends Utils
 						// The first two bytes of the service data are service data UUID in little
 						// endian. The rest bytes are service data.
 						int serviceUuidLength = UUID_BYTES_16_BIT;
-						byte[] serviceDataUuidBytes = extractBytes(scanRecord, currentPos, serviceUuidLength);
-						UUID serviceDataUuid = parseUuidFrom(serviceDataUuidBytes);
+						UUID serviceDataUuid = parseUuidFrom(scanRecord, currentPos, serviceUuidLength);
 						byte[] serviceDataArray = extractBytes(scanRecord, currentPos + serviceUuidLength, dataLength - serviceUuidLength);
 
 						if( serviceData_out_nullable != null )
@@ -356,11 +353,9 @@ public class Utils_ScanRecord extends Utils
 		{
 			while( dataLength > 0 )
 			{
-				byte[] uuidBytes = extractBytes(scanRecord, currentPos, uuidLength);
-
 				if( serviceUuids_nullable != null )
 				{
-					serviceUuids_nullable.add(parseUuidFrom(uuidBytes));
+					serviceUuids_nullable.add(parseUuidFrom(scanRecord, currentPos, uuidLength));
 				}
 
 				dataLength -= uuidLength;
@@ -384,54 +379,53 @@ public class Utils_ScanRecord extends Utils
 	}
 
 	/**
-	 * Parse UUID from bytes. The {@code uuidBytes} can represent a 16-bit, 32-bit or 128-bit UUID,
-	 * but the returned UUID is always in 128-bit format.
+	 * Parse UUID from bytes. The {@code length} bytes at {@code offset} can represent a 16-bit, 32-bit or 128-bit UUID,
+	 * but the returned UUID is always in 128-bit format. 16-bit and 32-bit UUIDs are built arithmetically and all UUIDs
+	 * are canonicalized through {@link Uuids#intern(UUID)}, so the same advertised UUID doesn't produce a new instance every scan.
 	 * Note UUID is little endian in Bluetooth.
 	 *
-	 * @param uuidBytes Byte representation of uuid.
-	 * @return {@link ParcelUuid} parsed from bytes.
-	 * @throws IllegalArgumentException If the {@code uuidBytes} cannot be parsed.
+	 * @throws IllegalArgumentException If the bytes cannot be parsed.
 	 */
-	private static UUID parseUuidFrom(byte[] uuidBytes)
+	private static UUID parseUuidFrom(final byte[] scanRecord, final int offset, final int length)
 	{
-		if( uuidBytes == null )
+		if( scanRecord == null )
 		{
 			throw new IllegalArgumentException("uuidBytes cannot be null");
 		}
-		int length = uuidBytes.length;
 		if( length != UUID_BYTES_16_BIT && length != UUID_BYTES_32_BIT &&
 				length != UUID_BYTES_128_BIT )
 		{
 			throw new IllegalArgumentException("uuidBytes length invalid - " + length);
 		}
+		if( offset + length > scanRecord.length )
+		{
+			throw new IllegalArgumentException("uuidBytes out of bounds - " + offset);
+		}
 
 		// Construct a 128 bit UUID.
 		if( length == UUID_BYTES_128_BIT )
 		{
-			ByteBuffer buf = ByteBuffer.wrap(uuidBytes).order(ByteOrder.LITTLE_ENDIAN);
-			long msb = buf.getLong(8);
-			long lsb = buf.getLong(0);
-			return new UUID(msb, lsb);
+			ByteBuffer buf = ByteBuffer.wrap(scanRecord, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+			long msb = buf.getLong(offset + 8);
+			long lsb = buf.getLong(offset);
+			return Uuids.intern(new UUID(msb, lsb));
 		}
 
 		// For 16 bit and 32 bit UUID we need to convert them to 128 bit value.
 		// 128_bit_value = uuid * 2^96 + BASE_UUID
-		long shortUuid;
+		int shortUuid;
 		if( length == UUID_BYTES_16_BIT )
 		{
-			shortUuid = uuidBytes[0] & 0xFF;
-			shortUuid += (uuidBytes[1] & 0xFF) << 8;
+			shortUuid = scanRecord[offset] & 0xFF;
+			shortUuid += (scanRecord[offset + 1] & 0xFF) << 8;
 		}
 		else
 		{
-			shortUuid = uuidBytes[0] & 0xFF;
-			shortUuid += (uuidBytes[1] & 0xFF) << 8;
-			shortUuid += (uuidBytes[2] & 0xFF) << 16;
-			shortUuid += (uuidBytes[3] & 0xFF) << 24;
+			shortUuid = scanRecord[offset] & 0xFF;
+			shortUuid += (scanRecord[offset + 1] & 0xFF) << 8;
+			shortUuid += (scanRecord[offset + 2] & 0xFF) << 16;
+			shortUuid += (scanRecord[offset + 3] & 0xFF) << 24;
 		}
-		long msb = BASE_UUID.getUuid().getMostSignificantBits() + (shortUuid << 32);
-		long lsb = BASE_UUID.getUuid().getLeastSignificantBits();
-		return new UUID(msb, lsb);
-
+		return Uuids.fromInt(shortUuid);
 	}
 }
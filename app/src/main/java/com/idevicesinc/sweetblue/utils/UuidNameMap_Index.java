@@ -0,0 +1,199 @@
+package com.idevicesinc.sweetblue.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Implementation of {@link UuidNameMap} that merges the {@link ReflectionUuidNameMap} and {@link BasicUuidNameMap} instances in a
+ * {@link java.util.List} into a single {@link UUID}-keyed index up front, so that {@link #getUuidName(UUID)} is a hash lookup with no
+ * string conversion. Resolution follows the same rules as {@link UuidNameMap_ListWrapper}, i.e. later maps in the list take precedence.
+ * <br><br>
+ * The index only ever holds entries of those maps, no matter how many different {@link UUID}s are looked up, and is rebuilt as soon as an
+ * entry is added to one of the {@link BasicUuidNameMap} instances. Any other implementation in the list could change in ways this class
+ * can't see, so it's asked on every call, but only if it comes after the map the index found the name in.
+ */
+public class UuidNameMap_Index implements UuidNameMap
+{
+	private static final class Entry
+	{
+		private final String m_name;
+		private final int m_position;
+
+		private Entry(final String name, final int position)
+		{
+			m_name = name;
+			m_position = position;
+		}
+	}
+
+	private static final class Index
+	{
+		private final int m_version;
+		private final HashMap<UUID, Entry> m_entries = new HashMap<UUID, Entry>();
+
+		private Index(final int version)
+		{
+			m_version = version;
+		}
+	}
+
+	private final UuidNameMap_ListWrapper m_maps;
+	private final UuidNameMap[] m_indexedMaps;
+	private final int[] m_indexedPositions;
+	private final BasicUuidNameMap[] m_basicMaps;
+	private final UuidNameMap[] m_customMaps;
+	private final int[] m_customPositions;
+
+	//--- Never modified once published, a change to a BasicUuidNameMap builds a new one instead.
+	private volatile Index m_index;
+
+	public UuidNameMap_Index(final List<UuidNameMap> maps_nullable)
+	{
+		final ArrayList<UuidNameMap> indexedMaps = new ArrayList<UuidNameMap>();
+		final ArrayList<Integer> indexedPositions = new ArrayList<Integer>();
+		final ArrayList<BasicUuidNameMap> basicMaps = new ArrayList<BasicUuidNameMap>();
+		final ArrayList<UuidNameMap> customMaps = new ArrayList<UuidNameMap>();
+		final ArrayList<Integer> customPositions = new ArrayList<Integer>();
+
+		if( maps_nullable != null )
+		{
+			for( int i = 0; i < maps_nullable.size(); i++ )
+			{
+				final UuidNameMap map_ith = maps_nullable.get(i);
+
+				if( map_ith instanceof ReflectionUuidNameMap || map_ith instanceof BasicUuidNameMap )
+				{
+					indexedMaps.add(map_ith);
+					indexedPositions.add(i);
+
+					if( map_ith instanceof BasicUuidNameMap )
+					{
+						basicMaps.add((BasicUuidNameMap) map_ith);
+					}
+				}
+				else if( map_ith != null )
+				{
+					customMaps.add(map_ith);
+					customPositions.add(i);
+				}
+			}
+		}
+
+		m_maps = new UuidNameMap_ListWrapper(maps_nullable);
+		m_indexedMaps = indexedMaps.toArray(new UuidNameMap[indexedMaps.size()]);
+		m_indexedPositions = toArray(indexedPositions);
+		m_basicMaps = basicMaps.toArray(new BasicUuidNameMap[basicMaps.size()]);
+		m_customMaps = customMaps.toArray(new UuidNameMap[customMaps.size()]);
+		m_customPositions = toArray(customPositions);
+		m_index = newIndex(getVersion());
+	}
+
+	/**
+	 * Returns the debug name of the given {@link UUID}, or its string representation if it has none.
+	 */
+	public String getUuidName(final UUID uuid)
+	{
+		final Entry entry = getIndex().m_entries.get(uuid);
+
+		if( m_customMaps.length > 0 )
+		{
+			final int position = entry != null ? entry.m_position : -1;
+			final String uuid_string = uuid.toString();
+
+			for( int i = m_customMaps.length - 1; i >= 0 && m_customPositions[i] > position; i-- )
+			{
+				final String name = m_customMaps[i].getUuidName(uuid_string);
+
+				if( name != null )  return name;
+			}
+		}
+
+		return entry != null ? entry.m_name : uuid.toString();
+	}
+
+	@Override public String getUuidName(final String uuid)
+	{
+		return m_maps.getUuidName(uuid);
+	}
+
+	private Index getIndex()
+	{
+		final Index index = m_index;
+
+		if( m_basicMaps.length == 0 )  return index;
+
+		final int version = getVersion();
+
+		if( index.m_version == version )  return index;
+
+		final Index newIndex = newIndex(version);
+		m_index = newIndex;
+
+		return newIndex;
+	}
+
+	private Index newIndex(final int version)
+	{
+		final Index index = new Index(version);
+
+		for( int i = 0; i < m_indexedMaps.length; i++ )
+		{
+			final UuidNameMap map_ith = m_indexedMaps[i];
+			final Map<String, String> dict = map_ith instanceof BasicUuidNameMap ? ((BasicUuidNameMap) map_ith).getDict() : ((ReflectionUuidNameMap) map_ith).getDict();
+
+			for( Map.Entry<String, String> entry : dict.entrySet() )
+			{
+				final UUID uuid = parse(entry.getKey());
+
+				if( uuid != null && entry.getValue() != null )
+				{
+					index.m_entries.put(uuid, new Entry(entry.getValue(), m_indexedPositions[i]));
+				}
+			}
+		}
+
+		return index;
+	}
+
+	//--- Versions only ever go up, so any add() to any of the maps changes the sum.
+	private int getVersion()
+	{
+		int version = 0;
+
+		for( int i = 0; i < m_basicMaps.length; i++ )
+		{
+			version += m_basicMaps[i].getVersion();
+		}
+
+		return version;
+	}
+
+	private static int[] toArray(final List<Integer> list)
+	{
+		final int[] array = new int[list.size()];
+
+		for( int i = 0; i < array.length; i++ )
+		{
+			array[i] = list.get(i);
+		}
+
+		return array;
+	}
+
+	private static UUID parse(final String uuid_nullable)
+	{
+		if( uuid_nullable == null )  return null;
+
+		try
+		{
+			return UUID.fromString(uuid_nullable);
+		}
+		catch( IllegalArgumentException e )
+		{
+			return null;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package com.idevicesinc.sweetblue.utils;
 
+import java.util.HashMap;
 import java.util.UUID;
 
 /**
@@ -18,6 +19,16 @@ public class Uuids
 	 * This is used to generate some of the other static {@link UUID} instances in this class using {@link #fromShort(String, String)}.
 	 */
 	public static final String STANDARD_UUID_TEMPLATE								= "00000000-0000-1000-8000-00805f9b34fb";
+
+	/**
+	 * The most significant bits of {@link #STANDARD_UUID_TEMPLATE} with the assigned number portion zeroed out.
+	 */
+	public static final long STANDARD_UUID_MSB										= 0x0000000000001000L;
+
+	/**
+	 * The least significant bits of {@link #STANDARD_UUID_TEMPLATE}.
+	 */
+	public static final long STANDARD_UUID_LSB										= 0x800000805f9b34fbL;
 	
 	public static final UUID GENERIC_ATTRIBUTES_SERVICE_UUID 						= fromShort("1801");
 	public static final UUID GENERIC_ACCESS_SERVICE_UUID							= fromShort("1800");
@@ -84,7 +95,7 @@ public class Uuids
 	 */
 	public static UUID fromShort(short assignedNumber)
 	{
-		return fromShort(assignedNumber, STANDARD_UUID_TEMPLATE);
+		return fromAssignedNumber(assignedNumber & 0xffffL);
 	}
 	
 	/**
@@ -103,6 +114,11 @@ public class Uuids
 	 */
 	public static UUID fromShort(short assignedNumber, String uuidTemplate)
 	{
+		if( STANDARD_UUID_TEMPLATE.equals(uuidTemplate) )
+		{
+			return fromShort(assignedNumber);
+		}
+
 		String hex = Integer.toHexString(assignedNumber & 0xffff);
 		
 		return fromShort(hex, uuidTemplate);
@@ -131,14 +147,23 @@ public class Uuids
 
 		if( assignedNumber_earlyOut(assignedNumber, 4) )  return INVALID;
 
+		if( STANDARD_UUID_TEMPLATE.equals(uuidTemplate) && isHex(assignedNumber) )
+		{
+			return fromAssignedNumber(Long.parseLong(assignedNumber, 16));
+		}
+
 		String uuid = uuidTemplate.substring(0, 4) + padAssignedNumber(assignedNumber, 4) + uuidTemplate.substring(8, uuidTemplate.length());
 
 		return fromString(uuid);
 	}
 
+	/**
+	 * Returns the {@link UUID} for a 32-bit assigned number using {@link #STANDARD_UUID_TEMPLATE}, computed arithmetically and
+	 * canonicalized through the same cache as {@link #fromShort(short)}.
+	 */
 	public static UUID fromInt(final int assignedNumber)
 	{
-		return fromInt(assignedNumber, STANDARD_UUID_TEMPLATE);
+		return fromAssignedNumber(assignedNumber & 0xffffffffL);
 	}
 
 	/**
@@ -146,6 +171,11 @@ public class Uuids
 	 */
 	public static UUID fromInt(int assignedNumber, String uuidTemplate)
 	{
+		if( STANDARD_UUID_TEMPLATE.equals(uuidTemplate) )
+		{
+			return fromInt(assignedNumber);
+		}
+
 		final String hex = Integer.toHexString(assignedNumber);
 
 		return fromInt(hex, uuidTemplate);
@@ -173,6 +203,11 @@ public class Uuids
 
 		if( assignedNumber_earlyOut(assignedNumber, 8) )  return INVALID;
 
+		if( STANDARD_UUID_TEMPLATE.equals(uuidTemplate) && isHex(assignedNumber) )
+		{
+			return fromAssignedNumber(Long.parseLong(assignedNumber, 16));
+		}
+
 		String uuid = padAssignedNumber(assignedNumber, 8) + uuidTemplate.substring(8, uuidTemplate.length());
 
 		return fromString(uuid);
@@ -202,10 +237,137 @@ public class Uuids
 	 */
 	public static int getInt(final UUID uuid)
 	{
-		final String firstChunk = uuid.toString().substring(0, 8);
-		final int toReturn = Integer.parseInt(firstChunk, 16);
+		return (int) (uuid.getMostSignificantBits() >>> 32);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given {@link UUID} was built from {@link #STANDARD_UUID_TEMPLATE}, i.e. it's a 16-bit or 32-bit
+	 * Bluetooth SIG assigned number that can be recovered with {@link #getInt(UUID)}.
+	 */
+	public static boolean isStandard(final UUID uuid)
+	{
+		return uuid.getLeastSignificantBits() == STANDARD_UUID_LSB && (uuid.getMostSignificantBits() & 0xffffffffL) == STANDARD_UUID_MSB;
+	}
+
+	/**
+	 * Null-safe equality check that compares by identity first, then by the two underlying <code>long</code>s, so it's
+	 * cheap to call on hot paths with {@link UUID}s returned from {@link #intern(UUID)}, {@link #fromShort(short)}, etc.
+	 */
+	public static boolean areEqual(final UUID one, final UUID another)
+	{
+		if( one == another )
+		{
+			return true;
+		}
+		else if( one == null || another == null )
+		{
+			return false;
+		}
+		else
+		{
+			return one.getLeastSignificantBits() == another.getLeastSignificantBits() && one.getMostSignificantBits() == another.getMostSignificantBits();
+		}
+	}
 
-		return toReturn;
+	/**
+	 * Returns a canonical instance equal to the given {@link UUID}, so that frequently seen service and characteristic
+	 * {@link UUID}s share one instance and can be compared by identity. The cache is bounded, so once it's full new
+	 * {@link UUID}s are simply returned as-is.
+	 */
+	public static UUID intern(final UUID uuid)
+	{
+		if( uuid == null )
+		{
+			return null;
+		}
+		else if( isStandard(uuid) )
+		{
+			return InternCache.s_assignedNumbers.get(uuid.getMostSignificantBits() >>> 32, uuid);
+		}
+		else
+		{
+			return InternCache.intern(uuid);
+		}
+	}
+
+	private static UUID fromAssignedNumber(final long assignedNumber)
+	{
+		return InternCache.s_assignedNumbers.get(assignedNumber, null);
+	}
+
+	/**
+	 * Lazily initialized so that it's available to the static {@link UUID} constants above regardless of declaration order.
+	 */
+	private static final class InternCache
+	{
+		private static final int MAX_SIZE = 4096;
+
+		private static final AssignedNumberTable s_assignedNumbers = new AssignedNumberTable(1024);
+		private static final HashMap<UUID, UUID> s_uuids = new HashMap<UUID, UUID>();
+
+		private static UUID intern(final UUID uuid)
+		{
+			synchronized (s_uuids)
+			{
+				final UUID existing = s_uuids.get(uuid);
+
+				if( existing != null )
+				{
+					return existing;
+				}
+				else if( s_uuids.size() < MAX_SIZE )
+				{
+					s_uuids.put(uuid, uuid);
+				}
+
+				return uuid;
+			}
+		}
+	}
+
+	/**
+	 * Open-addressed map from 16/32-bit assigned number to {@link UUID}, so lookups don't need to box the key or build a {@link UUID} first.
+	 */
+	private static final class AssignedNumberTable
+	{
+		private final long[] m_keys;
+		private final UUID[] m_values;
+		private final int m_mask;
+		private int m_size = 0;
+
+		private AssignedNumberTable(final int capacity)
+		{
+			m_keys = new long[capacity];
+			m_values = new UUID[capacity];
+			m_mask = capacity - 1;
+		}
+
+		private synchronized UUID get(final long assignedNumber, final UUID instance_nullable)
+		{
+			int index = ((int) assignedNumber * 0x9E3779B9) & m_mask;
+
+			while( m_values[index] != null )
+			{
+				if( m_keys[index] == assignedNumber )
+				{
+					return m_values[index];
+				}
+
+				index = (index + 1) & m_mask;
+			}
+
+			final UUID uuid = instance_nullable != null ? instance_nullable : new UUID(STANDARD_UUID_MSB | (assignedNumber << 32), STANDARD_UUID_LSB);
+
+			// Keep the load factor low and stop caching once full, the UUID is still valid just not canonical.
+			if( m_size < (m_keys.length * 3) / 4 )
+			{
+				m_keys[index] = assignedNumber;
+				m_values[index] = uuid;
+				m_size++;
+			}
+
+			return uuid;
+		}
 	}
 
 	public static UUID random()
@@ -239,6 +401,19 @@ public class Uuids
 		}
 	}
 
+	private static boolean isHex(final String string)
+	{
+		for( int i = 0; i < string.length(); i++ )
+		{
+			if( Character.digit(string.charAt(i), 16) == -1 )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	private static String chopOffHexPrefix(final String string)
 	{
 		if( hasHexPrefix(string) )
@@ -0,0 +1,170 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class AdaptivePollTest extends BaseInternalTest
+{
+
+    private static final UUID CHAR_UUID = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+    private static final UUID OTHER_CHAR_UUID = UUID.fromString("0000ffe2-0000-1000-8000-00805f9b34fb");
+
+    private static final ReadWriteListener NO_OP = new ReadWriteListener()
+    {
+        @Override public void onEvent(ReadWriteEvent e)
+        {
+        }
+    };
+
+
+    @Test
+    public void backsOffWhileUnchangedTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+
+        device.startAdaptivePoll(CHAR_UUID, Interval.secs(1.0), Interval.secs(5.0), NO_OP);
+
+        final P_PollManager.PollingReadListener listener = listener(device);
+
+        assertEquals(1.0, interval(device), 0.0);
+
+        //--- First value is always a change.
+        assertTrue(listener.onPolledValue(new byte[]{ 1 }));
+        assertEquals(1.0, interval(device), 0.0);
+
+        listener.onPolledValue(new byte[]{ 1 });
+        assertEquals(2.0, interval(device), 0.0);
+
+        listener.onPolledValue(new byte[]{ 1 });
+        assertEquals(4.0, interval(device), 0.0);
+
+        //--- Capped at the max rather than doubling past it.
+        listener.onPolledValue(new byte[]{ 1 });
+        assertEquals(5.0, interval(device), 0.0);
+
+        listener.onPolledValue(new byte[]{ 1 });
+        assertEquals(5.0, interval(device), 0.0);
+
+        //--- Snaps straight back to the min on a change.
+        listener.onPolledValue(new byte[]{ 2 });
+        assertEquals(1.0, interval(device), 0.0);
+    }
+
+    @Test
+    public void changeTrackingBacksOffTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+
+        device.startAdaptiveChangeTrackingPoll(CHAR_UUID, Interval.secs(0.5), Interval.secs(4.0), NO_OP);
+
+        final P_PollManager.PollingReadListener listener = listener(device);
+
+        listener.onPolledValue(new byte[]{ 1 });
+        listener.onPolledValue(new byte[]{ 1 });
+        listener.onPolledValue(new byte[]{ 1 });
+
+        assertEquals(2.0, interval(device), 0.0);
+        assertEquals(2, device.getChangeTrackingHitCount());
+
+        listener.onPolledValue(new byte[]{ 1, 0 });
+
+        assertEquals(0.5, interval(device), 0.0);
+    }
+
+    @Test
+    public void fixedPollsKeepTheirIntervalTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+
+        device.startPoll(CHAR_UUID, Interval.secs(1.0), NO_OP);
+
+        final P_PollManager.PollingReadListener listener = listener(device);
+
+        //--- Plain polls that aren't adaptive don't look at the value at all.
+        assertTrue(listener.onPolledValue(new byte[]{ 1 }));
+        assertTrue(listener.onPolledValue(new byte[]{ 1 }));
+        assertEquals(1.0, interval(device), 0.0);
+
+        assertEquals(Interval.DISABLED, device.getEffectivePollInterval(OTHER_CHAR_UUID));
+    }
+
+    @Test
+    public void disconnectResetsIntervalTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+
+        device.startAdaptivePoll(CHAR_UUID, Interval.secs(1.0), Interval.secs(8.0), NO_OP);
+
+        final P_PollManager.PollingReadListener listener = listener(device);
+
+        listener.onPolledValue(new byte[]{ 1 });
+        listener.onPolledValue(new byte[]{ 1 });
+        listener.onPolledValue(new byte[]{ 1 });
+
+        assertEquals(4.0, interval(device), 0.0);
+        assertTrue(device.is(BleDeviceState.DISCONNECTED));
+
+        //--- No read goes out for a disconnected device, and the backoff starts over.
+        assertFalse(pollManager(device).update(0.1));
+        assertEquals(1.0, interval(device), 0.0);
+    }
+
+    @Test
+    public void restartingReplacesIntervalsTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+
+        device.startAdaptivePoll(CHAR_UUID, Interval.secs(1.0), Interval.secs(8.0), NO_OP);
+
+        final P_PollManager.PollingReadListener listener = listener(device);
+
+        listener.onPolledValue(new byte[]{ 1 });
+        listener.onPolledValue(new byte[]{ 1 });
+
+        assertEquals(2.0, interval(device), 0.0);
+
+        //--- Same as for fixed polls, starting another poll of the characteristic changes the interval of the existing one.
+        device.startPoll(CHAR_UUID, Interval.secs(3.0), NO_OP);
+
+        assertEquals(3.0, interval(device), 0.0);
+
+        listener.onPolledValue(new byte[]{ 1 });
+
+        assertEquals(3.0, interval(device), 0.0);
+    }
+
+    private static double interval(final BleDevice device)
+    {
+        return device.getEffectivePollInterval(CHAR_UUID).secs();
+    }
+
+    private static P_PollManager pollManager(final BleDevice device)
+    {
+        return ReflectionHelpers.getField(device, "m_pollMngr");
+    }
+
+    private static P_PollManager.PollingReadListener listener(final BleDevice device)
+    {
+        final List<?> entries = ReflectionHelpers.getField(pollManager(device), "m_entries");
+
+        return ReflectionHelpers.getField(entries.get(0), "m_pollingReadListener");
+    }
+
+}
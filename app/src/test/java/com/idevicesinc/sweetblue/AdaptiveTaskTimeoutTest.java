@@ -0,0 +1,156 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleNodeConfig.AdaptiveTaskTimeoutRequestFilter;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveTaskTimeoutTest extends BaseInternalTest
+{
+
+    private static final double MIN_TIMEOUT = 1.0;
+    private static final double MAX_TIMEOUT = 10.0;
+    private static final int MIN_SAMPLES = 4;
+
+
+    @Test
+    public void usesMaxUntilEnoughSamplesTest()
+    {
+        final AdaptiveTaskTimeoutRequestFilter filter = newFilter();
+        final BleDevice device = newDevice(filter);
+
+        for (int i = 0; i < MIN_SAMPLES - 1; i++)
+        {
+            BleNodeConfig.onTaskExecuted(m_mgr, device, BleTask.WRITE, 0.5);
+
+            assertEquals(MAX_TIMEOUT, timeout(device, BleTask.WRITE), 0.0);
+        }
+
+        BleNodeConfig.onTaskExecuted(m_mgr, device, BleTask.WRITE, 0.5);
+
+        //--- 0.5 seconds times a safety factor of 4.
+        assertEquals(2.0, timeout(device, BleTask.WRITE), 0.0001);
+
+        //--- Stats are per task, so reads haven't learned anything yet.
+        assertEquals(MAX_TIMEOUT, timeout(device, BleTask.READ), 0.0);
+    }
+
+    @Test
+    public void clampedToBoundsTest()
+    {
+        final AdaptiveTaskTimeoutRequestFilter filter = newFilter();
+        final BleDevice fast = newDevice(filter, "AA:BB:CC:DD:EE:01");
+        final BleDevice slow = newDevice(filter, "AA:BB:CC:DD:EE:02");
+
+        for (int i = 0; i < MIN_SAMPLES; i++)
+        {
+            BleNodeConfig.onTaskExecuted(m_mgr, fast, BleTask.WRITE, 0.01);
+            BleNodeConfig.onTaskExecuted(m_mgr, slow, BleTask.WRITE, 5.0);
+        }
+
+        assertEquals(MIN_TIMEOUT, timeout(fast, BleTask.WRITE), 0.0);
+        assertEquals(MAX_TIMEOUT, timeout(slow, BleTask.WRITE), 0.0);
+    }
+
+    @Test
+    public void connectAndBondNotSampledTest()
+    {
+        final AdaptiveTaskTimeoutRequestFilter filter = newFilter();
+        final BleDevice device = newDevice(filter);
+
+        for (int i = 0; i < MIN_SAMPLES * 2; i++)
+        {
+            BleNodeConfig.onTaskExecuted(m_mgr, device, BleTask.CONNECT, 0.1);
+            BleNodeConfig.onTaskExecuted(m_mgr, device, BleTask.BOND, 0.1);
+        }
+
+        assertEquals(0, filter.getStats(device.getMacAddress(), BleTask.CONNECT).sampleCount());
+        assertEquals(0, filter.getStats(device.getMacAddress(), BleTask.BOND).sampleCount());
+        assertEquals(MAX_TIMEOUT, timeout(device, BleTask.CONNECT), 0.0);
+        assertEquals(MAX_TIMEOUT, timeout(device, BleTask.BOND), 0.0);
+    }
+
+    @Test
+    public void sampleMeasuredFromTimeoutResetTest() throws Exception
+    {
+        final AdaptiveTaskTimeoutRequestFilter filter = newFilter();
+        final BleDevice device = newDevice(filter);
+        final TestTask task = new TestTask(device);
+
+        task.arm();
+        task.tryExecuting();
+
+        Thread.sleep(300);
+
+        //--- Same as a task that runs several operations back to back, each with its own timeout.
+        task.resetTimeout(MAX_TIMEOUT);
+
+        task.setEndingState(PE_TaskState.SUCCEEDED);
+
+        final AdaptiveTaskTimeoutRequestFilter.Stats stats = filter.getStats(device.getMacAddress(), BleTask.WRITE);
+
+        assertEquals(1, stats.sampleCount());
+        assertTrue(stats.maxTime().secs() < 0.2);
+    }
+
+    private static AdaptiveTaskTimeoutRequestFilter newFilter()
+    {
+        return new AdaptiveTaskTimeoutRequestFilter(1.0, 4.0, Interval.secs(MIN_TIMEOUT), Interval.secs(MAX_TIMEOUT), 16, MIN_SAMPLES);
+    }
+
+    private BleDevice newDevice(final AdaptiveTaskTimeoutRequestFilter filter)
+    {
+        return newDevice(filter, "AA:BB:CC:DD:EE:01");
+    }
+
+    private BleDevice newDevice(final AdaptiveTaskTimeoutRequestFilter filter, final String macAddress)
+    {
+        final BleDevice device = newDevice(macAddress);
+        final BleDeviceConfig config = new BleDeviceConfig();
+        config.taskTimeoutRequestFilter = filter;
+        device.setConfig(config);
+
+        return device;
+    }
+
+    private double timeout(final BleDevice device, final BleTask task)
+    {
+        final BleNodeConfig.TaskTimeoutRequestFilter.TaskTimeoutRequestEvent event = new BleNodeConfig.TaskTimeoutRequestFilter.TaskTimeoutRequestEvent();
+        event.init(m_mgr, device, BleServer.NULL, task, null, null);
+
+        return BleNodeConfig.getTimeout(event);
+    }
+
+    private static class TestTask extends PA_Task
+    {
+        TestTask(final BleDevice device)
+        {
+            super(device, null);
+        }
+
+        @Override protected BleTask getTaskType()
+        {
+            return BleTask.WRITE;
+        }
+
+        @Override void execute()
+        {
+        }
+
+        @Override public PE_TaskPriority getPriority()
+        {
+            return PE_TaskPriority.MEDIUM;
+        }
+    }
+
+}
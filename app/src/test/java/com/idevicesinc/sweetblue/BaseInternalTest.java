@@ -0,0 +1,127 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.app.Activity;
+import android.bluetooth.BluetoothDevice;
+
+import com.idevicesinc.sweetblue.tests.BaseBleTest;
+import com.idevicesinc.sweetblue.tests.UnitLoop;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.After;
+import org.junit.Before;
+import org.robolectric.Robolectric;
+import org.robolectric.internal.Shadow;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Same setup as {@link BaseBleTest}, but for tests that live in this package so they can reach package-private internals.
+ */
+public abstract class BaseInternalTest
+{
+
+    BleManager m_mgr;
+    BleManagerConfig m_config;
+    Activity m_activity;
+
+
+    @Before
+    public void setup()
+    {
+        m_activity = Robolectric.setupActivity(Activity.class);
+        m_config = new BleManagerConfig();
+        m_config.allowCallsFromAllThreads = true;
+        m_config.updateLoopFactory = new TestUpdateLoopFactory();
+        m_config.bleScanner = new BaseBleTest.DefaultBleScannerTest();
+        m_config.bleStatusHelper = new BaseBleTest.DefaultStatusHelperTest();
+        final BleManager mgr = BleManager.get(m_activity, m_config);
+        assertNotNull(mgr);
+        m_mgr = mgr;
+        m_mgr.onResume();
+    }
+
+    /**
+     * Creates a device without a native {@link android.bluetooth.BluetoothDevice} behind it, since neither {@link BleManager#newDevice(String)}
+     * nor {@link android.bluetooth.BluetoothAdapter#getRemoteDevice(String)} work without the native bluetooth service.
+     */
+    BleDevice newDevice()
+    {
+        return new BleDevice(m_mgr, null, "test", "test", BleDeviceOrigin.EXPLICIT, null, /*isNull=*/false);
+    }
+
+    /**
+     * Same as {@link #newDevice()}, but backed by a native device from {@link #newNativeDevice(String)}.
+     */
+    BleDevice newDevice(String macAddress)
+    {
+        return new BleDevice(m_mgr, newNativeDevice(macAddress), macAddress, macAddress, BleDeviceOrigin.EXPLICIT, null, /*isNull=*/false);
+    }
+
+    /**
+     * Returns a native device that skipped its constructor, which would need the native bluetooth service, so it can have the given mac address.
+     */
+    static BluetoothDevice newNativeDevice(String macAddress)
+    {
+        final BluetoothDevice device_native = Shadow.newInstanceOf(BluetoothDevice.class);
+        ReflectionHelpers.setField(device_native, "mAddress", macAddress);
+
+        return device_native;
+    }
+
+    @After
+    public void restartAutoUpdate()
+    {
+        //--- BleManager is a singleton, so later tests need it ticking again if this one called stopAutoUpdate().
+        m_mgr.startAutoUpdate(Interval.secs(m_mgr.m_config.autoUpdateRate));
+    }
+
+    /**
+     * Stops the update loop, which otherwise ticks on its own thread and can race with assertions about what it would do.
+     */
+    void stopAutoUpdate() throws Exception
+    {
+        m_mgr.stopAutoUpdate();
+
+        //--- Lets a tick that was already underway finish.
+        Thread.sleep(100);
+    }
+
+    /**
+     * {@link BleManager} is a singleton, so devices registered by earlier tests are still around unless removed.
+     */
+    void removeAllDevices()
+    {
+        while (m_mgr.m_deviceMngr.getCount() > 0)
+        {
+            m_mgr.m_deviceMngr.remove(m_mgr.m_deviceMngr.get(0), null);
+        }
+    }
+
+    private static class TestUpdateLoopFactory implements PI_UpdateLoop.IUpdateLoopFactory
+    {
+
+        @Override public PI_UpdateLoop newAnonThreadLoop()
+        {
+            return new UnitLoop(new PI_UpdateLoop.Callback()
+            {
+                @Override public void onUpdate(double timestep_seconds)
+                {
+                }
+            });
+        }
+
+        @Override public PI_UpdateLoop newMainThreadLoop(PI_UpdateLoop.Callback callback)
+        {
+            return new UnitLoop(callback);
+        }
+
+        @Override public PI_UpdateLoop newAnonThreadLoop(PI_UpdateLoop.Callback callback)
+        {
+            return new UnitLoop(callback);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleManager.BatchDiscoveryListener;
+import com.idevicesinc.sweetblue.BleManager.DiscoveryListener;
+import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
+import com.idevicesinc.sweetblue.compat.L_Util;
+import com.idevicesinc.sweetblue.tests.BaseBleTest;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class BatchDiscoveryTest extends BaseInternalTest
+{
+
+    private static final String MAC_A = "AA:BB:CC:DD:EE:01";
+    private static final String MAC_B = "AA:BB:CC:DD:EE:02";
+    private static final String MAC_C = "AA:BB:CC:DD:EE:03";
+
+    private CapturingScanner m_scanner;
+
+
+    @Test
+    public void oneEventPerBatchTest() throws Exception
+    {
+        final List<BatchDiscoveryListener.BatchDiscoveryEvent> events = new ArrayList<BatchDiscoveryListener.BatchDiscoveryEvent>();
+
+        m_mgr.setListener_BatchDiscovery(new BatchDiscoveryListener()
+        {
+            @Override public void onEvent(BatchDiscoveryEvent e)
+            {
+                events.add(e);
+            }
+        });
+
+        deliver(result(MAC_A, -50), result(MAC_B, -60), result(MAC_A, -40));
+
+        assertEquals(1, events.size());
+        assertEquals(2, events.get(0).discovered().size());
+        assertEquals(0, events.get(0).rediscovered().size());
+        assertEquals(0, events.get(0).updated().size());
+        assertEquals(2, m_mgr.getDeviceCount());
+
+        //--- Only the latest of the duplicate results counts.
+        assertEquals(-40, m_mgr.getDevice(MAC_A).getRssi());
+
+        deliver(result(MAC_A, -30), result(MAC_C, -70));
+
+        assertEquals(2, events.size());
+        assertEquals(Arrays.asList(m_mgr.getDevice(MAC_C)), events.get(1).discovered());
+        assertEquals(0, events.get(1).rediscovered().size());
+        assertEquals(Arrays.asList(m_mgr.getDevice(MAC_A)), events.get(1).updated());
+        assertEquals(-30, m_mgr.getDevice(MAC_A).getRssi());
+    }
+
+    @Test
+    public void rediscoveredAfterUndiscoveryTest() throws Exception
+    {
+        final List<BatchDiscoveryListener.BatchDiscoveryEvent> events = new ArrayList<BatchDiscoveryListener.BatchDiscoveryEvent>();
+
+        m_mgr.setListener_BatchDiscovery(new BatchDiscoveryListener()
+        {
+            @Override public void onEvent(BatchDiscoveryEvent e)
+            {
+                events.add(e);
+            }
+        });
+
+        deliver(result(MAC_A, -50), result(MAC_B, -60));
+
+        final BleDevice device_b = m_mgr.getDevice(MAC_B);
+
+        assertTrue(m_mgr.undiscover(device_b));
+
+        deliver(result(MAC_A, -50), result(MAC_B, -60), result(MAC_C, -70));
+
+        //--- Same instance comes back out of the undiscovered cache.
+        assertEquals(Arrays.asList(m_mgr.getDevice(MAC_C)), events.get(1).discovered());
+        assertEquals(Arrays.asList(device_b), events.get(1).rediscovered());
+        assertEquals(Arrays.asList(m_mgr.getDevice(MAC_A)), events.get(1).updated());
+        assertEquals(3, events.get(1).size());
+        assertTrue(device_b == m_mgr.getDevice(MAC_B));
+    }
+
+    @Test
+    public void perDeviceEventsWithoutBatchListenerTest() throws Exception
+    {
+        final List<DiscoveryListener.DiscoveryEvent> events = new ArrayList<DiscoveryListener.DiscoveryEvent>();
+
+        m_mgr.setListener_BatchDiscovery(null);
+        m_mgr.setListener_Discovery(new DiscoveryListener()
+        {
+            @Override public void onEvent(DiscoveryEvent e)
+            {
+                events.add(e);
+            }
+        });
+
+        deliver(result(MAC_A, -50), result(MAC_B, -60), result(MAC_A, -40));
+
+        assertEquals(2, events.size());
+
+        for (DiscoveryListener.DiscoveryEvent event : events)
+        {
+            assertTrue(event.was(DiscoveryListener.LifeCycle.DISCOVERED));
+        }
+    }
+
+    @Test
+    public void ignoredWhenNotScanningTest() throws Exception
+    {
+        m_mgr.stopScan();
+
+        assertFalse(m_mgr.is(BleManagerState.SCANNING));
+
+        //--- Straight to the manager, since the scan task would put SCANNING back for a late batch.
+        m_mgr.onDiscoveredFromNativeStack_batch(Arrays.asList(result(MAC_A, -50)));
+
+        assertEquals(0, m_mgr.getDeviceCount());
+    }
+
+    /**
+     * Starts a real post-Lollipop scan whose native callback is captured, so batches go through {@link P_Task_Scan} like they would from the OS.
+     * Earlier tests can leave scans running or queued, states set, and listeners registered that react to a scan starting, which would
+     * otherwise clear {@link BleManagerState#SCANNING} from under us or fail on their own assertions.
+     */
+    @Before
+    public void startScan() throws Exception
+    {
+        stopAutoUpdate();
+
+        m_mgr.setListener_State(null);
+        m_mgr.setListener_Discovery(null);
+        m_mgr.setListener_BatchDiscovery(null);
+
+        m_mgr.stopPeriodicScan();
+        m_mgr.stopScan();
+        m_mgr.getTaskQueue().clearQueueOf(PA_Task.class, m_mgr);
+        m_mgr.m_stateTracker.set(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleManagerState.ON, true);
+        removeAllDevices();
+        clearUndiscoveredCache();
+
+        m_scanner = new CapturingScanner();
+
+        final BleManagerConfig config = m_config.clone();
+        config.scanMode = BleScanMode.POST_LOLLIPOP;
+        config.scanReportDelay = Interval.secs(1.0);
+        config.bleScanner = m_scanner;
+        m_mgr.setConfig(config);
+
+        m_mgr.startScan();
+
+        for (int i = 0; i < 100 && m_scanner.m_callback == null; i++)
+        {
+            m_mgr.update(0.01);
+        }
+
+        assertNotNull(m_scanner.m_callback);
+    }
+
+    @After
+    public void stopScan()
+    {
+        m_mgr.setListener_BatchDiscovery(null);
+        m_mgr.setListener_Discovery(null);
+        m_mgr.stopScan();
+        m_mgr.setConfig(m_config);
+        removeAllDevices();
+    }
+
+    private void clearUndiscoveredCache()
+    {
+        while (m_mgr.m_deviceMngr_cache.getCount() > 0)
+        {
+            m_mgr.m_deviceMngr_cache.remove(m_mgr.m_deviceMngr_cache.get(0), null);
+        }
+    }
+
+    private void deliver(final L_Util.ScanResult ... results)
+    {
+        m_scanner.m_callback.onBatchScanResults(Arrays.asList(results));
+    }
+
+    private static L_Util.ScanResult result(final String macAddress, final int rssi)
+    {
+        return new L_Util.ScanResult(newNativeDevice(macAddress), rssi, null);
+    }
+
+    private static class CapturingScanner extends BaseBleTest.DefaultBleScannerTest
+    {
+        private L_Util.ScanCallback m_callback;
+
+        @Override public void startLScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
+        {
+            m_callback = callback;
+        }
+
+        @Override public void startMScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
+        {
+            m_callback = callback;
+        }
+    }
+
+}
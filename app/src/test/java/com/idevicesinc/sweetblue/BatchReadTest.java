@@ -0,0 +1,276 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import com.idevicesinc.sweetblue.BleDevice.BatchReadListener;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class BatchReadTest extends BaseInternalTest
+{
+
+    private static final UUID SERVICE_UUID = UUID.fromString("0000ffe0-0000-1000-8000-00805f9b34fb");
+    private static final UUID[] CHAR_UUIDS =
+    {
+        UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb"),
+        UUID.fromString("0000ffe2-0000-1000-8000-00805f9b34fb"),
+        UUID.fromString("0000ffe3-0000-1000-8000-00805f9b34fb")
+    };
+
+
+    @Test
+    public void timeoutOnlyFailsItsReadTest() throws Exception
+    {
+        final Batch batch = start();
+
+        batch.read(0, new byte[]{ 1 });
+        batch.timeout();
+
+        //--- The native stack is still busy with the read that timed out, so nothing else is sent until it comes back.
+        assertEquals(PE_TaskState.EXECUTING, batch.m_task.getState());
+        assertTrue(batch.m_task.isFor(batch.characteristic(1)));
+        assertFalse(batch.m_task.isFor(batch.characteristic(2)));
+
+        batch.read(1, new byte[]{ 2 });
+
+        assertTrue(batch.m_task.isFor(batch.characteristic(2)));
+
+        batch.read(2, new byte[]{ 3 });
+
+        final BatchReadListener.BatchReadEvent e = batch.event();
+        final List<ReadWriteEvent> results = e.results();
+
+        assertEquals(Status.SUCCESS, results.get(0).status());
+        assertArrayEquals(new byte[]{ 1 }, results.get(0).data());
+        assertEquals(Status.TIMED_OUT, results.get(1).status());
+        assertEquals(Status.SUCCESS, results.get(2).status());
+        assertArrayEquals(new byte[]{ 3 }, results.get(2).data());
+        assertEquals(2, e.successCount());
+    }
+
+    @Test
+    public void midBatchTimeoutWithoutCallbackEndsBatchTest() throws Exception
+    {
+        final Batch batch = start();
+
+        batch.read(0, new byte[]{ 1 });
+        batch.timeout();
+        batch.timeout();
+
+        final List<ReadWriteEvent> results = batch.event().results();
+
+        assertEquals(PE_TaskState.TIMED_OUT, batch.m_task.getState());
+        assertEquals(Status.SUCCESS, results.get(0).status());
+        assertEquals(Status.TIMED_OUT, results.get(1).status());
+
+        //--- Never sent while the stack was busy, so it didn't fail to send out.
+        assertEquals(Status.TIMED_OUT, results.get(2).status());
+    }
+
+    @Test
+    public void lastReadTimingOutKeepsEarlierReadsTest() throws Exception
+    {
+        final Batch batch = start();
+
+        batch.read(0, new byte[]{ 1 });
+        batch.read(1, new byte[]{ 2 });
+        batch.timeout();
+
+        final List<ReadWriteEvent> results = batch.event().results();
+
+        assertEquals(PE_TaskState.TIMED_OUT, batch.m_task.getState());
+        assertEquals(Status.SUCCESS, results.get(0).status());
+        assertEquals(Status.SUCCESS, results.get(1).status());
+        assertEquals(Status.TIMED_OUT, results.get(2).status());
+
+        assertArrayEquals(new byte[]{ 1 }, batch.m_device.getHistoricalData_latest(CHAR_UUIDS[0]).getBlob());
+        assertArrayEquals(new byte[]{ 2 }, batch.m_device.getHistoricalData_latest(CHAR_UUIDS[1]).getBlob());
+        assertTrue(batch.m_device.getHistoricalData_latest(CHAR_UUIDS[2]).isNull());
+    }
+
+    @Test
+    public void historicalDataStampedPerReadTest() throws Exception
+    {
+        final Batch batch = start();
+
+        final long before = System.currentTimeMillis();
+        batch.read(0, new byte[]{ 1 });
+        final long after = System.currentTimeMillis();
+
+        //--- Logged as soon as the read completed, before the batch is done.
+        assertNull(batch.m_event);
+
+        final HistoricalData first = batch.m_device.getHistoricalData_latest(CHAR_UUIDS[0]);
+
+        assertArrayEquals(new byte[]{ 1 }, first.getBlob());
+        assertTrue(first.getEpochTime().toMilliseconds() >= before);
+        assertTrue(first.getEpochTime().toMilliseconds() <= after);
+
+        Thread.sleep(50);
+
+        batch.read(1, new byte[]{ 2 });
+        batch.read(2, new byte[]{ 3 });
+
+        batch.event();
+
+        //--- Not restamped when the batch finished.
+        assertEquals(first.getEpochTime().toMilliseconds(), batch.m_device.getHistoricalData_latest(CHAR_UUIDS[0]).getEpochTime().toMilliseconds());
+        assertTrue(batch.m_device.getHistoricalData_latest(CHAR_UUIDS[1]).getEpochTime().toMilliseconds() >= first.getEpochTime().toMilliseconds() + 50);
+    }
+
+    private Batch start() throws Exception
+    {
+        stopAutoUpdate();
+
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final BluetoothGatt gatt = newGatt(device);
+        final List<BluetoothGattCharacteristic> chars = new ArrayList<BluetoothGattCharacteristic>();
+
+        for (UUID charUuid : CHAR_UUIDS)
+        {
+            chars.add(gatt.getService(SERVICE_UUID).getCharacteristic(charUuid));
+        }
+
+        final Batch batch = new Batch(device, gatt);
+
+        batch.m_task = new TestBatchRead(device, chars, new ReadWriteEvent[CHAR_UUIDS.length], batch);
+
+        //--- Stands in for the queue picking the task up, which needs a real connection. Whatever earlier tests left queued
+        //--- on the shared manager would otherwise be dequeued when the task ends.
+        ReflectionHelpers.<List<PA_Task>>getField(m_mgr.getTaskQueue(), "m_queue").clear();
+        batch.m_task.onAddedToQueue(m_mgr.getTaskQueue());
+        ReflectionHelpers.setField(m_mgr.getTaskQueue(), "m_current", batch.m_task);
+        batch.m_task.arm();
+        batch.m_task.tryExecuting();
+
+        assertEquals(PE_TaskState.EXECUTING, batch.m_task.getState());
+
+        return batch;
+    }
+
+    /**
+     * Just enough of a {@link BluetoothGatt} for {@link BleDevice#getNativeCharacteristic(UUID, UUID)} to find the characteristics
+     * and for {@link BluetoothGatt#readCharacteristic(BluetoothGattCharacteristic)} to report that the read went out.
+     */
+    private static BluetoothGatt newGatt(final BleDevice device) throws Exception
+    {
+        final BluetoothGattService service = new BluetoothGattService(SERVICE_UUID, BluetoothGattService.SERVICE_TYPE_PRIMARY);
+        ReflectionHelpers.setField(service, "mDevice", device.getNative());
+
+        for (UUID charUuid : CHAR_UUIDS)
+        {
+            service.addCharacteristic(new BluetoothGattCharacteristic(charUuid, BluetoothGattCharacteristic.PROPERTY_READ, BluetoothGattCharacteristic.PERMISSION_READ));
+        }
+
+        final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+        services.add(service);
+
+        final Class<?> serviceClass = Class.forName("android.bluetooth.IBluetoothGatt");
+        final Object gattService = Proxy.newProxyInstance(serviceClass.getClassLoader(), new Class<?>[]{ serviceClass }, new InvocationHandler()
+        {
+            @Override public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                return null;
+            }
+        });
+
+        final BluetoothGatt gatt = Shadow.newInstanceOf(BluetoothGatt.class);
+        ReflectionHelpers.setField(gatt, "mDevice", device.getNative());
+        ReflectionHelpers.setField(gatt, "mServices", services);
+        ReflectionHelpers.setField(gatt, "mService", gattService);
+        ReflectionHelpers.setField(gatt, "mClientIf", 1);
+        ReflectionHelpers.setField(gatt, "mDeviceBusy", false);
+        ReflectionHelpers.setField(device.m_nativeWrapper, "m_gatt", gatt);
+
+        return gatt;
+    }
+
+    private static class Batch implements BatchReadListener
+    {
+        private final BleDevice m_device;
+        private final BluetoothGatt m_gatt;
+        private TestBatchRead m_task;
+        private BatchReadEvent m_event;
+
+        Batch(final BleDevice device, final BluetoothGatt gatt)
+        {
+            m_device = device;
+            m_gatt = gatt;
+        }
+
+        void read(final int index, final byte[] value)
+        {
+            //--- What the native stack clears when a read comes back.
+            ReflectionHelpers.setField(m_gatt, "mDeviceBusy", false);
+
+            m_task.onCharacteristicRead(m_gatt, CHAR_UUIDS[index], value, BluetoothGatt.GATT_SUCCESS);
+        }
+
+        //--- The native stack stays busy, same as when a read really times out.
+        void timeout()
+        {
+            m_task.timeout();
+        }
+
+        BluetoothGattCharacteristic characteristic(final int index)
+        {
+            return m_gatt.getService(SERVICE_UUID).getCharacteristic(CHAR_UUIDS[index]);
+        }
+
+        BatchReadEvent event()
+        {
+            ShadowLooper.idleMainLooper();
+
+            assertFalse(m_task.getState() == PE_TaskState.EXECUTING);
+
+            return m_event;
+        }
+
+        @Override public void onEvent(BatchReadEvent e)
+        {
+            m_event = e;
+        }
+    }
+
+    private static class TestBatchRead extends P_Task_BatchRead
+    {
+        TestBatchRead(final BleDevice device, final List<BluetoothGattCharacteristic> chars, final ReadWriteEvent[] results, final BatchReadListener listener)
+        {
+            super(device, chars, results, false, listener, null, PE_TaskPriority.FOR_NORMAL_READS_WRITES);
+        }
+
+        @Override protected boolean isExecutable()
+        {
+            return true;
+        }
+    }
+
+}
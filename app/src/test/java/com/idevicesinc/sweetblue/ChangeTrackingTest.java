@@ -0,0 +1,179 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class ChangeTrackingTest extends BaseInternalTest
+{
+
+    private static final UUID CHAR_UUID = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+
+
+    @Test
+    public void trackerTest()
+    {
+        final P_ChangeTracker tracker = new P_ChangeTracker(/*retainValue=*/false);
+
+        assertTrue(tracker.onValue(new byte[]{ 1, 2 }));
+        assertFalse(tracker.onValue(new byte[]{ 1, 2 }));
+        assertTrue(tracker.onValue(new byte[]{ 1, 3 }));
+        assertTrue(tracker.onValue(new byte[]{ 1, 3, 0 }));
+        assertFalse(tracker.onValue(new byte[]{ 1, 3, 0 }));
+
+        tracker.reset();
+
+        assertTrue(tracker.onValue(new byte[]{ 1, 3, 0 }));
+        assertNull(tracker.getPreviousValue());
+    }
+
+    @Test
+    public void trackerRetainsPreviousValueTest()
+    {
+        final P_ChangeTracker tracker = new P_ChangeTracker(/*retainValue=*/true);
+        final byte[] first = { 1 };
+
+        tracker.onValue(first);
+        assertNull(tracker.getPreviousValue());
+
+        //--- Changing the caller's array afterwards mustn't change what was retained.
+        tracker.onValue(new byte[]{ 2 });
+        first[0] = 9;
+        assertArrayEquals(new byte[]{ 1 }, tracker.getPreviousValue());
+
+        //--- No change, so the previous value stays the one before the last change.
+        tracker.onValue(new byte[]{ 2 });
+        assertArrayEquals(new byte[]{ 1 }, tracker.getPreviousValue());
+    }
+
+    @Test
+    public void unchangedStillBuildsEventByDefaultTest()
+    {
+        final Poll poll = startPoll(/*dropUnchanged=*/false);
+
+        assertTrue(poll.value(new byte[]{ 1 }));
+        assertEquals(1, poll.m_events.size());
+
+        //--- The read task still builds an event so default listeners and historical data see it, but the poll's listener doesn't.
+        assertTrue(poll.value(new byte[]{ 1 }));
+        assertEquals(1, poll.m_events.size());
+
+        assertTrue(poll.value(new byte[]{ 2 }));
+        assertEquals(2, poll.m_events.size());
+
+        assertEquals(1, poll.m_device.getChangeTrackingHitCount());
+        assertEquals(2, poll.m_device.getChangeTrackingMissCount());
+    }
+
+    @Test
+    public void unchangedDroppedWhenOptedInTest()
+    {
+        final Poll poll = startPoll(/*dropUnchanged=*/true);
+
+        assertTrue(poll.value(new byte[]{ 1 }));
+        assertFalse(poll.value(new byte[]{ 1 }));
+        assertTrue(poll.value(new byte[]{ 2 }));
+
+        assertEquals(2, poll.m_events.size());
+        assertEquals(1, poll.m_device.getChangeTrackingHitCount());
+        assertEquals(2, poll.m_device.getChangeTrackingMissCount());
+    }
+
+    @Test
+    public void failureResetsTrackerTest()
+    {
+        final Poll poll = startPoll(/*dropUnchanged=*/true);
+
+        assertTrue(poll.value(new byte[]{ 1 }));
+
+        poll.m_listener.onEvent(event(poll.m_device, null, Status.REMOTE_GATT_FAILURE));
+        ShadowLooper.idleMainLooper();
+
+        //--- Same value as before the failure, but it's reported as a change again.
+        assertTrue(poll.value(new byte[]{ 1 }));
+        assertEquals(3, poll.m_events.size());
+    }
+
+    private Poll startPoll(final boolean dropUnchanged)
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final BleDeviceConfig config = new BleDeviceConfig();
+
+        config.dropUnchangedChangeTrackingEvents = dropUnchanged;
+        device.setConfig(config);
+
+        final Poll poll = new Poll(device);
+        final P_PollManager pollMngr = ReflectionHelpers.getField(device, "m_pollMngr");
+
+        pollMngr.clear();
+        pollMngr.startPoll(null, CHAR_UUID, 1.0, poll, /*trackChanges=*/true, /*usingNotify=*/false);
+
+        final List<?> entries = ReflectionHelpers.getField(pollMngr, "m_entries");
+
+        poll.m_listener = ReflectionHelpers.getField(entries.get(0), "m_pollingReadListener");
+
+        return poll;
+    }
+
+    private static ReadWriteEvent event(final BleDevice device, final byte[] data, final Status status)
+    {
+        return new ReadWriteEvent(device, null, CHAR_UUID, null, Type.PSUEDO_NOTIFICATION, Target.CHARACTERISTIC, data, status, BleStatuses.GATT_SUCCESS, 0.0, 0.0, /*solicited=*/true);
+    }
+
+    private static class Poll implements ReadWriteListener
+    {
+        private final BleDevice m_device;
+        private final List<ReadWriteEvent> m_events = new ArrayList<ReadWriteEvent>();
+        private P_PollManager.PollingReadListener m_listener;
+
+        Poll(final BleDevice device)
+        {
+            m_device = device;
+        }
+
+        /**
+         * Does what the read task does with a successful poll result, returning whether an event was built.
+         */
+        boolean value(final byte[] value)
+        {
+            if (!m_listener.onPolledValue(value))
+            {
+                return false;
+            }
+
+            m_listener.onEvent(event(m_device, value, Status.SUCCESS));
+            ShadowLooper.idleMainLooper();
+
+            return true;
+        }
+
+        @Override public void onEvent(ReadWriteEvent e)
+        {
+            m_events.add(e);
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.ConnectionFailEvent;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Timing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class ConnectFutureTest extends BaseInternalTest
+{
+
+    @Test
+    public void failsOnExplicitDisconnectTest() throws Exception
+    {
+        final BleDevice device = start();
+        final BleFuture<BleDevice> future = device.connect_future();
+
+        assertFalse(future.isDone());
+
+        device.disconnect();
+
+        assertFailed(future, Status.EXPLICIT_DISCONNECT);
+    }
+
+    @Test
+    public void failsOnExplicitDisconnectDuringRetryTest() throws Exception
+    {
+        final BleDevice device = start();
+
+        device.setListener_ConnectionFail(new ConnectionFailListener()
+        {
+            @Override public Please onEvent(ConnectionFailEvent e)
+            {
+                return Please.retry();
+            }
+        });
+
+        final BleFuture<BleDevice> future = device.connect_future();
+
+        failAttempt(device);
+
+        assertFalse(future.isDone());
+
+        device.disconnect();
+
+        assertFailed(future, Status.EXPLICIT_DISCONNECT);
+    }
+
+    @Test
+    public void failsWhenGivenUpOnTest() throws Exception
+    {
+        final BleDevice device = start();
+
+        device.setListener_ConnectionFail(new ConnectionFailListener()
+        {
+            @Override public Please onEvent(ConnectionFailEvent e)
+            {
+                return e.failureCountSoFar() < 2 ? Please.retry() : Please.doNotRetry();
+            }
+        });
+
+        final BleFuture<BleDevice> future = device.connect_future();
+
+        failAttempt(device);
+
+        assertFalse(future.isDone());
+
+        failAttempt(device);
+
+        assertFailed(future, Status.NATIVE_CONNECTION_FAILED);
+    }
+
+    @Test
+    public void failsOnUndiscoverTest() throws Exception
+    {
+        final BleDevice device = start();
+        final BleFuture<BleDevice> future = device.connect_future();
+
+        m_mgr.undiscover(device);
+
+        assertFailed(future, Status.EXPLICIT_DISCONNECT);
+    }
+
+    @Test
+    public void failsOnResetTest() throws Exception
+    {
+        final BleDevice device = start();
+        final BleFuture<BleDevice> future = device.connect_future();
+
+        //--- First thing BleManager#reset() and #turnOff() do to connected and connecting devices.
+        m_mgr.m_deviceMngr.disconnectAllForTurnOff(PE_TaskPriority.CRITICAL);
+
+        assertFailed(future, Status.BLE_TURNING_OFF);
+    }
+
+    private BleDevice start() throws Exception
+    {
+        stopAutoUpdate();
+        removeAllDevices();
+
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        m_mgr.m_deviceMngr.add(device);
+        device.onNewlyDiscovered(device.getNative(), null, -50, null, BleDeviceOrigin.EXPLICIT);
+
+        return device;
+    }
+
+    //--- Same path a native connection failure takes once the connect task gives up.
+    private static void failAttempt(final BleDevice device)
+    {
+        assertTrue(device.is(BleDeviceState.CONNECTING_OVERALL));
+
+        device.disconnectWithReason(Status.NATIVE_CONNECTION_FAILED, Timing.EVENTUALLY, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleStatuses.BOND_FAIL_REASON_NOT_APPLICABLE, device.NULL_READWRITE_EVENT());
+    }
+
+    private static void assertFailed(final BleFuture<BleDevice> future, final Status status)
+    {
+        assertTrue(future.isDone());
+        assertFalse(future.isSuccess());
+        assertEquals(status, ((ConnectionFailEvent) future.failure()).status());
+    }
+
+}
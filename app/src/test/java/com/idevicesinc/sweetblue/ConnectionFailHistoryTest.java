@@ -0,0 +1,101 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleNode.ConnectionFailListener.AutoConnectUsage;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.ConnectionFailEvent;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ConnectionFailListener.Timing;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class ConnectionFailHistoryTest extends BaseInternalTest
+{
+
+    @Test
+    public void wrapAroundTest()
+    {
+        final BleDevice device = newDevice();
+        final P_ConnectionFailHistory history = new P_ConnectionFailHistory(3);
+
+        ConnectionFailEvent latest = null;
+
+        for (int i = 1; i <= 7; i++)
+        {
+            latest = add(device, history, i);
+        }
+
+        final ConnectionFailEvent[] events = latest.history();
+
+        assertEquals(3, events.length);
+        assertEquals(5, events[0].failureCountSoFar());
+        assertEquals(6, events[1].failureCountSoFar());
+        assertSame(latest, events[2]);
+        assertEquals(7, history.getStats().totalCount());
+    }
+
+    @Test
+    public void historyDoesNotChangeAfterDeliveryTest()
+    {
+        final BleDevice device = newDevice();
+        final P_ConnectionFailHistory history = new P_ConnectionFailHistory(3);
+
+        add(device, history, 1);
+        final ConnectionFailEvent retained = add(device, history, 2);
+
+        add(device, history, 3);
+        add(device, history, 4);
+
+        final List<ConnectionFailEvent> view = retained.historyView();
+
+        assertEquals(2, view.size());
+        assertEquals(1, view.get(0).failureCountSoFar());
+        assertSame(retained, view.get(1));
+    }
+
+    @Test
+    public void clearWhileRetainedTest()
+    {
+        final BleDevice device = newDevice();
+        final P_ConnectionFailHistory history = new P_ConnectionFailHistory(3);
+
+        add(device, history, 1);
+        final ConnectionFailEvent retained = add(device, history, 2);
+
+        history.clear(3);
+
+        final ConnectionFailEvent afterClear = add(device, history, 1);
+
+        assertEquals(2, retained.history().length);
+        assertEquals(2, retained.historyView().size());
+        assertSame(retained, retained.history()[1]);
+        assertEquals(1, afterClear.history().length);
+        assertEquals(1, history.getStats().totalCount());
+    }
+
+    private static ConnectionFailEvent add(BleDevice device, P_ConnectionFailHistory history, int failureCount)
+    {
+        final ConnectionFailEvent e = new ConnectionFailEvent
+        (
+            device, Status.NATIVE_CONNECTION_FAILED, Timing.TIMED_OUT, failureCount, Interval.secs(failureCount), Interval.secs(failureCount),
+            BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.CONNECTING, BleDeviceState.CONNECTING, AutoConnectUsage.NOT_USED,
+            BleStatuses.BOND_FAIL_REASON_NOT_APPLICABLE, device.NULL_READWRITE_EVENT(), history
+        );
+
+        history.add(e);
+
+        return e;
+    }
+
+}
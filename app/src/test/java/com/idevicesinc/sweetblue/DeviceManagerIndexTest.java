@@ -0,0 +1,127 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class DeviceManagerIndexTest extends BaseInternalTest
+{
+
+    private static final BleDeviceState[] STATES = { BleDeviceState.CONNECTED, BleDeviceState.BONDED, BleDeviceState.INITIALIZED };
+
+
+    @Test
+    public void matchesLinearScanTest()
+    {
+        final P_DeviceManager mngr = m_mgr.m_deviceMngr;
+        removeAllDevices();
+        final Random random = new Random(0);
+        int nextMac = 0;
+
+        for (int i = 0; i < 500; i++)
+        {
+            final int action = random.nextInt(4);
+
+            if (action == 0 || mngr.getCount() < 4)
+            {
+                mngr.add(newDevice(mac(nextMac++)));
+            }
+            else if (action == 1)
+            {
+                //--- Removing from the front and middle is what used to shift every position after it.
+                mngr.remove(mngr.get(random.nextInt(mngr.getCount())), null);
+            }
+            else
+            {
+                final BleDevice device = mngr.get(random.nextInt(mngr.getCount()));
+                final BleDeviceState state = STATES[random.nextInt(STATES.length)];
+
+                device.stateTracker_main().update(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, state, !device.is(state));
+            }
+
+            assertMatchesLinearScan(mngr);
+        }
+    }
+
+    @Test
+    public void removeEverythingTest()
+    {
+        final P_DeviceManager mngr = m_mgr.m_deviceMngr;
+        removeAllDevices();
+        final List<BleDevice> devices = new ArrayList<BleDevice>();
+
+        for (int i = 0; i < 64; i++)
+        {
+            final BleDevice device = newDevice(mac(i));
+            devices.add(device);
+            mngr.add(device);
+
+            if (i % 3 == 0)
+            {
+                device.stateTracker_main().update(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.CONNECTED, true);
+            }
+        }
+
+        for (int i = 0; i < devices.size(); i++)
+        {
+            mngr.remove(devices.get(i), null);
+
+            assertFalse(mngr.has(devices.get(i)));
+            assertEquals(-1, mngr.indexOf(devices.get(i)));
+            assertMatchesLinearScan(mngr);
+        }
+
+        assertEquals(0, mngr.getCount());
+        assertSame(BleDevice.NULL, mngr.getDevice(BleDeviceState.CONNECTED));
+    }
+
+    private static void assertMatchesLinearScan(final P_DeviceManager mngr)
+    {
+        final List<BleDevice> list = mngr.getList();
+
+        for (int i = 0; i < list.size(); i++)
+        {
+            assertTrue(mngr.has(list.get(i)));
+            assertEquals(i, mngr.indexOf(list.get(i)));
+        }
+
+        for (BleDeviceState state : STATES)
+        {
+            final List<BleDevice> expected = new ArrayList<BleDevice>();
+            final List<BleDevice> expected_not = new ArrayList<BleDevice>();
+
+            for (BleDevice device : list)
+            {
+                (device.is(state) ? expected : expected_not).add(device);
+            }
+
+            assertEquals(expected, mngr.getDevices_List(false, state));
+            assertEquals(expected, mngr.getDevices_List(false, state.bit()));
+            assertEquals(expected_not, mngr.getDevices_List(false, state, false));
+            assertEquals(expected.size(), mngr.getCount(state));
+            assertSame(expected.isEmpty() ? BleDevice.NULL : expected.get(0), mngr.getDevice(state));
+        }
+    }
+
+    private static String mac(final int i)
+    {
+        return String.format("AA:BB:CC:DD:%02X:%02X", (i >> 8) & 0xff, i & 0xff);
+    }
+
+}
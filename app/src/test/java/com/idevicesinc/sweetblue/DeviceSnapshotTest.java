@@ -0,0 +1,136 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class DeviceSnapshotTest extends BaseInternalTest
+{
+
+    @Test
+    public void matchesUpdateThreadReadsTest() throws Exception
+    {
+        stopAutoUpdate();
+        removeAllDevices();
+
+        final P_DeviceManager mngr = m_mgr.m_deviceMngr;
+        final List<String> macs = new ArrayList<String>();
+
+        for (int i = 0; i < 20; i++)
+        {
+            final BleDevice device = newDevice(mac(i));
+
+            mngr.add(device);
+            macs.add(device.getMacAddress());
+
+            if (i % 3 == 0)
+            {
+                device.stateTracker_main().update(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.CONNECTED, true);
+            }
+        }
+
+        for (int i = 0; i < 20; i += 4)
+        {
+            mngr.remove(mngr.get(mac(i)), null);
+        }
+
+        for (String mac : macs)
+        {
+            assertSame(mngr.get(mac), mngr.get_snapshot(mac));
+        }
+
+        assertNull(mngr.get_snapshot(mac(0)));
+        assertEquals(mngr.getList(), mngr.getDevices_List_snapshot(false, BleDeviceState.FULL_MASK, null));
+        assertEquals(mngr.getDevices_List(false, BleDeviceState.CONNECTED), mngr.getDevices_List_snapshot(false, BleDeviceState.CONNECTED.bit(), null));
+        assertEquals(mngr.getCount(), mngr.getCount_snapshot(BleDeviceState.FULL_MASK, null));
+        assertEquals(mngr.getCount(BleDeviceState.CONNECTED), mngr.getCount_snapshot(BleDeviceState.CONNECTED.bit(), null));
+
+        removeAllDevices();
+
+        assertEquals(0, mngr.getCount_snapshot(BleDeviceState.FULL_MASK, null));
+        assertNull(mngr.get_snapshot(mac(1)));
+    }
+
+    @Test
+    public void consistentWhileUpdateThreadWritesTest() throws Exception
+    {
+        stopAutoUpdate();
+        removeAllDevices();
+
+        final P_DeviceManager mngr = m_mgr.m_deviceMngr;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final Thread reader = new Thread(new Runnable()
+        {
+            @Override public void run()
+            {
+                try
+                {
+                    while (!done.get())
+                    {
+                        //--- Macs are never reused, so a device from a published list is either still found by mac or was removed since.
+                        for (BleDevice device : mngr.getDevices_List_snapshot(false, BleDeviceState.FULL_MASK, null))
+                        {
+                            final BleDevice found = mngr.get_snapshot(device.getMacAddress());
+
+                            if (found != null && found != device)
+                            {
+                                throw new AssertionError("Snapshot returned a different device for " + device.getMacAddress());
+                            }
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failure.set(e);
+                }
+            }
+        });
+
+        reader.start();
+
+        try
+        {
+            for (int i = 0; i < 2000; i++)
+            {
+                mngr.add(newDevice(mac(i)));
+
+                if (mngr.getCount() > 32)
+                {
+                    mngr.remove(mngr.get(0), null);
+                }
+            }
+        }
+        finally
+        {
+            done.set(true);
+            reader.join();
+            removeAllDevices();
+        }
+
+        assertNull(failure.get());
+    }
+
+    private static String mac(final int i)
+    {
+        return String.format("AA:BB:CC:DD:%02X:%02X", (i >> 8) & 0xff, i & 0xff);
+    }
+
+}
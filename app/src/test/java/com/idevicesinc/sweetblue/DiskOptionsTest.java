@@ -0,0 +1,376 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+
+import com.idevicesinc.sweetblue.utils.State;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class DiskOptionsTest extends BaseInternalTest
+{
+
+    private static final String LAST_DISCONNECT_PREFS = "sweetblue_16l@{&a}";
+    private static final String DEVICE_NAME_PREFS = "sweetblue_qurhzpoc";
+
+    private static final String MAC = "AA:BB:CC:DD:EE:FF";
+
+    private static final int DISCONNECT_COUNT = 100;
+
+
+    @Test
+    public void writesWaitForFlushTest()
+    {
+        final P_DiskOptionsManager diskOptions = newDiskOptions();
+
+        diskOptions.saveLastDisconnect(MAC, State.ChangeIntent.UNINTENTIONAL, /*hitDisk=*/true);
+
+        assertEquals(State.ChangeIntent.UNINTENTIONAL, diskOptions.loadLastDisconnect(MAC, /*hitDisk=*/true));
+        assertTrue(contains(diskOptions.getPreviouslyConnectedDevices(), MAC));
+        assertFalse(prefs(LAST_DISCONNECT_PREFS).contains(MAC));
+
+        diskOptions.flush(/*synchronous=*/false);
+
+        assertEquals(State.ChangeIntent.UNINTENTIONAL.toDiskValue(), prefs(LAST_DISCONNECT_PREFS).getInt(MAC, -1));
+    }
+
+    @Test
+    public void writesToSameKeyCoalesceTest()
+    {
+        final P_DiskOptionsManager diskOptions = newDiskOptions();
+        final List<String> changes = listenForChanges(prefs(DEVICE_NAME_PREFS));
+
+        for (int i = 0; i < 10; i++)
+        {
+            diskOptions.saveName(MAC, "name_" + i, /*hitDisk=*/true);
+        }
+
+        diskOptions.flush(/*synchronous=*/false);
+
+        assertEquals(1, changes.size());
+        assertEquals("name_9", prefs(DEVICE_NAME_PREFS).getString(MAC, null));
+
+        //--- Nothing left to write, so a second flush doesn't touch the disk at all.
+        diskOptions.flush(/*synchronous=*/false);
+
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void pendingRemovalHidesDiskValueTest()
+    {
+        final P_DiskOptionsManager diskOptions = newDiskOptions();
+
+        diskOptions.saveName(MAC, "name", /*hitDisk=*/true);
+        diskOptions.flush(/*synchronous=*/true);
+
+        diskOptions.clearName(MAC);
+
+        assertTrue(prefs(DEVICE_NAME_PREFS).contains(MAC));
+        assertNull(diskOptions.loadName(MAC, /*hitDisk=*/true));
+
+        diskOptions.flush(/*synchronous=*/true);
+
+        assertFalse(prefs(DEVICE_NAME_PREFS).contains(MAC));
+        assertNull(newDiskOptions_keepPrefs().loadName(MAC, /*hitDisk=*/true));
+    }
+
+    @Test
+    public void saveThenClearBeforeFlushTest()
+    {
+        final P_DiskOptionsManager diskOptions = newDiskOptions();
+
+        diskOptions.saveLastDisconnect(MAC, State.ChangeIntent.INTENTIONAL, /*hitDisk=*/true);
+        diskOptions.clear(MAC);
+        diskOptions.flush(/*synchronous=*/false);
+
+        assertFalse(prefs(LAST_DISCONNECT_PREFS).contains(MAC));
+        assertFalse(contains(diskOptions.getPreviouslyConnectedDevices(), MAC));
+    }
+
+    @Test
+    public void disconnectBurstAppliesOnceTest()
+    {
+        newDiskOptions();
+
+        final CountingContext context = new CountingContext(m_mgr.getApplicationContext());
+        final P_DiskOptionsManager diskOptions = new P_DiskOptionsManager(context);
+
+        for (int i = 0; i < DISCONNECT_COUNT; i++)
+        {
+            final String mac = String.format("AA:BB:CC:DD:%02X:%02X", i / 256, i % 256);
+
+            diskOptions.saveLastDisconnect(mac, State.ChangeIntent.UNINTENTIONAL, /*hitDisk=*/true);
+            diskOptions.saveName(mac, "name_" + i, /*hitDisk=*/true);
+        }
+
+        assertEquals(0, context.m_applyCount);
+
+        diskOptions.update(0.01);
+
+        //--- One apply per namespace written to, no matter how many devices disconnected.
+        assertEquals(2, context.m_applyCount);
+        assertEquals(0, context.m_commitCount);
+        assertEquals(DISCONNECT_COUNT, prefs(LAST_DISCONNECT_PREFS).getAll().size());
+        assertEquals(DISCONNECT_COUNT, prefs(DEVICE_NAME_PREFS).getAll().size());
+
+        diskOptions.update(0.01);
+
+        assertEquals(2, context.m_applyCount);
+    }
+
+    @Test
+    public void flushOnPauseTest() throws Exception
+    {
+        stopUpdates();
+
+        m_mgr.m_diskOptionsMngr.saveLastDisconnect(MAC, State.ChangeIntent.UNINTENTIONAL, /*hitDisk=*/true);
+
+        assertFalse(prefs(LAST_DISCONNECT_PREFS).contains(MAC));
+
+        m_mgr.onPause();
+
+        assertTrue(prefs(LAST_DISCONNECT_PREFS).contains(MAC));
+    }
+
+    @Test
+    public void flushOnDestroyTest() throws Exception
+    {
+        stopUpdates();
+
+        m_mgr.m_diskOptionsMngr.saveName(MAC, "name", /*hitDisk=*/true);
+
+        assertFalse(prefs(DEVICE_NAME_PREFS).contains(MAC));
+
+        m_mgr.onDestroy();
+
+        assertEquals("name", prefs(DEVICE_NAME_PREFS).getString(MAC, null));
+    }
+
+    private P_DiskOptionsManager newDiskOptions()
+    {
+        prefs(LAST_DISCONNECT_PREFS).edit().clear().commit();
+        prefs(DEVICE_NAME_PREFS).edit().clear().commit();
+
+        return newDiskOptions_keepPrefs();
+    }
+
+    private P_DiskOptionsManager newDiskOptions_keepPrefs()
+    {
+        return new P_DiskOptionsManager(m_mgr.getApplicationContext());
+    }
+
+    //--- The update loop flushes on its own, which would race with checking that nothing was written yet.
+    private void stopUpdates() throws Exception
+    {
+        stopAutoUpdate();
+        m_mgr.m_diskOptionsMngr.flush(/*synchronous=*/true);
+
+        prefs(LAST_DISCONNECT_PREFS).edit().clear().commit();
+        prefs(DEVICE_NAME_PREFS).edit().clear().commit();
+    }
+
+    private SharedPreferences prefs(final String name)
+    {
+        return m_mgr.getApplicationContext().getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    private static List<String> listenForChanges(final SharedPreferences prefs)
+    {
+        final List<String> changes = new ArrayList<String>();
+
+        prefs.registerOnSharedPreferenceChangeListener(new SharedPreferences.OnSharedPreferenceChangeListener()
+        {
+            @Override public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)
+            {
+                changes.add(key);
+            }
+        });
+
+        return changes;
+    }
+
+    private static boolean contains(final Iterator<String> iterator, final String mac)
+    {
+        while (iterator.hasNext())
+        {
+            if (iterator.next().equals(mac))  return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Counts how many times the preferences it hands out are written to disk.
+     */
+    private static class CountingContext extends ContextWrapper
+    {
+        private int m_applyCount = 0;
+        private int m_commitCount = 0;
+
+        CountingContext(final Context base)
+        {
+            super(base);
+        }
+
+        @Override public SharedPreferences getSharedPreferences(final String name, final int mode)
+        {
+            return new CountingPrefs(super.getSharedPreferences(name, mode));
+        }
+
+        private class CountingPrefs implements SharedPreferences
+        {
+            private final SharedPreferences m_prefs;
+
+            CountingPrefs(final SharedPreferences prefs)
+            {
+                m_prefs = prefs;
+            }
+
+            @Override public Map<String, ?> getAll()
+            {
+                return m_prefs.getAll();
+            }
+
+            @Override public String getString(String key, String defValue)
+            {
+                return m_prefs.getString(key, defValue);
+            }
+
+            @Override public Set<String> getStringSet(String key, Set<String> defValues)
+            {
+                return m_prefs.getStringSet(key, defValues);
+            }
+
+            @Override public int getInt(String key, int defValue)
+            {
+                return m_prefs.getInt(key, defValue);
+            }
+
+            @Override public long getLong(String key, long defValue)
+            {
+                return m_prefs.getLong(key, defValue);
+            }
+
+            @Override public float getFloat(String key, float defValue)
+            {
+                return m_prefs.getFloat(key, defValue);
+            }
+
+            @Override public boolean getBoolean(String key, boolean defValue)
+            {
+                return m_prefs.getBoolean(key, defValue);
+            }
+
+            @Override public boolean contains(String key)
+            {
+                return m_prefs.contains(key);
+            }
+
+            @Override public Editor edit()
+            {
+                return new CountingEditor(m_prefs.edit());
+            }
+
+            @Override public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener)
+            {
+                m_prefs.registerOnSharedPreferenceChangeListener(listener);
+            }
+
+            @Override public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener)
+            {
+                m_prefs.unregisterOnSharedPreferenceChangeListener(listener);
+            }
+        }
+
+        private class CountingEditor implements SharedPreferences.Editor
+        {
+            private final SharedPreferences.Editor m_editor;
+
+            CountingEditor(final SharedPreferences.Editor editor)
+            {
+                m_editor = editor;
+            }
+
+            @Override public SharedPreferences.Editor putString(String key, String value)
+            {
+                m_editor.putString(key, value);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor putStringSet(String key, Set<String> values)
+            {
+                m_editor.putStringSet(key, values);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor putInt(String key, int value)
+            {
+                m_editor.putInt(key, value);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor putLong(String key, long value)
+            {
+                m_editor.putLong(key, value);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor putFloat(String key, float value)
+            {
+                m_editor.putFloat(key, value);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor putBoolean(String key, boolean value)
+            {
+                m_editor.putBoolean(key, value);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor remove(String key)
+            {
+                m_editor.remove(key);
+                return this;
+            }
+
+            @Override public SharedPreferences.Editor clear()
+            {
+                m_editor.clear();
+                return this;
+            }
+
+            @Override public boolean commit()
+            {
+                m_commitCount++;
+                return m_editor.commit();
+            }
+
+            @Override public void apply()
+            {
+                m_applyCount++;
+                m_editor.apply();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class EffectiveDeviceConfigTest extends BaseInternalTest
+{
+
+    @Test
+    public void fallsBackToManagerConfigTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final BleDeviceConfig config = new BleDeviceConfig();
+        config.useGattRefresh = null;
+        config.autoGetServices = null;
+        config.rssi_min = null;
+        config.undiscoveryKeepAlive = null;
+        device.setConfig(config);
+
+        assertMatchesUnresolved(device);
+        assertEquals(BleDeviceConfig.bool(null, m_mgr.m_config.useGattRefresh), device.conf_effective().useGattRefresh);
+    }
+
+    @Test
+    public void deviceConfigWinsTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final BleDeviceConfig config = new BleDeviceConfig();
+        config.useGattRefresh = !BleDeviceConfig.boolOrDefault(m_mgr.m_config.useGattRefresh);
+        config.rssi_min = -42;
+        config.undiscoveryKeepAlive = Interval.secs(12.0);
+        device.setConfig(config);
+
+        assertMatchesUnresolved(device);
+        assertEquals(config.useGattRefresh, device.conf_effective().useGattRefresh);
+        assertEquals(-42, device.conf_effective().rssi_min);
+        assertEquals(12.0, device.conf_effective().undiscoveryKeepAlive, 0.0);
+    }
+
+    @Test
+    public void rebuiltOnDeviceSetConfigTest()
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final P_EffectiveDeviceConfig before = device.conf_effective();
+
+        //--- Reads don't rebuild it.
+        assertSame(before, device.conf_effective());
+
+        final BleDeviceConfig config = new BleDeviceConfig();
+        config.saveNameChangesToDisk = !before.saveNameChangesToDisk;
+        device.setConfig(config);
+
+        assertNotSame(before, device.conf_effective());
+        assertEquals(config.saveNameChangesToDisk, device.conf_effective().saveNameChangesToDisk);
+    }
+
+    @Test
+    public void rebuiltOnManagerSetConfigTest()
+    {
+        removeAllDevices();
+
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        device.setConfig(null);
+        m_mgr.m_deviceMngr.add(device);
+
+        final BleManagerConfig config = m_mgr.m_config.clone();
+
+        try
+        {
+            config.autoGetServices = false;
+            m_mgr.setConfig(config);
+
+            assertFalse(device.conf_effective().autoGetServices);
+
+            config.autoGetServices = true;
+            m_mgr.setConfig(config);
+
+            assertTrue(device.conf_effective().autoGetServices);
+            assertMatchesUnresolved(device);
+        }
+        finally
+        {
+            m_mgr.setConfig(m_config);
+            removeAllDevices();
+        }
+    }
+
+    //--- Same resolution the hot paths used to do on every call.
+    private static void assertMatchesUnresolved(final BleDevice device)
+    {
+        final BleDeviceConfig conf_device = device.conf_device();
+        final BleManagerConfig conf_mngr = device.conf_mngr();
+        final P_EffectiveDeviceConfig effective = device.conf_effective();
+
+        assertEquals(BleDeviceConfig.bool(conf_device.allowCallsFromAllThreads, conf_mngr.allowCallsFromAllThreads), effective.allowCallsFromAllThreads);
+        assertEquals(BleDeviceConfig.bool(conf_device.manageLastDisconnectOnDisk, conf_mngr.manageLastDisconnectOnDisk), effective.manageLastDisconnectOnDisk);
+        assertEquals(BleDeviceConfig.bool(conf_device.saveNameChangesToDisk, conf_mngr.saveNameChangesToDisk), effective.saveNameChangesToDisk);
+        assertEquals(BleDeviceConfig.bool(conf_device.autoGetServices, conf_mngr.autoGetServices), effective.autoGetServices);
+        assertEquals(BleDeviceConfig.bool(conf_device.useGattRefresh, conf_mngr.useGattRefresh), effective.useGattRefresh);
+        assertEquals(BleDeviceConfig.bool(conf_device.alwaysUseAutoConnect, conf_mngr.alwaysUseAutoConnect), effective.alwaysUseAutoConnect);
+        assertEquals(BleDeviceConfig.bool(conf_device.cacheDeviceOnUndiscovery, conf_mngr.cacheDeviceOnUndiscovery), effective.cacheDeviceOnUndiscovery);
+        assertEquals((int) BleDeviceConfig.integer(conf_device.rssi_min, conf_mngr.rssi_min, BleDeviceConfig.DEFAULT_RSSI_MIN), effective.rssi_min);
+        assertEquals((int) BleDeviceConfig.integer(conf_device.rssi_max, conf_mngr.rssi_max, BleDeviceConfig.DEFAULT_RSSI_MAX), effective.rssi_max);
+        assertEquals(Interval.secs(BleDeviceConfig.interval(conf_device.undiscoveryKeepAlive, conf_mngr.undiscoveryKeepAlive)), effective.undiscoveryKeepAlive, 0.0);
+        assertEquals(Interval.secs(BleDeviceConfig.interval(conf_device.minScanTimeNeededForUndiscovery, conf_mngr.minScanTimeNeededForUndiscovery)), effective.minScanTimeNeededForUndiscovery, 0.0);
+    }
+
+}
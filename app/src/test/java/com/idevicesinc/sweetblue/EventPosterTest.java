@@ -0,0 +1,108 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class EventPosterTest extends BaseInternalTest
+{
+
+    @Test
+    public void eventsRunnablesAndTransactionsShareOneOrderTest() throws Exception
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final List<String> order = new ArrayList<String>();
+        final P_EventPoster poster = m_mgr.m_eventPoster;
+
+        final RecordingTransaction txn = new RecordingTransaction(order);
+
+        txn.init(device, new PI_EndListener()
+        {
+            @Override public void onTransactionEnd(BleTransaction txn, BleTransaction.EndReason reason, ReadWriteListener.ReadWriteEvent failReason)
+            {
+            }
+        });
+
+        final Thread worker = new Thread(new Runnable()
+        {
+            @Override public void run()
+            {
+                poster.post(new GenericListener_Void<TestEvent>()
+                {
+                    @Override public void onEvent(TestEvent e)
+                    {
+                        order.add("event");
+                    }
+                }, new TestEvent());
+
+                poster.post(new Runnable()
+                {
+                    @Override public void run()
+                    {
+                        order.add("runnable");
+                    }
+                });
+
+                txn.start_internal();
+                txn.succeed();
+
+                poster.post(new Runnable()
+                {
+                    @Override public void run()
+                    {
+                        order.add("last");
+                    }
+                });
+            }
+        });
+
+        worker.start();
+        worker.join();
+
+        assertEquals(0, order.size());
+
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(Arrays.asList("event", "runnable", "transaction", "last"), order);
+    }
+
+    private static class TestEvent extends Event
+    {
+    }
+
+    private static class RecordingTransaction extends BleTransaction
+    {
+        private final List<String> m_order;
+
+        RecordingTransaction(final List<String> order)
+        {
+            m_order = order;
+        }
+
+        @Override protected void start(BleDevice device)
+        {
+        }
+
+        @Override protected void onEnd(BleDevice device, EndReason reason)
+        {
+            m_order.add("transaction");
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class GattIndexTest
+{
+
+    private static final UUID SERVICE_A = Uuids.fromShort("aaa1");
+    private static final UUID SERVICE_B = Uuids.fromShort("aaa2");
+    private static final UUID CHAR_1 = Uuids.fromShort("bbb1");
+    private static final UUID CHAR_2 = Uuids.fromShort("bbb2");
+    private static final UUID DESC_1 = Uuids.fromShort("ccc1");
+    private static final UUID DESC_2 = Uuids.fromShort("ccc2");
+    private static final UUID MISSING = Uuids.fromShort("ddd1");
+
+
+    @Test
+    public void matchesLinearSearchTest()
+    {
+        final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+
+        //--- Same characteristic and descriptor uuids in several places, including a duplicate service, so first-match order matters.
+        services.add(newService(SERVICE_A, CHAR_1, CHAR_2));
+        services.add(newService(SERVICE_B, CHAR_2, CHAR_1));
+        services.add(newService(SERVICE_A, CHAR_1));
+        services.add(newService(Uuids.INVALID, Uuids.INVALID));
+
+        final TestServiceManager linear = new TestServiceManager(services);
+        final TestServiceManager indexed = new TestServiceManager(services);
+        indexed.buildIndex();
+
+        final UUID[] serviceUuids = { null, SERVICE_A, SERVICE_B, Uuids.INVALID, MISSING };
+        final UUID[] charUuids = { null, CHAR_1, CHAR_2, Uuids.INVALID, MISSING };
+        final UUID[] descUuids = { DESC_1, DESC_2, Uuids.INVALID, MISSING };
+
+        for (UUID serviceUuid : serviceUuids)
+        {
+            for (UUID charUuid : charUuids)
+            {
+                if (charUuid != null)
+                {
+                    assertSame(linear.getCharacteristic(serviceUuid, charUuid), indexed.getCharacteristic(serviceUuid, charUuid));
+                }
+
+                for (UUID descUuid : descUuids)
+                {
+                    assertSame(linear.getDescriptor(serviceUuid, charUuid, descUuid), indexed.getDescriptor(serviceUuid, charUuid, descUuid));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void invalidUuidIsNotWildcardTest()
+    {
+        final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+        services.add(newService(SERVICE_A, CHAR_1));
+
+        final TestServiceManager indexed = new TestServiceManager(services);
+        indexed.buildIndex();
+
+        assertNotNull(indexed.getCharacteristic(null, CHAR_1));
+        assertNull(indexed.getCharacteristic(Uuids.INVALID, CHAR_1));
+        assertNotNull(indexed.getDescriptor(null, null, DESC_1));
+        assertNull(indexed.getDescriptor(Uuids.INVALID, null, DESC_1));
+        assertNull(indexed.getDescriptor(SERVICE_A, Uuids.INVALID, DESC_1));
+    }
+
+    @Test
+    public void duplicateCharacteristicFindsFirstTest()
+    {
+        final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+        services.add(newService(SERVICE_A, CHAR_1, CHAR_1));
+
+        final TestServiceManager linear = new TestServiceManager(services);
+        final TestServiceManager indexed = new TestServiceManager(services);
+        indexed.buildIndex();
+
+        final BluetoothGattCharacteristic first = services.get(0).getCharacteristics().get(0);
+
+        assertSame(first, linear.getCharacteristic(SERVICE_A, CHAR_1));
+        assertSame(first, indexed.getCharacteristic(SERVICE_A, CHAR_1));
+        assertSame(first, indexed.getCharacteristic(null, CHAR_1));
+        assertSame(first.getDescriptor(DESC_1), indexed.getDescriptor(SERVICE_A, CHAR_1, DESC_1));
+    }
+
+    private static BluetoothGattService newService(UUID serviceUuid, UUID... charUuids)
+    {
+        final BluetoothGattService service = new BluetoothGattService(serviceUuid, BluetoothGattService.SERVICE_TYPE_PRIMARY);
+
+        for (UUID charUuid : charUuids)
+        {
+            final BluetoothGattCharacteristic characteristic = new BluetoothGattCharacteristic(charUuid, BluetoothGattCharacteristic.PROPERTY_READ, BluetoothGattCharacteristic.PERMISSION_READ);
+            characteristic.addDescriptor(new BluetoothGattDescriptor(DESC_1, BluetoothGattDescriptor.PERMISSION_READ));
+            characteristic.addDescriptor(new BluetoothGattDescriptor(DESC_2, BluetoothGattDescriptor.PERMISSION_READ));
+            characteristic.addDescriptor(new BluetoothGattDescriptor(Uuids.INVALID, BluetoothGattDescriptor.PERMISSION_READ));
+            service.addCharacteristic(characteristic);
+        }
+
+        return service;
+    }
+
+    private static final class TestServiceManager extends PA_ServiceManager
+    {
+        private final List<BluetoothGattService> m_services;
+
+        TestServiceManager(List<BluetoothGattService> services)
+        {
+            m_services = services;
+        }
+
+        @Override public BluetoothGattService getServiceDirectlyFromNativeNode(UUID uuid)
+        {
+            for (BluetoothGattService service : m_services)
+            {
+                if (service.getUuid().equals(uuid))
+                {
+                    return service;
+                }
+            }
+
+            return null;
+        }
+
+        @Override protected List<BluetoothGattService> getNativeServiceList_original()
+        {
+            return m_services;
+        }
+    }
+
+}
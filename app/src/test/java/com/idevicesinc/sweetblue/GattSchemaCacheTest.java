@@ -0,0 +1,144 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class GattSchemaCacheTest extends BaseInternalTest
+{
+
+    private static final UUID SERVICE = Uuids.fromShort("aaa1");
+    private static final UUID CHAR_1 = Uuids.fromShort("bbb1");
+    private static final UUID CHAR_2 = Uuids.fromShort("bbb2");
+
+    private String m_key = "1.0";
+
+
+    @Test
+    public void noKeyProviderNeverValidTest()
+    {
+        final BleDevice device = newDevice(/*withKeyProvider=*/false);
+        final P_GattSchemaCache cache = m_mgr.m_gattSchemaCache;
+
+        cache.onServicesDiscovered(device, services(CHAR_1), /*wasValid=*/false);
+
+        assertFalse(cache.isValid(device));
+    }
+
+    @Test
+    public void keyChangeInvalidatesTest()
+    {
+        final BleDevice device = newDevice(/*withKeyProvider=*/true);
+        final P_GattSchemaCache cache = m_mgr.m_gattSchemaCache;
+
+        assertFalse(cache.isValid(device));
+
+        cache.onServicesDiscovered(device, services(CHAR_1), /*wasValid=*/false);
+
+        assertTrue(cache.isValid(device));
+        assertTrue(cache.matchesNative(device, services(CHAR_1)));
+        assertFalse(cache.matchesNative(device, services(CHAR_2)));
+
+        m_key = "2.0";
+
+        assertFalse(cache.isValid(device));
+    }
+
+    @Test
+    public void mismatchReplacesFingerprintTest()
+    {
+        final BleDevice device = newDevice(/*withKeyProvider=*/true);
+        final P_GattSchemaCache cache = m_mgr.m_gattSchemaCache;
+
+        cache.onServicesDiscovered(device, services(CHAR_1), /*wasValid=*/false);
+
+        //--- Database changed behind an unchanged key, the stale fingerprint must not keep matching.
+        cache.onServicesDiscovered(device, services(CHAR_2), /*wasValid=*/true);
+
+        assertFalse(cache.matchesNative(device, services(CHAR_1)));
+        assertTrue(cache.matchesNative(device, services(CHAR_2)));
+    }
+
+    @Test
+    public void discoveryFailureClearsTest()
+    {
+        final BleDevice device = newDevice(/*withKeyProvider=*/true);
+        final P_GattSchemaCache cache = m_mgr.m_gattSchemaCache;
+
+        cache.onServicesDiscovered(device, services(CHAR_1), /*wasValid=*/false);
+
+        cache.onDiscoveryFailed(device, /*wasValid=*/false);
+
+        assertTrue(cache.isValid(device));
+
+        cache.onDiscoveryFailed(device, /*wasValid=*/true);
+
+        assertFalse(cache.isValid(device));
+    }
+
+    @Test
+    public void unbondClearsTest()
+    {
+        final BleDevice device = newDevice(/*withKeyProvider=*/true);
+        final P_GattSchemaCache cache = m_mgr.m_gattSchemaCache;
+
+        cache.onServicesDiscovered(device, services(CHAR_1), /*wasValid=*/false);
+
+        assertTrue(cache.isValid(device));
+
+        device.unbond();
+
+        assertFalse(cache.isValid(device));
+    }
+
+    private BleDevice newDevice(boolean withKeyProvider)
+    {
+        final BleDevice device = newDevice();
+        final BleDeviceConfig config = new BleDeviceConfig();
+        config.cacheGattSchema = true;
+
+        if (withKeyProvider)
+        {
+            config.gattSchemaKeyProvider = new BleDeviceConfig.GattSchemaKeyProvider()
+            {
+                @Override public String getKey(BleDevice device)
+                {
+                    return m_key;
+                }
+            };
+        }
+
+        device.setConfig(config);
+
+        return device;
+    }
+
+    private static List<BluetoothGattService> services(UUID charUuid)
+    {
+        final BluetoothGattService service = new BluetoothGattService(SERVICE, BluetoothGattService.SERVICE_TYPE_PRIMARY);
+        service.addCharacteristic(new BluetoothGattCharacteristic(charUuid, BluetoothGattCharacteristic.PROPERTY_READ, BluetoothGattCharacteristic.PERMISSION_READ));
+
+        final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+        services.add(service);
+
+        return services;
+    }
+
+}
@@ -0,0 +1,331 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.content.Context;
+
+import com.idevicesinc.sweetblue.BleNodeConfig.HistoricalDataRetentionFilter.Please;
+import com.idevicesinc.sweetblue.BleNodeConfig.HistoricalDataRetentionPolicy;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataCompactionTest extends BaseInternalTest
+{
+
+    private static final String MAC_1 = "AA:BB:CC:DD:EE:01";
+    private static final String MAC_2 = "AA:BB:CC:DD:EE:02";
+    private static final UUID UUID_1 = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+
+    private TestHistoricalDatabase m_database;
+    private Backend_HistoricalDatabase m_oldDatabase;
+
+
+    @Before
+    public void installDatabase() throws Exception
+    {
+        stopAutoUpdate();
+        removeAllDevices();
+
+        //--- BleManager is a singleton, so start every test without what earlier ones logged.
+        m_mgr.getApplicationContext().getSharedPreferences("sweetblue__previous_historical_data_uuids", Context.MODE_PRIVATE).edit().clear().commit();
+        logStates().clear();
+
+        m_database = new TestHistoricalDatabase();
+        m_oldDatabase = TestHistoricalDatabase.install(m_mgr, m_database);
+    }
+
+    @After
+    public void restoreDatabase()
+    {
+        m_mgr.m_config.historicalDataRetentionFilter = null;
+        TestHistoricalDatabase.install(m_mgr, m_oldDatabase);
+        removeAllDevices();
+    }
+
+    @Test
+    public void maxRowCountTest()
+    {
+        addRows(MAC_1, 10, 1000);
+        setRetention(Please.keep().andMaxRowCount(4));
+
+        compact();
+
+        final List<HistoricalData> rows = m_database.getRows(MAC_1, UUID_1);
+
+        assertEquals(4, rows.size());
+        assertEquals(1006, rows.get(0).getEpochTime_millis());
+        assertEquals(Arrays.asList(MAC_1 + "/" + UUID_1 + ":6"), m_database.getDeletes());
+    }
+
+    @Test
+    public void maxByteCountTest()
+    {
+        //--- Every row is two bytes.
+        addRows(MAC_1, 10, 1000);
+        setRetention(Please.keep().andMaxByteCount(7));
+
+        compact();
+
+        final List<HistoricalData> rows = m_database.getRows(MAC_1, UUID_1);
+
+        assertEquals(3, rows.size());
+        assertEquals(1007, rows.get(0).getEpochTime_millis());
+    }
+
+    @Test
+    public void maxAgeTest()
+    {
+        final long now = System.currentTimeMillis();
+
+        addRows(MAC_1, 5, now - 60000);
+        addRows(MAC_1, 5, now);
+        setRetention(Please.keep().andMaxAge(Interval.secs(30.0)));
+
+        compact();
+
+        final List<HistoricalData> rows = m_database.getRows(MAC_1, UUID_1);
+
+        assertEquals(5, rows.size());
+        assertEquals(now, rows.get(0).getEpochTime_millis());
+    }
+
+    @Test
+    public void macWithoutDeviceTest()
+    {
+        addRows(MAC_1, 10, 1000);
+        addRows(MAC_2, 10, 1000);
+        m_mgr.m_deviceMngr.add(newDevice(MAC_1));
+
+        setRetention(Please.keep().andMaxRowCount(2));
+
+        compact();
+
+        //--- MAC_2 was never discovered but still gets compacted.
+        assertEquals(2, m_database.getRows(MAC_1, UUID_1).size());
+        assertEquals(2, m_database.getRows(MAC_2, UUID_1).size());
+    }
+
+    @Test
+    public void skipsUnchangedTest()
+    {
+        final BleDevice device = newDevice(MAC_1);
+
+        m_mgr.m_deviceMngr.add(device);
+        addRows(MAC_1, 10, 1000);
+        setRetention(Please.keep().andMaxRowCount(4).andMaxByteCount(100));
+
+        compact();
+
+        assertEquals(1, m_database.getCursorCount());
+        assertEquals(4, m_database.getBlobReadCount());
+
+        //--- Nothing was added so nothing is looked at.
+        compact();
+
+        assertEquals(1, m_database.getCursorCount());
+
+        //--- Something was added, but its size is known and the log is still far from the byte limit, so no blobs are read.
+        device.addHistoricalData(UUID_1, new byte[]{ 1, 2, 3 }, new EpochTime(2000));
+
+        compact();
+
+        assertEquals(2, m_database.getCursorCount());
+        assertEquals(4, m_database.getBlobReadCount());
+
+        //--- New limits always mean another look.
+        setRetention(Please.keep().andMaxRowCount(3));
+
+        compact();
+
+        assertEquals(3, m_database.getCursorCount());
+        assertEquals(3, m_database.getRows(MAC_1, UUID_1).size());
+    }
+
+    @Test
+    public void memoryOnlyTest()
+    {
+        final BleDevice device = newDevice(MAC_1);
+        final long now = System.currentTimeMillis();
+
+        m_mgr.m_deviceMngr.add(device);
+        setRetention(Please.keep().andMaxAge(Interval.secs(30.0)));
+
+        //--- The default log filter only keeps data in memory.
+        device.addHistoricalData(UUID_1, new byte[]{ 1 }, new EpochTime(now));
+
+        compact();
+
+        assertFalse(device.getHistoricalData_latest(UUID_1).isNull());
+
+        device.addHistoricalData(UUID_1, new byte[]{ 2 }, new EpochTime(now - 60000));
+
+        compact();
+
+        assertTrue(device.getHistoricalData_latest(UUID_1).isNull());
+        assertEquals(0, m_database.getRows(MAC_1, UUID_1).size());
+    }
+
+    @Test
+    public void forgetsDeletedLogsTest()
+    {
+        final BleDevice device = newDevice(MAC_1);
+
+        m_mgr.m_deviceMngr.add(device);
+        setRetention(Please.keep().andMaxRowCount(4));
+
+        addRows(MAC_1, 10, 1000);
+        compact();
+
+        assertTrue(logStates().containsKey(MAC_1));
+
+        device.clearHistoricalData(UUID_1);
+
+        assertFalse(logStates().containsKey(MAC_1));
+
+        addRows(MAC_1, 10, 1000);
+        compact();
+        device.clearHistoricalData();
+
+        assertFalse(logStates().containsKey(MAC_1));
+
+        addRows(MAC_1, 10, 1000);
+        compact();
+        m_mgr.clearSharedPreferences(MAC_1);
+
+        assertFalse(logStates().containsKey(MAC_1));
+
+        addRows(MAC_1, 10, 1000);
+        addRows(MAC_2, 10, 1000);
+        compact();
+        m_mgr.clearSharedPreferences();
+
+        assertTrue(logStates().isEmpty());
+
+        addRows(MAC_1, 10, 1000);
+        compact();
+        device.undiscover();
+
+        assertFalse(logStates().containsKey(MAC_1));
+    }
+
+    @Test(timeout = 10000)
+    public void compactsWhenNeverIdleTest() throws Exception
+    {
+        final double rate = m_mgr.m_config.historicalDataCompactionRate.secs();
+
+        addRows(MAC_1, 10, 1000);
+        setRetention(Please.keep().andMaxRowCount(4));
+
+        CountDownLatch release = block();
+
+        m_mgr.m_historicalDataCompactor.update(rate);
+
+        release.countDown();
+        waitUntilIdle();
+
+        //--- Held off since the pool was busy.
+        assertEquals(10, m_database.getRows(MAC_1, UUID_1).size());
+
+        release = block();
+
+        m_mgr.m_historicalDataCompactor.update(rate * (P_HistoricalDataCompactor.MAX_WAIT_MULTIPLIER - 1.0));
+
+        release.countDown();
+        waitUntilIdle();
+
+        //--- Went ahead anyway once it had waited long enough.
+        assertEquals(4, m_database.getRows(MAC_1, UUID_1).size());
+    }
+
+    private Map<?, ?> logStates()
+    {
+        return ReflectionHelpers.getField(m_mgr.m_historicalDataCompactor, "m_logStates");
+    }
+
+    private void setRetention(final Please please)
+    {
+        m_mgr.m_config.historicalDataRetentionFilter = new HistoricalDataRetentionPolicy(please);
+    }
+
+    /**
+     * Adds rows straight to the database, the way an import for an unknown mac address does.
+     */
+    private void addRows(final String mac, final int count, final long startTime)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            m_database.add_single(mac, UUID_1, new HistoricalData(new byte[]{ (byte) i, 0 }, new EpochTime(startTime + i)), 0);
+        }
+
+        new P_HistoricalDataManager_PreviousUuids(m_mgr.getApplicationContext(), mac).addUuid(UUID_1);
+    }
+
+    private void compact()
+    {
+        m_mgr.compactHistoricalData();
+        waitUntilIdle();
+    }
+
+    /**
+     * Keeps the worker pool busy until the returned latch is released.
+     */
+    private static CountDownLatch block()
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        P_HistoricalDataManager.post(new Runnable()
+        {
+            @Override public void run()
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        return release;
+    }
+
+    private static void waitUntilIdle()
+    {
+        while (!P_HistoricalDataManager.isWorkerPoolIdle())
+        {
+            try
+            {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleNode.HistoricalDataExportListener;
+import com.idevicesinc.sweetblue.BleNode.HistoricalDataExportListener.HistoricalDataExportEvent;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataStreamTest extends BaseInternalTest
+{
+
+    private static final String MAC_1 = "AA:BB:CC:DD:EE:01";
+    private static final String MAC_2 = "AA:BB:CC:DD:EE:02";
+    private static final UUID UUID_1 = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+    private static final UUID UUID_2 = UUID.fromString("0000ffe2-0000-1000-8000-00805f9b34fb");
+
+    private TestHistoricalDatabase m_database;
+    private Backend_HistoricalDatabase m_oldDatabase;
+
+
+    @Before
+    public void installDatabase()
+    {
+        removeAllDevices();
+
+        m_database = new TestHistoricalDatabase();
+        m_oldDatabase = TestHistoricalDatabase.install(m_mgr, m_database);
+    }
+
+    @After
+    public void restoreDatabase()
+    {
+        TestHistoricalDatabase.install(m_mgr, m_oldDatabase);
+        removeAllDevices();
+    }
+
+    @Test
+    public void roundTripTest() throws Exception
+    {
+        addRows(MAC_1, UUID_1, 600, 1000);
+        addRows(MAC_2, UUID_2, 3, 5000);
+
+        final Recorder recorder = new Recorder();
+        final byte[] bytes = export(null, recorder);
+
+        //--- Chunks of 256 rows, then whatever is left, and the next pair never shares a chunk.
+        assertEquals(4, recorder.m_events.size());
+        assertChunk(recorder.m_events.get(0), MAC_1, UUID_1, 256, 1000 + 255, 256);
+        assertChunk(recorder.m_events.get(1), MAC_1, UUID_1, 256, 1000 + 511, 512);
+        assertChunk(recorder.m_events.get(2), MAC_1, UUID_1, 88, 1000 + 599, 600);
+        assertChunk(recorder.m_events.get(3), MAC_2, UUID_2, 3, 5002, 603);
+
+        assertEquals(listOf(256, 256, 88, 3), chunkRowCounts(bytes));
+
+        final TestHistoricalDatabase target = new TestHistoricalDatabase();
+        TestHistoricalDatabase.install(m_mgr, target);
+
+        assertEquals(603, m_mgr.importHistoricalData(new ByteArrayInputStream(bytes)));
+
+        assertSameRows(m_database.getRows(MAC_1, UUID_1), target.getRows(MAC_1, UUID_1));
+        assertSameRows(m_database.getRows(MAC_2, UUID_2), target.getRows(MAC_2, UUID_2));
+    }
+
+    @Test
+    public void chunkNeverSplitsTimestampTest() throws Exception
+    {
+        //--- Rows 250 to 269 all have the same timestamp.
+        for (int i = 0; i < 300; i++)
+        {
+            final long time = i < 250 ? i : i < 270 ? 250 : i - 19;
+
+            m_database.add_single(MAC_1, UUID_1, new HistoricalData(new byte[]{ (byte) i }, new EpochTime(1000 + time)), 0);
+        }
+
+        final Recorder recorder = new Recorder();
+        final byte[] bytes = export(null, recorder);
+
+        assertEquals(listOf(270, 30), chunkRowCounts(bytes));
+        assertEquals(1000 + 250, recorder.m_events.get(0).checkpoint().toMilliseconds());
+    }
+
+    @Test
+    public void resumeTest() throws Exception
+    {
+        addRows(MAC_1, UUID_1, 600, 1000);
+        addRows(MAC_2, UUID_2, 3, 5000);
+
+        final Recorder recorder = new Recorder();
+        export(null, recorder);
+
+        //--- Picks up right after the first chunk.
+        final byte[] rest = export(recorder.m_events.get(0), null);
+
+        assertEquals(listOf(256, 88, 3), chunkRowCounts(rest));
+
+        final TestHistoricalDatabase target = new TestHistoricalDatabase();
+        TestHistoricalDatabase.install(m_mgr, target);
+
+        assertEquals(347, m_mgr.importHistoricalData(new ByteArrayInputStream(rest)));
+        assertEquals(1000 + 256, target.getRows(MAC_1, UUID_1).get(0).getEpochTime_millis());
+
+        //--- Resuming from the last chunk of a pair moves straight on to the next pair.
+        assertEquals(listOf(3), chunkRowCounts(export(recorder.m_events.get(2), null)));
+    }
+
+    @Test
+    public void resumeFromUnknownPairTest() throws Exception
+    {
+        addRows(MAC_1, UUID_1, 10, 1000);
+
+        final HistoricalDataExportEvent elsewhere = new HistoricalDataExportEvent(m_mgr, MAC_2, UUID_1, new EpochTime(1005), 5, 5);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try
+        {
+            m_mgr.exportHistoricalData(out, new String[]{ MAC_1 }, new UUID[]{ UUID_1 }, EpochTimeRange.FROM_MIN_TO_MAX, elsewhere, null);
+
+            fail("Expected the export to refuse to resume.");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void loadedDeviceUsesMemoryTest() throws Exception
+    {
+        addRows(MAC_1, UUID_1, 10, 1000);
+
+        final BleDevice device = newDevice(MAC_1);
+        m_mgr.m_deviceMngr.add(device);
+
+        //--- The default list only keeps the latest value in memory, which is what gets exported once there is a list.
+        device.addHistoricalData(UUID_1, new byte[]{ 42 }, new EpochTime(2000));
+
+        final byte[] bytes = export(null, null);
+
+        assertEquals(listOf(1), chunkRowCounts(bytes));
+    }
+
+    @Test
+    public void importToLoadedDeviceTest() throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        addRows(MAC_1, UUID_1, 3, 1000);
+        m_mgr.exportHistoricalData(out, new String[]{ MAC_1 }, new UUID[]{ UUID_1 });
+
+        final TestHistoricalDatabase target = new TestHistoricalDatabase();
+        TestHistoricalDatabase.install(m_mgr, target);
+
+        final BleDevice device = newDevice(MAC_1);
+        m_mgr.m_deviceMngr.add(device);
+
+        assertEquals(3, m_mgr.importHistoricalData(new ByteArrayInputStream(out.toByteArray())));
+
+        //--- Went through the device's lists rather than straight to the database.
+        assertEquals(1002, device.getHistoricalData_latest(UUID_1).getEpochTime_millis());
+        assertEquals(0, target.getRows(MAC_1, UUID_1).size());
+    }
+
+    @Test
+    public void corruptRowCountTest() throws Exception
+    {
+        addRows(MAC_1, UUID_1, 3, 1000);
+
+        final byte[] bytes = export(null, null);
+
+        //--- Header is 5 bytes, then the payload length, mac length, mac, and uuid come before the row count.
+        final int rowCountOffset = 5 + 4 + 2 + MAC_1.length() + 16;
+        bytes[rowCountOffset + 3] = 4;
+
+        try
+        {
+            m_mgr.importHistoricalData(new ByteArrayInputStream(bytes));
+
+            fail("Expected a corrupt stream.");
+        }
+        catch (IOException e)
+        {
+        }
+    }
+
+    private byte[] export(final HistoricalDataExportEvent resumeFrom, final HistoricalDataExportListener listener) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        m_mgr.exportHistoricalData(out, new String[]{ MAC_1, MAC_2 }, new UUID[]{ UUID_1, UUID_2 }, EpochTimeRange.FROM_MIN_TO_MAX, resumeFrom, listener);
+
+        return out.toByteArray();
+    }
+
+    private void addRows(final String mac, final UUID uuid, final int count, final long startTime)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            m_database.add_single(mac, uuid, new HistoricalData(new byte[]{ (byte) i, (byte) (i >> 8) }, new EpochTime(startTime + i)), 0);
+        }
+    }
+
+    /**
+     * Walks the raw stream, checking its framing, and returns the row count of every chunk.
+     */
+    private static List<Integer> chunkRowCounts(final byte[] bytes) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final List<Integer> counts = new ArrayList<Integer>();
+
+        assertEquals(P_HistoricalDataStream.MAGIC, in.readInt());
+        assertEquals(P_HistoricalDataStream.VERSION, in.readByte());
+
+        while (true)
+        {
+            final int payloadLength = in.readInt();
+
+            if (payloadLength == 0)
+            {
+                break;
+            }
+
+            final byte[] payload = new byte[payloadLength];
+            in.readFully(payload);
+
+            final DataInputStream chunk = new DataInputStream(new ByteArrayInputStream(payload));
+            final byte[] mac = new byte[chunk.readShort()];
+            chunk.readFully(mac);
+            chunk.readLong();
+            chunk.readLong();
+
+            final int rowCount = chunk.readInt();
+
+            for (int i = 0; i < rowCount; i++)
+            {
+                chunk.readLong();
+                chunk.readFully(new byte[chunk.readInt()]);
+            }
+
+            //--- Row count has to account for exactly the whole payload.
+            assertEquals(0, chunk.available());
+
+            counts.add(rowCount);
+        }
+
+        assertEquals(0, in.available());
+
+        return counts;
+    }
+
+    private static void assertChunk(final HistoricalDataExportEvent e, final String mac, final UUID uuid, final int rowCount, final long checkpoint, final long total)
+    {
+        assertEquals(mac, e.macAddress());
+        assertEquals(uuid, e.uuid());
+        assertEquals(rowCount, e.rowCount());
+        assertEquals(checkpoint, e.checkpoint().toMilliseconds());
+        assertEquals(total, e.totalRowCount());
+    }
+
+    private static void assertSameRows(final List<HistoricalData> expected, final List<HistoricalData> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertTrue(expected.size() > 0);
+
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i).getEpochTime_millis(), actual.get(i).getEpochTime_millis());
+            assertArrayEquals(expected.get(i).getBlob(), actual.get(i).getBlob());
+        }
+    }
+
+    private static List<Integer> listOf(final Integer ... values)
+    {
+        final List<Integer> list = new ArrayList<Integer>();
+
+        for (Integer value : values)
+        {
+            list.add(value);
+        }
+
+        return list;
+    }
+
+    private static class Recorder implements HistoricalDataExportListener
+    {
+        private final List<HistoricalDataExportEvent> m_events = new ArrayList<HistoricalDataExportEvent>();
+
+        @Override public void onEvent(HistoricalDataExportEvent e)
+        {
+            m_events.add(e);
+        }
+    }
+
+}
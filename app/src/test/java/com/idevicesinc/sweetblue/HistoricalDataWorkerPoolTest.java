@@ -0,0 +1,350 @@
+package com.idevicesinc.sweetblue;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataWorkerPoolTest extends BaseInternalTest
+{
+
+    @Test(timeout = 10000)
+    public void priorityTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(1);
+        final P_HistoricalDataManager normal = newOwner("AA:BB:CC:DD:EE:01");
+        final P_HistoricalDataManager prioritized = newOwner("AA:BB:CC:DD:EE:02");
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch release = new CountDownLatch(1);
+
+        prioritized.setPrioritized(true);
+
+        //--- Holds the only thread so everything below queues up.
+        pool.post(normal, new Runnable()
+        {
+            @Override public void run()
+            {
+                await(release);
+            }
+        });
+
+        pool.post(normal, record(order, "normal 1"));
+        pool.post(normal, record(order, "normal 2"));
+        pool.post(prioritized, record(order, "prioritized 1"));
+        pool.post(prioritized, record(order, "prioritized 2"));
+
+        release.countDown();
+        waitUntilIdle(pool);
+
+        assertEquals(Arrays.asList("prioritized 1", "prioritized 2", "normal 1", "normal 2"), order);
+    }
+
+    @Test(timeout = 10000)
+    public void perOwnerOrderTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(3);
+        final P_HistoricalDataManager first = newOwner("AA:BB:CC:DD:EE:01");
+        final P_HistoricalDataManager second = newOwner("AA:BB:CC:DD:EE:02");
+        final List<Integer> firstOrder = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> secondOrder = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger firstRunning = new AtomicInteger();
+        final AtomicInteger maxFirstRunning = new AtomicInteger();
+
+        for (int i = 0; i < 50; i++)
+        {
+            final int index = i;
+
+            pool.post(first, new Runnable()
+            {
+                @Override public void run()
+                {
+                    final int running = firstRunning.incrementAndGet();
+
+                    maxFirstRunning.set(Math.max(maxFirstRunning.get(), running));
+                    sleep(1);
+                    firstOrder.add(index);
+                    firstRunning.decrementAndGet();
+                }
+            });
+
+            pool.post(second, new Runnable()
+            {
+                @Override public void run()
+                {
+                    secondOrder.add(index);
+                }
+            });
+        }
+
+        waitUntilIdle(pool);
+
+        assertEquals(1, maxFirstRunning.get());
+        assertEquals(50, firstOrder.size());
+        assertEquals(50, secondOrder.size());
+
+        for (int i = 0; i < 50; i++)
+        {
+            assertEquals(i, firstOrder.get(i).intValue());
+            assertEquals(i, secondOrder.get(i).intValue());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void ownerlessWaitsForEarlierWorkTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(3);
+        final P_HistoricalDataManager writer = newOwner("AA:BB:CC:DD:EE:01");
+        final P_HistoricalDataManager other = newOwner("AA:BB:CC:DD:EE:02");
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch earlierDone = new CountDownLatch(1);
+
+        pool.post(writer, new Runnable()
+        {
+            @Override public void run()
+            {
+                await(release);
+                order.add("write");
+            }
+        });
+
+        //--- Posted before the query, so it doesn't have to wait for anything.
+        pool.post(other, new Runnable()
+        {
+            @Override public void run()
+            {
+                order.add("earlier");
+                earlierDone.countDown();
+            }
+        });
+
+        pool.post(null, record(order, "query"));
+
+        //--- Posted after the query, so it waits for it even though there are free threads.
+        pool.post(other, record(order, "later"));
+
+        assertTrue(earlierDone.await(5, TimeUnit.SECONDS));
+        sleep(100);
+        assertEquals(Arrays.asList("earlier"), order);
+
+        release.countDown();
+        waitUntilIdle(pool);
+
+        assertEquals(Arrays.asList("earlier", "write", "query", "later"), order);
+    }
+
+    @Test(timeout = 10000)
+    public void ownerlessHoldsBackLaterWorkTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(3);
+        final P_HistoricalDataManager other = newOwner("AA:BB:CC:DD:EE:02");
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch queryStarted = new CountDownLatch(1);
+
+        pool.post(null, new Runnable()
+        {
+            @Override public void run()
+            {
+                queryStarted.countDown();
+                await(release);
+                order.add("query");
+            }
+        });
+
+        pool.post(other, record(order, "later"));
+
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        sleep(100);
+        assertTrue(order.isEmpty());
+
+        release.countDown();
+        waitUntilIdle(pool);
+
+        assertEquals(Arrays.asList("query", "later"), order);
+    }
+
+    @Test(timeout = 10000)
+    public void ownerlessGoesFirstOnceReadyTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(1);
+        final P_HistoricalDataManager prioritized = newOwner("AA:BB:CC:DD:EE:01");
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch release = new CountDownLatch(1);
+
+        prioritized.setPrioritized(true);
+
+        pool.post(prioritized, new Runnable()
+        {
+            @Override public void run()
+            {
+                await(release);
+            }
+        });
+
+        pool.post(null, record(order, "query"));
+        pool.post(prioritized, record(order, "prioritized"));
+
+        release.countDown();
+        waitUntilIdle(pool);
+
+        assertEquals(Arrays.asList("query", "prioritized"), order);
+    }
+
+    @Test(timeout = 10000)
+    public void replacesThreadThatThrewTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(1);
+        final P_HistoricalDataManager owner = newOwner("AA:BB:CC:DD:EE:01");
+        final CountDownLatch ran = new CountDownLatch(2);
+        final Thread.UncaughtExceptionHandler oldHandler = Thread.getDefaultUncaughtExceptionHandler();
+
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler()
+        {
+            @Override public void uncaughtException(Thread t, Throwable e)
+            {
+            }
+        });
+
+        try
+        {
+            pool.post(owner, new Runnable()
+            {
+                @Override public void run()
+                {
+                    throw new RuntimeException("Expected.");
+                }
+            });
+
+            pool.post(owner, new Runnable()
+            {
+                @Override public void run()
+                {
+                    ran.countDown();
+                }
+            });
+
+            pool.post(null, new Runnable()
+            {
+                @Override public void run()
+                {
+                    ran.countDown();
+                }
+            });
+
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            Thread.setDefaultUncaughtExceptionHandler(oldHandler);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void cancelTest() throws Exception
+    {
+        final P_HistoricalDataWorkerPool pool = new P_HistoricalDataWorkerPool(1);
+        final P_HistoricalDataManager owner = newOwner("AA:BB:CC:DD:EE:01");
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch release = new CountDownLatch(1);
+
+        pool.post(owner, new Runnable()
+        {
+            @Override public void run()
+            {
+                await(release);
+            }
+        });
+
+        pool.post(owner, new P_HistoricalDataWorkerPool.Cancellable()
+        {
+            @Override public void run()
+            {
+                order.add("load");
+            }
+
+            @Override public void onCancelled()
+            {
+                order.add("cancelled");
+            }
+        });
+
+        pool.post(owner, record(order, "write"));
+
+        pool.cancel(owner);
+
+        assertEquals(Arrays.asList("cancelled"), order);
+        assertFalse(pool.isIdle());
+
+        release.countDown();
+        waitUntilIdle(pool);
+
+        //--- Only cancellable work is dropped.
+        assertEquals(Arrays.asList("cancelled", "write"), order);
+    }
+
+    private P_HistoricalDataManager newOwner(final String macAddress)
+    {
+        return newDevice(macAddress).getHistoricalDataManager();
+    }
+
+    private static Runnable record(final List<String> order, final String name)
+    {
+        return new Runnable()
+        {
+            @Override public void run()
+            {
+                order.add(name);
+            }
+        };
+    }
+
+    private static void waitUntilIdle(final P_HistoricalDataWorkerPool pool)
+    {
+        while (!pool.isIdle())
+        {
+            sleep(5);
+        }
+    }
+
+    private static void await(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(final long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
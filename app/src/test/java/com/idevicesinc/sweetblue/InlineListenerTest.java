@@ -0,0 +1,447 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.os.Handler;
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener;
+import com.idevicesinc.sweetblue.utils.PresentData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class InlineListenerTest extends BaseInternalTest
+{
+
+    private static final UUID SERVICE_UUID = UUID.fromString("0000ffe0-0000-1000-8000-00805f9b34fb");
+    private static final UUID CHAR_UUID = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+    private static final int WRITE_COUNT = 200;
+
+
+    @Test
+    public void inlineListenerRunsOnCallingThreadTest() throws Exception
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final RecordingListener posted = new RecordingListener();
+        final RecordingListener inline = new InlineRecordingListener();
+
+        final Thread worker = runOnWorker(new Runnable()
+        {
+            @Override public void run()
+            {
+                //--- Not connected, so both calls end right away through BleDevice's normal callback path.
+                device.read(CHAR_UUID, posted);
+                device.read(CHAR_UUID, inline);
+            }
+        });
+
+        assertEquals(1, inline.m_events.size());
+        assertSame(worker, inline.m_threads.get(0));
+        assertEquals(ReadWriteListener.Status.NOT_CONNECTED, inline.m_events.get(0).status());
+
+        assertEquals(0, posted.m_events.size());
+
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(1, posted.m_events.size());
+        assertSame(Thread.currentThread(), posted.m_threads.get(0));
+    }
+
+    @Test
+    public void futureCompletesOnCallingThreadTest() throws Exception
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final AtomicReference<BleFuture<ReadWriteListener.ReadWriteEvent>> future = new AtomicReference<BleFuture<ReadWriteListener.ReadWriteEvent>>();
+        final AtomicReference<Thread> doneThread = new AtomicReference<Thread>();
+
+        final Thread worker = runOnWorker(new Runnable()
+        {
+            @Override public void run()
+            {
+                future.set(device.read_future(CHAR_UUID));
+
+                future.get().onDone(new BleFuture.DoneListener<ReadWriteListener.ReadWriteEvent>()
+                {
+                    @Override public void onDone(BleFuture<ReadWriteListener.ReadWriteEvent> f)
+                    {
+                        doneThread.set(Thread.currentThread());
+                    }
+                });
+            }
+        });
+
+        assertTrue(future.get().isDone());
+        assertFalse(future.get().isSuccess());
+        assertEquals(ReadWriteListener.Status.NOT_CONNECTED, ((ReadWriteListener.ReadWriteEvent) future.get().failure()).status());
+        assertSame(worker, doneThread.get());
+    }
+
+    @Test
+    public void transactionEndRunsInlineTest() throws Exception
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final InlineTransaction txn = new InlineTransaction();
+
+        txn.init(device, new PI_EndListener()
+        {
+            @Override public void onTransactionEnd(BleTransaction txn, BleTransaction.EndReason reason, ReadWriteListener.ReadWriteEvent failReason)
+            {
+            }
+        });
+
+        final Thread worker = runOnWorker(new Runnable()
+        {
+            @Override public void run()
+            {
+                txn.start_internal();
+                txn.succeed();
+            }
+        });
+
+        assertSame(worker, txn.m_endThread);
+    }
+
+    /**
+     * Chains {@link #WRITE_COUNT} writes, each issued from the result of the one before, through the real native callback path of
+     * {@link P_BleDevice_Listeners} with the native stack answering every write right away, and counts how many task queue updates
+     * the whole chain has to wait for. A plain listener is modeled as what the app does with it, hopping to the main thread and
+     * issuing the next write from there, which has to be posted back to the update thread and waits for the next update to start.
+     * An {@link InlineListener} issues it from inside the callback, and it's started as soon as the callback returns.
+     * Prints the per-step latency this works out to at {@link BleManagerConfig#autoUpdateRate}.
+     */
+    @Test
+    public void writeChainLatencyBenchmark() throws Exception
+    {
+        final int ticks_posted = runWriteChain(false);
+        final int ticks_inline = runWriteChain(true);
+
+        //--- Steps are the gaps between one write's result and the next write going out.
+        final double stepLatency_posted = (double) ticks_posted * m_mgr.m_config.autoUpdateRate.millis() / (WRITE_COUNT - 1);
+        final double stepLatency_inline = (double) ticks_inline * m_mgr.m_config.autoUpdateRate.millis() / (WRITE_COUNT - 1);
+
+        System.out.println(WRITE_COUNT + " chained writes: posted listener=" + ticks_posted + " updates (~" + stepLatency_posted + "ms/step), inline listener=" + ticks_inline + " updates (~" + stepLatency_inline + "ms/step)");
+
+        assertEquals(WRITE_COUNT - 1, ticks_posted);
+        assertEquals(0, ticks_inline);
+    }
+
+    private int runWriteChain(final boolean inline) throws Exception
+    {
+        stopAutoUpdate();
+
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+        final BluetoothGatt gatt = newGatt(device);
+        final BluetoothGattCharacteristic characteristic = gatt.getService(SERVICE_UUID).getCharacteristic(CHAR_UUID);
+        final SteppedLoop loop = new SteppedLoop();
+        final PI_UpdateLoop oldLoop = m_mgr.getUpdateLoop();
+        final P_TaskQueue queue = m_mgr.getTaskQueue();
+        final List<Runnable> nativeStack = new ArrayList<Runnable>();
+        final List<Runnable> mainThread = new ArrayList<Runnable>();
+        final int[] writeCount = {0};
+
+        ReflectionHelpers.<List<PA_Task>>getField(queue, "m_queue").clear();
+        ReflectionHelpers.setField(queue, "m_current", null);
+        ReflectionHelpers.setField(m_mgr, "m_updateLoop", loop);
+
+        try
+        {
+            final ReadWriteListener listener_posted = new ReadWriteListener()
+            {
+                @Override public void onEvent(final ReadWriteEvent e)
+                {
+                    assertTrue(e.wasSuccess());
+
+                    final ReadWriteListener listener = this;
+
+                    mainThread.add(new Runnable()
+                    {
+                        @Override public void run()
+                        {
+                            if (++writeCount[0] < WRITE_COUNT)
+                            {
+                                queue.add(new TestWrite(device, characteristic, listener, nativeStack, gatt));
+                            }
+                        }
+                    });
+                }
+            };
+
+            final ReadWriteListener listener_inline = new InlineReadWriteListener()
+            {
+                @Override public void onEvent(final ReadWriteEvent e)
+                {
+                    assertTrue(e.wasSuccess());
+
+                    if (++writeCount[0] < WRITE_COUNT)
+                    {
+                        queue.add(new TestWrite(device, characteristic, this, nativeStack, gatt));
+                    }
+                }
+            };
+
+            queue.add(new TestWrite(device, characteristic, inline ? listener_inline : listener_posted, nativeStack, gatt));
+
+            int ticks = 0;
+
+            //--- Drains whatever is pending on each "thread" and only lets an update happen when nothing else can make progress.
+            while (writeCount[0] < WRITE_COUNT && ticks < WRITE_COUNT * 4)
+            {
+                final boolean progressed = loop.drain() | drain(nativeStack) | drain(mainThread);
+
+                if (!progressed)
+                {
+                    loop.update(queue, m_mgr.m_config.autoUpdateRate.secs());
+
+                    ticks++;
+                }
+            }
+
+            assertEquals(WRITE_COUNT, writeCount[0]);
+
+            //--- The first write was queued from off the update thread, so it always waits for one update.
+            return ticks - 1;
+        }
+        finally
+        {
+            ReflectionHelpers.setField(m_mgr, "m_updateLoop", oldLoop);
+            ReflectionHelpers.setField(device.m_nativeWrapper, "m_gatt", null);
+        }
+    }
+
+    private static boolean drain(final List<Runnable> thread)
+    {
+        if (thread.isEmpty())  return false;
+
+        final List<Runnable> runnables = new ArrayList<Runnable>(thread);
+
+        thread.clear();
+
+        for (Runnable runnable : runnables)
+        {
+            runnable.run();
+        }
+
+        return true;
+    }
+
+    /**
+     * Just enough of a {@link BluetoothGatt} for {@link BleDevice#getNativeCharacteristic(UUID, UUID)} to find the characteristic.
+     */
+    private static BluetoothGatt newGatt(final BleDevice device) throws Exception
+    {
+        final BluetoothGattService service = new BluetoothGattService(SERVICE_UUID, BluetoothGattService.SERVICE_TYPE_PRIMARY);
+        ReflectionHelpers.setField(service, "mDevice", device.getNative());
+        service.addCharacteristic(new BluetoothGattCharacteristic(CHAR_UUID, BluetoothGattCharacteristic.PROPERTY_WRITE, BluetoothGattCharacteristic.PERMISSION_WRITE));
+
+        final List<BluetoothGattService> services = new ArrayList<BluetoothGattService>();
+        services.add(service);
+
+        final BluetoothGatt gatt = Shadow.newInstanceOf(BluetoothGatt.class);
+        ReflectionHelpers.setField(gatt, "mDevice", device.getNative());
+        ReflectionHelpers.setField(gatt, "mServices", services);
+        ReflectionHelpers.setField(device.m_nativeWrapper, "m_gatt", gatt);
+
+        return gatt;
+    }
+
+    /**
+     * Update loop whose "update thread" is whoever calls {@link #drain()} or {@link #update(P_TaskQueue, double)}, so that
+     * native callbacks from anywhere else get posted to it like they would be to a real one.
+     */
+    private static class SteppedLoop implements PI_UpdateLoop
+    {
+        private final List<Runnable> m_posted = new ArrayList<Runnable>();
+        private boolean m_onUpdateThread = false;
+
+        boolean drain()
+        {
+            m_onUpdateThread = true;
+
+            try
+            {
+                return InlineListenerTest.drain(m_posted);
+            }
+            finally
+            {
+                m_onUpdateThread = false;
+            }
+        }
+
+        void update(final P_TaskQueue queue, final double timeStep)
+        {
+            m_onUpdateThread = true;
+
+            try
+            {
+                queue.update(timeStep);
+            }
+            finally
+            {
+                m_onUpdateThread = false;
+            }
+        }
+
+        @Override public boolean isRunning()
+        {
+            return true;
+        }
+
+        @Override public void start(double updateRate)
+        {
+        }
+
+        @Override public void stop()
+        {
+        }
+
+        @Override public void forcePost(Runnable runnable)
+        {
+            m_posted.add(runnable);
+        }
+
+        @Override public Handler getHandler()
+        {
+            return null;
+        }
+
+        @Override public boolean postNeeded()
+        {
+            return !m_onUpdateThread;
+        }
+
+        @Override public void postIfNeeded(Runnable runnable)
+        {
+            if (postNeeded())
+            {
+                m_posted.add(runnable);
+            }
+            else
+            {
+                runnable.run();
+            }
+        }
+    }
+
+    /**
+     * Sends nothing and instead has the "native stack" answer with a successful write, through {@link P_BleDevice_Listeners}.
+     */
+    private static class TestWrite extends P_Task_Write
+    {
+        private final List<Runnable> m_nativeStack;
+        private final BluetoothGatt m_gatt;
+        private final BluetoothGattCharacteristic m_characteristic;
+
+        TestWrite(final BleDevice device, final BluetoothGattCharacteristic characteristic, final ReadWriteListener listener, final List<Runnable> nativeStack, final BluetoothGatt gatt)
+        {
+            super(device, characteristic, new PresentData(new byte[]{ 1 }), false, listener, null, PE_TaskPriority.FOR_NORMAL_READS_WRITES);
+
+            m_nativeStack = nativeStack;
+            m_gatt = gatt;
+            m_characteristic = characteristic;
+        }
+
+        @Override protected boolean isExecutable()
+        {
+            return true;
+        }
+
+        @Override public void execute()
+        {
+            m_nativeStack.add(new Runnable()
+            {
+                @Override public void run()
+                {
+                    getDevice().m_listeners.onCharacteristicWrite(m_gatt, m_characteristic, BluetoothGatt.GATT_SUCCESS);
+                }
+            });
+        }
+    }
+
+    private static abstract class InlineReadWriteListener implements ReadWriteListener, InlineListener
+    {
+    }
+
+    private static Thread runOnWorker(final Runnable runnable) throws Exception
+    {
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final Thread worker = new Thread(new Runnable()
+        {
+            @Override public void run()
+            {
+                try
+                {
+                    runnable.run();
+                }
+                catch (Throwable e)
+                {
+                    failure.set(e);
+                }
+            }
+        });
+
+        worker.start();
+        worker.join();
+
+        if (failure.get() != null)
+        {
+            throw new AssertionError(failure.get());
+        }
+
+        return worker;
+    }
+
+    private static class RecordingListener implements ReadWriteListener
+    {
+        final List<ReadWriteEvent> m_events = new ArrayList<ReadWriteEvent>();
+        final List<Thread> m_threads = new ArrayList<Thread>();
+
+        @Override public void onEvent(ReadWriteEvent e)
+        {
+            m_events.add(e);
+            m_threads.add(Thread.currentThread());
+        }
+    }
+
+    private static class InlineRecordingListener extends RecordingListener implements InlineListener
+    {
+    }
+
+    private static class InlineTransaction extends BleTransaction implements InlineListener
+    {
+        Thread m_endThread = null;
+
+        @Override protected void start(BleDevice device)
+        {
+        }
+
+        @Override protected void onEnd(BleDevice device, EndReason reason)
+        {
+            assertNotNull(device);
+
+            m_endThread = Thread.currentThread();
+        }
+    }
+
+}
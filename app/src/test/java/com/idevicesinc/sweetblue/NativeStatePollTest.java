@@ -0,0 +1,182 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothManager;
+import android.os.Build;
+
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.Shadow;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class NativeStatePollTest extends BaseInternalTest
+{
+
+    private static final double TIME_STEP = 0.02;
+    private static final double POLL_RATE = 2.0;
+
+    private P_BleManager_Listeners m_listeners;
+    private BluetoothManager m_btMngr;
+    private int m_sdkInt;
+
+
+    @Before
+    public void setupPolling() throws Exception
+    {
+        stopAutoUpdate();
+
+        m_listeners = m_mgr.m_listeners;
+
+        //--- Robolectric has no bluetooth system service, so the manager gets one that hands out the shadowed default adapter.
+        m_btMngr = ReflectionHelpers.getField(m_mgr, "m_btMngr");
+        final BluetoothManager btMngr = Shadow.newInstanceOf(BluetoothManager.class);
+        ReflectionHelpers.setField(btMngr, "mAdapter", BluetoothAdapter.getDefaultAdapter());
+        ReflectionHelpers.setField(m_mgr, "m_btMngr", btMngr);
+
+        m_config.nativeStatePollRate = Interval.secs(POLL_RATE);
+        m_mgr.setConfig(m_config);
+
+        //--- Polling only happens on M and up, and Robolectric here only goes to 21.
+        m_sdkInt = Build.VERSION.SDK_INT;
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.M);
+
+        setNativeState(BleStatuses.STATE_ON);
+        setGetLeState(null);
+    }
+
+    @After
+    public void restorePolling()
+    {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", m_sdkInt);
+
+        setNativeState(BleStatuses.STATE_ON);
+        setGetLeState(null);
+        ReflectionHelpers.setStaticField(P_BleManager_Listeners.class, "m_getLeState_resolved", false);
+        ReflectionHelpers.setField(m_mgr, "m_btMngr", m_btMngr);
+    }
+
+    @Test
+    public void backsOffWhileStableTest()
+    {
+        //--- First update handles the poll request, after which the gap between polls doubles per unchanged poll.
+        assertEquals(1, update());
+
+        final List<Double> gaps = new ArrayList<Double>();
+        double sinceLastPoll = 0.0;
+
+        for (int i = 0; i < 1000; i++)
+        {
+            sinceLastPoll += TIME_STEP;
+
+            if (update() > 0)
+            {
+                gaps.add(sinceLastPoll);
+                sinceLastPoll = 0.0;
+            }
+        }
+
+        assertEquals(2 * TIME_STEP, gaps.get(0), 0.0001);
+        assertEquals(4 * TIME_STEP, gaps.get(1), 0.0001);
+
+        for (int i = 1; i < gaps.size(); i++)
+        {
+            assertTrue(gaps.get(i) >= gaps.get(i - 1) - 0.0001);
+            assertTrue(gaps.get(i) <= POLL_RATE + TIME_STEP);
+        }
+
+        assertEquals(POLL_RATE, gaps.get(gaps.size() - 1), TIME_STEP);
+        assertEquals(POLL_RATE, m_listeners.getNativeStatePollInterval(), 0.0001);
+    }
+
+    @Test
+    public void stableBleOnNotPolledEveryUpdateTest()
+    {
+        setNativeState(BleStatuses.STATE_BLE_ON);
+
+        int polls = 0;
+
+        for (int i = 0; i < 500; i++)
+        {
+            polls += update();
+        }
+
+        //--- Ten seconds of updates, so a couple of quick polls while backing off and then one every two seconds.
+        assertTrue("polls=" + polls, polls < 20);
+    }
+
+    @Test
+    public void pollRequestResetsBackoffTest()
+    {
+        for (int i = 0; i < 500; i++)
+        {
+            update();
+        }
+
+        assertEquals(POLL_RATE, m_listeners.getNativeStatePollInterval(), 0.0001);
+
+        ReflectionHelpers.setField(m_listeners, "m_pollRequested", true);
+
+        assertEquals(1, update());
+        assertEquals(TIME_STEP * P_PollManager.ADAPTIVE_BACKOFF_FACTOR, m_listeners.getNativeStatePollInterval(), 0.0001);
+    }
+
+    @Test
+    public void binderCallsCountedOncePerCallTest() throws Exception
+    {
+        //--- getState() stands in for getLeState(), so a successful poll is two calls.
+        setGetLeState(BluetoothAdapter.class.getMethod("getState"));
+        ReflectionHelpers.setField(m_listeners, "m_pollRequested", true);
+
+        assertEquals(2, update());
+
+        //--- Called without the argument it needs so that invoke() throws, then getState() is the fallback, again two calls.
+        setGetLeState(BluetoothAdapter.class.getMethod("getRemoteDevice", String.class));
+        ReflectionHelpers.setField(m_listeners, "m_pollRequested", true);
+
+        assertEquals(2, update());
+    }
+
+    private int update()
+    {
+        final int before = ReflectionHelpers.getField(m_listeners, "m_binderCalls");
+
+        m_listeners.update(TIME_STEP);
+
+        final int after = ReflectionHelpers.getField(m_listeners, "m_binderCalls");
+
+        //--- Binder call window may have rolled over.
+        return after >= before ? after - before : after;
+    }
+
+    private void setNativeState(final int state)
+    {
+        Shadows.shadowOf(m_mgr.getNativeAdapter()).setState(state);
+        ReflectionHelpers.setField(m_listeners, "m_nativeState", state);
+        ReflectionHelpers.setField(m_listeners, "m_pollRequested", true);
+    }
+
+    private static void setGetLeState(final Method method)
+    {
+        ReflectionHelpers.setStaticField(P_BleManager_Listeners.class, "m_getLeState_marshmallow", method);
+        ReflectionHelpers.setStaticField(P_BleManager_Listeners.class, "m_getLeState_resolved", true);
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.ReadWriteEvent;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Status;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Target;
+import com.idevicesinc.sweetblue.BleDevice.ReadWriteListener.Type;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class NotifyThrottleTest extends BaseInternalTest
+{
+
+    private static final UUID CHAR_UUID = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+
+
+    @Test
+    public void deliverAllTest()
+    {
+        final P_NotifyThrottle throttle = new P_NotifyThrottle(BleNotifyPolicy.DELIVER_ALL);
+
+        for (int i = 0; i < 5; i++)
+        {
+            final ReadWriteEvent e = notification(i);
+
+            assertSame(e, throttle.onNotification(e));
+            assertNull(throttle.update(0.01));
+        }
+    }
+
+    @Test
+    public void latestAtMaxRateTest()
+    {
+        final P_NotifyThrottle throttle = new P_NotifyThrottle(BleNotifyPolicy.latestAtMaxRate(Interval.secs(1.0)));
+
+        //--- First one goes straight through.
+        final ReadWriteEvent first = notification(0);
+        assertSame(first, throttle.onNotification(first));
+
+        assertNull(throttle.onNotification(notification(1)));
+        assertNull(throttle.update(0.5));
+
+        final ReadWriteEvent newest = notification(2);
+        assertNull(throttle.onNotification(newest));
+
+        //--- Trailing edge delivers only the newest value.
+        assertSame(newest, throttle.update(0.5));
+        assertNull(throttle.update(2.0));
+
+        //--- Nothing was pending, so the next one goes through right away again.
+        final ReadWriteEvent later = notification(3);
+        assertSame(later, throttle.onNotification(later));
+    }
+
+    @Test
+    public void decimateTest()
+    {
+        final P_NotifyThrottle throttle = new P_NotifyThrottle(BleNotifyPolicy.decimate(3));
+        int delivered = 0;
+
+        for (int i = 0; i < 9; i++)
+        {
+            final ReadWriteEvent e = notification(i);
+            final ReadWriteEvent result = throttle.onNotification(e);
+
+            if (i % 3 == 0)
+            {
+                assertSame(e, result);
+                delivered++;
+            }
+            else
+            {
+                assertNull(result);
+            }
+        }
+
+        assertEquals(3, delivered);
+    }
+
+    @Test
+    public void aggregateTest()
+    {
+        final P_NotifyThrottle throttle = new P_NotifyThrottle(BleNotifyPolicy.aggregate(Interval.secs(1.0)));
+
+        assertNull(throttle.onNotification(notification(1)));
+        assertNull(throttle.update(0.4));
+        assertNull(throttle.onNotification(notification(2)));
+        assertNull(throttle.update(0.4));
+        assertNull(throttle.onNotification(notification(3)));
+
+        final ReadWriteEvent e = throttle.update(0.4);
+
+        assertEquals(Status.SUCCESS, e.status());
+        assertEquals(CHAR_UUID, e.charUuid());
+        assertArrayEquals(new byte[]{ 1, 2, 3 }, e.data());
+
+        //--- Window is empty again, so time alone doesn't produce anything.
+        assertNull(throttle.update(5.0));
+
+        assertNull(throttle.onNotification(notification(4)));
+        assertArrayEquals(new byte[]{ 4 }, throttle.update(1.0).data());
+    }
+
+    @Test
+    public void resetDropsPendingTest()
+    {
+        final P_NotifyThrottle latest = new P_NotifyThrottle(BleNotifyPolicy.latestAtMaxRate(Interval.secs(1.0)));
+
+        latest.onNotification(notification(0));
+        latest.onNotification(notification(1));
+        latest.reset();
+
+        assertNull(latest.update(1.0));
+
+        final ReadWriteEvent afterReset = notification(2);
+        assertSame(afterReset, latest.onNotification(afterReset));
+
+        final P_NotifyThrottle aggregate = new P_NotifyThrottle(BleNotifyPolicy.aggregate(Interval.secs(1.0)));
+
+        aggregate.onNotification(notification(0));
+        aggregate.reset();
+
+        assertNull(aggregate.update(1.0));
+
+        final P_NotifyThrottle decimate = new P_NotifyThrottle(BleNotifyPolicy.decimate(3));
+
+        decimate.onNotification(notification(0));
+        decimate.reset();
+
+        final ReadWriteEvent first = notification(1);
+        assertSame(first, decimate.onNotification(first));
+    }
+
+    private ReadWriteEvent notification(final int value)
+    {
+        final BleDevice device = newDevice("AA:BB:CC:DD:EE:01");
+
+        return new ReadWriteEvent(device, null, CHAR_UUID, null, Type.NOTIFICATION, Target.CHARACTERISTIC, new byte[]{ (byte) value }, Status.SUCCESS, BleStatuses.GATT_SUCCESS, 0.0, 0.0, /*solicited=*/false);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class SortedDeviceListTest extends BaseInternalTest
+{
+
+    private final HashMap<BleDevice, Integer> m_keys = new HashMap<BleDevice, Integer>();
+    private final Random m_random = new Random(0);
+    private int m_nextKey = 0;
+
+    private final Comparator<BleDevice> m_comparator = new Comparator<BleDevice>()
+    {
+        @Override public int compare(BleDevice lhs, BleDevice rhs)
+        {
+            return m_keys.get(lhs).compareTo(m_keys.get(rhs));
+        }
+    };
+
+
+    @Test
+    public void fewKeysChangedBetweenReadsTest()
+    {
+        //--- Few enough changes per read that the view is patched in place instead of re-sorted.
+        run(1, 3);
+    }
+
+    @Test
+    public void manyKeysChangedBetweenReadsTest()
+    {
+        run(20, 1);
+    }
+
+    private void run(final int changesPerRead, final int addsPerRead)
+    {
+        removeAllDevices();
+        m_mgr.m_config.defaultListComparator = m_comparator;
+
+        final P_DeviceManager mngr = m_mgr.m_deviceMngr;
+        int nextMac = 0;
+
+        for (int i = 0; i < 64; i++)
+        {
+            add(mngr, nextMac++);
+        }
+
+        for (int i = 0; i < 200; i++)
+        {
+            for (int j = 0; j < changesPerRead; j++)
+            {
+                final BleDevice device = mngr.get(m_random.nextInt(mngr.getCount()));
+
+                m_keys.put(device, uniqueKey());
+                mngr.onSortKeyChanged(device);
+            }
+
+            for (int j = 0; j < addsPerRead; j++)
+            {
+                add(mngr, nextMac++);
+            }
+
+            mngr.remove(mngr.get(m_random.nextInt(mngr.getCount())), null);
+
+            if (i % 10 == 0)
+            {
+                final BleDevice device = mngr.get(m_random.nextInt(mngr.getCount()));
+
+                device.stateTracker_main().update(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.CONNECTED, !device.is(BleDeviceState.CONNECTED));
+            }
+
+            assertSorted(mngr);
+        }
+    }
+
+    private void add(final P_DeviceManager mngr, final int mac)
+    {
+        final BleDevice device = newDevice(String.format("AA:BB:CC:DD:%02X:%02X", (mac >> 8) & 0xff, mac & 0xff));
+
+        m_keys.put(device, uniqueKey());
+        mngr.add(device);
+    }
+
+    private int uniqueKey()
+    {
+        //--- Unique so that the expected order doesn't depend on how ties are broken.
+        return m_random.nextInt(1000) * 1000 + m_nextKey++ % 1000;
+    }
+
+    private void assertSorted(final P_DeviceManager mngr)
+    {
+        final List<BleDevice> expected = new ArrayList<BleDevice>(mngr.getList());
+        Collections.sort(expected, m_comparator);
+
+        final List<BleDevice> expected_connected = new ArrayList<BleDevice>();
+
+        for (BleDevice device : expected)
+        {
+            if (device.is(BleDeviceState.CONNECTED))
+            {
+                expected_connected.add(device);
+            }
+        }
+
+        assertEquals(expected, mngr.getList_sorted());
+        assertEquals(expected, mngr.getDevices_List(true, BleDeviceState.FULL_MASK));
+        assertEquals(expected_connected, mngr.getDevices_List(true, BleDeviceState.CONNECTED));
+        assertEquals(expected_connected, mngr.getDevices_List(true, BleDeviceState.CONNECTED, true));
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.PA_StateTracker.E_Intent;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class StaleDevicePurgeTest extends BaseInternalTest
+{
+
+    private static final double KEEP_ALIVE = 5.0;
+    private static final double MIN_SCAN_TIME = 2.0;
+
+    private double m_scanTime = 0.0;
+
+
+    @Test
+    public void purgedAfterKeepAliveTest() throws Exception
+    {
+        final P_DeviceManager mngr = start();
+        final BleDevice device = add(mngr, "AA:BB:CC:DD:EE:01", BleDeviceOrigin.FROM_DISCOVERY);
+
+        tick(mngr, KEEP_ALIVE - 1.0);
+
+        assertTrue(mngr.has(device));
+
+        tick(mngr, 2.0);
+
+        assertFalse(mngr.has(device));
+    }
+
+    @Test
+    public void rediscoveryPushesDeadlineBackTest() throws Exception
+    {
+        final P_DeviceManager mngr = start();
+        final BleDevice device = add(mngr, "AA:BB:CC:DD:EE:01", BleDeviceOrigin.FROM_DISCOVERY);
+
+        for (int i = 0; i < 4; i++)
+        {
+            tick(mngr, KEEP_ALIVE - 1.0);
+
+            device.onRediscovered(device.getNative(), null, -50, null, BleDeviceOrigin.FROM_DISCOVERY);
+        }
+
+        assertTrue(mngr.has(device));
+
+        tick(mngr, KEEP_ALIVE + 1.0);
+
+        assertFalse(mngr.has(device));
+    }
+
+    @Test
+    public void waitsForMinScanTimeTest() throws Exception
+    {
+        final P_DeviceManager mngr = start();
+        final BleDevice device = add(mngr, "AA:BB:CC:DD:EE:01", BleDeviceOrigin.FROM_DISCOVERY);
+
+        //--- Device went stale without the scan having run long enough to tell.
+        m_scanTime = -(KEEP_ALIVE + 1.0);
+
+        tick(mngr, KEEP_ALIVE + 1.0);
+
+        assertTrue(mngr.has(device));
+
+        tick(mngr, MIN_SCAN_TIME + 1.0);
+
+        assertFalse(mngr.has(device));
+    }
+
+    @Test
+    public void notPurgedWhileConnectedTest() throws Exception
+    {
+        final P_DeviceManager mngr = start();
+        final BleDevice device = add(mngr, "AA:BB:CC:DD:EE:01", BleDeviceOrigin.FROM_DISCOVERY);
+
+        device.stateTracker_main().update(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.CONNECTED, true);
+
+        tick(mngr, KEEP_ALIVE * 3);
+
+        assertTrue(mngr.has(device));
+
+        //--- Parked entry is re-armed by the state change, and the device is long past its keep-alive by now.
+        device.stateTracker_main().update(E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, BleDeviceState.CONNECTED, false);
+
+        tick(mngr, 0.1);
+
+        assertFalse(mngr.has(device));
+    }
+
+    @Test
+    public void explicitDevicesNeverPurgedTest() throws Exception
+    {
+        final P_DeviceManager mngr = start();
+        final BleDevice explicit = add(mngr, "AA:BB:CC:DD:EE:01", BleDeviceOrigin.EXPLICIT);
+        final BleDevice discovered = add(mngr, "AA:BB:CC:DD:EE:02", BleDeviceOrigin.FROM_DISCOVERY);
+
+        tick(mngr, KEEP_ALIVE * 3);
+
+        assertTrue(mngr.has(explicit));
+        assertFalse(mngr.has(discovered));
+    }
+
+    @Test
+    public void configChangeReschedulesTest() throws Exception
+    {
+        final P_DeviceManager mngr = start();
+        final BleDevice device = add(mngr, "AA:BB:CC:DD:EE:01", BleDeviceOrigin.FROM_DISCOVERY);
+
+        final BleDeviceConfig config = newConfig();
+        config.undiscoveryKeepAlive = Interval.DISABLED;
+        device.setConfig(config);
+
+        tick(mngr, KEEP_ALIVE * 3);
+
+        assertTrue(mngr.has(device));
+
+        device.setConfig(newConfig());
+
+        tick(mngr, 0.1);
+
+        assertFalse(mngr.has(device));
+    }
+
+    private P_DeviceManager start() throws Exception
+    {
+        stopAutoUpdate();
+        removeAllDevices();
+
+        return m_mgr.m_deviceMngr;
+    }
+
+    private BleDevice add(final P_DeviceManager mngr, final String macAddress, final BleDeviceOrigin origin)
+    {
+        final BleDevice device = new BleDevice(m_mgr, newNativeDevice(macAddress), macAddress, macAddress, origin, newConfig(), /*isNull=*/false);
+
+        mngr.add(device);
+        device.onNewlyDiscovered(device.getNative(), null, -50, null, origin);
+
+        return device;
+    }
+
+    private static BleDeviceConfig newConfig()
+    {
+        final BleDeviceConfig config = new BleDeviceConfig();
+        config.undiscoveryKeepAlive = Interval.secs(KEEP_ALIVE);
+        config.minScanTimeNeededForUndiscovery = Interval.secs(MIN_SCAN_TIME);
+
+        return config;
+    }
+
+    //--- Advances device and manager clocks the way BleManager#update() does, then purges the way the scan task does.
+    private void tick(final P_DeviceManager mngr, final double timeStep)
+    {
+        m_scanTime += timeStep;
+
+        mngr.update(timeStep);
+        mngr.purgeStaleDevices(Math.max(0.0, m_scanTime), null, null);
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.idevicesinc.sweetblue;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+
+@Config(manifest = Config.NONE, sdk = 21)
+@RunWith(RobolectricTestRunner.class)
+public class TaskChainTest extends BaseInternalTest
+{
+
+    private P_TaskQueue m_queue;
+    private BleDevice m_device;
+
+
+    @Before
+    public void clearQueue() throws Exception
+    {
+        stopAutoUpdate();
+
+        m_queue = m_mgr.getTaskQueue();
+        m_device = newDevice("AA:BB:CC:DD:EE:01");
+
+        //--- BleManager is a singleton, so start without whatever earlier tests left queued.
+        ReflectionHelpers.<List<PA_Task>>getField(m_queue, "m_queue").clear();
+        ReflectionHelpers.setField(m_queue, "m_current", null);
+
+        while (m_queue.getExecuteHandler() == null)
+        {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void followUpStartsInSameUpdateTest() throws Exception
+    {
+        final TestTask first = new TestTask(m_device, PE_TaskState.SUCCEEDED);
+        final TestTask second = new TestTask(m_device, null);
+
+        m_queue.add(first);
+        m_queue.update(0.01);
+
+        assertEquals(PE_TaskState.EXECUTING, first.getState());
+
+        first.m_followUp = second;
+        m_queue.update(0.01);
+
+        //--- Not started from inside the callback that queued it, but before the update returned.
+        assertEquals(PE_TaskState.QUEUED, first.m_followUpStateWhenAdded);
+        assertEquals(PE_TaskState.SUCCEEDED, first.getState());
+        assertEquals(PE_TaskState.EXECUTING, second.getState());
+    }
+
+    @Test
+    public void followUpStartsWhenCallbackReturnsTest() throws Exception
+    {
+        final TestTask first = new TestTask(m_device, null);
+        final TestTask second = new TestTask(m_device, null);
+
+        m_queue.add(first);
+        m_queue.update(0.01);
+
+        //--- What a native callback posted to the update thread does, outside of any update.
+        first.succeed();
+        m_queue.add(second);
+
+        assertEquals(PE_TaskState.QUEUED, second.getState());
+
+        m_queue.dequeueIfTaskEnded();
+
+        assertEquals(PE_TaskState.EXECUTING, second.getState());
+    }
+
+    @Test
+    public void followUpAfterFailureWaitsTest() throws Exception
+    {
+        final TestTask first = new TestTask(m_device, PE_TaskState.FAILED);
+        final TestTask second = new TestTask(m_device, null);
+
+        m_queue.add(first);
+        m_queue.update(0.01);
+
+        first.m_followUp = second;
+        m_queue.update(0.01);
+
+        //--- Failures keep going through the post that protects against long runs of failing tasks.
+        assertEquals(PE_TaskState.FAILED, first.getState());
+        assertEquals(PE_TaskState.QUEUED, second.getState());
+
+        m_queue.update(0.01);
+
+        assertEquals(PE_TaskState.EXECUTING, second.getState());
+    }
+
+    @Test
+    public void taskEndedEarlierDoesNotCountTest() throws Exception
+    {
+        final TestTask first = new TestTask(m_device, null);
+        final TestTask second = new TestTask(m_device, null);
+
+        m_queue.add(first);
+        m_queue.update(0.01);
+
+        first.succeed();
+        m_queue.dequeueIfTaskEnded();
+
+        //--- Queued by something unrelated after the callback that ended the task had already returned.
+        m_queue.add(second);
+        m_queue.dequeueIfTaskEnded();
+
+        assertEquals(PE_TaskState.QUEUED, second.getState());
+    }
+
+    /**
+     * Ends itself with the given state on its next update once {@link #m_followUp} is set, then queues the follow-up the way
+     * a listener of the task would.
+     */
+    private static class TestTask extends PA_Task
+    {
+        private final PE_TaskState m_endingState;
+        private TestTask m_followUp;
+        private PE_TaskState m_followUpStateWhenAdded;
+
+        TestTask(final BleDevice device, final PE_TaskState endingState)
+        {
+            super(device, null);
+
+            m_endingState = endingState;
+        }
+
+        @Override protected BleTask getTaskType()
+        {
+            return BleTask.READ;
+        }
+
+        @Override public PE_TaskPriority getPriority()
+        {
+            return PE_TaskPriority.FOR_NORMAL_READS_WRITES;
+        }
+
+        @Override void execute()
+        {
+        }
+
+        @Override protected void update(double timeStep)
+        {
+            if (m_followUp == null || getState() != PE_TaskState.EXECUTING)  return;
+
+            if (m_endingState == PE_TaskState.SUCCEEDED)
+            {
+                succeed();
+            }
+            else
+            {
+                fail();
+            }
+
+            getManager().getTaskQueue().add(m_followUp);
+
+            m_followUpStateWhenAdded = m_followUp.getState();
+        }
+    }
+
+}
@@ -0,0 +1,322 @@
+package com.idevicesinc.sweetblue;
+
+
+import android.database.Cursor;
+
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.ForEach_Void;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * In-memory stand-in for a real {@link Backend_HistoricalDatabase}, since the default one doesn't store anything. Rows are kept
+ * sorted by time per mac address/uuid pair, and everything is synchronized since the worker pool calls in from its own threads.
+ */
+class TestHistoricalDatabase implements Backend_HistoricalDatabase
+{
+
+    private final HashMap<String, List<HistoricalData>> m_tables = new HashMap<String, List<HistoricalData>>();
+    private final List<String> m_deletes = new ArrayList<String>();
+    private int m_cursorCount = 0;
+    private int m_blobReadCount = 0;
+
+
+    /**
+     * Installs a new instance on the given manager, returning the one it replaced so it can be put back.
+     */
+    static Backend_HistoricalDatabase install(final BleManager manager, final Backend_HistoricalDatabase database)
+    {
+        final Backend_HistoricalDatabase old = manager.m_historicalDatabase;
+
+        try
+        {
+            final Field field = BleManager.class.getDeclaredField("m_historicalDatabase");
+            field.setAccessible(true);
+            field.set(manager, database);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        return old;
+    }
+
+    synchronized List<HistoricalData> getRows(final String macAddress, final UUID uuid)
+    {
+        return new ArrayList<HistoricalData>(table(macAddress, uuid));
+    }
+
+    /**
+     * Returns a description of every delete made so far, in order, for example "AA:BB:CC:DD:EE:01/0000ffe1-...:3".
+     */
+    synchronized List<String> getDeletes()
+    {
+        return new ArrayList<String>(m_deletes);
+    }
+
+    /**
+     * Returns how many cursors were opened through {@link #getCursor(String, UUID, EpochTimeRange)}.
+     */
+    synchronized int getCursorCount()
+    {
+        return m_cursorCount;
+    }
+
+    /**
+     * Returns how many times {@link HistoricalDataCursor#getBlob()} was called on any of those cursors.
+     */
+    synchronized int getBlobReadCount()
+    {
+        return m_blobReadCount;
+    }
+
+    private synchronized void onBlobRead()
+    {
+        m_blobReadCount++;
+    }
+
+    private List<HistoricalData> table(final String macAddress, final UUID uuid)
+    {
+        final String key = getTableName(macAddress, uuid);
+        List<HistoricalData> table = m_tables.get(key);
+
+        if (table == null)
+        {
+            table = new ArrayList<HistoricalData>();
+            m_tables.put(key, table);
+        }
+
+        return table;
+    }
+
+    private List<HistoricalData> inRange(final String macAddress, final UUID uuid, final EpochTimeRange range)
+    {
+        final List<HistoricalData> result = new ArrayList<HistoricalData>();
+
+        for (HistoricalData data : table(macAddress, uuid))
+        {
+            if (data.getEpochTime().isBetween_inclusive(range))
+            {
+                result.add(data);
+            }
+        }
+
+        return result;
+    }
+
+    @Override public void init(final BleManager manager)
+    {
+    }
+
+    @Override public synchronized void add_single(final String macAddress, final UUID uuid, final HistoricalData data, final long maxCountToDelete)
+    {
+        final List<HistoricalData> table = table(macAddress, uuid);
+        int index = table.size();
+
+        while (index > 0 && table.get(index - 1).getEpochTime_millis() > data.getEpochTime_millis())
+        {
+            index--;
+        }
+
+        table.add(index, data);
+    }
+
+    @Override public void add_multiple_start()
+    {
+    }
+
+    @Override public void add_multiple_next(final String macAddress, final UUID uuid, final HistoricalData data)
+    {
+        add_single(macAddress, uuid, data, 0);
+    }
+
+    @Override public void add_multiple_end()
+    {
+    }
+
+    @Override public synchronized void delete_singleUuid_all(final String macAddress, final UUID uuid)
+    {
+        delete_singleUuid_inRange(macAddress, uuid, EpochTimeRange.FROM_MIN_TO_MAX, Long.MAX_VALUE);
+    }
+
+    @Override public synchronized void delete_singleUuid_inRange(final String macAddress, final UUID uuid, final EpochTimeRange range, final long maxCountToDelete)
+    {
+        final List<HistoricalData> table = table(macAddress, uuid);
+        long deleted = 0;
+
+        for (int i = 0; i < table.size() && deleted < maxCountToDelete; )
+        {
+            if (table.get(i).getEpochTime().isBetween_inclusive(range))
+            {
+                table.remove(i);
+                deleted++;
+            }
+            else
+            {
+                i++;
+            }
+        }
+
+        m_deletes.add(getTableName(macAddress, uuid) + ":" + deleted);
+    }
+
+    @Override public synchronized void delete_singleUuid_singleDate(final String macAddress, final UUID uuid, final long date)
+    {
+        delete_singleUuid_inRange(macAddress, uuid, EpochTimeRange.instant(new EpochTime(date)), Long.MAX_VALUE);
+    }
+
+    @Override public synchronized void delete_multipleUuids(final String[] macAddresses, final UUID[] uuids, final EpochTimeRange range, final long count)
+    {
+        for (int i = 0; i < macAddresses.length; i++)
+        {
+            delete_singleUuid_inRange(macAddresses[i], uuids[i], range, count);
+        }
+    }
+
+    @Override public synchronized boolean doesDataExist(final String macAddress, final UUID uuid)
+    {
+        return !table(macAddress, uuid).isEmpty();
+    }
+
+    @Override public synchronized void load(final String macAddress, final UUID uuid, final EpochTimeRange range, final ForEach_Void<HistoricalData> forEach)
+    {
+        for (HistoricalData data : inRange(macAddress, uuid, range))
+        {
+            forEach.next(data);
+        }
+    }
+
+    @Override public synchronized int getCount(final String macAddress, final UUID uuid, final EpochTimeRange range)
+    {
+        return inRange(macAddress, uuid, range).size();
+    }
+
+    @Override public synchronized HistoricalDataCursor getCursor(final String macAddress, final UUID uuid, final EpochTimeRange range)
+    {
+        m_cursorCount++;
+
+        return new ListCursor(inRange(macAddress, uuid, range));
+    }
+
+    @Override public Cursor query(final String query)
+    {
+        return null;
+    }
+
+    @Override public String getTableName(final String macAddress, final UUID uuid)
+    {
+        return macAddress + "/" + uuid;
+    }
+
+    private class ListCursor implements HistoricalDataCursor
+    {
+        private final List<HistoricalData> m_rows;
+        private int m_position = -1;
+        private boolean m_closed = false;
+
+        ListCursor(final List<HistoricalData> rows)
+        {
+            m_rows = rows;
+        }
+
+        @Override public int getCount()
+        {
+            return m_rows.size();
+        }
+
+        @Override public int getPosition()
+        {
+            return m_position;
+        }
+
+        @Override public boolean move(final int offset)
+        {
+            return moveToPosition(m_position + offset);
+        }
+
+        @Override public boolean moveToPosition(final int position)
+        {
+            m_position = Math.max(-1, Math.min(position, m_rows.size()));
+
+            return m_position >= 0 && m_position < m_rows.size();
+        }
+
+        @Override public boolean moveToFirst()
+        {
+            return moveToPosition(0);
+        }
+
+        @Override public boolean moveToLast()
+        {
+            return moveToPosition(m_rows.size() - 1);
+        }
+
+        @Override public boolean moveToNext()
+        {
+            return moveToPosition(m_position + 1);
+        }
+
+        @Override public boolean moveToPrevious()
+        {
+            return moveToPosition(m_position - 1);
+        }
+
+        @Override public boolean isFirst()
+        {
+            return m_position == 0;
+        }
+
+        @Override public boolean isLast()
+        {
+            return m_position == m_rows.size() - 1;
+        }
+
+        @Override public boolean isBeforeFirst()
+        {
+            return m_position == -1;
+        }
+
+        @Override public boolean isAfterLast()
+        {
+            return m_position >= m_rows.size();
+        }
+
+        @Override public void close()
+        {
+            m_closed = true;
+        }
+
+        @Override public boolean isClosed()
+        {
+            return m_closed;
+        }
+
+        @Override public long getEpochTime()
+        {
+            return getHistoricalData().getEpochTime_millis();
+        }
+
+        @Override public byte[] getBlob()
+        {
+            onBlobRead();
+
+            return getHistoricalData().getBlob();
+        }
+
+        @Override public HistoricalData getHistoricalData()
+        {
+            return m_rows.get(m_position);
+        }
+    }
+
+}
@@ -0,0 +1,409 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.EventQueue;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class EventQueueTest
+{
+
+    private static final int PRODUCER_COUNT = 4;
+    private static final int EVENTS_PER_PRODUCER = 20000;
+    private static final double BENCHMARK_SECONDS = 0.5;
+
+
+    @Test
+    public void dispatchesInOrderTest() throws Exception
+    {
+        final EventQueue queue = new EventQueue();
+        final Receiver receiver = new Receiver();
+
+        for (int i = 0; i < 100; i++)
+        {
+            queue.add(receiver, new TestEvent(0, i));
+        }
+
+        queue.dispatch();
+
+        assertEquals(100, receiver.m_events.size());
+
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(i, receiver.m_events.get(i).m_index);
+        }
+
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void recursiveAdditionsWaitForNextDispatchTest() throws Exception
+    {
+        final EventQueue queue = new EventQueue();
+        final int[] count = {0};
+
+        final GenericListener_Void<TestEvent> listener = new GenericListener_Void<TestEvent>()
+        {
+            @Override public void onEvent(TestEvent e)
+            {
+                count[0]++;
+
+                if (e.m_producer == 0)
+                {
+                    queue.add(this, new TestEvent(1, 0));
+                }
+            }
+        };
+
+        queue.add(listener, new TestEvent(0, 0));
+        queue.add(listener, new TestEvent(0, 1));
+
+        queue.dispatch();
+
+        assertEquals(2, count[0]);
+        assertFalse(queue.isEmpty());
+
+        queue.dispatch();
+
+        assertEquals(4, count[0]);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void addOverflowsInOrderTest() throws Exception
+    {
+        final EventQueue queue = new EventQueue(4);
+        final Receiver receiver = new Receiver();
+
+        for (int i = 0; i < 10; i++)
+        {
+            queue.add(receiver, new TestEvent(0, i));
+        }
+
+        //--- The ring is full, so offer() is turned away while add() keeps going.
+        assertFalse(queue.offer(receiver, new TestEvent(0, 10)));
+
+        queue.add(receiver, new TestEvent(0, 10));
+        queue.dispatch();
+
+        assertTrue(queue.isEmpty());
+        assertEquals(11, receiver.m_events.size());
+
+        for (int i = 0; i <= 10; i++)
+        {
+            assertEquals(i, receiver.m_events.get(i).m_index);
+        }
+
+        //--- Back to the ring once the overflow is drained.
+        assertTrue(queue.offer(receiver, new TestEvent(0, 11)));
+        queue.dispatch();
+
+        assertEquals(11, receiver.m_events.get(11).m_index);
+    }
+
+    @Test
+    public void overflowedRecursiveAdditionsWaitForNextDispatchTest() throws Exception
+    {
+        final EventQueue queue = new EventQueue(2);
+        final Receiver receiver = new Receiver();
+        final GenericListener_Void<TestEvent> listener = new GenericListener_Void<TestEvent>()
+        {
+            @Override public void onEvent(TestEvent e)
+            {
+                receiver.onEvent(e);
+
+                if (e.m_producer == 0)
+                {
+                    queue.add(this, new TestEvent(1, e.m_index));
+                }
+            }
+        };
+
+        for (int i = 0; i < 4; i++)
+        {
+            queue.add(listener, new TestEvent(0, i));
+        }
+
+        queue.dispatch();
+
+        assertEquals(4, receiver.m_events.size());
+        assertFalse(queue.isEmpty());
+
+        queue.dispatch();
+
+        assertEquals(8, receiver.m_events.size());
+        assertTrue(queue.isEmpty());
+
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(1, receiver.m_events.get(4 + i).m_producer);
+            assertEquals(i, receiver.m_events.get(4 + i).m_index);
+        }
+    }
+
+    @Test
+    public void concurrentProducersKeepOrderTest() throws Exception
+    {
+        runConcurrentProducers(new EventQueue());
+    }
+
+    @Test
+    public void concurrentProducersKeepOrderWhenOverflowingTest() throws Exception
+    {
+        runConcurrentProducers(new EventQueue(16));
+    }
+
+    private static void runConcurrentProducers(final EventQueue queue) throws Exception
+    {
+        final Receiver receiver = new Receiver();
+        final Thread[] producers = new Thread[PRODUCER_COUNT];
+
+        for (int i = 0; i < PRODUCER_COUNT; i++)
+        {
+            final int producer = i;
+
+            producers[i] = new Thread(new Runnable()
+            {
+                @Override public void run()
+                {
+                    for (int j = 0; j < EVENTS_PER_PRODUCER; j++)
+                    {
+                        queue.add(receiver, new TestEvent(producer, j));
+                    }
+                }
+            });
+
+            producers[i].start();
+        }
+
+        boolean producing = true;
+
+        while (producing)
+        {
+            producing = false;
+
+            for (Thread producer : producers)
+            {
+                producing |= producer.isAlive();
+            }
+
+            queue.dispatch();
+        }
+
+        queue.dispatch();
+
+        assertTrue(queue.isEmpty());
+        assertEquals(PRODUCER_COUNT * EVENTS_PER_PRODUCER, receiver.m_events.size());
+
+        final int[] nextIndex = new int[PRODUCER_COUNT];
+
+        for (TestEvent e : receiver.m_events)
+        {
+            assertEquals(nextIndex[e.m_producer]++, e.m_index);
+        }
+    }
+
+    /**
+     * Not a strict assertion beyond every event arriving in per-producer order, but prints the average delivery latency when
+     * {@link #PRODUCER_COUNT} threads emit events at 10k and 100k events per second, comparing the ring buffer drained by one
+     * consumer against posting one {@link Runnable} per event to a single-threaded executor, which models Handler.post().
+     */
+    @Test
+    public void throughputBenchmark() throws Exception
+    {
+        for (int rate : new int[]{ 10000, 100000 })
+        {
+            final long posted = runPosted(rate);
+            final long queued = runQueued(rate);
+
+            System.out.println("Average delivery latency at " + rate + " events/sec: runnable per event=" + posted + "ns, ring buffer=" + queued + "ns");
+        }
+    }
+
+    private static long runQueued(final int rate) throws Exception
+    {
+        final EventQueue queue = new EventQueue();
+        final LatencyReceiver receiver = new LatencyReceiver(eventCount(rate));
+        final AtomicBoolean running = new AtomicBoolean(true);
+
+        final Thread consumer = new Thread(new Runnable()
+        {
+            @Override public void run()
+            {
+                while (running.get())
+                {
+                    if (queue.isEmpty())
+                    {
+                        LockSupport.parkNanos(10000);
+                    }
+                    else
+                    {
+                        queue.dispatch();
+                    }
+                }
+            }
+        });
+
+        consumer.start();
+
+        runProducers(rate, new Sink()
+        {
+            @Override public void send(TestEvent event)
+            {
+                queue.add(receiver, event);
+            }
+        });
+
+        assertTrue(receiver.m_done.await(30, TimeUnit.SECONDS));
+
+        running.set(false);
+        consumer.join();
+
+        return receiver.averageLatency();
+    }
+
+    private static long runPosted(final int rate) throws Exception
+    {
+        final ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        final LatencyReceiver receiver = new LatencyReceiver(eventCount(rate));
+
+        try
+        {
+            runProducers(rate, new Sink()
+            {
+                @Override public void send(final TestEvent event)
+                {
+                    mainThread.execute(new Runnable()
+                    {
+                        @Override public void run()
+                        {
+                            receiver.onEvent(event);
+                        }
+                    });
+                }
+            });
+
+            assertTrue(receiver.m_done.await(30, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            mainThread.shutdown();
+        }
+
+        return receiver.averageLatency();
+    }
+
+    private static int eventCount(final int rate)
+    {
+        return (int) (rate * BENCHMARK_SECONDS) / PRODUCER_COUNT * PRODUCER_COUNT;
+    }
+
+    private static void runProducers(final int rate, final Sink sink) throws InterruptedException
+    {
+        final int perProducer = eventCount(rate) / PRODUCER_COUNT;
+        final long interval = TimeUnit.SECONDS.toNanos(1) * PRODUCER_COUNT / rate;
+        final Thread[] producers = new Thread[PRODUCER_COUNT];
+
+        for (int i = 0; i < PRODUCER_COUNT; i++)
+        {
+            final int producer = i;
+
+            producers[i] = new Thread(new Runnable()
+            {
+                @Override public void run()
+                {
+                    final long start = System.nanoTime();
+
+                    for (int j = 0; j < perProducer; j++)
+                    {
+                        while (System.nanoTime() - start < j * interval)
+                        {
+                        }
+
+                        sink.send(new TestEvent(producer, j));
+                    }
+                }
+            });
+
+            producers[i].start();
+        }
+
+        for (Thread producer : producers)
+        {
+            producer.join();
+        }
+    }
+
+    private interface Sink
+    {
+        void send(TestEvent event);
+    }
+
+    private static class TestEvent extends Event
+    {
+        private final int m_producer;
+        private final int m_index;
+        private final long m_time = System.nanoTime();
+
+        TestEvent(int producer, int index)
+        {
+            m_producer = producer;
+            m_index = index;
+        }
+    }
+
+    private static class Receiver implements GenericListener_Void<TestEvent>
+    {
+        private final List<TestEvent> m_events = new ArrayList<TestEvent>();
+
+        @Override public void onEvent(TestEvent e)
+        {
+            m_events.add(e);
+        }
+    }
+
+    private static class LatencyReceiver implements GenericListener_Void<TestEvent>
+    {
+        private final CountDownLatch m_done;
+        private final int[] m_nextIndex = new int[PRODUCER_COUNT];
+        private final AtomicLong m_totalLatency = new AtomicLong();
+        private final int m_count;
+
+        LatencyReceiver(int count)
+        {
+            m_count = count;
+            m_done = new CountDownLatch(count);
+        }
+
+        @Override public void onEvent(TestEvent e)
+        {
+            assertEquals(m_nextIndex[e.m_producer]++, e.m_index);
+
+            m_totalLatency.addAndGet(System.nanoTime() - e.m_time);
+            m_done.countDown();
+        }
+
+        long averageLatency()
+        {
+            return m_totalLatency.get() / m_count;
+        }
+    }
+
+}
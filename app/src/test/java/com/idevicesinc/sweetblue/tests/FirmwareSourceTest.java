@@ -0,0 +1,281 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.utils.FirmwareSource;
+import com.idevicesinc.sweetblue.utils.FirmwareSource_Binary;
+import com.idevicesinc.sweetblue.utils.FirmwareSource_IntelHex;
+import com.idevicesinc.sweetblue.utils.FirmwareSource_MappedFile;
+import com.idevicesinc.sweetblue.utils.Utils_Byte;
+
+import org.junit.Test;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class FirmwareSourceTest
+{
+
+    private static final int CHUNK_SIZE = 20;
+    private static final int IMAGE_SIZE = 256 * 1024;
+    private static final int BENCHMARK_IMAGE_SIZE = 1024 * 1024;
+
+
+    @Test
+    public void intelHexTest() throws Exception
+    {
+        final String hex =
+                ":020000040001F9\n" +
+                ":0400000001020304F2\n" +
+                ":03000400AABBCCC8\n" +
+                ":00000001FF\n" +
+                ":0100000055AA\n";
+
+        final FirmwareSource source = new FirmwareSource_IntelHex(new ByteArrayInputStream(hex.getBytes()));
+        final byte[] image = drain(source);
+
+        assertArrayEquals(new byte[] { 0x1, 0x2, 0x3, 0x4, (byte) 0xAA, (byte) 0xBB, (byte) 0xCC }, image);
+    }
+
+    @Test
+    public void intelHexOffsetTest() throws Exception
+    {
+        final String hex =
+                ":0400000001020304F2\n" +
+                ":03000400AABBCCC8\n" +
+                ":00000001FF\n";
+
+        final FirmwareSource source = new FirmwareSource_IntelHex(new ByteArrayInputStream(hex.getBytes()), 4);
+
+        assertArrayEquals(new byte[] { (byte) 0xAA, (byte) 0xBB, (byte) 0xCC }, drain(source));
+    }
+
+    @Test(expected = IOException.class)
+    public void intelHexChecksumTest() throws Exception
+    {
+        final String hex = ":0400000001020304F3\n";
+
+        drain(new FirmwareSource_IntelHex(new ByteArrayInputStream(hex.getBytes())));
+    }
+
+    @Test
+    public void binaryAndMappedTest() throws Exception
+    {
+        final byte[] image = new byte[1000];
+
+        for (int i = 0; i < image.length; i++)
+        {
+            image[i] = (byte) i;
+        }
+
+        assertArrayEquals(image, drain(new FirmwareSource_Binary(new ByteArrayInputStream(image), image.length)));
+
+        final File file = File.createTempFile("firmware", ".bin");
+        file.deleteOnExit();
+
+        final OutputStream out = new FileOutputStream(file);
+        out.write(image);
+        out.close();
+
+        final FirmwareSource mapped = new FirmwareSource_MappedFile(file);
+
+        assertEquals(image.length, mapped.size());
+        assertArrayEquals(image, drain(mapped));
+    }
+
+    @Test
+    public void matchesBinaryDataListTest() throws Exception
+    {
+        final File file = writeHexImage(IMAGE_SIZE);
+        file.deleteOnExit();
+
+        final byte[] streamed = drain(new FirmwareSource_IntelHex(new FileInputStream(file)));
+
+        assertEquals(IMAGE_SIZE, streamed.length);
+        assertArrayEquals(payloadOf(Utils_Byte.streamToBinaryDataList(new FileInputStream(file), 0)), streamed);
+    }
+
+    @Test
+    public void matchesBinaryDataListWithOffsetTest() throws Exception
+    {
+        //--- Only one 64K segment because fileToBinaryDataList() compares the 16-bit record address against the offset.
+        final File file = writeHexImage(0x8000);
+        file.deleteOnExit();
+
+        final int offset = 0x1000;
+        final byte[] streamed = drain(new FirmwareSource_IntelHex(new FileInputStream(file), offset));
+
+        assertEquals(0x8000 - offset, streamed.length);
+        assertArrayEquals(payloadOf(Utils_Byte.streamToBinaryDataList(new FileInputStream(file), offset)), streamed);
+    }
+
+    /**
+     * Prints how much heap is held while sending a {@link #BENCHMARK_IMAGE_SIZE} image, measured half way through, for the record
+     * list from {@link Utils_Byte#streamToBinaryDataList(java.io.InputStream, int)} and for {@link FirmwareSource_IntelHex}. The list
+     * holds every record until the transaction is done, while the source only holds its buffers, so it has to come out well under.
+     */
+    @Test
+    public void heapUsageBenchmark() throws Exception
+    {
+        final File file = writeHexImage(BENCHMARK_IMAGE_SIZE);
+        file.deleteOnExit();
+
+        long before = usedHeap();
+        List<byte[]> records = Utils_Byte.streamToBinaryDataList(new FileInputStream(file), 0);
+        final long listHeap = usedHeap() - before;
+
+        assertEquals(BENCHMARK_IMAGE_SIZE / 16 + BENCHMARK_IMAGE_SIZE / 0x10000 + 1, records.size());
+
+        records = null;
+
+        before = usedHeap();
+        final FirmwareSource source = new FirmwareSource_IntelHex(new FileInputStream(file));
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        int sent = 0;
+
+        while (sent < BENCHMARK_IMAGE_SIZE / 2)
+        {
+            sent += source.read(buffer, 0, buffer.length);
+        }
+
+        final long sourceHeap = usedHeap() - before;
+
+        source.close();
+
+        System.out.println("Heap held sending a " + BENCHMARK_IMAGE_SIZE / 1024 + "KB image: record list=" + listHeap / 1024 + "KB, streamed source=" + sourceHeap / 1024 + "KB");
+
+        assertTrue(sourceHeap < listHeap / 10);
+    }
+
+    private static long usedHeap() throws InterruptedException
+    {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * {@link FirmwareSource_IntelHex} only produces the payload of data records, while {@link Utils_Byte#fileToBinaryDataList(android.content.Context, String, int)}
+     * returns whole records (minus the checksum) of every type in reverse order, so this strips the list down to the same thing.
+     */
+    private static byte[] payloadOf(List<byte[]> records)
+    {
+        final List<byte[]> inOrder = new ArrayList<byte[]>(records);
+        Collections.reverse(inOrder);
+
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+        for (byte[] record : inOrder)
+        {
+            final int type = record[3] & 0xff;
+
+            if (type == 0x00)
+            {
+                payload.write(record, 4, record.length - 4);
+            }
+        }
+
+        return payload.toByteArray();
+    }
+
+    private static byte[] drain(FirmwareSource source) throws IOException
+    {
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        byte[] result = new byte[0];
+        int read;
+
+        while ((read = source.read(buffer, 0, buffer.length)) != -1)
+        {
+            final byte[] grown = Arrays.copyOf(result, result.length + read);
+            System.arraycopy(buffer, 0, grown, result.length, read);
+            result = grown;
+        }
+
+        source.close();
+
+        return result;
+    }
+
+    private static File writeHexImage(int size) throws IOException
+    {
+        final File file = File.createTempFile("firmware", ".hex");
+        final OutputStream out = new java.io.BufferedOutputStream(new FileOutputStream(file));
+        final int recordLength = 16;
+
+        for (int address = 0; address < size; address += recordLength)
+        {
+            if (address % 0x10000 == 0)
+            {
+                final int upper = address >>> 16;
+                writeRecord(out, 0, 0x04, new byte[] { (byte) (upper >>> 8), (byte) upper });
+            }
+
+            final byte[] data = new byte[recordLength];
+
+            for (int i = 0; i < data.length; i++)
+            {
+                data[i] = (byte) (address + i);
+            }
+
+            writeRecord(out, address & 0xffff, 0x00, data);
+        }
+
+        writeRecord(out, 0, 0x01, new byte[0]);
+        out.close();
+
+        return file;
+    }
+
+    private static void writeRecord(OutputStream out, int address, int type, byte[] data) throws IOException
+    {
+        final StringBuilder builder = new StringBuilder(":");
+        int checksum = data.length + (address >>> 8) + (address & 0xff) + type;
+
+        appendHex(builder, data.length);
+        appendHex(builder, address >>> 8);
+        appendHex(builder, address & 0xff);
+        appendHex(builder, type);
+
+        for (int i = 0; i < data.length; i++)
+        {
+            appendHex(builder, data[i] & 0xff);
+            checksum += data[i] & 0xff;
+        }
+
+        appendHex(builder, (-checksum) & 0xff);
+        builder.append('\n');
+
+        out.write(builder.toString().getBytes());
+    }
+
+    private static void appendHex(StringBuilder builder, int value)
+    {
+        builder.append(String.format("%02X", value & 0xff));
+    }
+
+}
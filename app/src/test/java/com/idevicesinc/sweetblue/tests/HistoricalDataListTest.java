@@ -0,0 +1,77 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.BleDeviceConfig;
+import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList_Default;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+
+@Config(manifest = Config.NONE)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataListTest
+{
+
+    private static final int READ_COUNT = 200000;
+
+
+    @Test(timeout = 30000)
+    public void readsDuringWritesNeverSeeNullTest() throws Exception
+    {
+        final Backend_HistoricalDataList_Default list = new Backend_HistoricalDataList_Default();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final HistoricalData data = new HistoricalData(new byte[]{ 1 }, new EpochTime(1000));
+
+        list.add_single(data, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_MEMORY, 1);
+
+        //--- A limit of zero clears the list before adding, which is the window the reads used to fall into.
+        final Thread writer = new Thread(new Runnable()
+        {
+            @Override public void run()
+            {
+                while (running.get())
+                {
+                    list.add_single(data, BleDeviceConfig.HistoricalDataLogFilter.PersistenceLevel_MEMORY, 0);
+                }
+            }
+        });
+
+        writer.start();
+
+        try
+        {
+            for (int i = 0; i < READ_COUNT; i++)
+            {
+                final HistoricalData read = list.get(EpochTimeRange.FROM_MIN_TO_MAX, 0);
+
+                assertNotNull(read);
+                assertFalse(read.isNull());
+
+                final Iterator<HistoricalData> iterator = list.getIterator(EpochTimeRange.FROM_MIN_TO_MAX);
+
+                assertTrue(iterator.hasNext());
+                assertNotNull(iterator.next());
+                assertNotNull(list.getCursor(EpochTimeRange.FROM_MIN_TO_MAX));
+            }
+        }
+        finally
+        {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+}
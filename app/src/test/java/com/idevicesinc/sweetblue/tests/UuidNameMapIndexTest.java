@@ -0,0 +1,145 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.utils.BasicUuidNameMap;
+import com.idevicesinc.sweetblue.utils.ReflectionUuidNameMap;
+import com.idevicesinc.sweetblue.utils.UuidNameMap;
+import com.idevicesinc.sweetblue.utils.UuidNameMap_Index;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class UuidNameMapIndexTest
+{
+
+    private static final UUID UUID_1 = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+
+
+    @Test
+    public void laterMapsTakePrecedenceTest()
+    {
+        final BasicUuidNameMap basic = new BasicUuidNameMap();
+        basic.add(Uuids.BATTERY_SERVICE_UUID.toString(), "MY_BATTERY");
+
+        final UuidNameMap_Index index = new UuidNameMap_Index(maps(new ReflectionUuidNameMap(Uuids.class), basic));
+
+        assertEquals("MY_BATTERY", index.getUuidName(Uuids.BATTERY_SERVICE_UUID));
+        assertEquals("BATTERY_LEVEL", index.getUuidName(Uuids.BATTERY_LEVEL));
+        assertEquals(UUID_1.toString(), index.getUuidName(UUID_1));
+    }
+
+    @Test
+    public void picksUpLaterAdditionsTest()
+    {
+        final BasicUuidNameMap basic = new BasicUuidNameMap();
+        final UuidNameMap_Index index = new UuidNameMap_Index(maps(basic));
+
+        //--- Miss first, so it's remembered before the entry shows up.
+        assertEquals(UUID_1.toString(), index.getUuidName(UUID_1));
+
+        basic.add(UUID_1.toString(), "FIRST");
+
+        assertEquals("FIRST", index.getUuidName(UUID_1));
+
+        basic.add(UUID_1.toString(), "SECOND");
+
+        assertEquals("SECOND", index.getUuidName(UUID_1));
+        assertEquals("SECOND", index.getUuidName(UUID_1.toString()));
+    }
+
+    @Test
+    public void customMapsNotCachedTest()
+    {
+        final String[] name = {"FIRST"};
+
+        final UuidNameMap_Index index = new UuidNameMap_Index(maps(new UuidNameMap()
+        {
+            @Override public String getUuidName(String uuid)
+            {
+                return name[0];
+            }
+        }));
+
+        assertEquals("FIRST", index.getUuidName(UUID_1));
+
+        name[0] = "SECOND";
+
+        assertEquals("SECOND", index.getUuidName(UUID_1));
+    }
+
+    @Test
+    public void customMapsOnlyOverrideEarlierMapsTest()
+    {
+        final BasicUuidNameMap basic = new BasicUuidNameMap();
+        basic.add(UUID_1.toString(), "BASIC");
+
+        final UuidNameMap custom = new UuidNameMap()
+        {
+            @Override public String getUuidName(String uuid)
+            {
+                return uuid.equals(UUID_1.toString()) || uuid.equals(Uuids.BATTERY_LEVEL.toString()) ? "CUSTOM" : null;
+            }
+        };
+
+        final UuidNameMap_Index before = new UuidNameMap_Index(maps(custom, basic));
+
+        assertEquals("BASIC", before.getUuidName(UUID_1));
+        assertEquals("CUSTOM", before.getUuidName(Uuids.BATTERY_LEVEL));
+
+        final UuidNameMap_Index after = new UuidNameMap_Index(maps(new ReflectionUuidNameMap(Uuids.class), basic, custom));
+
+        assertEquals("CUSTOM", after.getUuidName(UUID_1));
+        assertEquals("CUSTOM", after.getUuidName(Uuids.BATTERY_LEVEL));
+        assertEquals("BATTERY_SERVICE_UUID", after.getUuidName(Uuids.BATTERY_SERVICE_UUID));
+    }
+
+    @Test
+    public void indexOnlyHoldsMapEntriesTest()
+    {
+        final BasicUuidNameMap basic = new BasicUuidNameMap();
+        basic.add(UUID_1.toString(), "FIRST");
+
+        final UuidNameMap_Index index = new UuidNameMap_Index(maps(basic));
+
+        //--- Built up front, not as names are looked up.
+        assertEquals(1, entries(index).size());
+
+        for (int i = 0; i < 1000; i++)
+        {
+            final UUID uuid = new UUID(i, i);
+
+            assertEquals(uuid.toString(), index.getUuidName(uuid));
+        }
+
+        assertEquals(1, entries(index).size());
+    }
+
+    private static Map<?, ?> entries(final UuidNameMap_Index index)
+    {
+        final Object indexed = ReflectionHelpers.getField(index, "m_index");
+
+        return ReflectionHelpers.getField(indexed, "m_entries");
+    }
+
+    private static List<UuidNameMap> maps(final UuidNameMap ... maps)
+    {
+        final List<UuidNameMap> list = new ArrayList<UuidNameMap>();
+
+        for (UuidNameMap map : maps)
+        {
+            list.add(map);
+        }
+
+        return list;
+    }
+
+}
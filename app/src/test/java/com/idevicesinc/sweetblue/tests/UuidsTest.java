@@ -0,0 +1,65 @@
+package com.idevicesinc.sweetblue.tests;
+
+
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class UuidsTest
+{
+
+    @Test
+    public void fromShortTest()
+    {
+        final UUID expected = UUID.fromString("0000180f-0000-1000-8000-00805f9b34fb");
+
+        assertEquals(expected, Uuids.fromShort(0x180f));
+        assertEquals(expected, Uuids.fromShort("180f"));
+        assertEquals(expected, Uuids.fromShort((short) 0x180f, Uuids.STANDARD_UUID_TEMPLATE));
+        assertEquals(UUID.fromString("0000ffff-0000-1000-8000-00805f9b34fb"), Uuids.fromShort((short) 0xffff));
+        assertSame(Uuids.BATTERY_SERVICE_UUID, Uuids.fromShort(0x180f));
+        assertEquals(UUID.fromString("0000180f-1234-1000-8000-00805f9b34fb"), Uuids.fromShort("180f", "00000000-1234-1000-8000-00805f9b34fb"));
+    }
+
+    @Test
+    public void fromIntTest()
+    {
+        final UUID expected = UUID.fromString("f2630102-0000-1000-8000-00805f9b34fb");
+
+        assertEquals(expected, Uuids.fromInt(0xf2630102));
+        assertEquals(expected, Uuids.fromInt("f2630102"));
+        assertSame(Uuids.fromInt(0xf2630102), Uuids.fromInt(0xf2630102));
+        assertEquals(0xf2630102, Uuids.getInt(expected));
+        assertEquals(0x2a19, Uuids.getInt(Uuids.BATTERY_LEVEL));
+    }
+
+    @Test
+    public void internTest()
+    {
+        final UUID custom = UUID.fromString("6e400001-b5a3-f393-e0a9-e50e24dcca9e");
+        final UUID interned = Uuids.intern(custom);
+
+        assertSame(interned, Uuids.intern(new UUID(custom.getMostSignificantBits(), custom.getLeastSignificantBits())));
+        assertSame(Uuids.BATTERY_LEVEL, Uuids.intern(UUID.fromString("00002a19-0000-1000-8000-00805f9b34fb")));
+        assertTrue(Uuids.isStandard(Uuids.BATTERY_LEVEL));
+        assertFalse(Uuids.isStandard(custom));
+    }
+
+    @Test
+    public void areEqualTest()
+    {
+        assertTrue(Uuids.areEqual(null, null));
+        assertFalse(Uuids.areEqual(Uuids.BATTERY_LEVEL, null));
+        assertTrue(Uuids.areEqual(Uuids.BATTERY_LEVEL, UUID.fromString(Uuids.BATTERY_LEVEL.toString())));
+        assertFalse(Uuids.areEqual(Uuids.BATTERY_LEVEL, Uuids.BATTERY_SERVICE_UUID));
+    }
+
+}